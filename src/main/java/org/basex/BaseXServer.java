@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.core.*;
@@ -39,6 +40,8 @@ public final class BaseXServer extends Main implements Runnable {
   private StringList commands;
   /** Server socket. */
   private ServerSocket socket;
+  /** Client selector. */
+  private ClientSelector selector;
   /** Start as daemon. */
   private boolean service;
 
@@ -101,7 +104,8 @@ public final class BaseXServer extends Main implements Runnable {
       // execute command-line arguments
       for(final String c : commands) execute(c);
 
-      socket = new ServerSocket();
+      // sockets of accepted clients will provide channels
+      socket = ServerSocketChannel.open().socket();
       // reuse address on Linux machines
       socket.setReuseAddress(!Prop.WIN);
       socket.bind(new InetSocketAddress(addr, port));
@@ -109,6 +113,11 @@ public final class BaseXServer extends Main implements Runnable {
       esocket.setReuseAddress(!Prop.WIN);
       esocket.bind(new InetSocketAddress(addr, eport));
       stop = stopFile(port);
+      // clients that stall while sending a request are dropped after the keepalive time
+      selector = new ClientSelector(mprop.num(MainProp.PARALLEL),
+          (int) Math.min(Integer.MAX_VALUE, mprop.num(MainProp.KEEPALIVE) * 1000L),
+          context.log);
+      selector.start();
 
       // show info when server is aborted
       context.log.writeServer(OK, SRV_STARTED);
@@ -167,7 +176,7 @@ public final class BaseXServer extends Main implements Runnable {
             }, to);
             auth.add(cl);
           }
-          cl.start();
+          selector.add(cl);
         }
       } catch(final SocketException ex) {
         break;
@@ -200,6 +209,7 @@ public final class BaseXServer extends Main implements Runnable {
     for(final ClientListener cs : context.sessions) {
       cs.quit();
     }
+    selector.quit();
     super.quit();
 
     try {
@@ -375,7 +385,7 @@ public final class BaseXServer extends Main implements Runnable {
           final BufferInput bi = new BufferInput(es.getInputStream());
           final long id = Token.toLong(bi.readString());
           for(final ClientListener s : context.sessions) {
-            if(s.getId() == id) {
+            if(s.id() == id) {
               s.register(es);
               break;
             }
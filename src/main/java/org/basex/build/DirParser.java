@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -17,7 +18,14 @@ import org.basex.util.list.*;
 
 /**
  * This class recursively scans files and directories and parses all
- * relevant files.
+ * relevant files. Files in directories are sorted by their names.
+ *
+ * If a directory is parsed, small files are parsed by several worker threads
+ * into temporary main memory instances. The parsed documents are then
+ * added to the database builder by the calling thread, in the order in
+ * which the files were found. The number of pending documents is limited by
+ * the total size of their files. Larger files and archives are parsed
+ * sequentially and streamed to the database builder.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -25,6 +33,10 @@ import org.basex.util.list.*;
 public final class DirParser extends Parser {
   /** Number of skipped files to log. */
   private static final int SKIPLOG = 10;
+  /** Maximum size of files that are parsed by worker threads. */
+  private static final long MAXSIZE = 1 << 20;
+  /** Maximum total size of the files of pending documents per worker thread. */
+  private static final long PENDING = 1 << 22;
   /** Skipped files. */
   private final StringList skipped = new StringList();
   /** File pattern. */
@@ -42,6 +54,15 @@ public final class DirParser extends Parser {
   private final boolean rawParser;
   /** Database path for storing binary files. */
   private final IOFile rawPath;
+  /** Number of worker threads (parallel parsing is disabled if {@code 1}). */
+  private final int threads;
+
+  /** Worker threads ({@code null} if no documents have been submitted yet). */
+  private ExecutorService workers;
+  /** Documents that are parsed by worker threads, in the order of their input. */
+  private final ArrayDeque<Doc> pending = new ArrayDeque<Doc>();
+  /** Total size of the files of pending documents. */
+  private long size;
 
   /** Last source. */
   private IO lastSrc;
@@ -70,13 +91,25 @@ public final class DirParser extends Parser {
     // choose binary storage if (disk-based) database path is known and
     // if raw parser or "add raw" option were chosen
     rawPath = path != null && (addRaw || rawParser) ? new IOFile(path, M_RAW) : null;
+    threads = rawParser || !source.isDir() ? 1 : Runtime.getRuntime().availableProcessors();
   }
 
   @Override
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = src.path();
-    parse(build, src);
+    try {
+      parse(build, src);
+      while(!pending.isEmpty()) add(build);
+    } finally {
+      if(workers != null) {
+        for(final Doc d : pending) d.result.cancel(true);
+        pending.clear();
+        size = 0;
+        workers.shutdownNow();
+        workers = null;
+      }
+    }
   }
 
   /**
@@ -87,15 +120,24 @@ public final class DirParser extends Parser {
    */
   private void parse(final Builder b, final IO io) throws IOException {
     if(io instanceof IOFile && io.isDir()) {
-      for(final IO f : ((IOFile) io).children()) parse(b, f);
+      final IOFile[] children = ((IOFile) io).children();
+      Arrays.sort(children, new Comparator<IOFile>() {
+        @Override
+        public int compare(final IOFile f1, final IOFile f2) {
+          return f1.name().compareTo(f2.name());
+        }
+      });
+      for(final IO f : children) parse(b, f);
     } else if(archives && io.name().toLowerCase(Locale.ENGLISH).endsWith(IO.GZSUFFIX)) {
       // process GZIP archive
+      while(!pending.isEmpty()) add(b);
       final GZIPInputStream is = new GZIPInputStream(io.inputStream());
       src = new IOStream(is, io.name().replaceAll("\\..*", IO.XMLSUFFIX));
       parseResource(b);
       is.close();
     } else if(archives && io.isArchive()) {
       // process ZIP archive
+      while(!pending.isEmpty()) add(b);
       final ZipInputStream is = new ZipInputStream(io.inputStream());
       for(ZipEntry ze; (ze = is.getNextEntry()) != null;) {
         if(ze.isDirectory()) continue;
@@ -156,6 +198,14 @@ public final class DirParser extends Parser {
         }
       } else {
         // store input as XML
+        if(threads > 1 && src instanceof IOFile) {
+          if(l <= MAXSIZE) {
+            submit(b, targ, l);
+            return;
+          }
+          // large file: add pending documents first and stream the file
+          while(!pending.isEmpty()) add(b);
+        }
         boolean ok = true;
         IO in = src;
         if(skipCorrupt) {
@@ -187,6 +237,126 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Submits the current source to a worker thread. As long as the files of the
+   * pending documents are too large, the first document is added to the
+   * database builder.
+   * @param b builder instance
+   * @param targ target path
+   * @param l file size
+   * @throws IOException I/O exception
+   */
+  private void submit(final Builder b, final String targ, final long l)
+      throws IOException {
+
+    if(workers == null) workers = Executors.newFixedThreadPool(threads);
+    // each file is counted with at least one block
+    final long s = Math.max(l, IO.BLOCKSIZE);
+    while(!pending.isEmpty() && size + s > threads * PENDING) add(b);
+
+    final IO in = src;
+    size += s;
+    pending.add(new Doc(in, s, workers.submit(new Callable<MemData>() {
+      @Override
+      public MemData call() throws IOException {
+        try {
+          return MemBuilder.build("", Parser.singleParser(in, prop, targ));
+        } catch(final IOException ex) {
+          if(!skipCorrupt) throw ex;
+          Util.debug(ex.getMessage());
+          return null;
+        }
+      }
+    })));
+  }
+
+  /**
+   * Waits until the first pending document has been parsed, and adds it to
+   * the database builder.
+   * @param b builder instance
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder b) throws IOException {
+    b.checkStop();
+    final Doc doc = pending.poll();
+    size -= doc.size;
+    final MemData md;
+    try {
+      md = doc.result.get();
+    } catch(final InterruptedException ex) {
+      throw new BaseXException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new BaseXException((Exception) th);
+    }
+    if(md == null) {
+      skipped.add(doc.input.path());
+      return;
+    }
+
+    // copy document to the database builder
+    final IntList ends = new IntList();
+    final int size = md.meta.size;
+    final Atts at = new Atts();
+    for(int pre = 0; pre < size;) {
+      close(b, md, ends, pre);
+      final int k = md.kind(pre);
+      if(k == Data.DOC) {
+        b.startDoc(md.text(pre, true));
+        ends.push(pre);
+        pre++;
+      } else if(k == Data.ELEM) {
+        final Atts ns = md.ns(pre);
+        for(int n = 0; n < ns.size(); n++) b.startNS(ns.name(n), ns.string(n));
+        at.reset();
+        final int as = md.attSize(pre, k);
+        for(int a = 1; a < as; a++) {
+          at.add(md.name(pre + a, Data.ATTR), md.text(pre + a, false));
+        }
+        b.startElem(md.name(pre, k), at);
+        ends.push(pre);
+        pre += as;
+      } else if(k == Data.TEXT) {
+        b.text(md.text(pre, true));
+        pre++;
+      } else if(k == Data.COMM) {
+        b.comment(md.text(pre, true));
+        pre++;
+      } else {
+        b.pi(md.text(pre, true));
+        pre++;
+      }
+    }
+    close(b, md, ends, size);
+    b.encoding(md.meta.encoding);
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
+  /**
+   * Closes all nodes of a copied document that end before the specified
+   * position.
+   * @param b builder instance
+   * @param md document
+   * @param ends pre values of the opened nodes
+   * @param pre current pre value
+   * @throws IOException I/O exception
+   */
+  private static void close(final Builder b, final MemData md, final IntList ends,
+      final int pre) throws IOException {
+
+    while(!ends.isEmpty()) {
+      final int p = ends.peek();
+      final int k = md.kind(p);
+      if(p + md.size(p, k) > pre) break;
+      ends.pop();
+      if(k == Data.DOC) b.endDoc();
+      else b.endElem();
+    }
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -220,4 +390,26 @@ public final class DirParser extends Parser {
   public void close() throws IOException {
     if(parser != null) parser.close();
   }
+
+  /** Document that is parsed by a worker thread. */
+  private static final class Doc {
+    /** Input. */
+    final IO input;
+    /** Counted file size. */
+    final long size;
+    /** Parsed document ({@code null} if it was skipped). */
+    final Future<MemData> result;
+
+    /**
+     * Constructor.
+     * @param in input
+     * @param s counted file size
+     * @param res parsed document
+     */
+    Doc(final IO in, final long s, final Future<MemData> res) {
+      input = in;
+      size = s;
+      result = res;
+    }
+  }
 }
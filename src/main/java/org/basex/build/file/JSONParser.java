@@ -1,19 +1,25 @@
 package org.basex.build.file;
 
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
 import java.io.*;
 
-import org.basex.build.xml.*;
+import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
-import org.basex.query.*;
-import org.basex.query.util.*;
 import org.basex.query.util.json.*;
-import org.basex.query.value.node.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * This class parses files in the JSON format
  * and sends events to the specified database builder.
+ * The input is parsed in a streaming fashion: no intermediate tree
+ * representation is created. As the types of all names must be known when
+ * the root element is created, documents in the default format are scanned
+ * twice (see {@link JSONConverter} for details on the resulting document).
  *
  * <p>The parser provides some options, which can be specified via
  * <code>SET PARSEROPT ...</code>:</p>
@@ -21,21 +27,63 @@ import org.basex.query.value.node.*;
  * <ul>
  *   <li><code>jsonml</code> specifies if the input is parsed in the JsonML
  *   format (default: <code>no</code>).</li>
+ *   <li><code>encoding</code> specifies the input encoding
+ *   (default: <code>UTF-8</code>).</li>
  * </ul>
  *
  * <p>All options are separated by commas, and the keys and values are
  * separated by equality sign (=).</p>
  *
  * <p><b>Example</b>:
- * <code>SET PARSEROPT separator=tab,format=simple,header=no; CREATE DB ...
- * </code><br/>
- * <b>Description</b>: Use tabs as separator, choose simple XML format,
- * and indicate that the file contains no header.</p>
+ * <code>SET PARSEROPT jsonml=yes; CREATE DB ...</code><br/>
+ * <b>Description</b>: Parses the input in the JsonML format.</p>
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
-public final class JSONParser extends XMLParser {
+public final class JSONParser extends SingleParser {
+  /** Error: syntax error. */
+  private static final String JSON = "JSON parser (%:%): %.";
+  /** Error: JsonML error. */
+  private static final String JSONML = "JsonML parser (%:%): %.";
+  /** Error: invalid character. */
+  private static final String INVALID = "Invalid character: \"%\"";
+  /** Error: invalid and expected character. */
+  private static final String INVALEXP = "Char \"%\" found, % expected";
+
+  /** Plural. */
+  private static final byte[] S = { 's' };
+  /** Types that are listed in the root element. */
+  private static final byte[][] TYPES = { T_BOOLEAN, T_NUMBER, NULL, T_ARRAY, T_OBJECT };
+  /** Global data type attributes. */
+  private static final byte[][] ATTRS = {
+    concat(T_BOOLEAN, S), concat(T_NUMBER, S),
+    concat(NULL, S), concat(T_ARRAY, S), concat(T_OBJECT, S) };
+  /** Type of names with different types. */
+  private static final byte[] MIXED = {};
+
+  /** JsonML format. */
+  private final boolean jsonml;
+  /** Encoding. */
+  private final String encoding;
+  /** Token builder. */
+  private final TokenBuilder tb = new TokenBuilder();
+  /** Element names and their types (default format). */
+  private final TokenObjMap<byte[]> types = new TokenObjMap<byte[]>();
+  /** Converted element names (default format). */
+  private final TokenObjMap<byte[]> names = new TokenObjMap<byte[]>();
+
+  /** Input. */
+  private TextInput input;
+  /** Current character ({@code -1}: end of input). */
+  private int curr;
+  /** Current line. */
+  private int line;
+  /** Current column. */
+  private int col;
+  /** Analyzing flag: types are collected, no events are sent to the builder. */
+  private boolean analyze;
+
   /**
    * Constructor.
    * @param source document source
@@ -55,38 +103,475 @@ public final class JSONParser extends XMLParser {
    */
   public JSONParser(final IO source, final Prop pr, final String options)
       throws IOException {
-    super(toXML(source, options), pr);
+    super(source, pr);
+    final ParserProp props = new ParserProp(options);
+    jsonml = props.is(ParserProp.JSONML);
+    encoding = props.get(ParserProp.ENCODING);
+    // streams can only be read once
+    if(!jsonml && source instanceof IOStream) {
+      final IOContent io = new IOContent(source.read());
+      io.name(source.name());
+      src = io;
+    }
   }
 
+  @Override
+  public void parse() throws IOException {
+    if(jsonml) {
+      open();
+      try {
+        if(curr != '[') error(JSONML, "% expected for %, % found", T_ARRAY,
+            "element constructor", type());
+        element();
+        finish();
+      } finally {
+        input.close();
+      }
+    } else {
+      // first pass: find unique data types
+      analyze = true;
+      open();
+      try {
+        root();
+        finish();
+      } finally {
+        input.close();
+      }
+      // second pass: create document
+      analyze = false;
+      open();
+      try {
+        root();
+        finish();
+      } finally {
+        input.close();
+      }
+    }
+  }
+
+  @Override
+  public double prog() {
+    final double l = input == null ? 0 : input.length();
+    if(l <= 0) return 0;
+    final double p = input.size() / l;
+    return jsonml ? p : analyze ? p / 2 : .5 + p / 2;
+  }
+
+  // DEFAULT FORMAT ===========================================================
+
   /**
-   * Converts a JSON document to XML.
-   * @param io io reference
-   * @param options parsing options
-   * @return parser
+   * Parses the root object or array.
    * @throws IOException I/O exception
    */
-  private static IO toXML(final IO io, final String options) throws IOException {
-    // set parser properties
-    final ParserProp props = new ParserProp(options);
-    final boolean jsonml = props.is(ParserProp.JSONML);
-    final String encoding = props.get(ParserProp.ENCODING);
-
-    // parse input, using specified encoding
-    final byte[] content = new NewlineInput(io).encoding(encoding).content();
-
-    // parse input and convert to XML node
-    final ANode node;
-    try {
-      final XMLConverter conv = jsonml ?
-          new JsonMLConverter(null) : new JSONConverter(null);
-      node = conv.parse(content);
-
-      // create XML input container from serialized node
-      final IOContent xml = new IOContent(node.serialize().toArray());
-      xml.name(io.name());
-      return xml;
-    } catch(final QueryException ex) {
-      throw new BaseXException(ex.getLocalizedMessage());
+  private void root() throws IOException {
+    final byte[] type = curr == '{' ? T_OBJECT : curr == '[' ? T_ARRAY : null;
+    if(type == null) error(JSON, INVALEXP, chr(), "\"{\" or \"[\"");
+    if(analyze) {
+      types.add(T_JSON, type);
+      struct();
+    } else {
+      builder.startElem(T_JSON, attach(type));
+      struct();
+      builder.endElem();
+    }
+  }
+
+  /**
+   * Parses an object or array. The current character is the opening bracket.
+   * @throws IOException I/O exception
+   */
+  private void struct() throws IOException {
+    if(curr == '{') {
+      consume();
+      if(!wsConsume('}')) {
+        do {
+          skipWS();
+          if(curr != '"') error(JSON, INVALEXP, chr(), '"');
+          final byte[] name = name(string());
+          wsCheck(':');
+          value(name);
+        } while(wsConsume(','));
+        wsCheck('}');
+      }
+    } else {
+      consume();
+      if(!wsConsume(']')) {
+        do value(T_VALUE); while(wsConsume(','));
+        wsCheck(']');
+      }
+    }
+  }
+
+  /**
+   * Parses a value.
+   * @param name converted element name
+   * @throws IOException I/O exception
+   */
+  private void value(final byte[] name) throws IOException {
+    skipWS();
+    final byte[] type = type();
+    if(type == null) error(JSON, INVALEXP, chr(), '"');
+
+    if(analyze) {
+      final byte[] t = types.get(name);
+      if(t == null) types.add(name, type);
+      else if(t != MIXED && t != type) types.add(name, MIXED);
+    } else {
+      final byte[] t = types.get(name);
+      atts.reset();
+      if(t == MIXED && type != T_STRING) atts.add(T_TYPE, type);
+      builder.startElem(name, atts);
+    }
+
+    if(type == T_OBJECT || type == T_ARRAY) {
+      struct();
+    } else {
+      final byte[] v;
+      if(type == T_STRING) {
+        v = string();
+      } else if(type == T_NUMBER) {
+        v = number();
+      } else if(type == T_BOOLEAN) {
+        v = literal(curr == 't' ? TRUE : FALSE);
+      } else {
+        literal(NULL);
+        v = EMPTY;
+      }
+      if(!analyze) builder.text(v);
+    }
+    if(!analyze) builder.endElem();
+  }
+
+  /**
+   * Returns the attributes of the root element, which contain all names
+   * with unique types.
+   * @param type type of the root
+   * @return attributes
+   */
+  private Atts attach(final byte[] type) {
+    final TokenBuilder[] builders = new TokenBuilder[TYPES.length];
+    for(int b = 0; b < builders.length; b++) builders[b] = new TokenBuilder();
+
+    for(int i = 1; i <= types.size(); i++) {
+      final byte[] t = types.value(i);
+      for(int b = 0; b < builders.length; b++) {
+        if(t == TYPES[b]) {
+          if(!builders[b].isEmpty()) builders[b].add(' ');
+          builders[b].add(types.key(i));
+          break;
+        }
+      }
+    }
+    atts.reset();
+    if(types.get(T_JSON) == MIXED) atts.add(T_TYPE, type);
+    for(int b = 0; b < builders.length; b++) {
+      if(!builders[b].isEmpty()) atts.add(ATTRS[b], builders[b].finish());
+    }
+    return atts;
+  }
+
+  /**
+   * Returns a cached element name for the specified JSON name.
+   * @param name JSON name
+   * @return element name
+   */
+  private byte[] name(final byte[] name) {
+    byte[] nm = names.get(name);
+    if(nm == null) {
+      nm = JSONConverter.convert(name);
+      names.add(name, nm);
+    }
+    return nm;
+  }
+
+  // JSONML FORMAT ============================================================
+
+  /**
+   * Parses an element. The current character is the opening bracket.
+   * @throws IOException I/O exception
+   */
+  private void element() throws IOException {
+    consume();
+    skipWS();
+    if(curr == ']') error(JSONML, "No element name specified in array");
+    if(curr != '"') error(JSONML, "% expected for %, % found", T_STRING,
+        "element name", type());
+    final byte[] name = string();
+    if(!XMLToken.isNCName(name)) error(JSONML, "Invalid name: \"%\"", name);
+
+    // parse attributes
+    atts.reset();
+    boolean more = wsConsume(',');
+    if(more) {
+      skipWS();
+      if(curr == '{') {
+        consume();
+        if(!wsConsume('}')) {
+          do {
+            skipWS();
+            if(curr != '"') error(JSON, INVALEXP, chr(), '"');
+            final byte[] att = string();
+            if(!XMLToken.isNCName(att)) error(JSONML, "Invalid name: \"%\"", att);
+            if(atts.contains(att)) error(JSONML, "Duplicate attribute: \"%\"", att);
+            wsCheck(':');
+            skipWS();
+            if(curr != '"') error(JSONML, "% expected for %, % found", T_STRING,
+                "attribute value", type());
+            atts.add(att, string());
+          } while(wsConsume(','));
+          wsCheck('}');
+        }
+        more = wsConsume(',');
+      }
+    }
+    builder.startElem(name, atts);
+
+    // parse children
+    boolean txt = false;
+    while(more) {
+      skipWS();
+      if(curr == '[') {
+        element();
+        txt = false;
+      } else if(curr == '"') {
+        if(txt) error(JSONML, "No subsequent texts allowed");
+        txt = true;
+        builder.text(string());
+      } else {
+        final byte[] type = type();
+        if(type == null) error(JSON, INVALEXP, chr(), '"');
+        error(JSONML, "No % allowed at this stage", type);
+      }
+      more = wsConsume(',');
+    }
+    wsCheck(']');
+    builder.endElem();
+  }
+
+  // TOKENS ===================================================================
+
+  /**
+   * Returns the type of the value starting with the current character.
+   * @return type, or {@code null} if no value starts at this position
+   */
+  private byte[] type() {
+    final int c = curr;
+    return c == '{' ? T_OBJECT : c == '[' ? T_ARRAY : c == '"' ? T_STRING :
+      digit(c) || c == '-' ? T_NUMBER : c == 't' || c == 'f' ? T_BOOLEAN :
+      c == 'n' ? NULL : null;
+  }
+
+  /**
+   * Parses a string. The current character is the opening quote.
+   * @return string
+   * @throws IOException I/O exception
+   */
+  private byte[] string() throws IOException {
+    consume();
+    tb.reset();
+    while(curr != -1) {
+      int ch = curr;
+      consume();
+      if(ch == '"') return tb.finish();
+      if(ch == '\\') {
+        ch = curr;
+        consume();
+        if(ch == 'u') {
+          ch = hex();
+          // combine surrogate pairs
+          if(ch >= 0xD800 && ch < 0xDC00 && curr == '\\') {
+            consume();
+            if(curr != 'u') error(JSON, INVALID, "\\" + chr());
+            consume();
+            final int lo = hex();
+            ch = lo >= 0xDC00 && lo < 0xE000 ? (ch - 0xD800 << 10) + lo - 0xDC00 +
+                0x10000 : lo;
+          }
+        } else if(ch == 'b') {
+          ch = '\b';
+        } else if(ch == 'f') {
+          ch = '\f';
+        } else if(ch == 'n') {
+          ch = '\n';
+        } else if(ch == 'r') {
+          ch = '\r';
+        } else if(ch == 't') {
+          ch = '\t';
+        } else if(ch == -1 || "\\\"/".indexOf(ch) == -1) {
+          error(JSON, INVALID, "\\" + (char) ch);
+        }
+      }
+      tb.add(XMLToken.valid(ch) ? ch : '?');
+    }
+    throw error(JSON, INVALEXP, "", '"');
+  }
+
+  /**
+   * Parses four hex digits.
+   * @return resulting codepoint
+   * @throws IOException I/O exception
+   */
+  private int hex() throws IOException {
+    int i = 0;
+    for(int s = 0; s < 4; s++) {
+      final int ch = curr;
+      i <<= 4;
+      if(ch >= '0' && ch <= '9') i += ch - 0x30;
+      else if(ch >= 'A' && ch <= 'F') i += ch - 0x37;
+      else if(ch >= 'a' && ch <= 'f') i += ch - 0x57;
+      else error(JSON, INVALEXP, chr(), "hex digit");
+      consume();
     }
+    return i;
+  }
+
+  /**
+   * Parses a number.
+   * @return number
+   * @throws IOException I/O exception
+   */
+  private byte[] number() throws IOException {
+    tb.reset();
+    if(curr == '-') add();
+    if(curr == '0') add();
+    else digits();
+    if(curr == '.') {
+      add();
+      digits();
+    }
+    if(curr == 'e' || curr == 'E') {
+      add();
+      if(curr == '+' || curr == '-') add();
+      digits();
+    }
+    return tb.finish();
+  }
+
+  /**
+   * Consumes digits.
+   * @throws IOException I/O exception
+   */
+  private void digits() throws IOException {
+    if(!digit(curr)) error(JSON, INVALEXP, chr(), "digit");
+    do add(); while(digit(curr));
+  }
+
+  /**
+   * Consumes the specified literal.
+   * @param lit literal
+   * @return literal
+   * @throws IOException I/O exception
+   */
+  private byte[] literal(final byte[] lit) throws IOException {
+    for(final byte b : lit) check((char) b);
+    return lit;
+  }
+
+  // INPUT ====================================================================
+
+  /**
+   * Opens the input and skips leading whitespaces.
+   * @throws IOException I/O exception
+   */
+  private void open() throws IOException {
+    input = new NewlineInput(src).encoding(encoding);
+    line = 1;
+    col = 0;
+    consume();
+    skipWS();
+  }
+
+  /**
+   * Checks that no more characters are left after the root.
+   * @throws IOException I/O exception
+   */
+  private void finish() throws IOException {
+    skipWS();
+    if(curr != -1) error(JSON, INVALEXP, chr(), "end of file");
+  }
+
+  /**
+   * Reads the next character.
+   * @throws IOException I/O exception
+   */
+  private void consume() throws IOException {
+    curr = input.read();
+    if(curr == '\n') {
+      ++line;
+      col = 0;
+    } else {
+      ++col;
+    }
+  }
+
+  /**
+   * Adds the current character to the token builder and reads the next one.
+   * @throws IOException I/O exception
+   */
+  private void add() throws IOException {
+    tb.add(curr);
+    consume();
+  }
+
+  /**
+   * Consumes leading whitespaces and the specified character.
+   * @param c character to consume
+   * @return {@code true} if the character was found
+   * @throws IOException I/O exception
+   */
+  private boolean wsConsume(final int c) throws IOException {
+    skipWS();
+    if(curr != c) return false;
+    consume();
+    return true;
+  }
+
+  /**
+   * Consumes consecutive whitespace characters.
+   * @throws IOException I/O exception
+   */
+  private void skipWS() throws IOException {
+    while(curr != -1 && curr <= ' ' && curr != 0) consume();
+  }
+
+  /**
+   * Skips whitespaces, raises an error if the specified character cannot be
+   * consumed.
+   * @param ch character to be found
+   * @throws IOException I/O exception
+   */
+  private void wsCheck(final char ch) throws IOException {
+    if(!wsConsume(ch)) error(JSON, INVALEXP, chr(), "\"" + ch + '"');
+  }
+
+  /**
+   * Raises an error if the specified character cannot be consumed.
+   * @param ch character to be found
+   * @throws IOException I/O exception
+   */
+  private void check(final char ch) throws IOException {
+    if(curr != ch) error(JSON, INVALEXP, chr(), "\"" + ch + '"');
+    consume();
+  }
+
+  /**
+   * Returns a string representation of the current character.
+   * @return character
+   */
+  private String chr() {
+    return curr == -1 ? "" : new TokenBuilder().add(curr).toString();
+  }
+
+  /**
+   * Raises an error with the specified message.
+   * @param format error format
+   * @param msg error message
+   * @param ext error details
+   * @return build exception (indicates that an error is raised)
+   * @throws BuildException build exception
+   */
+  private BuildException error(final String format, final String msg,
+      final Object... ext) throws BuildException {
+    throw new BuildException(format, line, col, Util.inf(msg, ext));
   }
 }
@@ -0,0 +1,46 @@
+package org.basex.build.xml;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.build.BuildText.Type;
+import org.basex.core.*;
+
+/**
+ * This class delivers the tokens of an XML document to the {@link XMLParser}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+abstract class XMLLexer extends Progress {
+  /** Document encoding. */
+  String encoding = UTF8;
+  /** Current token type. */
+  Type type;
+
+  /**
+   * Reads the next token.
+   * @return {@code false} if the end of the input has been reached
+   * @throws IOException I/O exception
+   */
+  abstract boolean more() throws IOException;
+
+  /**
+   * Returns the current token.
+   * @return token
+   */
+  abstract byte[] current();
+
+  /**
+   * Finishes scanning.
+   * @throws IOException I/O exception
+   */
+  abstract void close() throws IOException;
+
+  @Override
+  public abstract String det();
+
+  @Override
+  public abstract double prog();
+}
@@ -17,6 +17,9 @@ import org.basex.util.list.*;
  * tolerant alternative to Java's internal SAX parser, which is used by the
  * {@link SAXWrapper} class.
  *
+ * If the input is large enough, the scanner runs in a separate thread
+ * (see {@link Prop#PIPESIZE}).
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -24,7 +27,7 @@ public class XMLParser extends SingleParser {
   /** Strip namespaces. */
   private final boolean stripNS;
   /** Scanner reference. */
-  private final XMLScanner scanner;
+  private final XMLLexer scanner;
   /** Names of opened elements. */
   private final TokenList tags = new TokenList();
   /** Allow document fragment as input. */
@@ -53,7 +56,9 @@ public class XMLParser extends SingleParser {
       throws IOException {
 
     super(source, pr);
-    scanner = new XMLScanner(source, pr, frag);
+    final XMLScanner sc = new XMLScanner(source, pr, frag);
+    final long size = pr.num(Prop.PIPESIZE);
+    scanner = !frag && size > 0 && source.length() >= size ? new XMLPipe(sc) : sc;
     stripNS = pr.is(Prop.STRIPNS);
     fragment = frag;
   }
@@ -64,13 +69,13 @@ public class XMLParser extends SingleParser {
     scanner.more();
     while(true) {
       if(scanner.type == Type.TEXT) {
-        final byte[] text = scanner.token.finish();
+        final byte[] text = scanner.current();
         if(!tags.isEmpty() || fragment || !ws(text))
-          builder.text(scanner.token.finish());
+          builder.text(scanner.current());
       } else if(scanner.type == Type.COMMENT) {
-        builder.comment(scanner.token.finish());
+        builder.comment(scanner.current());
       } else if(scanner.type == Type.PI) {
-        builder.pi(scanner.token.finish());
+        builder.pi(scanner.current());
       } else if(scanner.type == Type.EOF) {
         break;
       } else if(scanner.type != Type.DTD) {
@@ -132,7 +137,7 @@ public class XMLParser extends SingleParser {
       consume(Type.QUOTE);
       byte[] av = EMPTY;
       if(scanner.type == Type.ATTVALUE) {
-        av = scanner.token.finish();
+        av = scanner.current();
         scanner.more();
       }
       consume(Type.QUOTE);
@@ -186,7 +191,7 @@ public class XMLParser extends SingleParser {
    */
   private byte[] consumeToken(final Type t) throws IOException {
     if(scanner.type == t) {
-      final byte[] tok = scanner.token.finish();
+      final byte[] tok = scanner.current();
       scanner.more();
       return tok;
     }
@@ -0,0 +1,185 @@
+package org.basex.build.xml;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.basex.build.BuildText.Type;
+import org.basex.core.*;
+import org.basex.util.*;
+
+/**
+ * This class runs the {@link XMLScanner} in a separate thread. The scanned
+ * tokens are passed on in batches, which are recycled via two bounded queues.
+ * Decoding and scanning the input is thus performed in parallel with
+ * building the database.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class XMLPipe extends XMLLexer implements Runnable {
+  /** Number of tokens per batch. */
+  private static final int SIZE = 1 << 12;
+  /** Number of batches. */
+  private static final int BATCHES = 8;
+
+  /** Scanner. */
+  private final XMLScanner scanner;
+  /** Scanned batches. */
+  private final BlockingQueue<Batch> full = new ArrayBlockingQueue<Batch>(BATCHES);
+  /** Free batches. */
+  private final BlockingQueue<Batch> free = new ArrayBlockingQueue<Batch>(BATCHES);
+  /** Scanner thread ({@code null} if scanning has not been started yet). */
+  private Thread thread;
+  /** Current batch. */
+  private Batch batch;
+  /** Position of the current token in the batch. */
+  private int pos;
+
+  /**
+   * Constructor.
+   * @param sc scanner
+   */
+  XMLPipe(final XMLScanner sc) {
+    scanner = sc;
+    encoding = sc.encoding;
+    for(int b = 0; b < BATCHES; b++) free.add(new Batch());
+  }
+
+  @Override
+  boolean more() throws IOException {
+    if(type == Type.EOF) return false;
+    if(batch == null || ++pos == batch.size) next();
+    type = batch.types[pos];
+    return type != Type.EOF;
+  }
+
+  @Override
+  byte[] current() {
+    return batch.tokens[pos];
+  }
+
+  @Override
+  void close() throws IOException {
+    if(thread == null) {
+      scanner.close();
+    } else if(type == Type.EOF) {
+      // raise errors that occurred when the scanner was closed
+      if(batch.error != null) batch.error();
+    } else {
+      // parsing has been aborted: stop the scanner thread and close the input
+      thread.interrupt();
+      try {
+        thread.join();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+      scanner.close();
+    }
+  }
+
+  @Override
+  public String det() {
+    return batch == null ? scanner.det() : scanner.det(batch.lines[pos]);
+  }
+
+  @Override
+  public double prog() {
+    return scanner.prog();
+  }
+
+  @Override
+  public void run() {
+    try {
+      Batch b = free.take();
+      try {
+        for(boolean more = true; more;) {
+          more = scanner.more();
+          final Type t = scanner.type;
+          b.add(t, content(t) ? scanner.current() : null, scanner.line());
+          if(!more) scanner.close();
+          if(!more || b.size == SIZE) {
+            full.put(b);
+            if(more) b = free.take();
+          }
+        }
+      } catch(final IOException ex) {
+        b.error = ex;
+        full.put(b);
+      } catch(final RuntimeException ex) {
+        b.error = ex;
+        full.put(b);
+      }
+    } catch(final InterruptedException ex) {
+      // parsing has been aborted
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Returns the next batch. Starts the scanner thread if necessary.
+   * @throws IOException I/O exception
+   */
+  private void next() throws IOException {
+    if(batch == null) {
+      thread = new Thread(this);
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      if(batch.error != null) batch.error();
+      batch.size = 0;
+      free.add(batch);
+    }
+    try {
+      batch = full.take();
+    } catch(final InterruptedException ex) {
+      throw new BaseXException(ex);
+    }
+    pos = 0;
+    if(batch.size == 0) batch.error();
+  }
+
+  /**
+   * Checks if the parser requires the content of tokens with the specified type.
+   * @param t token type
+   * @return result of check
+   */
+  private static boolean content(final Type t) {
+    return t == Type.TEXT || t == Type.ELEMNAME || t == Type.ATTNAME ||
+        t == Type.ATTVALUE || t == Type.COMMENT || t == Type.PI;
+  }
+
+  /** Batch of scanned tokens. */
+  private static final class Batch {
+    /** Token types. */
+    final Type[] types = new Type[SIZE];
+    /** Token contents (entries may be {@code null}). */
+    final byte[][] tokens = new byte[SIZE][];
+    /** Lines of the tokens. */
+    final int[] lines = new int[SIZE];
+    /** Number of tokens. */
+    int size;
+    /** Error that occurred after the last token. */
+    Exception error;
+
+    /**
+     * Adds a token.
+     * @param t token type
+     * @param tok token content
+     * @param l line
+     */
+    void add(final Type t, final byte[] tok, final int l) {
+      types[size] = t;
+      tokens[size] = tok;
+      lines[size++] = l;
+    }
+
+    /**
+     * Throws the error that occurred after the last token.
+     * @throws IOException I/O exception
+     */
+    void error() throws IOException {
+      if(error instanceof IOException) throw (IOException) error;
+      throw (RuntimeException) error;
+    }
+  }
+}
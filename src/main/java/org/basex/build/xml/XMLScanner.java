@@ -23,7 +23,7 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  * @author Andreas Weiler
  */
-final class XMLScanner extends Progress {
+final class XMLScanner extends XMLLexer {
   /** Entities. */
   private static final String[] ENTITIES =
     { "amp", "&", "apos", "'", "quot", "\"", "lt", "<", "gt", ">" };
@@ -44,10 +44,6 @@ final class XMLScanner extends Progress {
 
   /** Character buffer for the current token. */
   final TokenBuilder token = new TokenBuilder();
-  /** Document encoding. */
-  final String encoding;
-  /** Current token type. */
-  Type type;
 
   /** Index for all entity names. */
   private final TokenMap ents = new TokenMap();
@@ -125,11 +121,7 @@ final class XMLScanner extends Progress {
     }
   }
 
-  /**
-   * Reads and interprets the next token from the input stream.
-   * @return true if the document scanning has been completed
-   * @throws IOException I/O exception
-   */
+  @Override
   boolean more() throws IOException {
     // gets next character from the input stream
     token.reset();
@@ -149,10 +141,12 @@ final class XMLScanner extends Progress {
     return true;
   }
 
-  /**
-   * Finishes file scanning.
-   * @throws IOException I/O exception
-   */
+  @Override
+  byte[] current() {
+    return token.finish();
+  }
+
+  @Override
   void close() throws IOException {
     input.close();
     if(!fragment && prolog) error(DOCEMPTY);
@@ -1022,9 +1016,25 @@ final class XMLScanner extends Progress {
 
   @Override
   public String det() {
+    return det(input.line());
+  }
+
+  /**
+   * Returns the current line.
+   * @return line
+   */
+  int line() {
+    return input.line();
+  }
+
+  /**
+   * Returns a string with the input path and the specified line.
+   * @param line line
+   * @return position
+   */
+  String det(final int line) {
     final String path = input.io().path();
-    return path.isEmpty() ? Util.info(LINE_X, input.line()) :
-        Util.info(SCANPOS_X_X, input.io().path(), input.line());
+    return path.isEmpty() ? Util.info(LINE_X, line) : Util.info(SCANPOS_X_X, path, line);
   }
 
   @Override
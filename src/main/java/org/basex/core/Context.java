@@ -198,12 +198,16 @@ public final class Context {
   }
 
   /**
-   * Checks if the specified database is pinned.
+   * Checks if the specified database is pinned. The database is claimed by the
+   * current process, so it cannot be opened by readers of snapshots until the
+   * process has been unregistered. Databases that are currently accessed by
+   * readers of snapshots are regarded as pinned.
    * @param db name of database
    * @return result of check
    */
   public boolean pinned(final String db) {
-    return dbs.pinned(db) || TableDiskAccess.locked(db, this);
+    // the check must not be invalidated by readers of snapshots
+    return !dbs.claim(db) || dbs.pinned(db) || TableDiskAccess.locked(db, this);
   }
 
   /**
@@ -225,7 +229,13 @@ public final class Context {
         if(sl.get(d).isEmpty()) sl.set(d, data.meta.name);
       }
     }
+    // main-memory databases do not support snapshots
+    if(pr.snapshots && dbs.mainmem()) pr.snapshots = false;
     locks.acquire(pr, sl);
+    // readers of snapshots wait for commands that replace or delete databases
+    if(pr.snapshots) dbs.read(sl);
+    // logged updates will be synchronized after the locks have been released
+    RedoLog.defer();
   }
 
   /**
@@ -233,7 +243,9 @@ public final class Context {
    * @param pr process
    */
   public void unregister(final Progress pr) {
+    dbs.release();
     locks.release(pr);
+    RedoLog.sync();
     pr.stopTimeout();
   }
 
@@ -96,6 +96,13 @@ public final class DBLocking implements ILocking {
       queue.remove(thread);
     }
 
+    // Readers of snapshots need no further locks (see Datas#read)
+    if(pr.snapshots) {
+      writeLocked.put(thread, new String[0]);
+      readLocked.put(thread, new String[0]);
+      return;
+    }
+
     // No databases specified: lock globally
     if(db == null && pr.updating) writeAll.writeLock().lock();
     else writeAll.readLock().lock();
@@ -172,7 +179,9 @@ public final class DBLocking implements ILocking {
     }
 
     // Release global locks
-    (writeAll.isWriteLocked() ? writeAll.writeLock() : writeAll.readLock()).unlock();
+    if(!pr.snapshots) {
+      (writeAll.isWriteLocked() ? writeAll.writeLock() : writeAll.readLock()).unlock();
+    }
     if(null == readObjects) synchronized(globalLock) {
       globalReaders--;
       globalLock.notifyAll();
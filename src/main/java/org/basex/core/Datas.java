@@ -3,16 +3,29 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.data.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class organizes all currently opened database.
  *
+ * Readers of database snapshots take no locks. Instead, they are registered
+ * here, and commands that replace or delete database files claim the affected
+ * databases before checking if they are pinned. Databases that are accessed by
+ * readers cannot be claimed, and new readers wait until all claims of their
+ * databases have been released, so no snapshot can be opened after the check.
+ * Both are indexed by the ids of the threads that run the processes.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class Datas {
   /** List of data references. */
   private final ArrayList<Data> list = new ArrayList<Data>();
+  /** Databases accessed by readers of snapshots ({@code null}: all databases). */
+  private final HashMap<Long, StringList> readers = new HashMap<Long, StringList>();
+  /** Claimed databases, and the threads claiming them. */
+  private final HashMap<String, Long> claims = new HashMap<String, Long>();
 
   /**
    * Pins and returns an existing data reference for the specified database, or
@@ -65,6 +78,15 @@ public final class Datas {
     return false;
   }
 
+  /**
+   * Checks if a main-memory database is opened.
+   * @return result of check
+   */
+  synchronized boolean mainmem() {
+    for(final Data d : list) if(d.inMemory()) return true;
+    return false;
+  }
+
   /**
    * Closes all data references.
    */
@@ -73,6 +95,49 @@ public final class Datas {
     list.clear();
   }
 
+  /**
+   * Registers a reader of snapshots. Waits until none of the specified databases
+   * is claimed anymore.
+   * @param db names of databases ({@code null}: all databases)
+   */
+  synchronized void read(final StringList db) {
+    final Long thread = Thread.currentThread().getId();
+    while(claimed(db, thread)) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+    }
+    readers.put(thread, db);
+  }
+
+  /**
+   * Claims a database that will be replaced or deleted by the current thread.
+   * New readers of snapshots of this database will wait until the claim has been
+   * released. This method does not wait for other processes, as it may be called
+   * while monitors are held that are also requested by readers of snapshots.
+   * @param db name of the database
+   * @return {@code false} if the database is accessed by readers of snapshots or
+   * claimed by other threads
+   */
+  public synchronized boolean claim(final String db) {
+    final Long thread = Thread.currentThread().getId();
+    if(claimed(new StringList().add(db), thread) || read(db, thread)) return false;
+    claims.put(db, thread);
+    return true;
+  }
+
+  /**
+   * Unregisters the reader of snapshots and releases all claims of the current thread.
+   */
+  synchronized void release() {
+    final Long thread = Thread.currentThread().getId();
+    final boolean read = readers.containsKey(thread);
+    readers.remove(thread);
+    if(claims.values().removeAll(Collections.singleton(thread)) || read) notifyAll();
+  }
+
   /**
    * Returns the number of pins for the specified database,
    * or {@code 0} if the database is not opened.
@@ -85,4 +150,32 @@ public final class Datas {
     }
     return 0;
   }
+
+  /**
+   * Checks if one of the specified databases has been claimed by another thread.
+   * @param db names of databases ({@code null}: all databases)
+   * @param thread id of the current thread
+   * @return result of check
+   */
+  private boolean claimed(final StringList db, final Long thread) {
+    for(final Map.Entry<String, Long> e : claims.entrySet()) {
+      if(!e.getValue().equals(thread) && (db == null || db.contains(e.getKey())))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the specified database is read by readers of snapshots of other threads.
+   * @param db name of the database
+   * @param thread id of the current thread
+   * @return result of check
+   */
+  private boolean read(final String db, final Long thread) {
+    for(final Map.Entry<Long, StringList> e : readers.entrySet()) {
+      final StringList sl = e.getValue();
+      if(!e.getKey().equals(thread) && (sl == null || sl.contains(db))) return true;
+    }
+    return false;
+  }
 }
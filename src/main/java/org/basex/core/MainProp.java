@@ -3,6 +3,7 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 
 /**
  * This class assembles admin properties which are used all around the project.
@@ -30,6 +31,8 @@ public final class MainProp extends AProp {
   public static final Object[] LANG = { "LANG", Prop.language };
   /** Flag to include key names in the language strings. */
   public static final Object[] LANGKEYS = { "LANGKEYS", false };
+  /** Size of the page cache (in megabytes), shared by all opened databases. */
+  public static final Object[] CACHESIZE = { "CACHESIZE", 16 };
 
   /** Comment: written to property file. */
   public static final Object[] C_CLIENT = { "Client/Server Architecture" };
@@ -86,6 +89,9 @@ public final class MainProp extends AProp {
   /** Hidden option: defines the locking algorithm (process vs. database locking);
    *  will be removed as soon as database locking is stable. */
   public static final Object[] DBLOCKING = { "DBLOCKING", false };
+  /** Evaluates read-only queries on snapshots of the accessed databases.
+   *  Queries will not wait for updating processes, and vice versa. */
+  public static final Object[] SNAPSHOTS = { "SNAPSHOTS", false };
 
   /**
    * Constructor, adopting system properties starting with "org.basex.".
@@ -97,6 +103,7 @@ public final class MainProp extends AProp {
     Prop.language = get(LANG);
     Prop.langkeys = is(LANGKEYS);
     Prop.debug = is(DEBUG);
+    BufferPool.size(num(CACHESIZE));
     final String ph = get(PROXYHOST);
     final String pp = Integer.toString(num(PROXYPORT));
     AProp.setSystem("http.proxyHost", ph);
@@ -8,7 +8,8 @@ import org.basex.util.list.*;
 /**
  * Management of executing read/write processes.
  * Supports multiple readers, limited by {@link MainProp#PARALLEL},
- * and a single writer (readers/writer lock).
+ * and a single writer (readers/writer lock). Readers of database snapshots
+ * are only limited by the number of parallel readers.
  *
  * This locking is activated by default. It will be replace by {@link DBLocking}
  * in future versions.
@@ -26,6 +27,8 @@ final class ProcessLocking implements ILocking {
 
   /** Number of active readers. */
   private int readers;
+  /** Number of active readers of database snapshots. */
+  private int snapshots;
   /** Writer flag. */
   private boolean writer;
 
@@ -49,7 +52,13 @@ final class ProcessLocking implements ILocking {
       final int maxReaders = Math.max(ctx.mprop.num(MainProp.PARALLEL), 1);
 
       while(true) {
-        if(!writer && o == queue.get(0)) {
+        if(pr.snapshots) {
+          // readers of snapshots need not wait for other processes
+          if(readers + snapshots < maxReaders) {
+            ++snapshots;
+            break;
+          }
+        } else if(!writer && o == queue.get(0)) {
           if(pr.updating) {
             // check updating process
             if(readers == 0) {
@@ -57,7 +66,7 @@ final class ProcessLocking implements ILocking {
               writer = true;
               break;
             }
-          } else if(readers < maxReaders) {
+          } else if(readers + snapshots < maxReaders) {
             // increase number of readers
             ++readers;
             break;
@@ -73,7 +82,7 @@ final class ProcessLocking implements ILocking {
         }
       }
       // start process, remove from queue
-      queue.remove(0);
+      queue.remove(o);
     }
   }
 
@@ -82,6 +91,8 @@ final class ProcessLocking implements ILocking {
     synchronized(mutex) {
       if(pr.updating) {
         writer = false;
+      } else if(pr.snapshots) {
+        --snapshots;
       } else {
         --readers;
       }
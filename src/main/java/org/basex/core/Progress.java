@@ -16,6 +16,9 @@ import org.basex.util.list.*;
 public abstract class Progress {
   /** This flag indicates that a command may perform updates. */
   public boolean updating;
+  /** This flag indicates that a command reads snapshots of the accessed databases,
+   *  and need not wait for updating processes. */
+  public boolean snapshots;
 
   /** Stopped flag. */
   private boolean stopped;
@@ -67,6 +67,8 @@ public final class Prop extends AProp {
   public static final Object[] MAINMEM = { "MAINMEM", false };
   /** Flag for opening a database after creating it. */
   public static final Object[] CREATEONLY = { "CREATEONLY", false };
+  /** Flag for reading database files via memory mapping. */
+  public static final Object[] MMAP = { "MMAP", false };
 
   // Parsing
 
@@ -102,6 +104,8 @@ public final class Prop extends AProp {
   public static final Object[] DTD = { "DTD", false };
   /** Path to XML Catalog file. */
   public static final Object[] CATFILE = { "CATFILE", "" };
+  /** Minimum size of XML documents that are scanned in a separate thread (0: never). */
+  public static final Object[] PIPESIZE = { "PIPESIZE", 1 << 24 };
 
   // Indexing
 
@@ -111,6 +115,8 @@ public final class Prop extends AProp {
   public static final Object[] ATTRINDEX = { "ATTRINDEX", true };
   /** Flag for creating a full-text index. */
   public static final Object[] FTINDEX = { "FTINDEX", false };
+  /** Flag for creating a substring index. */
+  public static final Object[] SUBINDEX = { "SUBINDEX", false };
 
   /** Maximum length of index entries. */
   public static final Object[] MAXLEN = { "MAXLEN", 96 };
@@ -131,6 +137,8 @@ public final class Prop extends AProp {
   public static final Object[] LANGUAGE = { "LANGUAGE", "en" };
   /** Path to full-text stopword list. */
   public static final Object[] STOPWORDS = { "STOPWORDS", "" };
+  /** Flag for indexing the n-grams of full-text tokens (speeds up wildcard queries). */
+  public static final Object[] FTGRAMS = { "FTGRAMS", false };
 
   // Query Options
 
@@ -150,6 +158,9 @@ public final class Prop extends AProp {
   public static final Object[] LSERROR = { "LSERROR", 0 };
   /** Number of query executions. */
   public static final Object[] RUNS = { "RUNS", 1 };
+  /** Maximum number of items that are grouped or sorted in main memory before
+   *  temporary results are written to disk; deactivated if set to 0. */
+  public static final Object[] SPILLSIZE = { "SPILLSIZE", 1 << 22 };
 
   // Serialize
 
@@ -175,6 +186,8 @@ public final class Prop extends AProp {
 
   /** Flushes the database after each update. */
   public static final Object[] AUTOFLUSH = { "AUTOFLUSH", true };
+  /** Maximum size of the write-ahead log (0: no logging). */
+  public static final Object[] WALSIZE = { "WALSIZE", 0 };
   /** Writes original files back after updates. */
   public static final Object[] WRITEBACK = { "WRITEBACK", false };
   /** Maximum number of index occurrences to print. */
@@ -234,7 +234,7 @@ public interface Text {
     LI + CmdCreate.EVENT + " [" + C_NAME + "]: " + NL +
     "  " + lang("c_create9") + NL +
     LI + CmdCreate.INDEX + " [" + CmdIndex.TEXT + '|' + CmdIndex.ATTRIBUTE +
-    '|' + CmdIndex.FULLTEXT + "]:" + NL +
+    '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.SUBSTRING + "]:" + NL +
     "  " + lang("c_create5") + NL +
     LI + CmdCreate.USER + " [" + C_NAME + "] ([" + C_PW + "]):" + NL +
     "  " + lang("c_create8")
@@ -305,8 +305,8 @@ public interface Text {
       "  " + lang("c_drop21") + NL +
     LI + CmdDrop.EVENT + " [" + C_NAME + "]:" + NL +
       "  " + lang("c_drop25", C_NAME) + NL +
-    LI + CmdDrop.INDEX + " [" + CmdIndex.TEXT + '|' +
-      CmdIndex.ATTRIBUTE + '|' + CmdIndex.FULLTEXT + "]:" + NL +
+    LI + CmdDrop.INDEX + " [" + CmdIndex.TEXT + '|' + CmdIndex.ATTRIBUTE +
+      '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.SUBSTRING + "]:" + NL +
       "  " + lang("c_drop22") + NL +
     LI + CmdDrop.USER + " [" + C_NAME + "] (" + ON + " [database]): " + NL +
       "  " + lang("c_drop23")
@@ -483,6 +483,8 @@ public interface Text {
   String INDEX_ATTRIBUTES_D = lang("index_attributes") + DOTS;
   /** Create full-text index. */
   String INDEX_FULLTEXT_D = lang("index_fulltext") + DOTS;
+  /** Create substring index. */
+  String INDEX_SUBSTRINGS_D = lang("index_substrings") + DOTS;
 
   /** Database created. */
   String DB_CREATED_X_X = lang("db_created_%_%");
@@ -596,6 +598,11 @@ public interface Text {
   String FUZZY = "Fuzzy";
   /** Index info. */
   String SORTED_LIST = "Sorted List";
+  /** Index info. */
+  String NGRAMS = "N-Grams";
+
+  /** Pattern cache info. */
+  String PATTERN_CACHE = "Pattern Cache";
 
   // XQUERY COMMAND ===========================================================
 
@@ -778,6 +785,8 @@ public interface Text {
   String STRINGS_FOUND_X = lang("strings_found_%");
   /** "Strings were replaced.". */
   String STRINGS_REPLACED = lang("strings_replaced");
+  /** Info on the page cache. */
+  String PAGE_CACHE_X_X_X_X_X = lang("page_cache_%_%_%_%_%");
 
   /** Info on whitespace chopping. */
   String WS_CHOPPING = lang("ws_chopping");
@@ -787,6 +796,8 @@ public interface Text {
   String ATTRIBUTE_INDEX = lang("attribute_index");
   /** Info on full-text indexing. */
   String FULLTEXT_INDEX = lang("fulltext_index");
+  /** Info on substring indexing. */
+  String SUBSTRING_INDEX = lang("substring_index");
   /** Info on path summary. */
   String PATH_INDEX = lang("path_index");
   /** Info on up-to-date. */
@@ -9,6 +9,7 @@ import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.ft.*;
+import org.basex.index.gram.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.util.*;
@@ -110,18 +111,59 @@ public abstract class ACreate extends Command {
    */
   protected static void create(final IndexType index, final Data data, final ACreate cmd)
       throws IOException {
+    create(data, cmd, index);
+  }
+
+  /**
+   * Builds the specified indexes. The indexes are built in parallel, and the
+   * available processors are distributed among all index builders.
+   * Existing indexes remain accessible while the new indexes are built:
+   * they are only closed and replaced after all builders have finished.
+   * @param data data reference
+   * @param cmd calling command (can be {@code null})
+   * @param indexes indexes to be built
+   * @throws IOException I/O exception
+   */
+  protected static void create(final Data data, final ACreate cmd,
+      final IndexType... indexes) throws IOException {
 
-    if(data.inMemory()) return;
+    final int il = indexes.length;
+    if(data.inMemory() || il == 0) return;
 
-    final IndexBuilder ib;
-    switch(index) {
-      case TEXT:      ib = new ValueBuilder(data, true); break;
-      case ATTRIBUTE: ib = new ValueBuilder(data, false); break;
-      case FULLTEXT:  ib = new FTBuilder(data); break;
-      default:        throw Util.notexpected();
+    final int threads = Runtime.getRuntime().availableProcessors() / il;
+    final IndexBuilder[] ibs = new IndexBuilder[il];
+    for(int i = 0; i < il; i++) {
+      final IndexBuilder ib;
+      switch(indexes[i]) {
+        case TEXT:      ib = new ValueBuilder(data, true); break;
+        case ATTRIBUTE: ib = new ValueBuilder(data, false); break;
+        case FULLTEXT:  ib = new FTBuilder(data); break;
+        case SUBSTRING: ib = new GramBuilder(data); break;
+        default:        throw Util.notexpected();
+      }
+      ibs[i] = ib.parallel(threads, cmd);
+    }
+    // progress of the first builder will be shown
+    if(cmd != null) cmd.progress(ibs[0]);
+    IndexBuilder.build(ibs);
+    for(int i = 0; i < il; i++) {
+      data.closeIndex(indexes[i]);
+      data.setIndex(indexes[i], ibs[i].open());
     }
-    data.closeIndex(index);
-    data.setIndex(index, (cmd == null ? ib : cmd.progress(ib)).build());
+  }
+
+  /**
+   * Returns the indexes that are to be created for the specified database.
+   * @param meta meta data
+   * @return indexes
+   */
+  protected static IndexType[] indexes(final MetaData meta) {
+    IndexType[] it = {};
+    if(meta.createtext) it = Array.add(it, IndexType.TEXT);
+    if(meta.createattr) it = Array.add(it, IndexType.ATTRIBUTE);
+    if(meta.createftxt) it = Array.add(it, IndexType.FULLTEXT);
+    if(meta.createsubstr) it = Array.add(it, IndexType.SUBSTRING);
+    return it;
   }
 
   /**
@@ -145,6 +187,10 @@ public abstract class ACreate extends Command {
         data.meta.ftxtindex = false;
         pat = DATAFTX;
         break;
+      case SUBSTRING:
+        data.meta.substrindex = false;
+        pat = DATASUB;
+        break;
       default:
     }
     data.closeIndex(index);
@@ -77,6 +77,7 @@ abstract class AQuery extends Command {
           if(r != 0) qp = null;
           qp = queryProcessor(query, context);
           qp.parse();
+          qp.snapshots(snapshots);
           pars += init + p.time();
           init = 0;
           if(r == 0) plan(false);
@@ -111,6 +112,8 @@ abstract class AQuery extends Command {
           qp.close();
           prnt += p.time();
         }
+        // results of snapshots cannot be accessed after the query has been closed
+        if(snapshots) result = null;
         // dump some query info
         if(prop.is(Prop.QUERYINFO)) evalInfo(query, hits, updates, runs);
         out.flush();
@@ -175,6 +178,16 @@ abstract class AQuery extends Command {
     return args[0] != null && updating(ctx, args[0]);
   }
 
+  /**
+   * Evaluates the parsed query on snapshots of the accessed databases, if possible.
+   * Must only be called by commands that serialize the query result.
+   */
+  final void snapshots() {
+    if(qp == null) return;
+    qp.snapshots(true);
+    snapshots = qp.snapshots;
+  }
+
   @Override
   public boolean updated(final Context ctx) {
     return qp != null && qp.updates() != 0;
@@ -116,7 +116,9 @@ public final class Add extends ACreate {
       // skip update if fragment is empty
       if(tmp.meta.size > 1) {
         if(lock && !data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
-        data.insert(data.meta.size, -1, new DataClip(tmp));
+        final AtomicUpdateList atomics = new AtomicUpdateList(data);
+        atomics.addInsert(data.meta.size, -1, new DataClip(tmp), false);
+        atomics.execute(false);
         context.update();
         if(lock) data.finishUpdate();
       }
@@ -45,6 +45,10 @@ public final class DropIndex extends ACreate {
         data.meta.createftxt = false;
         it = IndexType.FULLTEXT;
         break;
+      case SUBSTRING:
+        data.meta.createsubstr = false;
+        it = IndexType.SUBSTRING;
+        break;
       default:
         return error(UNKNOWN_CMD_X, this);
     }
@@ -29,7 +29,9 @@ public final class Find extends AQuery {
 
   @Override
   public boolean updating(final Context ctx) {
-    return updating(ctx, find(args[0], ctx, false));
+    final boolean up = updating(ctx, find(args[0], ctx, false));
+    snapshots();
+    return up;
   }
 
   @Override
@@ -5,6 +5,7 @@ import static org.basex.core.Text.*;
 import java.io.*;
 
 import org.basex.core.*;
+import org.basex.query.regex.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -46,6 +47,7 @@ public final class Info extends AInfo {
       Performance.gc(2);
       info(tb, USED_MEM, Performance.getMemory());
     }
+    info(tb, PATTERN_CACHE, PatternCache.info());
     if(context.user.has(Perm.ADMIN)) {
       final AProp prop = context.mprop;
       tb.add(NL + MAIN_OPTIONS + NL);
@@ -51,6 +51,7 @@ public final class InfoIndex extends AInfo {
     tb.add(info(CmdIndexInfo.TEXT, data));
     tb.add(info(CmdIndexInfo.ATTRIBUTE, data));
     tb.add(info(CmdIndexInfo.FULLTEXT, data));
+    tb.add(info(CmdIndexInfo.SUBSTRING, data));
     tb.add(info(CmdIndexInfo.PATH, data));
     out.print(tb.finish());
     return true;
@@ -79,6 +80,8 @@ public final class InfoIndex extends AInfo {
           data.meta.attrindex);
       case FULLTEXT:  return info(FULLTEXT_INDEX, IndexType.FULLTEXT, data,
           data.meta.ftxtindex);
+      case SUBSTRING: return info(SUBSTRING_INDEX, IndexType.SUBSTRING, data,
+          data.meta.substrindex);
       default:        return Token.token(LI + NOT_AVAILABLE);
     }
   }
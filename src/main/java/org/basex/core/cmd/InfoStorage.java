@@ -10,6 +10,7 @@ import org.basex.core.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -63,6 +64,7 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    out.println(BufferPool.info());
     return true;
   }
 
@@ -7,6 +7,8 @@ import java.io.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.ft.*;
+import org.basex.index.value.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -119,9 +121,23 @@ public final class Optimize extends ACreate {
     }
 
     // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, c);
-    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, c);
-    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, c);
+    IndexType[] create = {};
+    create = optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, create);
+    create = optimize(IndexType.TEXT,      data, md.createtext, md.textindex, create);
+    // recreate value indexes if their numeric keys have been dropped by updates
+    if(md.createattr && md.attrindex && data.atvindex instanceof DiskValues &&
+        !((DiskValues) data.atvindex).numeric())
+      create = Array.add(create, IndexType.ATTRIBUTE);
+    if(md.createtext && md.textindex && data.txtindex instanceof DiskValues &&
+        !((DiskValues) data.txtindex).numeric())
+      create = Array.add(create, IndexType.TEXT);
+    create = optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, create);
+    // merge updates of the full-text index with its main structures
+    if(md.createftxt && md.ftxtindex && data.ftxindex instanceof FTIndex &&
+        ((FTIndex) data.ftxindex).updated())
+      create = Array.add(create, IndexType.FULLTEXT);
+    create = optimize(IndexType.SUBSTRING, data, md.createsubstr, md.substrindex, create);
+    create(data, c, create);
   }
 
   /**
@@ -130,18 +146,18 @@ public final class Optimize extends ACreate {
    * @param d data reference
    * @param create create flag
    * @param old old flag
-   * @param c calling command
-   * @throws IOException I/O exception
-   *
+   * @param indexes indexes to be created
+   * @return indexes to be created
    */
-  private static void optimize(final IndexType type, final Data d,
-      final boolean create, final boolean old, final Optimize c) throws IOException {
+  private static IndexType[] optimize(final IndexType type, final Data d,
+      final boolean create, final boolean old, final IndexType[] indexes) {
 
     // check if flags are nothing has changed
-    if(create == old) return;
+    if(create == old) return indexes;
 
     // create or drop index
-    if(create) create(type, d, c);
-    else drop(type, d);
+    if(create) return Array.add(indexes, type);
+    drop(type, d);
+    return indexes;
   }
 }
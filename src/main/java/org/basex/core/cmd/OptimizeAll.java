@@ -9,7 +9,6 @@ import org.basex.core.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
-import org.basex.index.*;
 import org.basex.io.*;
 import org.basex.io.serial.*;
 import org.basex.query.value.node.*;
@@ -102,7 +101,8 @@ public final class OptimizeAll extends ACreate {
     if(cmd != null) cmd.size = m.size;
 
     // check if database is also pinned by other users
-    if(ctx.dbs.pins(m.name) > 1) throw new BaseXException(DB_PINNED_X, m.name);
+    if(!ctx.dbs.claim(m.name) || ctx.dbs.pins(m.name) > 1)
+      throw new BaseXException(DB_PINNED_X, m.name);
 
     // find unique temporary database name
     final String tname = ctx.mprop.random(m.name);
@@ -118,18 +118,18 @@ public final class OptimizeAll extends ACreate {
     ctx.prop.set(Prop.CASESENS,   m.casesens);
     ctx.prop.set(Prop.DIACRITICS, m.diacritics);
     ctx.prop.set(Prop.LANGUAGE,   m.language.toString());
+    ctx.prop.set(Prop.FTGRAMS,    m.ftgrams);
 
     // build database and index structures
     final DiskBuilder builder = new DiskBuilder(tname, new DBParser(old, cmd), ctx);
     try {
       final DiskData d = builder.build();
-      if(m.createtext) create(IndexType.TEXT, d, cmd);
-      if(m.createattr) create(IndexType.ATTRIBUTE, d, cmd);
-      if(m.createftxt) create(IndexType.FULLTEXT, d, cmd);
+      create(d, cmd, indexes(m));
       // adopt original meta data
       d.meta.createtext = m.createtext;
       d.meta.createattr =  m.createattr;
       d.meta.createftxt = m.createftxt;
+      d.meta.createsubstr = m.createsubstr;
       d.meta.filesize   = m.filesize;
       d.meta.users      = m.users;
       d.meta.dirty      = true;
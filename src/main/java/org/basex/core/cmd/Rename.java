@@ -5,6 +5,7 @@ import static org.basex.util.Token.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
+import org.basex.data.atomic.*;
 import org.basex.io.*;
 import org.basex.util.list.*;
 
@@ -39,17 +40,19 @@ public final class Rename extends ACreate {
     boolean ok = true;
     int c = 0;
     final IntList docs = data.resources.docs(src);
-    final int ds = docs.size();
-    for(int i = 0; i < ds; i++) {
+    final AtomicUpdateList atomics = new AtomicUpdateList(data);
+    // updates must be ordered from the highest to the lowest pre value
+    for(int i = docs.size() - 1; i >= 0; i--) {
       final int pre = docs.get(i);
       final String target = target(data, pre, src, trg);
       if(target.isEmpty()) {
         ok = !info(NAME_INVALID_X, target);
       } else {
-        data.update(pre, Data.DOC, token(target));
+        atomics.addUpdateValue(pre, Data.DOC, token(target));
         c++;
       }
     }
+    atomics.execute(false);
 
     final IOFile file = data.meta.binary(src);
     if(file != null && file.exists()) {
@@ -21,4 +21,11 @@ public final class XQuery extends AQuery {
   protected boolean run() {
     return query(args[0]);
   }
+
+  @Override
+  public boolean updating(final Context ctx) {
+    final boolean up = super.updating(ctx);
+    snapshots();
+    return up;
+  }
 }
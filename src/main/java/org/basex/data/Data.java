@@ -2,6 +2,7 @@ package org.basex.data;
 
 import static org.basex.util.Token.*;
 
+import java.io.*;
 import java.util.*;
 import java.util.List;
 
@@ -98,6 +99,8 @@ public abstract class Data {
   public Index atvindex;
   /** Full-text index instance. */
   public Index ftxindex;
+  /** Substring index. */
+  public Index subindex;
   /** Number of current database users. */
   public int pins = 1;
 
@@ -138,6 +141,25 @@ public abstract class Data {
    */
   public abstract void finishUpdate();
 
+  /**
+   * Returns a snapshot of the last committed state of the database, which will not
+   * be affected by subsequent updates. The snapshot must be closed after use.
+   * Main-memory databases do not support snapshots and return themselves.
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  public Data snapshot() throws IOException {
+    return this;
+  }
+
+  /**
+   * Logs the specified updates before they are executed.
+   * @param list updates
+   * @param merge merge flag, passed on to {@link AtomicUpdateList#execute(boolean)}
+   * @return {@code true} if the updates have been logged
+   */
+  public abstract boolean log(AtomicUpdateList list, boolean merge);
+
   /**
    * Returns the indexed pre references for the specified token.
    * @param token index token reference
@@ -177,6 +199,7 @@ public abstract class Data {
       case TEXT:      return txtindex;
       case ATTRIBUTE: return atvindex;
       case FULLTEXT:  return ftxindex;
+      case SUBSTRING: return subindex;
       case PATH:      return paths;
       default:        throw Util.notexpected();
     }
@@ -16,7 +16,7 @@ public interface DataText {
   String STORAGE = "7.1";
   /** Index version; if it's modified, new indexes can't be parsed anymore
    * by older versions. */
-  String ISTORAGE = "7.1";
+  String ISTORAGE = "7.6.1";
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -46,6 +46,8 @@ public interface DataText {
   String DBATVIDX = "ATVINDEX";
   /** Full-text indexing. */
   String DBFTXIDX = "FTXINDEX";
+  /** Substring indexing. */
+  String DBSUBIDX = "SUBINDEX";
   /** Full-text stemming. */
   String DBFTST = "FTSTEM";
   /** Full-text language. */
@@ -54,6 +56,8 @@ public interface DataText {
   String DBFTCS = "FTCS";
   /** Full-text diacritics removal. */
   String DBFTDC = "FTDC";
+  /** Full-text n-gram indexing. */
+  String DBFTGR = "FTGRAMS";
   /** Maximum token length. */
   String DBMAXLEN = "MAXLEN";
   /** Maximum number of categories. */
@@ -72,6 +76,8 @@ public interface DataText {
   String DBCRTATV = "CRTATV";
   /** Full-text indexing. */
   String DBCRTFTX = "CRTFTX";
+  /** Substring indexing. */
+  String DBCRTSUB = "CRTSUB";
 
   /** Full-text wildcards indexing (legacy, obsolete). */
   String DBWCIDX = "WCINDEX";
@@ -101,10 +107,16 @@ public interface DataText {
   String DATAATV = "atv";
   /** Database - Full-text index. */
   String DATAFTX = "ftx";
+  /** Database - Substring index. */
+  String DATASUB = "sub";
   /** Database - Stopword list. */
   String DATASWL = "swl";
   /** Database - Updating flag. */
   String DATAUPD = "upd";
+  /** Database - Write-ahead log. */
+  String DATAWAL = "wal";
+  /** Database - Undo log. */
+  String DATAUND = "und";
 
   // XML SERIALIZATION ========================================================
 
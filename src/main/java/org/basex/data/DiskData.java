@@ -4,17 +4,21 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.data.atomic.*;
 import org.basex.index.*;
 import org.basex.index.ft.*;
+import org.basex.index.gram.*;
 import org.basex.index.name.*;
 import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -26,6 +30,14 @@ import org.basex.util.list.*;
  * for textual content in a compressed disk structure.
  * The table mapping is documented in {@link Data}.
  *
+ * Read-only snapshots of the last committed state can be created via
+ * {@link #snapshot()}. A snapshot consists of a copy of the meta data and the
+ * main-memory structures, and a snapshot of the table (see {@link TableDiskAccess}).
+ * Texts and attribute values are shared with the database; they are only appended
+ * as long as snapshots exist. Snapshots of databases with updatable indexes are
+ * evaluated without index structures. Before an index is rebuilt or dropped,
+ * all snapshots using it must have been closed.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
@@ -49,6 +61,28 @@ public final class DiskData extends Data {
   private TokenObjMap<IntList> atvs;
   /** Closed flag. */
   private boolean closed;
+  /** Redo log ({@code null} if updates are not logged). */
+  private RedoLog redo;
+  /** Undo log ({@code null} if updates are not logged). */
+  private UndoLog undo;
+  /** Indicates if logged updates are being performed again. */
+  private boolean replay;
+
+  /** Indicates if a snapshot is created whenever the database is updated. */
+  private final boolean versioned;
+  /** Indicates if the database is currently updated. */
+  private boolean updating;
+  /** Snapshot of the last committed state ({@code null} if not yet created). */
+  private DiskData snapshot;
+  /** Snapshots that have not been discarded yet. */
+  private final ArrayList<DiskData> views = new ArrayList<DiskData>();
+
+  /** Database from which this snapshot was created ({@code null} for databases). */
+  private final DiskData source;
+  /** Serialized meta data and main-memory structures of a snapshot. */
+  private byte[] image;
+  /** Number of queries using this snapshot. */
+  private int refs;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -58,23 +92,26 @@ public final class DiskData extends Data {
    */
   public DiskData(final String db, final Context ctx) throws IOException {
     meta = new MetaData(db, ctx);
+    versioned = ctx.mprop.is(MainProp.SNAPSHOTS);
+    source = null;
+
+    // restore the state of the last checkpoint if updates have been logged
+    final IOFile wal = meta.dbfile(DATAWAL);
+    final boolean recover = wal.exists();
+    if(recover) {
+      if(TableDiskAccess.locked(db, ctx)) throw new BaseXException(Text.DB_PINNED_X, db);
+      UndoLog.restore(meta.dbfile(DATAUND));
+      updateFile().delete();
+    } else {
+      meta.dbfile(DATAUND).delete();
+    }
 
     // don't open databases marked as updating
     if(updateFile().exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
 
     final DataInput in = new DataInput(meta.dbfile(DATAINF));
     try {
-      // read meta data and indexes
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
-        else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
-        else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
-        else if(k.equals(DBNS))   nspaces = new Namespaces(in);
-        else if(k.equals(DBDOCS)) resources.read(in);
-      }
+      read(in);
     } finally {
       in.close();
     }
@@ -89,7 +126,23 @@ public final class DiskData extends Data {
       if(meta.attrindex) atvindex = new DiskValues(this, false);
     }
     if(meta.ftxtindex) ftxindex = new FTIndex(this);
+    if(meta.substrindex) subindex = new GramIndex(this);
     init();
+
+    // perform logged updates again
+    if(recover) {
+      table.lock(true);
+      try {
+        undo = UndoLog.open(meta.dbfile(DATAUND));
+        redo = new RedoLog(wal);
+        replay = true;
+        redo.replay(this);
+        replay = false;
+        checkpoint(false);
+      } finally {
+        table.lock(false);
+      }
+    }
   }
 
   /**
@@ -111,17 +164,75 @@ public final class DiskData extends Data {
     paths.data(this);
     nspaces = n;
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
+    versioned = false;
+    source = null;
     init();
   }
 
+  /**
+   * Snapshot constructor, called from {@link #view}.
+   * @param src database
+   * @param img serialized meta data and main-memory structures
+   * @param tbl table snapshot ({@code null} if a new snapshot is to be created)
+   * @param ids id/pre mapping ({@code null} if it is to be copied)
+   * @param skip index that will not be opened (may be {@code null})
+   * @throws IOException I/O Exception
+   */
+  private DiskData(final DiskData src, final byte[] img, final TableDiskAccess tbl,
+      final IdPreMap ids, final IndexType skip) throws IOException {
+
+    source = src;
+    versioned = false;
+    image = img;
+    meta = new MetaData(src.meta);
+    read(new DataInput(new IOContent(img)));
+    meta.corrupt = src.meta.corrupt;
+
+    table = tbl != null ? tbl : ((TableDiskAccess) src.table).snapshot(meta);
+    idmap = ids != null || src.idmap == null ? ids : new IdPreMap(src.idmap);
+    texts = src.texts;
+    values = src.values;
+
+    // updatable indexes are not versioned
+    final boolean ui = meta.updindex;
+    meta.textindex &= !ui && skip != IndexType.TEXT && src.txtindex != null;
+    meta.attrindex &= !ui && skip != IndexType.ATTRIBUTE && src.atvindex != null;
+    meta.ftxtindex &= !ui && skip != IndexType.FULLTEXT && src.ftxindex != null;
+    // the substring index is never updated
+    meta.substrindex &= skip != IndexType.SUBSTRING && src.subindex != null;
+    if(meta.textindex) txtindex = new DiskValues(this, true);
+    if(meta.attrindex) atvindex = new DiskValues(this, false);
+    if(meta.ftxtindex) ftxindex = new FTIndex(this);
+    if(meta.substrindex) subindex = new GramIndex(this);
+  }
+
+  /**
+   * Reads the meta data and the main-memory structures.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  private void read(final DataInput in) throws IOException {
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
+      else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
+      else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
+      else if(k.equals(DBNS))   nspaces = new Namespaces(in);
+      else if(k.equals(DBDOCS)) resources.read(in);
+    }
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
    */
   public void init() throws IOException {
+    final boolean mm = meta.prop.is(Prop.MMAP);
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    texts = new DataAccess(meta.dbfile(DATATXT), mm);
+    values = new DataAccess(meta.dbfile(DATAATV), mm);
   }
 
   /**
@@ -131,38 +242,108 @@ public final class DiskData extends Data {
   private void write() throws IOException {
     if(meta.dirty) {
       final DataOutput out = new DataOutput(meta.dbfile(DATAINF));
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      tagindex.write(out);
-      out.writeToken(token(DBATTS));
-      atnindex.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
+      write(out);
       out.close();
       if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
       meta.dirty = false;
     }
-    // in all cases, remove updating file
-    updateFile().delete();
+  }
+
+  /**
+   * Writes the meta data and the main-memory structures.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    tagindex.write(out);
+    out.writeToken(token(DBATTS));
+    atnindex.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
+  /**
+   * Writes all meta data and buffered data to disk.
+   * @throws IOException I/O exception
+   */
+  private void flush() throws IOException {
+    write();
+    table.flush();
+    texts.flush();
+    values.flush();
+    if(txtindex != null) ((DiskValues) txtindex).flush();
+    if(atvindex != null) ((DiskValues) atvindex).flush();
+    if(ftxindex != null) ((FTIndex) ftxindex).flush();
+  }
+
+  /**
+   * Writes all logged updates to disk and deletes the logs.
+   * @param keep start new logs
+   * @throws IOException I/O exception
+   */
+  private void checkpoint(final boolean keep) throws IOException {
+    // save files that will be completely rewritten
+    undo.save(meta.dbfile(DATAINF));
+    undo.save(meta.dbfile(DATATBL + 'i'));
+    undo.save(meta.dbfile(DATAIDP));
+    undo.save(meta.dbfile(DATAFTX + 'd'));
+    undo.sync();
+    // meta data may have been changed by logged updates
+    meta.dirty = true;
+    flush();
+    undo.syncFiles();
+    // the database is consistent as soon as the redo log has been deleted
+    redo.close();
+    redo.delete();
+    undo.close();
+    redo = null;
+    undo = null;
+    if(keep) log();
+  }
+
+  /**
+   * Creates new logs. All files must have been written and synchronized before.
+   * @throws IOException I/O exception
+   */
+  private void log() throws IOException {
+    final UndoLog ul = UndoLog.open(meta.dbfile(DATAUND));
+    try {
+      redo = new RedoLog(meta.dbfile(DATAWAL));
+    } catch(final IOException ex) {
+      ul.close();
+      throw ex;
+    }
+    undo = ul;
   }
 
   @Override
   public synchronized void close() {
+    if(source != null) {
+      source.release(this);
+      return;
+    }
     if(closed) return;
     closed = true;
     try {
+      for(final DiskData view : new ArrayList<DiskData>(views)) discard(view);
+      snapshot = null;
+      if(redo != null) checkpoint(false);
       write();
+      updateFile().delete();
       table.close();
       texts.close();
       values.close();
       closeIndex(IndexType.TEXT);
       closeIndex(IndexType.ATTRIBUTE);
       closeIndex(IndexType.FULLTEXT);
+      closeIndex(IndexType.SUBSTRING);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -173,6 +354,36 @@ public final class DiskData extends Data {
     // close existing index
     final Index index = index(type);
     if(index == null) return;
+
+    // new readers will access a snapshot without the index
+    if(snapshot != null && snapshot.index(type) != null) {
+      final DiskData s = snapshot;
+      try {
+        snapshot = new DiskData(this, s.image, (TableDiskAccess) s.table, s.idmap, type);
+        views.add(snapshot);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+        snapshot = null;
+      }
+      if(s.refs == 0) discard(s);
+    }
+    // wait until all snapshots using the index have been closed
+    while(indexed(type)) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+    }
+    // index files will be changed without logging
+    if(redo != null) {
+      try {
+        updateFile().touch();
+        checkpoint(false);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
     index.close();
 
     // invalidate index reference
@@ -181,39 +392,85 @@ public final class DiskData extends Data {
       case TEXT:      txtindex = null; break;
       case ATTRIBUTE: atvindex = null; break;
       case FULLTEXT:  ftxindex = null; break;
+      case SUBSTRING: subindex = null; break;
       default:        break;
     }
   }
 
   @Override
-  public void setIndex(final IndexType type, final Index index) {
+  public synchronized void setIndex(final IndexType type, final Index index) {
     meta.dirty = true;
     switch(type) {
       case TEXT:      txtindex = index; break;
       case ATTRIBUTE: atvindex = index; break;
       case FULLTEXT:  ftxindex = index; break;
+      case SUBSTRING: subindex = index; break;
       default:        break;
     }
   }
 
   @Override
-  public boolean startUpdate() {
+  public synchronized boolean startUpdate() {
+    if(source != null) return false;
+    // preserve the committed state for readers. updates must not be started
+    // without a snapshot, as readers would otherwise see uncommitted changes
+    if(versioned && snapshot == null) {
+      try {
+        snapshot = view();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+        return false;
+      }
+    }
+
+    // the updating file is not required if updates are logged
+    final int max = meta.prop.num(Prop.WALSIZE);
     final IOFile uf = updateFile();
-    return (uf.exists() || uf.touch()) && table.lock(true);
+    if(!(redo != null && max > 0 || uf.exists() || uf.touch()) || !table.lock(true))
+      return false;
+
+    // reclaim unused blocks
+    ((TableDiskAccess) table).reclaim();
+    updating = true;
+
+    try {
+      if(max > 0 && redo == null) {
+        // start logging: the files on disk must reflect the current state
+        flush();
+        for(final IOFile f : meta.path.children()) {
+          if(!f.isDir()) LogFile.sync(f);
+        }
+        log();
+        uf.delete();
+      } else if(max == 0 && redo != null) {
+        checkpoint(false);
+      }
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    return true;
   }
 
   @Override
   public synchronized void finishUpdate() {
+    // the current snapshot will not be used by subsequent readers
+    updating = false;
+    final DiskData s = snapshot;
+    snapshot = null;
+    if(s != null && s.refs == 0) discard(s);
+
     // skip all flush operations if auto flush is off, or file has already been closed
     if(!meta.prop.is(Prop.AUTOFLUSH) || closed) return;
 
     try {
-      write();
-      table.flush();
-      texts.flush();
-      values.flush();
-      if(txtindex != null) ((DiskValues) txtindex).flush();
-      if(atvindex != null) ((DiskValues) atvindex).flush();
+      if(redo == null) {
+        flush();
+        updateFile().delete();
+      } else if(meta.dirty || !redo.commit() ||
+          redo.length() > meta.prop.num(Prop.WALSIZE)) {
+        // unlogged changes, or maximum log size exceeded
+        checkpoint(true);
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     } finally {
@@ -221,6 +478,92 @@ public final class DiskData extends Data {
     }
   }
 
+  @Override
+  public boolean log(final AtomicUpdateList list, final boolean merge) {
+    if(redo == null || replay) return false;
+    try {
+      return redo.log(list, merge, meta.prop.num(Prop.WALSIZE));
+    } catch(final IOException ex) {
+      Util.stack(ex);
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized Data snapshot() throws IOException {
+    if(snapshot == null) {
+      // the committed state cannot be restored while the database is updated
+      if(updating) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
+      snapshot = view();
+    }
+    snapshot.refs++;
+    return snapshot;
+  }
+
+  /**
+   * Creates a snapshot of the current state.
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  private DiskData view() throws IOException {
+    final ArrayOutput ao = new ArrayOutput();
+    final DataOutput out = new DataOutput(ao);
+    write(out);
+    out.close();
+    final DiskData view = new DiskData(this, ao.toArray(), null, null, null);
+    views.add(view);
+    return view;
+  }
+
+  /**
+   * Releases a snapshot. Snapshots that are not used anymore are discarded,
+   * unless they reflect the current state.
+   * @param view snapshot
+   */
+  private synchronized void release(final DiskData view) {
+    if(--view.refs == 0 && view != snapshot) discard(view);
+  }
+
+  /**
+   * Discards a snapshot.
+   * @param view snapshot
+   */
+  private void discard(final DiskData view) {
+    views.remove(view);
+    boolean shared = false;
+    for(final DiskData v : views) shared |= v.table == view.table;
+    try {
+      if(!shared) view.table.close();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    if(view.txtindex != null) view.txtindex.close();
+    if(view.atvindex != null) view.atvindex.close();
+    if(view.ftxindex != null) view.ftxindex.close();
+    if(view.subindex != null) view.subindex.close();
+    notifyAll();
+  }
+
+  /**
+   * Checks if the specified index is used by a snapshot.
+   * @param type index type
+   * @return result of check
+   */
+  private boolean indexed(final IndexType type) {
+    for(final DiskData v : views) {
+      if(v.index(type) != null) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if texts may still be referenced by snapshots.
+   * @return result of check
+   */
+  private synchronized boolean shared() {
+    return !views.isEmpty();
+  }
+
   /**
    * Returns a file that indicates ongoing updates.
    * @return updating file
@@ -252,9 +595,11 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(num(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
-    // compressed: next number contains number of compressed bytes
-    return cpr(o) ? da.readNum() : l;
+    synchronized(da) {
+      final int l = da.readNum(o & IO.OFFCOMP - 1);
+      // compressed: next number contains number of compressed bytes
+      return cpr(o) ? da.readNum() : l;
+    }
   }
 
   /**
@@ -264,7 +609,7 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
+    final byte[] txt = (text ? texts : values).readTokenAt(o & IO.OFFCOMP - 1);
     return cpr(o) ? COMP.get().unpack(txt) : txt;
   }
 
@@ -293,7 +638,7 @@ public final class DiskData extends Data {
     // old entry (offset or value)
     final long old = textOff(pre);
     // fill unused space with zero-bytes
-    if(!num(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    if(!num(old) && !shared()) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
   }
 
   @Override
@@ -307,6 +652,10 @@ public final class DiskData extends Data {
       final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
       // don't index document names
       if(index != null && kind != DOC) index.replace(oldval, value, id);
+      if(ftxindex != null && kind == TEXT) {
+        ((FTIndex) ftxindex).delete(id, oldval);
+        ((FTIndex) ftxindex).index(id, value);
+      }
     }
 
     // reference to text store
@@ -325,8 +674,8 @@ public final class DiskData extends Data {
     final long old = textOff(pre);
     // find text store offset
     final long off;
-    if(num(old)) {
-      // numeric entry: append new entry at the end
+    if(num(old) || shared()) {
+      // numeric entry, or old entry referenced by snapshots: append new entry
       off = len;
     } else {
       // text size (0 if value will be inlined)
@@ -382,6 +731,9 @@ public final class DiskData extends Data {
       }
       ids.add(id);
     }
+    // add text to full-text index
+    if(meta.updindex && ftxindex != null && kind == TEXT)
+      ((FTIndex) ftxindex).index(id, value);
 
     // add text to text file
     // inline integer value...
@@ -397,6 +749,14 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexDelete(final int pre, final int size) {
+    if(ftxindex != null) {
+      // remove texts from full-text index
+      final FTIndex ftx = (FTIndex) ftxindex;
+      final int l = pre + size;
+      for(int p = pre; p < l; ++p) {
+        if(kind(p) == TEXT) ftx.delete(id(p), text(p, true));
+      }
+    }
     if(!(meta.textindex || meta.attrindex)) return;
 
     // collect all keys and ids
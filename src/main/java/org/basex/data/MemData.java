@@ -1,6 +1,7 @@
 package org.basex.data;
 
 import org.basex.core.*;
+import org.basex.data.atomic.*;
 import org.basex.index.*;
 import org.basex.index.name.*;
 import org.basex.index.path.*;
@@ -82,12 +83,17 @@ public final class MemData extends Data {
   @Override
   public void setIndex(final IndexType type, final Index index) { }
 
-  @Override
+  @Override
   public boolean startUpdate() { return true; }
 
   @Override
   public void finishUpdate() { }
 
+  @Override
+  public boolean log(final AtomicUpdateList list, final boolean merge) {
+    return false;
+  }
+
   @Override
   public byte[] text(final int pre, final boolean text) {
     return ((MemValues) (text ? txtindex : atvindex)).key((int) textOff(pre));
@@ -53,12 +53,16 @@ public final class MetaData {
   public volatile boolean attrindex;
   /** Indicates if a full-text index exists. */
   public volatile boolean ftxtindex;
+  /** Indicates if a substring index exists. */
+  public volatile boolean substrindex;
   /** Indicates if text index is to be recreated. */
   public volatile boolean createtext;
   /** Indicates if attribute index is to be recreated. */
   public volatile boolean createattr;
   /** Indicates if full-text index is to be recreated. */
   public volatile boolean createftxt;
+  /** Indicates if substring index is to be recreated. */
+  public volatile boolean createsubstr;
 
   /** Flag for full-text stemming. */
   public volatile boolean stemming;
@@ -66,6 +70,8 @@ public final class MetaData {
   public volatile boolean casesens;
   /** Flag for full-text diacritics removal. */
   public volatile boolean diacritics;
+  /** Flag for indexing the n-grams of full-text tokens. */
+  public volatile boolean ftgrams;
 
   /** Maximum number of categories. */
   public volatile int maxcats;
@@ -126,9 +132,11 @@ public final class MetaData {
     createtext = prop.is(Prop.TEXTINDEX);
     createattr = prop.is(Prop.ATTRINDEX);
     createftxt = prop.is(Prop.FTINDEX);
+    createsubstr = prop.is(Prop.SUBINDEX);
     diacritics = prop.is(Prop.DIACRITICS);
     stemming = prop.is(Prop.STEMMING);
     casesens = prop.is(Prop.CASESENS);
+    ftgrams = prop.is(Prop.FTGRAMS);
     updindex = prop.is(Prop.UPDINDEX);
     maxlen = prop.num(Prop.MAXLEN);
     maxcats = prop.num(Prop.MAXCATS);
@@ -136,6 +144,18 @@ public final class MetaData {
     users = new Users(false);
   }
 
+  /**
+   * Constructor for snapshots of a database, specifying the original meta data.
+   * All other meta data will be assigned by {@link #read(DataInput)}.
+   * @param md original meta data
+   */
+  MetaData(final MetaData md) {
+    path = md.path;
+    prop = md.prop;
+    name = md.name;
+    users = new Users(false);
+  }
+
   // STATIC METHODS ==========================================================
 
   /**
@@ -305,13 +325,16 @@ public final class MetaData {
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
         else if(k.equals(DBFTXIDX))   ftxtindex  = toBool(v);
+        else if(k.equals(DBSUBIDX))   substrindex = toBool(v);
         else if(k.equals(DBCRTTXT))   createtext = toBool(v);
         else if(k.equals(DBCRTATV))   createattr = toBool(v);
         else if(k.equals(DBCRTFTX))   createftxt = toBool(v);
+        else if(k.equals(DBCRTSUB))   createsubstr = toBool(v);
         else if(k.equals(DBWCIDX))    wcindex    = toBool(v);
         else if(k.equals(DBFTST))     stemming   = toBool(v);
         else if(k.equals(DBFTCS))     casesens   = toBool(v);
         else if(k.equals(DBFTDC))     diacritics = toBool(v);
+        else if(k.equals(DBFTGR))     ftgrams    = toBool(v);
         else if(k.equals(DBFTLN))     language   = Language.get(v);
         else if(k.equals(DBUPTODATE)) uptodate   = toBool(v);
         // legacy: set up-to-date flag to false if path index does not exist
@@ -328,6 +351,12 @@ public final class MetaData {
     corrupt = dbfile(DATAUPD).exists();
     // deactivate full-text index if obsolete trie structure was used
     if(wcindex) ftxtindex = false;
+    // deactivate value and full-text indexes with uncompressed id lists
+    if(new Version(istorage).compareTo(new Version(ISTORAGE)) < 0) {
+      textindex = false;
+      attrindex = false;
+      ftxtindex = false;
+    }
   }
 
   /**
@@ -349,12 +378,15 @@ public final class MetaData {
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBFTXIDX,   ftxtindex);
+    writeInfo(out, DBSUBIDX,   substrindex);
     writeInfo(out, DBCRTTXT,   createtext);
     writeInfo(out, DBCRTATV,   createattr);
     writeInfo(out, DBCRTFTX,   createftxt);
+    writeInfo(out, DBCRTSUB,   createsubstr);
     writeInfo(out, DBFTST,     stemming);
     writeInfo(out, DBFTCS,     casesens);
     writeInfo(out, DBFTDC,     diacritics);
+    writeInfo(out, DBFTGR,     ftgrams);
     writeInfo(out, DBMAXLEN,   maxlen);
     writeInfo(out, DBMAXCATS,  maxcats);
     writeInfo(out, DBUPTODATE, uptodate);
@@ -373,11 +405,13 @@ public final class MetaData {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
+    // the substring index is not updatable
+    substrindex = false;
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   // PRIVATE METHODS ==========================================================
@@ -0,0 +1,260 @@
+package org.basex.data;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.data.atomic.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This class logs the atomic updates that have been performed on a database
+ * since the last checkpoint. The updates of a transaction are cached and
+ * appended to the log file as a single record when the transaction is committed.
+ * If a database has not been closed properly, the logged updates are
+ * performed again when the database is opened.
+ *
+ * Committed records are synchronized with the storage device before the
+ * calling process is finished. If the process has been registered in the
+ * database context, synchronization is deferred until its locks have been
+ * released: concurrent transactions can thus proceed, and the records of several
+ * transactions can be synchronized by a single operation (group commit).
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class RedoLog {
+  /** Deferred synchronizations of the current thread. */
+  private static final ThreadLocal<Deferred> DEFERRED = new ThreadLocal<Deferred>() {
+    @Override
+    protected Deferred initialValue() {
+      return new Deferred();
+    }
+  };
+
+  /** Log file. */
+  private final LogFile log;
+  /** Updates of the current transaction. */
+  private final ArrayOutput cache = new ArrayOutput();
+  /** Output stream for cached updates. */
+  private DataOutput out = new DataOutput(cache);
+  /** Number of cached update lists. */
+  private int lists;
+  /** Indicates if the current transaction exceeds the maximum log size. */
+  private boolean skip;
+
+  /** Length of the log file after the last appended record. */
+  private long appended;
+  /** Length of the log file that has been synchronized with the storage device. */
+  private long synced;
+  /** Indicates if the log file is currently synchronized. */
+  private boolean syncing;
+  /** Closed flag. */
+  private boolean closed;
+
+  /**
+   * Opens or creates the specified log file. Existing records will be preserved.
+   * @param f log file
+   * @throws IOException I/O exception
+   */
+  public RedoLog(final IOFile f) throws IOException {
+    log = new LogFile(f);
+    appended = log.length();
+    synced = appended;
+  }
+
+  /**
+   * Caches the specified updates.
+   * @param list updates
+   * @param merge merge flag, passed on to {@link AtomicUpdateList#execute(boolean)}
+   * @param max maximum log size
+   * @return {@code true} if the updates have been cached, {@code false} if the
+   * maximum log size has been exceeded
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean log(final AtomicUpdateList list, final boolean merge,
+      final long max) throws IOException {
+
+    if(!skip) {
+      out.writeBool(merge);
+      if(list.write(out, max - appended)) {
+        lists++;
+        return true;
+      }
+      // log would get too large: all updates will be written by the next checkpoint
+      skip = true;
+      reset();
+    }
+    return false;
+  }
+
+  /**
+   * Appends the cached updates of the current transaction to the log file.
+   * The record will be synchronized with the storage device before the current
+   * process is finished.
+   * @return {@code true} if the updates have been logged, {@code false} if a
+   * checkpoint is required
+   * @throws IOException I/O exception
+   */
+  public boolean commit() throws IOException {
+    final long lsn;
+    synchronized(this) {
+      final boolean sk = skip;
+      skip = false;
+      if(sk || lists == 0) {
+        reset();
+        return !sk;
+      }
+      final ArrayOutput ao = new ArrayOutput();
+      final DataOutput rec = new DataOutput(ao);
+      rec.writeNum(lists);
+      rec.write(cache.buffer(), 0, (int) cache.size());
+      reset();
+      lsn = log.append(ao.buffer(), (int) ao.size());
+      appended = lsn;
+    }
+
+    final Deferred d = DEFERRED.get();
+    if(d.depth == 0) {
+      sync(lsn);
+    } else {
+      final Long l = d.logs.get(this);
+      if(l == null || l < lsn) d.logs.put(this, lsn);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the length of the log file.
+   * @return length
+   */
+  public synchronized long length() {
+    return appended;
+  }
+
+  /**
+   * Closes the log. Must be called after all logged updates have been written
+   * to disk; processes waiting for synchronization are released.
+   * @throws IOException I/O exception
+   */
+  public synchronized void close() throws IOException {
+    while(syncing) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        throw new InterruptedIOException();
+      }
+    }
+    closed = true;
+    notifyAll();
+  }
+
+  /**
+   * Deletes the log file. Must be called after {@link #close()}.
+   * @throws IOException I/O exception
+   */
+  public void delete() throws IOException {
+    log.delete();
+  }
+
+  /**
+   * Performs all logged updates again.
+   * @param data data reference
+   * @throws IOException I/O exception
+   */
+  public void replay(final Data data) throws IOException {
+    for(byte[] rec; (rec = log.read()) != null;) {
+      final DataInput in = new DataInput(new IOContent(rec));
+      for(int l = in.readNum(); l > 0; l--) {
+        final boolean merge = in.readBool();
+        AtomicUpdateList.read(data, in).execute(merge);
+      }
+    }
+  }
+
+  /**
+   * Defers the synchronization of logged updates until {@link #sync()} is called.
+   * Called when a process has acquired its locks.
+   */
+  public static void defer() {
+    DEFERRED.get().depth++;
+  }
+
+  /**
+   * Synchronizes all updates that have been logged by the current thread since
+   * {@link #defer()} was called. Called when a process has released its locks.
+   */
+  public static void sync() {
+    final Deferred d = DEFERRED.get();
+    if(d.depth > 0) d.depth--;
+    if(d.depth > 0 || d.logs.isEmpty()) return;
+
+    final HashMap<RedoLog, Long> logs = new HashMap<RedoLog, Long>(d.logs);
+    d.logs.clear();
+    for(final Entry<RedoLog, Long> e : logs.entrySet()) {
+      try {
+        e.getKey().sync(e.getValue());
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+  }
+
+  /**
+   * Synchronizes the log file with the storage device until the specified length
+   * has been reached. If the log is currently synchronized by another process,
+   * the calling process waits until it can take over, or until its own
+   * records have been synchronized as well.
+   * @param lsn log length
+   * @throws IOException I/O exception
+   */
+  private void sync(final long lsn) throws IOException {
+    final long end;
+    synchronized(this) {
+      while(syncing && synced < lsn && !closed) {
+        try {
+          wait();
+        } catch(final InterruptedException ex) {
+          throw new InterruptedIOException();
+        }
+      }
+      if(synced >= lsn || closed) return;
+      syncing = true;
+      end = appended;
+    }
+    // other records may be appended while the log is synchronized
+    boolean ok = false;
+    try {
+      log.sync();
+      ok = true;
+    } finally {
+      synchronized(this) {
+        syncing = false;
+        if(ok && end > synced) synced = end;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Resets the cached updates.
+   */
+  private void reset() {
+    cache.reset();
+    out = new DataOutput(cache);
+    lists = 0;
+  }
+
+  /** Deferred synchronizations of a thread. */
+  private static final class Deferred {
+    /** Number of registered processes. */
+    int depth;
+    /** Logs with unsynchronized records, and the log lengths to be synchronized. */
+    final HashMap<RedoLog, Long> logs = new HashMap<RedoLog, Long>();
+  }
+}
@@ -1,10 +1,14 @@
 package org.basex.data.atomic;
 
+import java.io.*;
 import java.util.*;
 
 import org.basex.data.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.util.*;
 import org.basex.util.hash.*;
+import org.basex.util.list.*;
 
 /**
  * A container/list for atomic updates. Updates are then carried out in the same order
@@ -39,6 +43,19 @@ import org.basex.util.hash.*;
  * @author Lukas Kircher
  */
 public final class AtomicUpdateList {
+  /** Serialization type: delete. */
+  private static final int DELETE = 0;
+  /** Serialization type: insert. */
+  private static final int INSERT = 1;
+  /** Serialization type: insert attribute. */
+  private static final int INSERTATTR = 2;
+  /** Serialization type: replace. */
+  private static final int REPLACE = 3;
+  /** Serialization type: rename. */
+  private static final int RENAME = 4;
+  /** Serialization type: update value. */
+  private static final int UPDATEVALUE = 5;
+
   /** List of structural updates (nodes are inserted to / deleted from the table. */
   private final List<BasicUpdate> updStructural;
   /** List of value updates. */
@@ -278,14 +295,105 @@ public final class AtomicUpdateList {
    * @param mergeTexts adjacent text nodes are to be expected and must be merged
    */
   public void execute(final boolean mergeTexts) {
+    if(updStructural.isEmpty() && updValue.isEmpty()) return;
     check();
     optimize();
+    // if the updates have been logged, meta data need not be written before the
+    // next checkpoint
+    final boolean md = data.meta.dirty, logged = data.log(this, mergeTexts);
     applyValueUpdates();
     data.cache = true;
     applyStructuralUpdates();
     updateDistances();
     if(mergeTexts) resolveTextAdjacency();
     data.cache = false;
+    if(logged) data.meta.dirty = md;
+  }
+
+  /**
+   * Serializes the updates. Must be called before the updates are executed.
+   * @param out output stream
+   * @param max maximum number of bytes to be written
+   * @return {@code false} if the maximum number of bytes has been exceeded
+   * @throws IOException I/O exception
+   */
+  public boolean write(final DataOutput out, final long max) throws IOException {
+    check();
+    optimize();
+    out.writeNum(updValue.size() + updStructural.size());
+    for(final BasicUpdate u : updValue) {
+      if(u instanceof Rename) {
+        final Rename r = (Rename) u;
+        out.write1(RENAME);
+        out.writeNum(r.location);
+        out.writeNum(r.targetkind);
+        out.writeToken(r.name);
+        out.writeToken(r.uri);
+      } else {
+        final UpdateValue v = (UpdateValue) u;
+        out.write1(UPDATEVALUE);
+        out.writeNum(v.location);
+        out.writeNum(v.targetkind);
+        out.writeToken(v.value);
+      }
+      if(out.size() > max) return false;
+    }
+    for(final BasicUpdate u : updStructural) {
+      if(u instanceof Delete) {
+        out.write1(DELETE);
+        out.writeNum(u.location);
+      } else if(u instanceof Replace) {
+        out.write1(REPLACE);
+        out.writeNum(u.location);
+        if(!writeClip(((Replace) u).insseq, out, max)) return false;
+      } else {
+        out.write1(u instanceof Insert ? INSERT : INSERTATTR);
+        out.writeNum(u.location);
+        out.writeNum(u.parent());
+        if(!writeClip(u.getInsertionData(), out, max)) return false;
+      }
+      if(out.size() > max) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads updates that have been serialized via {@link #write}. The database must
+   * be in the same state as it was when the updates were serialized.
+   * @param d target data reference
+   * @param in input stream
+   * @return updates
+   * @throws IOException I/O exception
+   */
+  public static AtomicUpdateList read(final Data d, final DataInput in)
+      throws IOException {
+
+    final AtomicUpdateList list = new AtomicUpdateList(d);
+    for(int n = in.readNum(); n > 0; n--) {
+      final int type = in.read();
+      final int pre = in.readNum();
+      switch(type) {
+        case DELETE:
+          list.addDelete(pre);
+          break;
+        case INSERT:
+        case INSERTATTR:
+          final int par = in.readNum();
+          list.addInsert(pre, par, readClip(d, in), type == INSERTATTR);
+          break;
+        case REPLACE:
+          list.addReplace(pre, readClip(d, in));
+          break;
+        case RENAME:
+          final int k = in.readNum();
+          list.addRename(pre, k, in.readToken(), in.readToken());
+          break;
+        default:
+          list.addUpdateValue(pre, in.readNum(), in.readToken());
+          break;
+      }
+    }
+    return list;
   }
 
   /**
@@ -531,4 +639,104 @@ public final class AtomicUpdateList {
 
     return mergeTwoNodes;
   }
-}
\ No newline at end of file
+
+  /**
+   * Serializes the nodes of an insertion sequence.
+   * @param clip insertion sequence
+   * @param out output stream
+   * @param max maximum number of bytes to be written
+   * @return {@code false} if the maximum number of bytes has been exceeded
+   * @throws IOException I/O exception
+   */
+  private static boolean writeClip(final DataClip clip, final DataOutput out,
+      final long max) throws IOException {
+
+    final Data d = clip.data;
+    out.writeNum(clip.size());
+    for(int pre = clip.start; pre < clip.end; pre++) {
+      final int k = d.kind(pre);
+      final int par = d.parent(pre, k);
+      out.write1(k);
+      out.writeNum(par >= 0 ? pre - par : 0);
+      switch(k) {
+        case Data.DOC:
+          out.writeNum(d.size(pre, k));
+          out.writeToken(d.text(pre, true));
+          break;
+        case Data.ELEM:
+          out.writeToken(d.name(pre, k));
+          out.writeNum(d.attSize(pre, k));
+          out.writeNum(d.size(pre, k));
+          final Atts ns = d.ns(pre);
+          out.writeNum(ns.size());
+          for(int n = 0; n < ns.size(); n++) {
+            out.writeToken(ns.name(n));
+            out.writeToken(ns.string(n));
+          }
+          break;
+        case Data.ATTR:
+          out.writeToken(d.name(pre, k));
+          out.writeToken(d.text(pre, false));
+          final int u = d.uri(pre, k);
+          out.writeToken(u == 0 ? Token.EMPTY : d.nspaces.uri(u));
+          out.writeBool(d.nsFlag(pre));
+          break;
+        default:
+          out.writeToken(d.text(pre, true));
+          break;
+      }
+      if(out.size() > max) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads a serialized insertion sequence into a main memory instance.
+   * @param d target data reference
+   * @param in input stream
+   * @return insertion sequence
+   * @throws IOException I/O exception
+   */
+  private static DataClip readClip(final Data d, final DataInput in) throws IOException {
+    final MemData md = new MemData(d.meta.prop);
+    // pre values and ends of the open elements
+    final IntList pres = new IntList(), ends = new IntList();
+    final int size = in.readNum();
+    for(int pre = 0; pre < size; pre++) {
+      while(!ends.isEmpty() && ends.peek() <= pre) {
+        ends.pop();
+        md.nspaces.close(pres.pop());
+      }
+      final int k = in.read();
+      final int dist = in.readNum();
+      // nodes without parent
+      final int dis = dist != 0 ? dist : pre + 1;
+      switch(k) {
+        case Data.DOC:
+          final int s = in.readNum();
+          md.doc(pre, s, in.readToken());
+          break;
+        case Data.ELEM:
+          final byte[] nm = in.readToken();
+          final int as = in.readNum(), es = in.readNum(), ns = in.readNum();
+          md.nspaces.open();
+          for(int n = 0; n < ns; n++) md.nspaces.add(in.readToken(), in.readToken(), pre);
+          md.elem(dis, md.tagindex.index(nm, null, false), as, es,
+              md.nspaces.uri(nm, true), ns != 0);
+          pres.push(pre);
+          ends.push(pre + es);
+          break;
+        case Data.ATTR:
+          final byte[] an = in.readToken(), av = in.readToken(), au = in.readToken();
+          md.attr(pre, dis, md.atnindex.index(an, null, false), av,
+              au.length == 0 ? 0 : md.nspaces.addURI(au), in.readBool());
+          break;
+        default:
+          md.text(pre, dis, in.readToken(), k);
+          break;
+      }
+      md.insert(pre);
+    }
+    return new DataClip(md);
+  }
+}
@@ -47,6 +47,20 @@ public class IdPreMap {
     oids = new int[pres.length];
   }
 
+  /**
+   * Copy constructor.
+   * @param map map to be copied
+   */
+  public IdPreMap(final IdPreMap map) {
+    baseid = map.baseid;
+    rows = map.rows;
+    pres = map.pres.clone();
+    fids = map.fids.clone();
+    nids = map.nids.clone();
+    incs = map.incs.clone();
+    oids = map.oids.clone();
+  }
+
   /**
    * Construct a map by reading it from a file.
    * @param f file to read from
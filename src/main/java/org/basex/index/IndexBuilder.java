@@ -3,29 +3,45 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
+import org.basex.io.*;
 import org.basex.util.*;
 
 /**
  * This interface defines the functions which are needed for building
  * new index structures.
  *
+ * If the database is large enough, and if more than one thread has been assigned,
+ * the database nodes are split into partitions, which are indexed in parallel.
+ * The temporary structures of all partitions are written to disk and merged,
+ * just as the structures that are written when main memory is exhausted.
+ *
+ * Indexes are built into temporary files. Existing index structures remain
+ * accessible while a new index is built, and they are only replaced by the
+ * temporary files when {@link #open()} is called.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Progress {
+  /** Minimum number of nodes per partition. */
+  private static final int PARTITION = 1 << 16;
+
   /** Data reference. */
   protected final Data data;
+  /** Prefix of the temporary index files. */
+  protected final String temp;
   /** Total parsing value. */
   protected final int size;
   /** Flag for single garbage collecting. */
   protected final boolean singlegc;
-  /** Current parsing value. */
-  protected int pre;
   /** Merge flag. */
-  protected boolean merge;
+  protected volatile boolean merge;
   /** Number of cached index structures. */
   protected int csize;
 
@@ -33,53 +49,214 @@ public abstract class IndexBuilder extends Progress {
   private final Runtime rt = Runtime.getRuntime();
   /** Maximum memory to consume. */
   private final long maxMem = (long) (rt.maxMemory() * 0.8);
+  /** Number of processed nodes. */
+  private final AtomicInteger count = new AtomicInteger();
+  /** Number of memory shortages, detected by the builders of the same group. */
+  private AtomicInteger shortages = new AtomicInteger();
+  /** Memory shortages, last registered by each partition. */
+  private int[] registered;
+  /** Number of threads. */
+  private int threads = 1;
+  /** Parent process, which may stop the index builder (can be {@code null}). */
+  private Progress parent;
+  /** Prefix of the index files. */
+  private final String prefix;
 
   /** Free memory threshold. */
   private int cc;
 
   /**
-   * Builds the index structure and returns an index instance.
+   * Constructor.
+   * @param d reference
+   * @param pref prefix of the index files
+   */
+  protected IndexBuilder(final Data d, final String pref) {
+    data = d;
+    prefix = pref;
+    temp = DataText.DATATMP + pref;
+    size = data.meta.size;
+    singlegc = d.meta.prop.is(Prop.SINGLEGC);
+    if(rt.totalMemory() - rt.freeMemory() >= rt.maxMemory() >> 1 && !singlegc)
+      Performance.gc(1);
+  }
+
+  /**
+   * Builds the index structure and writes it to temporary files.
+   * @throws IOException I/O Exception
+   */
+  public abstract void build() throws IOException;
+
+  /**
+   * Replaces the files of the existing index with the temporary files and
+   * returns a new index instance. The existing index must have been closed before.
+   * @return index instance
+   * @throws IOException I/O Exception
+   */
+  public final Index open() throws IOException {
+    final MetaData md = data.meta;
+    md.drop(prefix + ".+");
+    indexed(false);
+    for(final IOFile f : md.path.children(temp + ".+")) {
+      final IOFile trg = md.dbfile(prefix + f.name().substring(temp.length(),
+          f.name().length() - IO.BASEXSUFFIX.length()));
+      if(!f.rename(trg)) throw new BaseXException(FILE_NOT_STORED_X, trg);
+    }
+    indexed(true);
+    return index();
+  }
+
+  /**
+   * Opens the index structure, which has been built before.
    * @return index instance
    * @throws IOException I/O Exception
    */
-  public abstract Index build() throws IOException;
+  protected abstract Index index() throws IOException;
+
+  /**
+   * Assigns the index flag of the meta data.
+   * @param ix index flag
+   */
+  protected abstract void indexed(final boolean ix);
+
+  /**
+   * Assigns the number of threads that may be used for indexing the database nodes.
+   * @param t number of threads
+   * @param p parent process, which may stop the index builder (can be {@code null})
+   * @return self reference
+   */
+  public final IndexBuilder parallel(final int t, final Progress p) {
+    threads = Math.max(1, t);
+    parent = p;
+    return this;
+  }
 
   /**
-   * Checks if the command was interrupted, and prints some debug output.
+   * Builds the specified index structures in parallel. Memory shortages that are
+   * detected by one of the builders will be propagated to all other builders.
+   * If building fails, the temporary files of all builders will be deleted.
+   * @param builders index builders
+   * @throws IOException I/O Exception
    */
-  protected final void check() {
+  public static void build(final IndexBuilder... builders) throws IOException {
+    final AtomicInteger group = new AtomicInteger();
+    for(final IndexBuilder ib : builders) ib.shortages = group;
+
+    final ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(builders.length);
+    for(final IndexBuilder ib : builders) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          ib.build();
+          return null;
+        }
+      });
+    }
+    boolean ok = false;
+    try {
+      run(tasks, builders);
+      ok = true;
+    } finally {
+      if(!ok) for(final IndexBuilder ib : builders) ib.abort();
+    }
+  }
+
+  /**
+   * Indexes all database nodes. Calls {@link #index} for each partition.
+   * @return number of partitions
+   * @throws IOException I/O Exception
+   */
+  protected final int scan() throws IOException {
+    final int parts = Math.max(1, Math.min(threads, size / PARTITION));
+    registered = new int[parts];
+    Arrays.fill(registered, shortages.get());
+    init(parts);
+
+    final ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(parts);
+    for(int p = 0; p < parts; p++) {
+      final int part = p;
+      final int start = (int) ((long) size * p / parts);
+      final int end = (int) ((long) size * (p + 1) / parts);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          index(part, start, end);
+          return null;
+        }
+      });
+    }
+    run(tasks, this);
+    return parts;
+  }
+
+  /**
+   * Initializes the structures for the specified number of partitions.
+   * @param parts number of partitions
+   */
+  protected abstract void init(final int parts);
+
+  /**
+   * Indexes a partition of the database nodes.
+   * @param part partition
+   * @param start first pre value
+   * @param end pre value following the last node
+   * @throws IOException I/O Exception
+   */
+  protected abstract void index(final int part, final int start, final int end)
+      throws IOException;
+
+  /**
+   * Returns a new id for a temporary index structure.
+   * @return id
+   */
+  protected final synchronized int file() {
+    return csize++;
+  }
+
+  /**
+   * Checks if the command was interrupted, registers the number of processed
+   * nodes, and prints some debug output.
+   * @param n number of nodes that have been processed since the last call
+   */
+  protected final void check(final int n) {
     checkStop();
-    if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
+    if(parent != null) parent.checkStop();
+    final int c = count.addAndGet(n);
+    if(Prop.debug && c >>> 21 != c - n >>> 21) Util.err(".");
   }
 
   /**
    * Checks if enough memory is left to continue index building.
+   * If main memory is exhausted, all running partitions of all builders of the same
+   * group are asked to write their temporary structures to disk.
+   * @param part partition
    * @return result of check
    * @throws IOException I/O exception
    */
-  protected final boolean memFull() throws IOException {
-    final boolean full = rt.totalMemory() - rt.freeMemory() >= maxMem;
-    if(full) {
-      if(cc >= 0 && !singlegc) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
-      if(Prop.debug) Util.err("!");
+  protected final boolean memFull(final int part) throws IOException {
+    final int s = shortages.get();
+    if(registered[part] != s) {
+      registered[part] = s;
       merge = true;
-      cc = 30;
-    } else {
-      --cc;
+      return true;
+    }
+    synchronized(this) {
+      final boolean full = rt.totalMemory() - rt.freeMemory() >= maxMem;
+      if(full) {
+        if(cc >= 0 && !singlegc) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
+        if(Prop.debug) Util.err("!");
+        merge = true;
+        cc = 30;
+        registered[part] = shortages.incrementAndGet();
+      } else {
+        --cc;
+      }
+      return full;
     }
-    return full;
   }
 
-  /**
-   * Constructor.
-   * @param d reference
-   */
-  protected IndexBuilder(final Data d) {
-    data = d;
-    size = data.meta.size;
-    singlegc = d.meta.prop.is(Prop.SINGLEGC);
-    if(rt.totalMemory() - rt.freeMemory() >= rt.maxMemory() >> 1 && !singlegc)
-      Performance.gc(1);
+  @Override
+  public final void abort() {
+    data.meta.drop(temp + ".+");
   }
 
   @Override
@@ -89,6 +266,45 @@ public abstract class IndexBuilder extends Progress {
 
   @Override
   public final double prog() {
-    return (double) pre / (size + (merge  ? size / 50 : 0));
+    return (double) count.get() / (size + (merge  ? size / 50 : 0));
+  }
+
+  /**
+   * Runs the specified tasks in parallel. The first task is run by the current thread.
+   * If a task fails, all builders will be stopped, and the first exception will be thrown.
+   * @param tasks tasks
+   * @param builders index builders
+   * @throws IOException I/O Exception
+   */
+  private static void run(final ArrayList<Callable<Void>> tasks,
+      final IndexBuilder... builders) throws IOException {
+
+    final int ts = tasks.size();
+    final ExecutorService es = ts > 1 ? Executors.newFixedThreadPool(ts - 1) : null;
+    final ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(ts);
+    for(int t = 1; t < ts; t++) futures.add(es.submit(tasks.get(t)));
+
+    Throwable error = null;
+    try {
+      tasks.get(0).call();
+    } catch(final Throwable ex) {
+      error = ex;
+      for(final IndexBuilder ib : builders) ib.stop();
+    }
+    for(final Future<Void> f : futures) {
+      try {
+        f.get();
+      } catch(final Throwable ex) {
+        final Throwable th = ex instanceof ExecutionException ? ex.getCause() : ex;
+        if(error == null || error instanceof ProgressException) error = th;
+        for(final IndexBuilder ib : builders) ib.stop();
+      }
+    }
+    if(es != null) es.shutdown();
+
+    if(error instanceof IOException) throw (IOException) error;
+    if(error instanceof RuntimeException) throw (RuntimeException) error;
+    if(error instanceof Error) throw (Error) error;
+    if(error != null) throw new BaseXException((Exception) error);
   }
 }
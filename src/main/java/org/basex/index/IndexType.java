@@ -17,6 +17,8 @@ public enum IndexType {
   ATTRIBUTE,
   /** Full-text index. */
   FULLTEXT,
+  /** Substring index. */
+  SUBSTRING,
   /** Path index. */
   PATH
 }
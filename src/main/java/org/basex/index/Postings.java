@@ -0,0 +1,431 @@
+package org.basex.index;
+
+import java.util.*;
+
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class compresses and decompresses the sorted id lists of the value and
+ * full-text indexes. All lists start with the number of distinct ids {@code n}
+ * and the first id [{@link Num}].</p>
+ *
+ * <p>Lists with less than {@link #SMALL} ids are stored as differences between
+ * the ids [{@link Num}]. In full-text lists, each id is followed by the number of
+ * its positions and the differences between the positions.</p>
+ *
+ * <p>Larger lists are divided into blocks of {@link #BLOCK} ids. Each block
+ * consists of the difference between its first id and the last id of the
+ * previous block, the difference between its last and first id, and the
+ * size of the block data in bytes [{@link Num}]. The header serves as skip
+ * pointer: blocks that only contain smaller ids can be skipped without being
+ * decoded. The block data contains the differences between the ids, and, in
+ * full-text lists, the number of positions of each id and the differences between
+ * the positions. Each of these sequences is compressed as follows
+ * (PForDelta):</p>
+ *
+ * <ul>
+ * <li>{@code b}: number of bits chosen for each value [byte]</li>
+ * <li>{@code e}: number of exceptions [{@link Num}]</li>
+ * <li>the lower {@code b} bits of all values</li>
+ * <li>{@code [i, h] ...}: offsets and upper bits of all values that exceed
+ *   {@code b} bits [{@link Num}]</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Postings {
+  /** Number of ids in a block. */
+  public static final int BLOCK = 128;
+  /** Minimum number of ids of a list that is stored in blocks. */
+  public static final int SMALL = 16;
+
+  /** Private constructor, preventing instantiation. */
+  private Postings() { }
+
+  /**
+   * Compresses a list of ids.
+   * @param ids sorted and distinct ids
+   * @param size number of ids
+   * @return compressed list
+   */
+  public static byte[] ids(final int[] ids, final int size) {
+    final ByteList bl = new ByteList().add(Num.num(size));
+    if(size < SMALL) {
+      for(int i = 0, o = 0; i < size; i++) {
+        bl.add(Num.num(ids[i] - o));
+        o = ids[i];
+      }
+    } else {
+      final int[] gaps = new int[BLOCK];
+      final ByteList body = new ByteList();
+      for(int s = 0, last = 0; s < size; s += BLOCK) {
+        final int k = Math.min(BLOCK, size - s);
+        for(int i = 1; i < k; i++) gaps[i] = ids[s + i] - ids[s + i - 1] - 1;
+        body.reset();
+        pack(body, gaps, 1, k);
+        block(bl, ids[s] - last, ids[s + k - 1] - ids[s], k, body);
+        last = ids[s + k - 1];
+      }
+    }
+    return bl.toArray();
+  }
+
+  /**
+   * Compresses a list of ids and positions.
+   * @param ids ids
+   * @param pos positions
+   * @param size number of id/position pairs
+   * @return compressed list
+   */
+  public static byte[] ids(final int[] ids, final int[] pos, final int size) {
+    // sort pairs by ids and positions, and count distinct ids
+    final long[] pairs = new long[size];
+    for(int i = 0; i < size; i++) pairs[i] = (long) ids[i] << 32 | pos[i];
+    Arrays.sort(pairs, 0, size);
+    final int[] di = new int[size], dc = new int[size], ps = new int[size];
+    int n = -1;
+    for(int i = 0; i < size; i++) {
+      final int id = (int) (pairs[i] >>> 32);
+      ps[i] = (int) pairs[i];
+      if(n == -1 || di[n] != id) di[++n] = id;
+      dc[n]++;
+    }
+    n++;
+
+    final ByteList bl = new ByteList().add(Num.num(n));
+    if(n < SMALL) {
+      for(int i = 0, o = 0, p = 0; i < n; i++) {
+        bl.add(Num.num(di[i] - o)).add(Num.num(dc[i]));
+        o = di[i];
+        for(int c = 0, q = 0; c < dc[i]; c++, p++) {
+          bl.add(Num.num(ps[p] - q));
+          q = ps[p];
+        }
+      }
+    } else {
+      final int[] gaps = new int[BLOCK], cnts = new int[BLOCK];
+      final ByteList body = new ByteList();
+      for(int s = 0, last = 0, p = 0; s < n; s += BLOCK) {
+        final int k = Math.min(BLOCK, n - s);
+        // differences between positions; first position of each id is absolute
+        final int ps0 = p;
+        for(int i = 0; i < k; i++) {
+          if(i > 0) gaps[i] = di[s + i] - di[s + i - 1] - 1;
+          cnts[i] = dc[s + i] - 1;
+          for(int c = dc[s + i] - 1; c > 0; c--) ps[p + c] -= ps[p + c - 1];
+          p += dc[s + i];
+        }
+        body.reset();
+        pack(body, gaps, 1, k);
+        pack(body, cnts, 0, k);
+        pack(body, ps, ps0, p);
+        block(bl, di[s] - last, di[s + k - 1] - di[s], k, body);
+        last = di[s + k - 1];
+      }
+    }
+    return bl.toArray();
+  }
+
+  /**
+   * Writes a block header and the block data.
+   * @param bl byte list
+   * @param first difference between the first id and the last id of the
+   *   previous block
+   * @param last difference between the last and the first id of the block
+   * @param k number of ids in the block
+   * @param body block data
+   */
+  private static void block(final ByteList bl, final int first, final int last,
+      final int k, final ByteList body) {
+    bl.add(Num.num(first));
+    if(k > 1) bl.add(Num.num(last));
+    bl.add(Num.num(body.size())).add(body.toArray());
+  }
+
+  /**
+   * Compresses a sequence of non-negative values.
+   * @param bl byte list
+   * @param v values
+   * @param s start offset
+   * @param e end offset
+   */
+  static void pack(final ByteList bl, final int[] v, final int s, final int e) {
+    if(s == e) return;
+    // choose number of bits with the smallest resulting size
+    final int[] hist = new int[33];
+    for(int i = s; i < e; i++) hist[32 - Integer.numberOfLeadingZeros(v[i])]++;
+    int b = 32, exc = 0;
+    long min = Long.MAX_VALUE;
+    for(int c = 32, x = 0; c >= 0; x += hist[c--]) {
+      final long sz = ((long) (e - s) * c + 7 >>> 3) + x * 3L;
+      if(sz <= min) {
+        min = sz;
+        b = c;
+        exc = x;
+      }
+    }
+    bl.add(b).add(Num.num(exc));
+
+    // write lower bits
+    final long mask = (1L << b) - 1;
+    long acc = 0;
+    int bits = 0;
+    for(int i = s; i < e; i++) {
+      acc |= (v[i] & 0xFFFFFFFFL & mask) << bits;
+      bits += b;
+      for(; bits >= 8; bits -= 8) {
+        bl.add((int) acc);
+        acc >>>= 8;
+      }
+    }
+    if(bits > 0) bl.add((int) acc);
+
+    // write exceptions
+    for(int i = s, o = s; exc > 0 && i < e; i++) {
+      final int h = (int) ((v[i] & 0xFFFFFFFFL) >>> b);
+      if(h == 0) continue;
+      bl.add(Num.num(i - o)).add(Num.num(h));
+      o = i;
+    }
+  }
+
+  /**
+   * Decompresses a sequence of values.
+   * @param a compressed data
+   * @param p position in the compressed data
+   * @param v values
+   * @param s start offset
+   * @param e end offset
+   * @return position after the compressed values
+   */
+  static int unpack(final byte[] a, final int p, final int[] v, final int s, final int e) {
+    if(s == e) return p;
+    int ps = p;
+    final int b = a[ps++] & 0xFF;
+    int exc = Num.get(a, ps);
+    ps += Num.length(a, ps);
+
+    final long mask = (1L << b) - 1;
+    long acc = 0;
+    int bits = 0;
+    for(int i = s; i < e; i++) {
+      for(; bits < b; bits += 8) acc |= (long) (a[ps++] & 0xFF) << bits;
+      v[i] = (int) (acc & mask);
+      acc >>>= b;
+      bits -= b;
+    }
+    for(int i = s; exc > 0; exc--) {
+      i += Num.get(a, ps);
+      ps += Num.length(a, ps);
+      v[i] |= Num.get(a, ps) << b;
+      ps += Num.length(a, ps);
+    }
+    return ps;
+  }
+
+  /**
+   * Decompresses a list of ids.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param da data access
+   * @param pos position of the list
+   * @return ids
+   */
+  public static int[] ids(final DataAccess da, final long pos) {
+    final Cursor c = new Cursor(da, pos, false);
+    final int[] ids = new int[c.size];
+    for(int i = 0; c.next(); i++) ids[i] = c.id();
+    return ids;
+  }
+
+  /**
+   * Returns the position after a list of ids without positions.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param da data access
+   * @param pos position of the list
+   * @return end position
+   */
+  public static long end(final DataAccess da, final long pos) {
+    final Cursor c = new Cursor(da, pos, false);
+    while(c.skip(Integer.MAX_VALUE));
+    return c.off;
+  }
+
+  /**
+   * Cursor on a compressed list. Blocks are only decoded if they may contain
+   * requested ids.
+   * <p><em>Important:</em> This class is NOT thread-safe, as the cursor of the
+   * data access is moved.</p>
+   */
+  public static final class Cursor {
+    /** Number of distinct ids. */
+    public final int size;
+    /** Data access. */
+    private final DataAccess da;
+    /** Full-text flag (positions are stored). */
+    private final boolean ft;
+    /** Number of ids in the blocks that have not been read yet. */
+    private int rest;
+    /** Offset of the next block. */
+    private long off;
+    /** Last id of the current block. */
+    private int last;
+
+    /** Ids of the current block. */
+    private final int[] ids;
+    /** Number of positions of the current ids. */
+    private final int[] cnts;
+    /** Offsets of the first positions of the current ids. */
+    private final int[] starts;
+    /** Positions of the current block. */
+    private int[] poss = new int[BLOCK];
+    /** Number of ids in the current block. */
+    private int k;
+    /** Index of the current id. */
+    private int i;
+
+    /**
+     * Constructor.
+     * @param d data access
+     * @param pos position of the list
+     * @param f full-text flag (positions are stored)
+     */
+    public Cursor(final DataAccess d, final long pos, final boolean f) {
+      da = d;
+      ft = f;
+      size = d.readNum(pos);
+      off = d.cursor();
+      rest = size;
+      final int s = size < SMALL ? size : BLOCK;
+      ids = new int[s];
+      cnts = new int[s];
+      starts = new int[s];
+      if(size < SMALL) small();
+    }
+
+    /**
+     * Moves the cursor to the next id.
+     * @return {@code true} if more ids are found
+     */
+    public boolean next() {
+      return ++i < k || rest != 0 && block(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Moves the cursor to the first id that is equal to or greater than the
+     * specified id. The cursor is moved at least once.
+     * @param id id
+     * @return {@code true} if such an id exists
+     */
+    public boolean skip(final int id) {
+      if(++i < k) {
+        if(ids[k - 1] >= id) {
+          while(ids[i] < id) i++;
+          return true;
+        }
+        i = k;
+      }
+      while(rest != 0) {
+        if(!block(id)) continue;
+        while(ids[i] < id) i++;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Returns the current id.
+     * @return id
+     */
+    public int id() {
+      return ids[i];
+    }
+
+    /**
+     * Returns the number of positions of the current id.
+     * @return number of positions
+     */
+    public int count() {
+      return cnts[i];
+    }
+
+    /**
+     * Returns a position of the current id.
+     * @param p index of the position
+     * @return position
+     */
+    public int pos(final int p) {
+      return poss[starts[i] + p];
+    }
+
+    /**
+     * Reads a list with less than {@link #SMALL} ids.
+     */
+    private void small() {
+      int p = 0;
+      for(int n = 0, o = 0; n < size; n++) {
+        o += da.readNum();
+        ids[n] = o;
+        if(ft) {
+          final int c = da.readNum();
+          cnts[n] = c;
+          starts[n] = p;
+          if(poss.length < p + c) poss = Arrays.copyOf(poss, Math.max(p + c, p << 1));
+          for(int q = 0, ps = 0; q < c; q++) {
+            ps += da.readNum();
+            poss[p++] = ps;
+          }
+        }
+      }
+      off = da.cursor();
+      k = size;
+      i = -1;
+      rest = 0;
+    }
+
+    /**
+     * Reads the header of the next block, and decodes the block if it may
+     * contain requested ids.
+     * @param id smallest requested id
+     * @return {@code true} if the block has been decoded
+     */
+    private boolean block(final int id) {
+      final int n = Math.min(BLOCK, rest);
+      rest -= n;
+      final int first = last + da.readNum(off);
+      last = first + (n > 1 ? da.readNum() : 0);
+      final int sz = da.readNum();
+      final long data = da.cursor();
+      off = data + sz;
+      k = n;
+      i = 0;
+      if(last < id) {
+        i = k;
+        return false;
+      }
+
+      final byte[] a = da.readBytes(data, sz);
+      ids[0] = first;
+      int p = unpack(a, 0, ids, 1, n);
+      for(int c = 1; c < n; c++) ids[c] += ids[c - 1] + 1;
+      if(ft) {
+        p = unpack(a, p, cnts, 0, n);
+        int t = 0;
+        for(int c = 0; c < n; c++) {
+          starts[c] = t;
+          t += ++cnts[c];
+        }
+        if(poss.length < t) poss = new int[t];
+        unpack(a, p, poss, 0, t);
+        for(int c = 0; c < n; c++) {
+          for(int q = starts[c] + 1, e = starts[c] + cnts[c]; q < e; q++) {
+            poss[q] += poss[q - 1];
+          }
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -9,6 +9,7 @@ import java.io.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.gram.*;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
 import org.basex.util.ft.*;
@@ -21,14 +22,12 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Current lexer position. */
-  int pos;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Full-text options. */
+  private final FTOpt fto;
+  /** Index structures of all partitions. */
+  private Partition[] parts;
+  /** N-grams of all tokens (can be {@code null}). */
+  private GramWriter grams;
 
   /**
    * Constructor.
@@ -36,11 +35,9 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public FTBuilder(final Data d) throws IOException {
-    super(d);
-    tree = new FTIndexTrees(d.meta.maxlen);
-
+    super(d, DATAFTX);
     final Prop prop = d.meta.prop;
-    final FTOpt fto = new FTOpt();
+    fto = new FTOpt();
     fto.set(FTFlag.DC, prop.is(Prop.DIACRITICS));
     fto.set(FTFlag.CS, prop.is(Prop.CASESENS));
     fto.set(FTFlag.ST, prop.is(Prop.STEMMING));
@@ -51,29 +48,61 @@ public final class FTBuilder extends IndexBuilder {
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(prop.is(Prop.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
-    // delete old index
+  @Override
+  public void build() throws IOException {
+    // delete old temporary files
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
+    if(data.meta.ftgrams) grams = new GramWriter();
+    scan();
+    write();
+    if(grams != null) {
+      grams.write(data.meta.dbfile(temp + 'g'));
+      grams = null;
+    }
+    Util.memory(perf);
+  }
+
+  @Override
+  protected FTIndex index() throws IOException {
+    return new FTIndex(data);
+  }
+
+  @Override
+  protected void indexed(final boolean ix) {
+    data.meta.ftxtindex = ix;
+  }
+
+  @Override
+  protected void init(final int ps) {
+    parts = new Partition[ps];
+  }
+
+  @Override
+  protected void index(final int part, final int start, final int end)
+      throws IOException {
+
+    final Partition pt = new Partition();
+    parts[part] = pt;
+    final FTLexer lex = new FTLexer(fto);
+    final StopWords sw = fto.sw;
+    long ntok = 0;
+    for(int pre = start; pre < end; ++pre) {
+      if((pre - start & 0xFFFF) == 0) check(pre == start ? 0 : 0x10000);
 
       final int k = data.kind(pre);
       if(k != Data.TEXT) continue;
 
-      pos = -1;
-      final StopWords sw = lex.ftOpt().sw;
+      // updatable databases: store ids instead of pre values
+      final int id = data.meta.updindex ? data.id(pre) : pre;
+      // text length, used for computing score bounds
+      final int len = data.textLen(pre, true);
+      int pos = -1;
       lex.init(data.text(pre, true));
       while(lex.hasNext()) {
         final byte[] tok = lex.nextToken();
@@ -81,53 +110,41 @@ public final class FTBuilder extends IndexBuilder {
         // skip too long and stopword tokens
         if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
           // check if main memory is exhausted
-          if((ntok++ & 0xFFF) == 0 && memFull()) {
-            writeIndex(csize++);
+          if((ntok++ & 0xFFF) == 0 && memFull(part)) {
+            writeIndex(pt, true);
             Performance.gc(singlegc ? 1 : 2);
           }
-          index(tok);
+          pt.tree.index(tok, id, pos, len, pt.files.size());
         }
       }
     }
-
-    // write tokens
-    write();
-
-    data.meta.ftxtindex = true;
-    Util.memory(perf);
-  }
-
-  @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTIndex(data);
-  }
-
-  /**
-   * Indexes a single token.
-   * @param tok token to be indexed
-   */
-  void index(final byte[] tok) {
-    tree.index(tok, pre, pos, csize);
   }
 
   /**
    * Writes the index data to disk.
    * @throws IOException I/O exception
    */
-  public void write() throws IOException {
-    writeIndex(csize++);
-    if(!merge) return;
-
-    // merges temporary index files
-    final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
-    final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
-    final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'));
+  private void write() throws IOException {
+    if(!merge && parts.length == 1) {
+      writeIndex(parts[0], false);
+      return;
+    }
+
+    // write remaining index structures, and merge temporary index files
+    merge = true;
+    for(final Partition pt : parts) writeIndex(pt, true);
+    final DataOutput outX = new DataOutput(data.meta.dbfile(temp + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.dbfile(temp + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.dbfile(temp + 'z'));
     final IntList ind = new IntList();
 
-    // open all temporary sorted lists
+    // open all temporary sorted lists (ordered by their pre values)
     final FTList[] v = new FTList[csize];
-    for(int b = 0; b < csize; ++b) v[b] = new FTList(data, b);
+    int c = 0;
+    for(final Partition pt : parts) {
+      for(int f = 0; f < pt.files.size(); f++) v[c++] = new FTList(data, temp + pt.files.get(f));
+    }
+    parts = null;
 
     final IntList il = new IntList();
     while(check(v)) {
@@ -154,6 +171,7 @@ public final class FTBuilder extends IndexBuilder {
       }
 
       // write token
+      if(grams != null) grams.index(v[m].tok, (int) outY.size());
       outY.writeBytes(v[m].tok);
       // pointer on full-text data
       outY.write5(outZ.size());
@@ -189,12 +207,21 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index to disk.
-   * @param cs current file pointer
+   * Writes the current index structures of a partition to disk.
+   * @param pt partition
+   * @param part write partial index files, which will be merged
    * @throws IOException I/O exception
    */
-  protected void writeIndex(final int cs) throws IOException {
-    final String s = DATAFTX + (merge ? cs : "");
+  private void writeIndex(final Partition pt, final boolean part) throws IOException {
+    // number of temporary files that have already been written by the partition
+    final int cs = pt.files.size();
+    String s = temp;
+    if(part) {
+      final int id = file();
+      pt.files.add(id);
+      s += id;
+    }
+    final FTIndexTrees tree = pt.tree;
     final DataOutput outX = new DataOutput(data.meta.dbfile(s + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(s + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.dbfile(s + 'z'));
@@ -215,13 +242,14 @@ public final class FTBuilder extends IndexBuilder {
         ind.add(j);
         ind.add(tr);
       }
+      if(grams != null && !part) grams.index(key, tr);
       for(int i = 0; i < j; ++i) outY.write1(key[i]);
       // write pointer on full-text data
       outY.write5(dr);
       // write full-text data size (number of pre values)
       outY.write4(t.nextNumPre());
       // write compressed pre and pos arrays
-      writeFTData(outZ, t.nextPres(), t.nextPoss());
+      writeFTData(outZ, t.nextPres(), t.nextPoss(), t.nextLength());
 
       dr = outZ.size();
       tr = (int) outY.size();
@@ -245,51 +273,64 @@ public final class FTBuilder extends IndexBuilder {
   private static int merge(final DataOutput out, final IntList il, final FTList[] v)
       throws IOException {
 
-    int s = 0;
-    final TokenBuilder tbp = new TokenBuilder();
-    final TokenBuilder tbo = new TokenBuilder();
-    tbp.add(new byte[4]);
-    tbo.add(new byte[4]);
+    final IntList pr = new IntList();
+    final IntList ps = new IntList();
+    int len = Integer.MAX_VALUE;
     // merge full-text data of all sorted lists with the same token
     for(int j = 0; j < il.size(); ++j) {
       final int m = il.get(j);
-      for(final int p : v[m].prv) tbp.add(Num.num(p));
-      for(final int p : v[m].pov) tbo.add(Num.num(p));
-      s += v[m].size;
+      for(final int p : v[m].prv) pr.add(p);
+      for(final int p : v[m].pov) ps.add(p);
+      len = Math.min(len, v[m].length);
       v[m].next();
     }
-    // write compressed pre and pos arrays
-    final byte[] pr = tbp.finish();
-    Num.size(pr, pr.length);
-    final byte[] po = tbo.finish();
-    Num.size(po, po.length);
 
     // write full-text data
-    writeFTData(out, pr, po);
-    return s;
+    write(out, pr, ps, len);
+    return pr.size();
   }
 
   /**
-   * Writes full-text data for a single token to disk.<br/>
-   * Format: {@code score? pre1 pos1 pre2 pos2 ... (0 score)? pre...}
+   * Writes full-text data for a single token to disk.
    * @param out DataOutput for disk access
    * @param vpre compressed pre values
    * @param vpos compressed pos values
+   * @param len minimum length of the texts containing the token
    * @throws IOException IOException
    */
   private static void writeFTData(final DataOutput out, final byte[] vpre,
-                                  final byte[] vpos) throws IOException {
-
-    int np = 4, pp = 4;
-    final int ns = Num.size(vpre);
-    while(np < ns) {
-      // full-text data is stored here, with -scoreU, pre1, pos1, ...,
-      // -scoreU, preU, posU
-      for(final int l = np + Num.length(vpre, np); np < l; ++np)
-        out.write(vpre[np]);
-      for(final int l = pp + Num.length(vpos, pp); pp < l; ++pp)
-        out.write(vpos[pp]);
+      final byte[] vpos, final int len) throws IOException {
+
+    final IntList pr = new IntList();
+    final IntList ps = new IntList();
+    final int ns = Num.size(vpre), os = Num.size(vpos);
+    for(int np = 4; np < ns; np += Num.length(vpre, np)) pr.add(Num.get(vpre, np));
+    for(int op = 4; op < os; op += Num.length(vpos, op)) ps.add(Num.get(vpos, op));
+    write(out, pr, ps, len);
+  }
+
+  /**
+   * Writes the score bounds and the id/pos list of a single token to disk
+   * (see {@link FTIndex} for the format).
+   * @param out DataOutput for disk access
+   * @param pr ids, sorted in ascending order
+   * @param ps positions
+   * @param len minimum length of the texts containing the token
+   * @throws IOException IOException
+   */
+  private static void write(final DataOutput out, final IntList pr, final IntList ps,
+      final int len) throws IOException {
+
+    // maximum number of occurrences of the token in a single text
+    final int s = pr.size();
+    int max = 0;
+    for(int i = 0, c = 0; i < s; i++) {
+      c = i > 0 && pr.get(i) == pr.get(i - 1) ? c + 1 : 1;
+      if(c > max) max = c;
     }
+    out.writeNum(max);
+    out.writeNum(len);
+    out.writeBytes(Postings.ids(pr.toArray(), ps.toArray(), s));
   }
 
   /**
@@ -302,10 +343,12 @@ public final class FTBuilder extends IndexBuilder {
     return false;
   }
 
-  @Override
-  public void abort() {
-    data.meta.drop(DATAFTX + ".*");
-    data.meta.ftxtindex = false;
+  /** Index structures of a partition. */
+  private final class Partition {
+    /** Value trees. */
+    final FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+    /** Ids of the temporary index files. */
+    final IntList files = new IntList();
   }
 
   @Override
@@ -6,12 +6,17 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.gram.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.ft.*;
 import org.basex.util.*;
@@ -38,11 +43,43 @@ import org.basex.util.list.*;
  * {@code z} is the pointer on the data entries of the token [long]<br/>
  * {@code s} is the number of pre values, saved in data [int]
  * </li>
- * <li>File <b>z</b> contains the {@code id/pos} references.
- *   The values are ordered, but not distinct:<br/>
- *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
+ * <li>File <b>z</b> contains the {@code id/pos} references of all tokens:<br/>
+ * Structure: {@code [c, l, ids/pos]}<br/>
+ * {@code c} is the maximum number of occurrences of the token in a single text,
+ *   and {@code l} is the minimum length of the texts containing the token
+ *   [{@link Num}]. Both values are used to compute upper bounds for the scores
+ *   of the results (see {@link FTIndexIterator#maxMatches}).<br/>
+ * The ids are ordered and distinct, and each id is followed by its positions.
+ *   Larger lists are stored in compressed blocks with skip pointers
+ *   (see {@link Postings}).</li>
  * </ul>
  *
+ * <p>If the database is not updatable, the lists are decoded while they are
+ * iterated, and blocks that cannot contain requested pre values are skipped
+ * (see {@link IndexIterator#skip}).</p>
+ *
+ * <p>If {@link MetaData#ftgrams} is enabled, file <b>g</b> contains the n-grams
+ * of all tokens, which reference the pointers of the tokens in file <b>y</b>
+ * (see {@link GramLists}). Wildcard queries are then resolved by looking up the
+ * n-grams of the literal fragments of the query.</p>
+ *
+ * <p>If the database is updatable ({@link MetaData#updindex}), node ids are stored
+ * instead of pre values. Updates are absorbed by an additional delta segment,
+ * which is kept in main memory and written to file <b>d</b>:</p>
+ *
+ * <ul>
+ * <li>The ids of all deleted or updated text nodes, the entries of which are
+ *   ignored in the main index structures:<br/>
+ *   Structure: {@code n, id1, id2, ...} [{@link Num}]</li>
+ * <li>The tokens of all inserted or updated text nodes:<br/>
+ *   Structure: {@code n, [t, s, id1/pos1, id2/pos2, ...] ...}<br/>
+ *   {@code t} is the token, {@code s} is the number of ids and positions
+ *   [{@link Num}]</li>
+ * </ul>
+ *
+ * <p>The delta segment is merged with the main index structures when the database
+ * is optimized.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -70,6 +107,17 @@ public final class FTIndex implements Index {
   /** Token positions. */
   final int[] tp;
 
+  /** Ids of deleted or updated text nodes. */
+  private final IntSet stale = new IntSet();
+  /** Inserted tokens, with id/pos pairs of the text nodes they occur in. */
+  private final TokenObjMap<IntList> delta = new TokenObjMap<IntList>();
+  /** N-grams of all tokens (can be {@code null}). */
+  private final GramLists grams;
+  /** Lexer for tokenizing updated texts (created on demand). */
+  private FTLexer lexer;
+  /** Flag for unsaved updates. */
+  private boolean dirty;
+
   /**
    * Constructor, initializing the index structure.
    * @param d data reference
@@ -79,8 +127,9 @@ public final class FTIndex implements Index {
     data = d;
 
     // cache token length index
-    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'));
-    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'));
+    final boolean mm = d.meta.prop.is(Prop.MMAP);
+    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'), mm);
+    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'), mm);
     inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'));
     tp = new int[d.meta.maxlen + 3];
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
@@ -99,6 +148,24 @@ public final class FTIndex implements Index {
       tp[p] = r;
     }
     tp[tp.length - 1] = (int) inY.length();
+
+    final IOFile gf = d.meta.dbfile(DATAFTX + 'g');
+    grams = gf.exists() ? new GramLists(gf) : null;
+
+    // read delta segment
+    final IOFile file = d.meta.dbfile(DATAFTX + 'd');
+    if(file.exists()) {
+      final DataInput in = new DataInput(file);
+      try {
+        for(int s = in.readNum(); s > 0; --s) stale.add(in.readNum());
+        for(int s = in.readNum(); s > 0; --s) {
+          final byte[] tok = in.readToken();
+          delta.add(tok, new IntList(in.readNums()));
+        }
+      } finally {
+        in.close();
+      }
+    }
   }
 
   @Override
@@ -113,7 +180,8 @@ public final class FTIndex implements Index {
     final FTOpt opt = ((FTLexer) it).ftOpt();
     if(opt.is(FZ) || opt.is(WC)) return Math.max(1, data.meta.size / 10);
 
-    return entry(tok).size;
+    final IntList il = delta.get(tok);
+    return entry(tok).size + (il != null ? il.size() >> 1 : 0);
   }
 
   @Override
@@ -132,7 +200,15 @@ public final class FTIndex implements Index {
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.pointer, e.size, inZ) : FTIndexIterator.FTEMPTY;
+    final IntList il = delta.get(tok);
+    if(e.size == 0 && (il == null || il.isEmpty())) return FTIndexIterator.FTEMPTY;
+    if(il == null) return iter(e.pointer, e.size);
+
+    final IntList pr = new IntList(e.size);
+    final IntList ps = new IntList(e.size);
+    if(e.size > 0) read(e.pointer, e.size, pr, ps);
+    if(il != null) delta(il, pr, ps);
+    return iter(new FTCache(pr, ps));
   }
 
   /**
@@ -239,9 +315,116 @@ public final class FTIndex implements Index {
 
   @Override
   public synchronized void close() {
+    flush();
     inX.close();
     inY.close();
     inZ.close();
+    if(grams != null) grams.close();
+  }
+
+  /**
+   * Indexes the tokens of an inserted or updated text node.
+   * @param id id of the text node
+   * @param text text
+   */
+  public synchronized void index(final int id, final byte[] text) {
+    final FTLexer lex = lexer().init(text);
+    final StopWords sw = lex.ftOpt().sw;
+    int pos = -1;
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      ++pos;
+      // skip too long and stopword tokens
+      if(tok.length > data.meta.maxlen || !sw.isEmpty() && sw.contains(tok)) continue;
+      IntList il = delta.get(tok);
+      if(il == null) {
+        il = new IntList(2);
+        delta.add(tok, il);
+      }
+      il.add(id);
+      il.add(pos);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Removes the tokens of a deleted or updated text node.
+   * @param id id of the text node
+   * @param text old text
+   */
+  public synchronized void delete(final int id, final byte[] text) {
+    // entries in the main index structures will be ignored
+    stale.add(id);
+    // remove entries from the delta segment
+    final FTLexer lex = lexer().init(text);
+    while(lex.hasNext()) {
+      final IntList il = delta.get(lex.nextToken());
+      if(il == null) continue;
+      for(int i = il.size() - 2; i >= 0; i -= 2) {
+        if(il.get(i) != id) continue;
+        il.deleteAt(i + 1);
+        il.deleteAt(i);
+      }
+    }
+    dirty = true;
+  }
+
+  /**
+   * Checks if the index contains updates that have not been merged with the main
+   * index structures yet.
+   * @return result of check
+   */
+  public synchronized boolean updated() {
+    return stale.size() != 0 || !delta.isEmpty();
+  }
+
+  /**
+   * Writes the delta segment to disk.
+   */
+  public synchronized void flush() {
+    if(!dirty) return;
+    final IOFile file = data.meta.dbfile(DATAFTX + 'd');
+    try {
+      if(updated()) {
+        final DataOutput out = new DataOutput(file);
+        try {
+          final int ss = stale.size();
+          out.writeNum(ss);
+          for(int s = 1; s <= ss; ++s) out.writeNum(stale.key(s));
+          int ds = 0;
+          for(final byte[] tok : delta) if(!delta.get(tok).isEmpty()) ds++;
+          out.writeNum(ds);
+          for(final byte[] tok : delta) {
+            final IntList il = delta.get(tok);
+            if(il.isEmpty()) continue;
+            out.writeToken(tok);
+            out.writeNums(il.toArray());
+          }
+        } finally {
+          out.close();
+        }
+      } else {
+        file.delete();
+      }
+      dirty = false;
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  /**
+   * Returns a lexer for tokenizing updated texts.
+   * The full-text options of the database are adopted.
+   * @return lexer
+   */
+  private FTLexer lexer() {
+    if(lexer == null) {
+      final FTOpt fto = new FTOpt().copy(data.meta);
+      fto.sw = new StopWords();
+      fto.sw.comp(data);
+      lexer = new FTLexer(fto);
+    }
+    return lexer;
   }
 
   /**
@@ -317,6 +500,9 @@ public final class FTIndex implements Index {
 
   /**
    * Performs a fuzzy search for the specified token with a maximum number of errors.
+   * As the tokens of each length are sorted, tokens with common prefixes are
+   * stored in adjacent entries. If possible, tokens are compared incrementally,
+   * and all tokens with a prefix that exceeds the number of errors are skipped.
    * @param token token to look for
    * @param k number of errors allowed
    * @return iterator
@@ -326,6 +512,7 @@ public final class FTIndex implements Index {
     final int tl = token.length;
     final int e = Math.min(tp.length - 1, tl + k);
     int s = Math.max(1, tl - k) - 1;
+    final boolean inc = ls.init(token, k, e);
 
     while(++s <= e) {
       int p = tp[s];
@@ -333,14 +520,66 @@ public final class FTIndex implements Index {
       int i = s + 1;
       int r = -1;
       while(i < tp.length && r == -1) r = tp[i++];
+      // previous token, and length of its prefix that has been compared
+      byte[] prev = EMPTY;
+      int pl = 0;
       while(p < r) {
-        if(ls.similar(inY.readBytes(p, s), token, k)) {
-          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), inZ), it);
+        final byte[] t = inY.readBytes(p, s);
+        if(inc) {
+          // reuse distances of common prefix
+          int c = 0;
+          while(c < pl && t[c] == prev[c]) c++;
+          while(c < s && ls.add(c, t[c])) c++;
+          prev = t;
+          pl = c;
+          if(c < s) {
+            p = skip(t, c + 1, p, r, s);
+            continue;
+          }
+        }
+        if((!inc || ls.similar(s)) && ls.similar(t, token, k)) {
+          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s)), it);
         }
         p += s + ENTRY;
       }
     }
-    return it;
+
+    // add results from delta segment
+    final IntList pr = new IntList();
+    final IntList ps = new IntList();
+    for(final byte[] t : delta) {
+      if(ls.similar(t, token, k)) delta(delta.get(t), pr, ps);
+    }
+    return pr.isEmpty() ? it : FTIndexIterator.union(iter(new FTCache(pr, ps)), it);
+  }
+
+  /**
+   * Skips all entries with the specified prefix. As most prefixes are only shared by
+   * a few entries, the next entry with a different prefix is found via
+   * exponential search.
+   * @param token current token
+   * @param pl length of the prefix
+   * @param p pointer on the current entry
+   * @param r pointer on the first entry with a different length
+   * @param tl token length
+   * @return pointer on the first entry with a different prefix
+   */
+  private int skip(final byte[] token, final int pl, final int p, final int r,
+      final int tl) {
+
+    final byte[] pref = Arrays.copyOf(token, pl);
+    final int o = tl + ENTRY, n = (r - p) / o;
+    int l = 1, h = 1;
+    while(h < n && diff(inY.readBytes(p + h * o, pl), pref) <= 0) {
+      l = h + 1;
+      h = Math.min(n, h << 1);
+    }
+    while(l < h) {
+      final int m = l + h >>> 1;
+      if(diff(inY.readBytes(p + m * o, pl), pref) > 0) h = m;
+      else l = m + 1;
+    }
+    return p + l * o;
   }
 
   /**
@@ -355,6 +594,55 @@ public final class FTIndex implements Index {
 
     final IntList pr = new IntList();
     final IntList ps = new IntList();
+    final int[] ids = grams(wc);
+    if(ids != null) {
+      // check all tokens that contain the n-grams of the query
+      for(final int p : ids) {
+        final int ti = length(p);
+        if(wc.match(inY.readBytes(p, ti))) read(pointer(p, ti), size(p, ti), pr, ps);
+      }
+    } else {
+      scan(wc, pr, ps);
+    }
+    for(final byte[] t : delta) {
+      if(wc.match(t)) delta(delta.get(t), pr, ps);
+    }
+    return iter(new FTCache(pr, ps));
+  }
+
+  /**
+   * Returns the pointers of all tokens that contain the n-grams of the literal
+   * fragments of a wildcard expression.
+   * @param wc wildcard expression
+   * @return sorted pointers, or {@code null} if no n-grams are available
+   */
+  private int[] grams(final FTWildcard wc) {
+    if(grams == null) return null;
+    final IntList il = new IntList();
+    for(final byte[] f : wc.fragments()) {
+      for(final int g : GramLists.grams(f, false)) il.add(g);
+    }
+    return il.isEmpty() ? null : grams.ids(il.sort().toArray());
+  }
+
+  /**
+   * Returns the length of the token at the specified position.
+   * @param p pointer on token
+   * @return token length
+   */
+  private int length(final int p) {
+    int l = tp.length - 2;
+    while(tp[l] == -1 || tp[l] > p) l--;
+    return l;
+  }
+
+  /**
+   * Scans all tokens that start with the prefix of a wildcard expression.
+   * @param wc wildcard expression
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void scan(final FTWildcard wc, final IntList pr, final IntList ps) {
     final byte[] pref = wc.prefix();
     final int l = Math.min(tp.length - 1, wc.max());
     for(int ti = pref.length; ti <= l; ti++) {
@@ -368,36 +656,135 @@ public final class FTIndex implements Index {
       while(i < e) {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
-        }
+        if(wc.match(t)) read(pointer(i, ti), size(i, ti), pr, ps);
         i += ti + ENTRY;
       }
     }
-    return iter(new FTCache(pr, ps));
   }
 
   /**
    * Returns an iterator for an index entry.
    * @param off offset on entries
    * @param size number of id/pos entries
-   * @param da data source
    * @return iterator
    */
-  private FTIndexIterator iter(final long off, final int size, final DataAccess da) {
-    da.cursor(off);
-    final IntList pr = new IntList(size);
-    final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+  private FTIndexIterator iter(final long off, final int size) {
+    if(data.meta.updindex) {
+      final IntList pr = new IntList(size);
+      final IntList ps = new IntList(size);
+      read(off, size, pr, ps);
+      return iter(new FTCache(pr, ps));
+    }
+
+    // pre values are stored: decode entries while iterating
+    final int mx = inZ.readNum(off), ln = inZ.readNum();
+    final Postings.Cursor cursor = new Postings.Cursor(inZ, inZ.cursor(), true);
+    return new FTIndexIterator() {
+      final FTMatches all = new FTMatches(toknum);
+
+      @Override
+      public boolean more() {
+        synchronized(FTIndex.this) {
+          return cursor.next() && matches(cursor);
+        }
+      }
+
+      @Override
+      public boolean skip(final int pre) {
+        synchronized(FTIndex.this) {
+          return cursor.skip(pre) && matches(cursor);
+        }
+      }
+
+      /**
+       * Assigns the positions of the current pre value.
+       * @param c cursor
+       * @return {@code true}
+       */
+      private boolean matches(final Postings.Cursor c) {
+        all.reset(toknum);
+        for(int p = 0; p < c.count(); p++) all.or(c.pos(p));
+        return true;
+      }
+
+      @Override
+      public FTMatches matches() {
+        return all;
+      }
+
+      @Override
+      public int next() {
+        return cursor.id();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public int maxMatches() {
+        return mx;
+      }
+
+      @Override
+      public int minLength() {
+        return ln;
+      }
+
+      @Override
+      public String toString() {
+        return Integer.toString(size);
+      }
+    };
+  }
+
+  /**
+   * Reads the pre values and positions of an index entry.
+   * If the database is updatable, ids are mapped to pre values, and the entries
+   * of stale text nodes are skipped.
+   * @param off offset on entries
+   * @param size number of id/pos entries
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void read(final long off, final int size, final IntList pr, final IntList ps) {
+    // skip score bounds
+    inZ.readNum(off);
+    inZ.readNum();
+    final Postings.Cursor cursor = new Postings.Cursor(inZ, inZ.cursor(), true);
+    final boolean upd = data.meta.updindex;
+    final boolean st = stale.size() != 0;
+    while(cursor.next()) {
+      final int id = cursor.id();
+      int pre = id;
+      if(upd) {
+        if(st && stale.contains(id)) continue;
+        pre = data.pre(id);
+        if(pre == -1) continue;
+      }
+      final int c = cursor.count();
+      for(int p = 0; p < c; p++) {
+        pr.add(pre);
+        ps.add(cursor.pos(p));
+      }
+    }
+  }
+
+  /**
+   * Adds the pre values and positions of a delta entry.
+   * @param il id/pos pairs
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void delta(final IntList il, final IntList pr, final IntList ps) {
+    final int s = il.size();
+    for(int i = 0; i < s; i += 2) {
+      final int pre = data.pre(il.get(i));
+      if(pre == -1) continue;
+      pr.add(pre);
+      ps.add(il.get(i + 1));
     }
-    return iter(new FTCache(pr, ps));
   }
 
   /**
@@ -19,6 +19,8 @@ final class FTIndexTree extends IndexTree {
   private TokenList poss = new TokenList(FACTOR);
   /** Tree structure [left, right, parent]. */
   private IntList numpre = new IntList(FACTOR);
+  /** Minimum lengths of the texts containing the tokens. */
+  private IntList lens = new IntList(FACTOR);
   /** Current pointer on token in the index. */
   private int lcn;
   /** Current pointer on ft data in the index. */
@@ -31,9 +33,10 @@ final class FTIndexTree extends IndexTree {
    * @param tok token to be indexed
    * @param pre pre value for the token
    * @param pos pos value of the token
+   * @param len length of the text containing the token
    * @param cf current file id
    */
-  void index(final byte[] tok, final int pre, final int pos, final int cf) {
+  void index(final byte[] tok, final int pre, final int pos, final int len, final int cf) {
     final int os = keys.size();
     final int n = index(tok, pre, cf == 0);
     if(os == keys.size()) {
@@ -41,11 +44,13 @@ final class FTIndexTree extends IndexTree {
       if(poss.size() > i && poss.get(i) != null) {
         poss.set(i, Num.add(poss.get(i), pos));
         numpre.set(i, numpre.get(i) + 1);
+        if(len < lens.get(i)) lens.set(i, len);
         return;
       }
     }
     poss.add(Num.newNum(pos));
     numpre.add(1);
+    lens.add(len);
   }
 
   /**
@@ -55,6 +60,7 @@ final class FTIndexTree extends IndexTree {
     poss = new TokenList(FACTOR);
     values = new TokenList(FACTOR);
     numpre = new IntList(FACTOR);
+    lens = new IntList(FACTOR);
     maps = new TokenIntMap();
   }
 
@@ -104,4 +110,12 @@ final class FTIndexTree extends IndexTree {
   int nextNumPre() {
     return numpre.get(pft);
   }
+
+  /**
+   * Returns the minimum length of the texts containing the next token.
+   * @return text length
+   */
+  int nextLength() {
+    return lens.get(pft);
+  }
 }
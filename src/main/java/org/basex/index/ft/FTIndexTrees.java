@@ -27,12 +27,13 @@ final class FTIndexTrees {
    * @param tok token to be indexed
    * @param pre pre value for the token
    * @param pos pos value of the token
+   * @param len length of the text containing the token
    * @param cf current file id
    */
-  void index(final byte[] tok, final int pre, final int pos, final int cf) {
+  void index(final byte[] tok, final int pre, final int pos, final int len, final int cf) {
     final int tl = tok.length;
     if(trees[tl] == null) trees[tl] = new FTIndexTree();
-    trees[tl].index(tok, pre, pos, cf);
+    trees[tl].index(tok, pre, pos, len, cf);
   }
 
   /**
@@ -1,11 +1,11 @@
 package org.basex.index.ft;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
 
 import org.basex.data.*;
+import org.basex.index.*;
 import org.basex.io.*;
 import org.basex.io.random.*;
 
@@ -44,27 +44,31 @@ final class FTList {
 
   /** Current data size. */
   int size;
+  /** Pointer on the current full-text data. */
+  private long pointer;
   /** Next token. */
   byte[] tok;
   /** Next pre values. */
   int[] prv;
   /** Next pos values. */
   int[] pov;
+  /** Minimum length of the texts containing the next token. */
+  int length;
 
   /**
    * Constructor, initializing the index structure.
    * @param d data
-   * @param cf prefix
+   * @param pref prefix of the temporary files
    * @throws IOException I/O exception
    */
-  FTList(final Data d, final int cf) throws IOException {
-    files = d.meta.dbfile(DATAFTX + cf + 'y');
-    filed = d.meta.dbfile(DATAFTX + cf + 'z');
+  FTList(final Data d, final String pref) throws IOException {
+    files = d.meta.dbfile(pref + 'y');
+    filed = d.meta.dbfile(pref + 'z');
     str = new DataAccess(files);
     dat = new DataAccess(filed);
     tp = new int[d.meta.maxlen + 3];
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
-    sizes = d.meta.dbfile(DATAFTX + cf + 'x');
+    sizes = d.meta.dbfile(pref + 'x');
     final DataAccess li = new DataAccess(sizes);
     int is = li.readNum();
     while(--is >= 0) {
@@ -91,9 +95,15 @@ final class FTList {
     } else {
       prv = new int[size];
       pov = new int[size];
-      for(int j = 0; j < size; ++j) {
-        prv[j] = dat.readNum();
-        pov[j] = dat.readNum();
+      // skip maximum number of occurrences, read minimum text length
+      dat.readNum(pointer);
+      length = dat.readNum();
+      final Postings.Cursor c = new Postings.Cursor(dat, dat.cursor(), true);
+      for(int j = 0; c.next();) {
+        for(int p = 0; p < c.count(); p++, j++) {
+          prv[j] = c.id();
+          pov[j] = c.pos(p);
+        }
       }
     }
   }
@@ -124,8 +134,8 @@ final class FTList {
     if(ctl == tp.length) return EMPTY;
 
     final byte[] t = str.readBytes(ptok, ctl);
-    // skip pointer
-    size = str.read4(str.cursor() + 5);
+    pointer = str.read5();
+    size = str.read4();
     // position will always fit in an integer...
     ptok = (int) str.cursor();
     return t;
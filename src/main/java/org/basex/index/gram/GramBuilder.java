@@ -0,0 +1,137 @@
+package org.basex.index.gram;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class builds the substring index and stores the result to disk.
+ * The n-grams of all text nodes and attribute values are collected in main memory.
+ * If main memory is exhausted, or if the nodes are indexed in parallel, the
+ * n-gram lists are written to temporary files, which are merged afterwards.</p>
+ *
+ * <p>All files are written with the temporary prefix {@code DATATMP}, and
+ * renamed when the index is opened.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GramBuilder extends IndexBuilder {
+  /** Temporary n-gram lists of all partitions. */
+  private GramWriter[] writers;
+
+  /**
+   * Constructor.
+   * @param d data reference
+   */
+  public GramBuilder(final Data d) {
+    super(d, DATASUB);
+  }
+
+  @Override
+  public void build() throws IOException {
+    // delete old temporary files
+    abort();
+
+    final Performance perf = Prop.debug ? new Performance() : null;
+    Util.debug(det());
+
+    final int parts = scan();
+    if(merge || parts > 1) {
+      for(final GramWriter gw : writers) gw.write(data.meta.dbfile(temp + file()));
+      writers = null;
+      if(!singlegc) Performance.gc(1);
+      merge();
+    } else {
+      writers[0].write(data.meta.dbfile(temp + 'l'));
+      writers = null;
+    }
+    Util.memory(perf);
+  }
+
+  @Override
+  protected GramIndex index() throws IOException {
+    return new GramIndex(data);
+  }
+
+  @Override
+  protected void indexed(final boolean ix) {
+    data.meta.substrindex = ix;
+  }
+
+  @Override
+  protected void init(final int parts) {
+    writers = new GramWriter[parts];
+  }
+
+  @Override
+  protected void index(final int part, final int start, final int end)
+      throws IOException {
+
+    GramWriter gw = new GramWriter();
+    for(int pre = start; pre < end; ++pre) {
+      if((pre - start & 0x0FFF) == 0) {
+        check(pre == start ? 0 : 0x1000);
+        // check if main memory is exhausted
+        if(memFull(part)) {
+          gw.write(data.meta.dbfile(temp + file()));
+          gw = new GramWriter();
+          Performance.gc(singlegc ? 1 : 2);
+        }
+      }
+      final int k = data.kind(pre);
+      if(k == Data.TEXT || k == Data.ATTR) gw.index(data.text(pre, k == Data.TEXT), pre);
+    }
+    writers[part] = gw;
+  }
+
+  /**
+   * Merges the temporary n-gram lists.
+   * @throws IOException I/O exception
+   */
+  private void merge() throws IOException {
+    final GramLists[] lists = new GramLists[csize];
+    try {
+      for(int i = 0; i < csize; i++) lists[i] = new GramLists(data.meta.dbfile(temp + i));
+      final int[] pos = new int[csize];
+      final IntList il = new IntList();
+      final GramOutput out = new GramOutput(data.meta.dbfile(temp + 'l'));
+      while(true) {
+        checkStop();
+        // find smallest n-gram
+        int min = -1;
+        for(int i = 0; i < csize; i++) {
+          if(pos[i] == lists[i].size()) continue;
+          final int g = lists[i].gram(pos[i]);
+          if(min == -1 || g < min) min = g;
+        }
+        if(min == -1) break;
+        // merge the ids of all lists
+        for(int i = 0; i < csize; i++) {
+          if(pos[i] == lists[i].size() || lists[i].gram(pos[i]) != min) continue;
+          for(final int id : lists[i].list(pos[i]++)) il.add(id);
+        }
+        out.add(min, il);
+        il.reset();
+      }
+      out.close();
+    } finally {
+      for(int i = 0; i < csize; i++) {
+        if(lists[i] != null) lists[i].close();
+        data.meta.dbfile(temp + i).delete();
+      }
+    }
+  }
+
+  @Override
+  protected String det() {
+    return INDEX_SUBSTRINGS_D;
+  }
+}
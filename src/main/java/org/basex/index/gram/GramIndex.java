@@ -0,0 +1,133 @@
+package org.basex.index.gram;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.stats.*;
+import org.basex.util.*;
+
+/**
+ * <p>This class provides access to the substring index. The index references all
+ * text nodes and attribute values by the n-grams of their strings
+ * (see {@link GramLists}). The n-gram lists contain pre values, and they are
+ * stored in the file {@code DATASUB + 'l'}.</p>
+ *
+ * <p>As the lists only yield candidates, all results are verified by comparing
+ * the strings of the candidates with the requested substring. The index is not
+ * updatable: it will be invalidated by all updates.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GramIndex implements Index {
+  /** Data reference. */
+  private final Data data;
+  /** N-gram lists. */
+  private final GramLists lists;
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param d data reference
+   * @throws IOException I/O exception
+   */
+  public GramIndex(final Data d) throws IOException {
+    data = d;
+    lists = new GramLists(d.meta.dbfile(DATASUB + 'l'));
+  }
+
+  @Override
+  public void init() { }
+
+  @Override
+  public byte[] info() {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(LI_STRUCTURE + NGRAMS + NL);
+    tb.add(LI_SIZE + Performance.format(lists.length(), true) + NL);
+    final IndexStats stats = new IndexStats(data.meta.prop.num(Prop.MAXSTAT));
+    final int s = lists.size();
+    for(int i = 0; i < s; i++) {
+      if(stats.adding(lists.size(i))) stats.add(string(lists.gram(i)));
+    }
+    stats.print(tb);
+    return tb.finish();
+  }
+
+  @Override
+  public EntryIterator entries(final IndexEntries entries) {
+    throw Util.notexpected();
+  }
+
+  @Override
+  public IndexIterator iter(final IndexToken token) {
+    final SubstringToken st = (SubstringToken) token;
+    final int[] grs = grams(st);
+    // no n-grams: check all nodes
+    final int[] pres = grs.length == 0 ? null : lists.ids(grs);
+    final int size = pres == null ? data.meta.size : pres.length;
+    final int kind = st.text ? Data.TEXT : Data.ATTR;
+
+    return new IndexIterator() {
+      int p = -1, pre;
+
+      @Override
+      public boolean more() {
+        while(++p < size) {
+          pre = pres == null ? p : pres[p];
+          if(data.kind(pre) == kind && st.matches(data.text(pre, st.text))) return true;
+        }
+        return false;
+      }
+
+      @Override
+      public int next() {
+        return pre;
+      }
+    };
+  }
+
+  @Override
+  public int count(final IndexToken token) {
+    final int[] grs = grams((SubstringToken) token);
+    return grs.length == 0 ? data.meta.size : lists.count(grs);
+  }
+
+  @Override
+  public void close() {
+    lists.close();
+  }
+
+  /**
+   * Returns the n-grams of the specified substring. The beginning or end of the
+   * string is marked if the substring must occur at the corresponding position.
+   * @param st substring token
+   * @return n-grams
+   */
+  private static int[] grams(final SubstringToken st) {
+    final byte[] s = st.sub;
+    final int o = st.start ? 1 : 0;
+    final byte[] t = new byte[s.length + o + (st.end ? 1 : 0)];
+    System.arraycopy(s, 0, t, o, s.length);
+    return GramLists.grams(t, false);
+  }
+
+  /**
+   * Returns a string representation of an n-gram. The beginning and end of a
+   * string are represented by {@code ^} and {@code $}.
+   * @param gram n-gram
+   * @return string
+   */
+  private static byte[] string(final int gram) {
+    final TokenBuilder tb = new TokenBuilder();
+    for(int s = 16; s >= 0; s -= 8) {
+      final int b = gram >>> s & 0xFF;
+      tb.addByte((byte) (b != 0 ? b : s == 16 ? '^' : '$'));
+    }
+    return tb.finish();
+  }
+}
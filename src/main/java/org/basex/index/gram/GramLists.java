@@ -0,0 +1,206 @@
+package org.basex.index.gram;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+
+/**
+ * This class provides access to the n-gram lists of an index structure.
+ * For each n-gram (a sequence of three bytes), a sorted list of ids is stored,
+ * which references all entries containing the n-gram. The beginning and the end
+ * of an entry are marked with {@code 0} bytes.
+ *
+ * The lists are stored in a single file with the following format:
+ * <ul>
+ * <li> {@code [o]}: offset of the n-gram table [long, 5 bytes]</li>
+ * <li> {@code [n, i1, i2-i1, ...] ...}: number of ids, followed by the
+ *   differences between the sorted ids [{@link org.basex.util.Num}]</li>
+ * <li> {@code [s, [g, p] ...]}: number of n-grams, and the ordered n-grams and
+ *   offsets of their lists [{@link org.basex.util.Num}, 5 bytes]</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GramLists {
+  /** Length of n-grams. */
+  public static final int N = 3;
+
+  /** Index file. */
+  private final DataAccess da;
+  /** Sorted n-grams. */
+  private final int[] grams;
+  /** Offsets of the id lists. */
+  private final long[] offsets;
+
+  /**
+   * Constructor.
+   * @param file index file
+   * @throws IOException I/O exception
+   */
+  public GramLists(final IOFile file) throws IOException {
+    da = new DataAccess(file);
+    da.cursor(da.read5(0));
+    final int s = da.readNum();
+    grams = new int[s];
+    offsets = new long[s];
+    for(int i = 0; i < s; i++) {
+      grams[i] = da.readNum();
+      offsets[i] = da.read5();
+    }
+  }
+
+  /**
+   * Returns the sorted ids of all entries that contain all specified n-grams.
+   * @param grs n-grams
+   * @return ids
+   */
+  public synchronized int[] ids(final int[] grs) {
+    // sort lists by their sizes, and intersect shortest lists first
+    final int gl = grs.length;
+    final long[] lists = new long[gl];
+    for(int g = 0; g < gl; g++) {
+      final int i = Arrays.binarySearch(grams, grs[g]);
+      if(i < 0) return new int[0];
+      lists[g] = (long) size(i) << 32 | i;
+    }
+    Arrays.sort(lists);
+
+    int[] ids = null;
+    for(final long l : lists) {
+      final int[] list = read((int) l, (int) (l >>> 32));
+      ids = ids == null ? list : intersect(ids, list);
+      if(ids.length == 0) break;
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the maximum number of entries that contain all specified n-grams.
+   * @param grs n-grams
+   * @return number of ids in the shortest list
+   */
+  public synchronized int count(final int[] grs) {
+    int c = Integer.MAX_VALUE;
+    for(final int g : grs) {
+      final int i = Arrays.binarySearch(grams, g);
+      if(i < 0) return 0;
+      c = Math.min(c, size(i));
+    }
+    return c;
+  }
+
+  /**
+   * Returns the number of n-grams.
+   * @return number of n-grams
+   */
+  public int size() {
+    return grams.length;
+  }
+
+  /**
+   * Returns the size of the index file.
+   * @return file size
+   */
+  public long length() {
+    return da.length();
+  }
+
+  /**
+   * Returns the n-gram at the specified index.
+   * @param i index of the n-gram
+   * @return n-gram
+   */
+  int gram(final int i) {
+    return grams[i];
+  }
+
+  /**
+   * Returns the ids of the n-gram at the specified index.
+   * @param i index of the n-gram
+   * @return ids
+   */
+  synchronized int[] list(final int i) {
+    return read(i, size(i));
+  }
+
+  /**
+   * Returns the number of ids of the n-gram at the specified index.
+   * @param i index of the n-gram
+   * @return number of ids
+   */
+  synchronized int size(final int i) {
+    da.cursor(offsets[i]);
+    return da.readNum();
+  }
+
+  /**
+   * Closes the index file.
+   */
+  public synchronized void close() {
+    da.close();
+  }
+
+  /**
+   * Returns the distinct n-grams of the specified token.
+   * @param token token
+   * @param pad mark the beginning and end of the token
+   * @return sorted n-grams (empty if the token is too short)
+   */
+  public static int[] grams(final byte[] token, final boolean pad) {
+    final byte[] t;
+    if(pad) {
+      t = new byte[token.length + 2];
+      System.arraycopy(token, 0, t, 1, token.length);
+    } else {
+      t = token;
+    }
+    final int tl = t.length - N + 1;
+    if(tl <= 0) return new int[0];
+    final IntList il = new IntList(tl);
+    for(int i = 0; i < tl; i++) {
+      il.add((t[i] & 0xFF) << 16 | (t[i + 1] & 0xFF) << 8 | t[i + 2] & 0xFF);
+    }
+    final int[] grs = il.sort().toArray();
+    int s = 0;
+    for(int i = 0; i < grs.length; i++) if(s == 0 || grs[s - 1] != grs[i]) grs[s++] = grs[i];
+    return Arrays.copyOf(grs, s);
+  }
+
+  /**
+   * Reads an id list.
+   * @param i index of the n-gram
+   * @param s number of ids
+   * @return ids
+   */
+  private int[] read(final int i, final int s) {
+    da.cursor(offsets[i]);
+    da.readNum();
+    final int[] list = new int[s];
+    for(int l = 0, id = 0; l < s; l++) {
+      id += da.readNum();
+      list[l] = id;
+    }
+    return list;
+  }
+
+  /**
+   * Intersects two sorted id arrays.
+   * @param ids1 first ids
+   * @param ids2 second ids
+   * @return intersection
+   */
+  private static int[] intersect(final int[] ids1, final int[] ids2) {
+    final IntList il = new IntList(Math.min(ids1.length, ids2.length));
+    for(int i1 = 0, i2 = 0; i1 < ids1.length && i2 < ids2.length;) {
+      final int d = ids1[i1] - ids2[i2];
+      if(d <= 0) i1++;
+      if(d >= 0) i2++;
+      if(d == 0) il.add(ids1[i1 - 1]);
+    }
+    return il.toArray();
+  }
+}
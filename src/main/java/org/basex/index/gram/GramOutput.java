@@ -0,0 +1,78 @@
+package org.basex.index.gram;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+
+/**
+ * This class writes n-gram lists to disk (see {@link GramLists} for the file format).
+ * The lists must be added in the order of their n-grams.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class GramOutput {
+  /** Index file. */
+  private final IOFile file;
+  /** Output stream. */
+  private final DataOutput out;
+  /** N-gram table. */
+  private final ArrayOutput table = new ArrayOutput();
+  /** Output stream for the n-gram table. */
+  private final DataOutput tout = new DataOutput(table);
+  /** Number of n-grams. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param f index file
+   * @throws IOException I/O exception
+   */
+  GramOutput(final IOFile f) throws IOException {
+    file = f;
+    out = new DataOutput(f);
+    out.write5(0);
+  }
+
+  /**
+   * Writes the ids of an n-gram.
+   * @param gram n-gram
+   * @param ids ids (will be sorted)
+   * @throws IOException I/O exception
+   */
+  void add(final int gram, final IntList ids) throws IOException {
+    ids.sort();
+    tout.writeNum(gram);
+    tout.write5(out.size());
+    size++;
+    final int is = ids.size();
+    out.writeNum(is);
+    for(int i = 0, o = 0; i < is; i++) {
+      final int id = ids.get(i);
+      out.writeNum(id - o);
+      o = id;
+    }
+  }
+
+  /**
+   * Writes the n-gram table and closes the file.
+   * @throws IOException I/O exception
+   */
+  void close() throws IOException {
+    final long offset = out.size();
+    try {
+      out.writeNum(size);
+      out.write(table.buffer(), 0, (int) table.size());
+    } finally {
+      out.close();
+    }
+    // write offset of n-gram table to first position
+    final DataAccess da = new DataAccess(file);
+    da.write5(0, offset);
+    da.close();
+  }
+}
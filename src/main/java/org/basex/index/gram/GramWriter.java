@@ -0,0 +1,51 @@
+package org.basex.index.gram;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class collects the n-grams of index entries and writes them to disk
+ * (see {@link GramLists} for the file format).
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GramWriter {
+  /** Id lists, indexed by n-grams. */
+  private final IntMap<IntList> lists = new IntMap<IntList>();
+
+  /**
+   * Indexes the n-grams of the specified entry.
+   * @param token token of the entry
+   * @param id id of the entry
+   */
+  public void index(final byte[] token, final int id) {
+    for(final int g : GramLists.grams(token, true)) {
+      IntList il = lists.get(g);
+      if(il == null) {
+        il = new IntList(1);
+        lists.add(g, il);
+      }
+      il.add(id);
+    }
+  }
+
+  /**
+   * Writes the n-gram lists to the specified file.
+   * @param file index file
+   * @throws IOException I/O exception
+   */
+  public void write(final IOFile file) throws IOException {
+    final int s = lists.size();
+    final int[] grams = new int[s];
+    for(int i = 0; i < s; i++) grams[i] = lists.key(i + 1);
+    final int[] order = new IntList(grams).sort().toArray();
+
+    final GramOutput out = new GramOutput(file);
+    for(final int g : order) out.add(g, lists.get(g));
+    out.close();
+  }
+}
@@ -30,6 +30,22 @@ public abstract class FTIndexIterator extends IndexIterator {
    */
   public abstract FTMatches matches();
 
+  /**
+   * Returns an upper bound for the number of matches of a single result.
+   * @return maximum number of matches, or {@link Integer#MAX_VALUE} if unknown
+   */
+  public int maxMatches() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns a lower bound for the text lengths of the results.
+   * @return minimum text length, or {@code 0} if unknown
+   */
+  public int minLength() {
+    return 0;
+  }
+
   /**
    * Sets the unique token number. Used for visualization.
    * @param tn number of tokens
@@ -55,6 +71,22 @@ public abstract class FTIndexIterator extends IndexIterator {
       public boolean more() {
         if(c <= 0) r = i1.more() ? i1 : null;
         if(c >= 0) s = i2.more() ? i2 : null;
+        return choose();
+      }
+
+      @Override
+      public boolean skip(final int pre) {
+        // skip iterators whose current results have been returned or are too small
+        if(c <= 0 || r != null && r.next() < pre) r = i1.skip(pre) ? i1 : null;
+        if(c >= 0 || s != null && s.next() < pre) s = i2.skip(pre) ? i2 : null;
+        return choose();
+      }
+
+      /**
+       * Chooses the iterator with the smallest result.
+       * @return {@code true} if a result was found
+       */
+      private boolean choose() {
         c = r != null && s != null ? r.next() - s.next() : r != null ? -1 : 1;
         n = c <= 0 ? r : s;
         return n != null;
@@ -83,6 +115,16 @@ public abstract class FTIndexIterator extends IndexIterator {
         return i1.size() + i2.size();
       }
 
+      @Override
+      public int maxMatches() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) i1.maxMatches() + i2.maxMatches());
+      }
+
+      @Override
+      public int minLength() {
+        return Math.min(i1.minLength(), i2.minLength());
+      }
+
       @Override
       public String toString() {
         return "(" + i1 + " | " + i2 + ')';
@@ -101,29 +143,41 @@ public abstract class FTIndexIterator extends IndexIterator {
       final FTIndexIterator i2, final int dis) {
 
     return new FTIndexIterator() {
-      FTIndexIterator r, s;
-
       @Override
       public boolean more() {
-        int c = 0;
+        return i1.more() && i2.more() && align();
+      }
+
+      @Override
+      public boolean skip(final int pre) {
+        return i1.skip(pre) && i2.skip(pre) && align();
+      }
+
+      /**
+       * Advances the iterator with the smaller result until both results are equal.
+       * If possible, the blocks of compressed index entries are skipped.
+       * @return {@code true} if a result was found
+       */
+      private boolean align() {
         while(true) {
-          if(c <= 0) r = i1.more() ? i1 : null;
-          if(c >= 0) s = i2.more() ? i2 : null;
-          if(r == null || s == null) return false;
-          c = r.next() - s.next();
-          if(c == 0 && (dis == 0 || r.matches().phrase(s.matches(), dis)))
-            return true;
+          final int c = i1.next() - i2.next();
+          if(c == 0) {
+            if(dis == 0 || i1.matches().phrase(i2.matches(), dis)) return true;
+            if(!i1.more() || !i2.more()) return false;
+          } else if(c < 0 ? !i1.skip(i2.next()) : !i2.skip(i1.next())) {
+            return false;
+          }
         }
       }
 
       @Override
       public FTMatches matches() {
-        return r.matches();
+        return i1.matches();
       }
 
       @Override
       public int next() {
-        return r.next();
+        return i1.next();
       }
 
       @Override
@@ -137,6 +191,17 @@ public abstract class FTIndexIterator extends IndexIterator {
         return Math.min(i1.size(), i2.size());
       }
 
+      @Override
+      public int maxMatches() {
+        // only the matches of the first iterator are returned
+        return i1.maxMatches();
+      }
+
+      @Override
+      public int minLength() {
+        return Math.max(i1.minLength(), i2.minLength());
+      }
+
       @Override
       public String toString() {
         return "(" + i1 + " & " + i2 + ')';
@@ -29,6 +29,18 @@ public abstract class IndexIterator {
    */
   public abstract int next();
 
+  /**
+   * Skips all results that are smaller than the specified value.
+   * The iterator is advanced at least once.
+   * @param pre pre value
+   * @return {@code true} if a result was found that is equal to or greater than
+   *   the specified value
+   */
+  public boolean skip(final int pre) {
+    while(more()) if(next() >= pre) return true;
+    return false;
+  }
+
   /**
    * Returns the total number of index results.
    * The iterator may get exhausted by calling this method.
@@ -0,0 +1,57 @@
+package org.basex.index.query;
+
+import static org.basex.util.Token.*;
+
+import org.basex.index.*;
+
+/**
+ * This class stores a substring for index access.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SubstringToken implements IndexToken {
+  /** Text or attribute values. */
+  public final boolean text;
+  /** Substring. */
+  public final byte[] sub;
+  /** Substring must occur at the beginning of the string. */
+  public final boolean start;
+  /** Substring must occur at the end of the string. */
+  public final boolean end;
+
+  /**
+   * Constructor.
+   * @param txt text or attribute values
+   * @param s substring
+   * @param st substring must occur at the beginning of the string
+   * @param e substring must occur at the end of the string
+   */
+  public SubstringToken(final boolean txt, final byte[] s, final boolean st,
+      final boolean e) {
+    text = txt;
+    sub = s;
+    start = st;
+    end = e;
+  }
+
+  /**
+   * Checks if the specified string contains the substring.
+   * @param string string
+   * @return result of check
+   */
+  public boolean matches(final byte[] string) {
+    return start ? startsWith(string, sub) : end ? endsWith(string, sub) :
+      contains(string, sub);
+  }
+
+  @Override
+  public IndexType type() {
+    return IndexType.SUBSTRING;
+  }
+
+  @Override
+  public byte[] get() {
+    return sub;
+  }
+}
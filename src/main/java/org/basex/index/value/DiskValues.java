@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
@@ -12,6 +13,7 @@ import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -42,6 +44,10 @@ public class DiskValues implements Index {
   protected final Object monitor = new Object();
   /** Number of current index entries. */
   protected final AtomicInteger size = new AtomicInteger();
+  /** File prefix. */
+  private final String prefix;
+  /** Numeric keys (can be {@code null}). */
+  private NumericKeys numeric;
 
   /**
    * Constructor, initializing the index structure.
@@ -64,9 +70,13 @@ public class DiskValues implements Index {
       throws IOException {
     data = d;
     text = txt;
-    idxl = new DataAccess(d.meta.dbfile(pref + 'l'));
-    idxr = new DataAccess(d.meta.dbfile(pref + 'r'));
+    final boolean mm = d.meta.prop.is(Prop.MMAP);
+    idxl = new DataAccess(d.meta.dbfile(pref + 'l'), mm);
+    idxr = new DataAccess(d.meta.dbfile(pref + 'r'), mm);
     size.set(idxl.read4());
+    prefix = pref;
+    final IOFile nf = d.meta.dbfile(pref + 'n');
+    if(nf.exists()) numeric = new NumericKeys(nf);
   }
 
   @Override
@@ -96,7 +106,7 @@ public class DiskValues implements Index {
   @Override
   public int count(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it).size();
-    if(it instanceof NumericRange) return idRange((NumericRange) it).size();
+    if(it instanceof NumericRange) return count((NumericRange) it);
     final byte[] key = it.get();
     return key.length <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
   }
@@ -127,10 +137,9 @@ public class DiskValues implements Index {
 
     synchronized(monitor) {
       // get position in heap file
-      final long pos = idxr.read5(p * 5L);
+      pointer = idxr.read5(p * 5L);
       // the first heap entry represents the number of hits
-      count = idxl.readNum(pos);
-      pointer = idxl.cursor();
+      count = idxl.readNum(pointer);
     }
 
     return cache.add(tok, count, pointer);
@@ -285,25 +294,21 @@ public class DiskValues implements Index {
       key = data.text(pre(id), text);
     }
 
-    return cache.add(key, cnt, pos + Num.length(cnt));
+    return cache.add(key, cnt, pos);
   }
 
   /**
    * Iterator method.
    * <p><em>Important:</em> This method is thread-safe.</p>
    * @param s number of values
-   * @param ps offset
+   * @param ps offset of the id list
    * @return iterator
    */
   private IndexIterator iter(final int s, final long ps) {
+    if(s == 0) return IndexIterator.EMPTY;
     final IntList pres = new IntList(s);
-    long p = ps;
     synchronized(monitor) {
-      for(int i = 0, id = 0; i < s; i++) {
-        id += idxl.readNum(p);
-        p = idxl.cursor();
-        pres.add(pre(id));
-      }
+      for(final int id : Postings.ids(idxl, ps)) pres.add(pre(id));
     }
     return iter(pres.sort());
   }
@@ -321,23 +326,39 @@ public class DiskValues implements Index {
       final int i = get(tok.min);
       final int s = size.get();
       for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
-        final int ps = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+        final long pos = idxr.read5(l * 5L);
+        idxl.readNum(pos);
+        final int pre = pre(idxl.readNum());
 
         // value is too large: skip traversal
         final int d = diff(data.text(pre, text), tok.max);
         if(d > 0 || !tok.mxi && d == 0) break;
         // add pre values
-        for(int p = 0; p < ps; ++p) {
-          pres.add(pre(id));
-          id += idxl.readNum();
-        }
+        for(final int id : Postings.ids(idxl, pos)) pres.add(pre(id));
       }
     }
     return iter(pres.sort());
   }
 
+  /**
+   * Returns the number of results of a numeric range query. If no numeric keys
+   * are available (e.g. because they have been dropped by updates), the results
+   * of the range query will be counted.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param tok index term
+   * @return number of results
+   */
+  private int count(final NumericRange tok) {
+    int c = 0;
+    synchronized(monitor) {
+      if(numeric == null) return idRange(tok).size();
+      final IntList keys = numeric.keys(tok.min, tok.max);
+      final int ks = keys.size();
+      for(int k = 0; k < ks; k++) c += idxl.readNum(idxr.read5(keys.get(k) * 5L));
+    }
+    return c;
+  }
+
   /**
    * Performs a range query. All index values must be numeric.
    * <p><em>Important:</em> This method is thread-safe.</p>
@@ -348,6 +369,21 @@ public class DiskValues implements Index {
     final double min = tok.min;
     final double max = tok.max;
 
+    // use numeric keys
+    if(numeric != null) {
+      final IntList pres = new IntList();
+      synchronized(monitor) {
+        final IntList keys = numeric.keys(min, max);
+        final int ks = keys.size();
+        for(int k = 0; k < ks; k++) {
+          for(final int id : Postings.ids(idxl, idxr.read5(keys.get(k) * 5L))) {
+            pres.add(pre(id));
+          }
+        }
+      }
+      return iter(pres.sort());
+    }
+
     // check if min and max are positive integers with the same number of digits
     final int len = max > 0 && (long) max == max ? token(max).length : 0;
     final boolean simple = len != 0 && min > 0 && (long) min == min &&
@@ -357,17 +393,14 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       final int s = size.get();
       for(int l = 0; l < s; ++l) {
-        final int ds = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+        final long pos = idxr.read5(l * 5L);
+        idxl.readNum(pos);
+        final int pre = pre(idxl.readNum());
 
         final double v = data.textDbl(pre, text);
         if(v >= min && v <= max) {
           // value is in range
-          for(int d = 0; d < ds; ++d) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
+          for(final int id : Postings.ids(idxl, pos)) pres.add(pre(id));
         } else if(simple && v > max && data.textLen(pre, text) == len) {
           // if limits are integers, if min, max and current value have the same
           // string length, and if current value is larger than max, test can be
@@ -448,6 +481,51 @@ public class DiskValues implements Index {
     return -(l + 1);
   }
 
+  /**
+   * Creates the numeric keys of the index.
+   * @throws IOException I/O exception
+   */
+  final void createNumeric() throws IOException {
+    synchronized(monitor) {
+      final int s = size.get();
+      final double[] values = new double[s];
+      final IntList keys = new IntList();
+      for(int l = 0; l < s; ++l) {
+        idxl.readNum(idxr.read5(l * 5L));
+        final double v = data.textDbl(pre(idxl.readNum()), text);
+        if(!Double.isNaN(v)) {
+          values[keys.size()] = v;
+          keys.add(l);
+        }
+      }
+      final IOFile nf = data.meta.dbfile(prefix + 'n');
+      NumericKeys.write(nf, Arrays.copyOf(values, keys.size()), keys);
+      numeric = new NumericKeys(nf);
+    }
+  }
+
+  /**
+   * Drops the numeric keys. This method is called if the offsets of the index
+   * keys are changed by updates.
+   */
+  protected final void dropNumeric() {
+    synchronized(monitor) {
+      if(numeric == null) return;
+      numeric.close();
+      numeric = null;
+      data.meta.dbfile(prefix + 'n').delete();
+    }
+  }
+
+  /**
+   * Checks if numeric keys are available. If they have been dropped by updates,
+   * they will be recreated when the database is optimized.
+   * @return result of check
+   */
+  public final boolean numeric() {
+    return numeric != null;
+  }
+
   /**
    * Flushes the buffered data.
    */
@@ -462,6 +540,7 @@ public class DiskValues implements Index {
       flush();
       idxl.close();
       idxr.close();
+      if(numeric != null) numeric.close();
     }
   }
 
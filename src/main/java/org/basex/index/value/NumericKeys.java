@@ -0,0 +1,105 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides access to the numeric keys of a value index, which are
+ * stored in ascending order of their numeric values. It speeds up numeric range
+ * queries, as only the matching keys need to be visited.</p>
+ *
+ * <p>The keys are stored in the file {@code DATATXT/ATV + 'n'}. The first 4 bytes
+ * contain the number of entries, followed by all entries. Each entry consists
+ * of the numeric value [double, 8 bytes] and the offset of the key in the value
+ * index [int].</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class NumericKeys {
+  /** Entry size. */
+  private static final int ENTRY = 12;
+  /** Entries. */
+  private final DataAccess da;
+  /** Number of entries. */
+  private final int size;
+
+  /**
+   * Constructor, opening the file with the numeric keys.
+   * @param file file
+   * @throws IOException I/O exception
+   */
+  NumericKeys(final IOFile file) throws IOException {
+    da = new DataAccess(file);
+    size = da.read4(0);
+  }
+
+  /**
+   * Writes numeric keys to disk.
+   * @param file file
+   * @param values numeric values
+   * @param keys offsets of the keys in the value index
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final double[] values, final IntList keys)
+      throws IOException {
+
+    // values will be sorted as well
+    final int s = keys.size();
+    final int[] order = Array.createOrder(values, true);
+    final DataOutput out = new DataOutput(file);
+    try {
+      out.write4(s);
+      for(int o = 0; o < s; o++) {
+        final long v = Double.doubleToLongBits(values[o]);
+        out.write4((int) (v >>> 32));
+        out.write4((int) v);
+        out.write4(keys.get(order[o]));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Returns the offsets of all keys with values in the specified range.
+   * @param min minimum value (inclusive)
+   * @param max maximum value (inclusive)
+   * @return key offsets
+   */
+  IntList keys(final double min, final double max) {
+    // find first entry that is equal to or larger than the minimum
+    int l = 0, h = size;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      if(value(m) < min) l = m + 1;
+      else h = m;
+    }
+    final IntList il = new IntList();
+    for(int e = l; e < size && value(e) <= max; e++) il.add(da.read4());
+    return il;
+  }
+
+  /**
+   * Returns the value of the specified entry.
+   * The file cursor will point to the key offset.
+   * @param e entry offset
+   * @return value
+   */
+  private double value(final int e) {
+    final long v = (long) da.read4(4L + (long) e * ENTRY) << 32;
+    return Double.longBitsToDouble(v | da.read4() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Closes the file.
+   */
+  void close() {
+    da.close();
+  }
+}
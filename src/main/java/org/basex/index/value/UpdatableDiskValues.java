@@ -3,9 +3,10 @@ package org.basex.index.value;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.data.*;
-import org.basex.util.*;
+import org.basex.index.*;
 import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
@@ -34,7 +35,7 @@ public final class UpdatableDiskValues extends DiskValues {
    * @param pref file prefix
    * @throws IOException I/O Exception
    */
-  private UpdatableDiskValues(final Data d, final boolean txt, final String pref)
+  UpdatableDiskValues(final Data d, final boolean txt, final String pref)
       throws IOException {
     super(d, txt, pref);
   }
@@ -52,6 +53,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void index(final TokenObjMap<IntList> m) {
+    dropNumeric();
     final int s = size.get();
     final int last = s - 1;
 
@@ -67,7 +69,7 @@ public final class UpdatableDiskValues extends DiskValues {
         p = -(p + 1);
         nkeys.add(key);
       } else {
-        appendIds(p, key, diffs(m.get(key)));
+        appendIds(p, key, m.get(key).sort().toArray());
       }
     }
 
@@ -85,7 +87,8 @@ public final class UpdatableDiskValues extends DiskValues {
       }
 
       // add the new key and its ids
-      idxr.write5(pos * 5L, idxl.appendNums(diffs(m.get(key))));
+      final IntList ids = m.get(key).sort();
+      idxr.write5(pos * 5L, idxl.appendBytes(Postings.ids(ids.toArray(), ids.size())));
       ctext.add(pos--, key);
       // [DP] should the entry be added to the cache?
     }
@@ -97,33 +100,25 @@ public final class UpdatableDiskValues extends DiskValues {
    * Add record ids to an index entry.
    * @param ix index of the key
    * @param key key
-   * @param nids sorted list of record ids to add: the first value is the
-   * smallest id and all others are only difference to the previous one
+   * @param nids sorted list of record ids to add
    */
   private void appendIds(final int ix, final byte[] key, final int[] nids) {
-    final long oldpos = idxr.read5(ix * 5L);
-    final int numold = idxl.readNum(oldpos);
-    final int[] ids = new int[numold + nids.length];
-
-    // read the old ids
-    for(int i = 0; i < numold; ++i) {
-      final int v = idxl.readNum();
-      nids[0] -= v; // adjust the first new id
-      ids[i] = v;
-    }
+    final int[] old = Postings.ids(idxl, idxr.read5(ix * 5L));
+    final int[] ids = Arrays.copyOf(old, old.length + nids.length);
 
     // append the new ids - they are bigger than the old ones
-    System.arraycopy(nids, 0, ids, numold, nids.length);
+    System.arraycopy(nids, 0, ids, old.length, nids.length);
 
-    final long newpos = idxl.appendNums(ids);
+    final long newpos = idxl.appendBytes(Postings.ids(ids, ids.length));
     idxr.write5(ix * 5L, newpos);
 
     // update the cache entry
-    cache.add(key, ids.length, newpos + Num.length(ids.length));
+    cache.add(key, ids.length, newpos);
   }
 
   @Override
   public synchronized void delete(final TokenObjMap<IntList> m) {
+    dropNumeric();
     // create a sorted list of all keys: allows faster binary search
     final TokenList allkeys = new TokenList(m.keys()).sort(true);
 
@@ -160,20 +155,25 @@ public final class UpdatableDiskValues extends DiskValues {
 
     // read each id from the list and skip the ones which should be deleted
     // collect remaining values
+    final int[] old = Postings.ids(idxl, pos);
     final int[] nids = new int[numold - ids.length];
-    for(int i = 0, j = 0, cid = 0, pid = 0; i < nids.length;) {
-      cid += idxl.readNum();
-      if(j < ids.length && ids[j] == cid) ++j;
-      else {
-        nids[i++] = cid - pid;
-        pid = cid;
-      }
+    for(int i = 0, j = 0, o = 0; i < nids.length; o++) {
+      if(j < ids.length && ids[j] == old[o]) ++j;
+      else nids[i++] = old[o];
     }
 
-    idxl.writeNums(pos, nids);
+    // overwrite the old entry if the new one fits, or append it
+    final byte[] list = Postings.ids(nids, nids.length);
+    long newpos = pos;
+    if(list.length <= Postings.end(idxl, pos) - pos) {
+      idxl.writeBytes(pos, list);
+    } else {
+      newpos = idxl.appendBytes(list);
+      idxr.write5(ix * 5L, newpos);
+    }
 
     // update the cache entry
-    cache.add(key, nids.length, pos + Num.length(nids.length));
+    cache.add(key, nids.length, newpos);
 
     return nids.length;
   }
@@ -199,6 +199,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void replace(final byte[] o, final byte[] n, final int id) {
+    dropNumeric();
     // delete the id from the old key
     final int p = get(o);
     if(p >= 0) {
@@ -230,53 +231,27 @@ public final class UpdatableDiskValues extends DiskValues {
         idxr.write5(i * 5L, idxr.read5((i - 1) * 5L));
 
       // add the key and the id
-      idxr.write5(ix * 5L, idxl.appendNums(new int[] { id}));
+      idxr.write5(ix * 5L, idxl.appendBytes(Postings.ids(new int[] { id}, 1)));
       ctext.add(ix, key);
       // [DP] should the entry be added to the cache?
 
       size.set(s + 1);
     } else {
       // add id to the list of ids in the index node
-      final long pos = idxr.read5(ix * 5L);
-      final int num = idxl.readNum(pos);
-
-      final int[] ids = new int[num + 1];
-      boolean notadded = true;
-      int cid = 0;
-      for(int i = 0, j = -1; i < num; ++i) {
-        int v = idxl.readNum();
-
-        if(notadded && id < cid + v) {
-          // add the new id
-          ids[++j] = id - cid;
-          notadded = false;
-          // decrement the difference to the next id
-          v -= id - cid;
-          cid = id;
-        }
-
-        ids[++j] = v;
-        cid += v;
-      }
+      final int[] old = Postings.ids(idxl, idxr.read5(ix * 5L));
+      int i = Arrays.binarySearch(old, id);
+      if(i < 0) i = -i - 1;
 
-      if(notadded) ids[ids.length - 1] = id - cid;
+      final int[] ids = new int[old.length + 1];
+      System.arraycopy(old, 0, ids, 0, i);
+      ids[i] = id;
+      System.arraycopy(old, i, ids, i + 1, old.length - i);
 
-      final long newpos = idxl.appendNums(ids);
+      final long newpos = idxl.appendBytes(Postings.ids(ids, ids.length));
       idxr.write5(ix * 5L, newpos);
 
       // update the cache entry
-      cache.add(key, ids.length, newpos + Num.length(ids.length));
+      cache.add(key, ids.length, newpos);
     }
   }
-
-  /**
-   * Sort and calculate the differences between a list of ids.
-   * @param ids id list
-   * @return differences
-   */
-  private static int[] diffs(final IntList ids) {
-    final int[] a = ids.sort().toArray();
-    for(int l = a.length - 1; l > 0; --l) a[l] -= a[l - 1];
-    return a;
-  }
 }
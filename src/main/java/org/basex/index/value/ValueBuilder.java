@@ -21,24 +21,29 @@ import org.basex.util.list.*;
  * <p>The data is stored on disk in the following format:</p>
  * <ul>
  * <li> {@code DATATXT/ATV + 'l'}: contains the index values, which are dense id
- *   lists to all text nodes/attribute values, stored in the {@link Num} format:
- *   [size0, id1, id2, ...]. The number of index keys is stored in the first 4
+ *   lists to all text nodes/attribute values, compressed in the {@link Postings}
+ *   format: [size0, id1, ...]. The number of index keys is stored in the first 4
  *   bytes of the file.</li>
  * <li> {@code DATATXT/ATV + 'r'}: contains 5-byte references to the id lists
  *   for all keys. To save space, the keys itself are not stored in the index
  *   structure. Instead, they can be found by following the id references to
  *   the main table.
  * </li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains all numeric keys, ordered by their
+ *   values (see {@link NumericKeys}).</li>
  * </ul>
  *
+ * <p>All files are written with the temporary prefix {@code DATATMP}, and
+ * renamed when the index is opened.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class ValueBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
+  /** Temporary value trees of all partitions. */
+  private IndexTree[] trees;
 
   /**
    * Constructor.
@@ -46,27 +51,67 @@ public final class ValueBuilder extends IndexBuilder {
    * @param txt value type (text/attribute)
    */
   public ValueBuilder(final Data d, final boolean txt) {
-    super(d);
+    super(d, txt ? DATATXT : DATAATV);
     text = txt;
   }
 
   @Override
-  public DiskValues build() throws IOException {
-    // delete old index
+  public void build() throws IOException {
+    // delete old temporary files
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final String f = text ? DATATXT : DATAATV;
-    final int k = text ? Data.TEXT : Data.ATTR;
+    final int parts = scan();
+    if(merge || parts > 1) {
+      for(final IndexTree index : trees) write(index, temp + file(), false);
+      trees = null;
+      if(!singlegc) Performance.gc(1);
+      merge();
+    } else {
+      write(trees[0], temp, true);
+    }
+
+    final DiskValues index = data.meta.updindex ?
+        new UpdatableDiskValues(data, text, temp) : new DiskValues(data, text, temp);
+    try {
+      index.createNumeric();
+    } finally {
+      index.close();
+    }
+    Util.memory(perf);
+  }
+
+  @Override
+  protected DiskValues index() throws IOException {
+    return data.meta.updindex ? new UpdatableDiskValues(data, text) :
+      new DiskValues(data, text);
+  }
+
+  @Override
+  protected void indexed(final boolean ix) {
+    if(text) data.meta.textindex = ix;
+    else data.meta.attrindex = ix;
+  }
+
+  @Override
+  protected void init(final int parts) {
+    trees = new IndexTree[parts];
+  }
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
+  @Override
+  protected void index(final int part, final int start, final int end)
+      throws IOException {
+
+    final int k = text ? Data.TEXT : Data.ATTR;
+    IndexTree index = new IndexTree();
+    for(int pre = start; pre < end; ++pre) {
+      if((pre - start & 0x0FFF) == 0) {
+        check(pre == start ? 0 : 0x1000);
         // check if main memory is exhausted
-        if(memFull()) {
-          write(f + csize++, false);
+        if(memFull(part)) {
+          write(index, temp + file(), false);
           index = new IndexTree();
           Performance.gc(singlegc ? 1 : 2);
         }
@@ -75,22 +120,7 @@ public final class ValueBuilder extends IndexBuilder {
       if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen)
         index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
     }
-
-    if(merge) {
-      write(f + csize++, false);
-      index = null;
-      if(!singlegc) Performance.gc(1);
-      merge();
-    } else {
-      write(f, true);
-    }
-
-    if(text) data.meta.textindex = true;
-    else data.meta.attrindex = true;
-
-    Util.memory(perf);
-    return data.meta.updindex ?
-        new UpdatableDiskValues(data, text) : new DiskValues(data, text);
+    trees[part] = index;
   }
 
   /**
@@ -98,16 +128,15 @@ public final class ValueBuilder extends IndexBuilder {
    * @throws IOException I/O exception
    */
   private void merge() throws IOException {
-    final String f = text ? DATATXT : DATAATV;
-    final DataOutput outL = new DataOutput(data.meta.dbfile(f + 'l'));
-    final DataOutput outR = new DataOutput(data.meta.dbfile(f + 'r'));
+    final DataOutput outL = new DataOutput(data.meta.dbfile(temp + 'l'));
+    final DataOutput outR = new DataOutput(data.meta.dbfile(temp + 'r'));
     outL.write4(0);
 
     // initialize cached index iterators
     final IntList ml = new IntList();
     final IntList il = new IntList();
     final ValueMerger[] vm = new ValueMerger[csize];
-    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerger(data, text, i);
+    for(int i = 0; i < csize; ++i) vm[i] = new ValueMerger(data, text, temp + i);
     int sz = 0;
 
     // parse through all values
@@ -153,18 +182,20 @@ public final class ValueBuilder extends IndexBuilder {
     outL.close();
 
     // write number of entries to first position
-    final DataAccess da = new DataAccess(data.meta.dbfile(f + 'l'));
+    final DataAccess da = new DataAccess(data.meta.dbfile(temp + 'l'));
     da.write4(sz);
     da.close();
   }
 
   /**
-   * Writes the current value tree to disk.
+   * Writes a value tree to disk.
+   * @param index value tree
    * @param name name
    * @param all writes the complete tree
    * @throws IOException I/O exception
    */
-  private void write(final String name, final boolean all) throws IOException {
+  private void write(final IndexTree index, final String name, final boolean all)
+      throws IOException {
     // write id arrays and references
     final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
@@ -213,24 +244,11 @@ public final class ValueBuilder extends IndexBuilder {
 
     // sort values before writing
     il.sort();
-    final int is = il.size();
     outR.write5(outL.size());
-    outL.writeNum(is);
-    for(int i = 0, o = 0; i < is; i++) {
-      final int v = il.get(i);
-      outL.writeNum(v - o);
-      o = v;
-    }
+    outL.writeBytes(Postings.ids(il.toArray(), il.size()));
     il.reset();
   }
 
-  @Override
-  public void abort() {
-    data.meta.drop((text ? DATATXT : DATAATV) + ".+");
-    if(text) data.meta.textindex = false;
-    else data.meta.attrindex = false;
-  }
-
   @Override
   protected String det() {
     return text ? INDEX_TEXT_D : INDEX_ATTRIBUTES_D;
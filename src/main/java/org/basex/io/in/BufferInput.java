@@ -140,6 +140,15 @@ public class BufferInput extends InputStream {
     return bl.toArray();
   }
 
+  /**
+   * Returns the number of bytes that have been buffered, but not read yet.
+   * @return number of buffered bytes
+   */
+  @Override
+  public int available() {
+    return bsize - bpos;
+  }
+
   @Override
   public final void close() throws IOException {
     if(in != null && !(in instanceof ZipInputStream)) in.close();
@@ -15,4 +15,21 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Busy flag, indicating that the buffer is currently being written. */
+  boolean busy;
+  /** Loading flag, indicating that the page is currently being read. */
+  boolean loading;
+  /** Number of reading threads that have pinned the buffer. */
+  int pins;
+
+  /** Buffer manager owning this buffer. */
+  Buffers owner;
+  /** Key of the cached page. */
+  long key;
+  /** Queue containing this buffer. */
+  BufferPool.Queue queue;
+  /** Previous buffer in the queue. */
+  Buffer prev;
+  /** Next buffer in the queue. */
+  Buffer next;
 }
@@ -0,0 +1,445 @@
+package org.basex.io.random;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides a global page cache, which is shared by all database files.
+ *
+ * Pages are managed by a simplified 2Q replacement strategy: pages that are
+ * requested for the first time are added to a FIFO queue. If they are requested
+ * again after having been evicted from this queue, they will be promoted to the
+ * main queue, which is managed in LRU order. As a result, single sequential scans
+ * will not evict frequently accessed pages.
+ *
+ * The cache is divided into segments, which are chosen by the page keys and
+ * locked independently. Pages are read and written outside the locks: buffers that
+ * are being written are marked as busy, and they will neither be evicted nor be
+ * written by other threads until the write has been completed. Threads requesting
+ * a page that is currently being read wait until it has been loaded.
+ *
+ * Besides the current buffer of each file, buffers may be pinned by reading
+ * threads. Pinned buffers will not be evicted.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPool {
+  /** Segment power. */
+  private static final int POWER = 4;
+  /** Number of segments. */
+  private static final int SEGMENTS = 1 << POWER;
+  /** Minimum number of buffers per segment. */
+  private static final int MIN = 1 << 2;
+  /** Global instance. */
+  static final BufferPool POOL = new BufferPool();
+
+  /** Segments of the cache. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+  /** Number of registered files. */
+  private int files;
+
+  /** Private constructor. */
+  private BufferPool() {
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment();
+  }
+
+  /**
+   * Assigns the size of the page cache.
+   * @param mb size in megabytes
+   */
+  public static void size(final int mb) {
+    final int max = (int) Math.max(MIN, Math.min(Integer.MAX_VALUE,
+        ((long) mb << 20) / IO.BLOCKSIZE / SEGMENTS));
+    for(final Segment s : POOL.segments) {
+      synchronized(s) {
+        s.max = max;
+      }
+    }
+  }
+
+  /**
+   * Returns information on the page cache.
+   * @return info string
+   */
+  public static String info() {
+    long size = 0, max = 0, hits = 0, misses = 0;
+    for(final Segment s : POOL.segments) {
+      synchronized(s) {
+        size += s.size;
+        max += s.max;
+        hits += s.hits;
+        misses += s.misses;
+      }
+    }
+    final long all = hits + misses;
+    return Util.info(PAGE_CACHE_X_X_X_X_X, size, max, hits, misses,
+        (all == 0 ? 0 : hits * 100 / all) + "%");
+  }
+
+  /**
+   * Registers a new file and returns its id.
+   * @return file id
+   */
+  synchronized int register() {
+    return ++files;
+  }
+
+  /**
+   * Chooses the buffer for the specified page and assigns it as current buffer
+   * of the specified buffer manager. If the page is not cached, it will be read.
+   * @param bm buffer manager
+   * @param key page key
+   * @param pos buffer position
+   */
+  void cursor(final Buffers bm, final long key, final long pos) {
+    fetch(bm, key, pos, false);
+  }
+
+  /**
+   * Returns the buffer for the specified page and pins it.
+   * If the page is not cached, it will be read.
+   * @param bm buffer manager
+   * @param key page key
+   * @param pos buffer position
+   * @return buffer
+   */
+  Buffer pin(final Buffers bm, final long key, final long pos) {
+    return fetch(bm, key, pos, true);
+  }
+
+  /**
+   * Releases a pinned buffer.
+   * @param bf buffer
+   */
+  void unpin(final Buffer bf) {
+    synchronized(segment(bf.key)) {
+      --bf.pins;
+    }
+  }
+
+  /**
+   * Returns all dirty buffers of the specified buffer manager and marks them as
+   * busy. The buffers must be released via {@link #unlock(Buffer[], boolean)}
+   * after they have been written.
+   * @param bm buffer manager
+   * @return dirty buffers
+   */
+  Buffer[] lock(final Buffers bm) {
+    final ArrayList<Buffer> list = new ArrayList<Buffer>();
+    for(final Buffer bf : bm.pages()) {
+      while(true) {
+        final long key = bf.key;
+        synchronized(segment(key)) {
+          // skip buffers that have been assigned to another page in the meantime
+          if(bf.key != key) continue;
+          if(bf.owner == bm && bf.dirty && !bf.busy) {
+            lock(bf);
+            list.add(bf);
+          }
+          break;
+        }
+      }
+    }
+    return list.toArray(new Buffer[list.size()]);
+  }
+
+  /**
+   * Releases buffers that have been returned by {@link #lock(Buffers)}.
+   * @param bfs buffers
+   * @param written indicates if the buffers have been written
+   */
+  void unlock(final Buffer[] bfs, final boolean written) {
+    for(final Buffer bf : bfs) {
+      synchronized(segment(bf.key)) {
+        if(!written) bf.dirty = true;
+        unlock(bf);
+      }
+    }
+  }
+
+  /**
+   * Releases all buffers of the specified buffer manager.
+   * Dirty buffers will be discarded.
+   * @param bm buffer manager
+   */
+  void close(final Buffers bm) {
+    bm.idle();
+    for(final Buffer bf : bm.pages()) {
+      while(true) {
+        final long key = bf.key;
+        final Segment s = segment(key);
+        synchronized(s) {
+          if(bf.key != key) continue;
+          if(bf.owner == bm) {
+            s.remove(bf);
+            bm.remove(bf);
+          }
+          break;
+        }
+      }
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the buffer for the specified page. The buffer is either pinned or
+   * assigned as current buffer of the specified buffer manager.
+   * @param bm buffer manager
+   * @param key page key
+   * @param pos buffer position
+   * @param pin pin flag
+   * @return buffer
+   */
+  private Buffer fetch(final Buffers bm, final long key, final long pos,
+      final boolean pin) {
+    final Segment s = segment(key);
+    final Long k = key;
+    Buffer bf, wr = null;
+    while(true) {
+      synchronized(s) {
+        if(wr != null) unlock(wr);
+        bf = s.cache.get(k);
+        if(bf != null) {
+          ++s.hits;
+          if(bf.queue == s.lru) s.lru.touch(bf);
+          if(pin) ++bf.pins;
+          else bm.current = bf;
+          // wait until the page has been read by another thread
+          while(bf.loading) {
+            try {
+              s.wait();
+            } catch(final InterruptedException ex) {
+              Util.debug(ex);
+            }
+          }
+          return bf;
+        }
+        bf = s.victim();
+        if(bf == null || !bf.dirty) {
+          ++s.misses;
+          bf = s.alloc(bf);
+          bf.owner = bm;
+          bf.key = key;
+          bf.pos = pos;
+          bf.loading = true;
+          s.add(bf);
+          bm.add(bf);
+          if(pin) ++bf.pins;
+          else bm.current = bf;
+          break;
+        }
+        // dirty victim: write it without blocking other threads, and try again
+        lock(bf);
+        wr = bf;
+      }
+      try {
+        wr.owner.evict(wr);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+
+    // read the page without blocking other threads
+    try {
+      bm.read(bf);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    synchronized(s) {
+      bf.loading = false;
+      s.notifyAll();
+    }
+    return bf;
+  }
+
+  /**
+   * Returns the segment responsible for the specified page.
+   * @param key page key
+   * @return segment
+   */
+  private Segment segment(final long key) {
+    // spread file ids and block numbers across all segments
+    final int h = (int) (key ^ key >>> 32) * 0x9E3779B9;
+    return segments[h >>> 32 - POWER];
+  }
+
+  /**
+   * Marks a dirty buffer as busy before it is written.
+   * @param bf buffer
+   */
+  private static void lock(final Buffer bf) {
+    bf.busy = true;
+    // modifications during the write will mark the buffer as dirty again
+    bf.dirty = false;
+    bf.owner.busy(1);
+  }
+
+  /**
+   * Releases a busy buffer.
+   * @param bf buffer
+   */
+  private static void unlock(final Buffer bf) {
+    bf.busy = false;
+    bf.owner.busy(-1);
+  }
+
+  /**
+   * Segment of the page cache.
+   */
+  private static final class Segment {
+    /** Cached buffers, indexed by their keys. */
+    final HashMap<Long, Buffer> cache = new HashMap<Long, Buffer>();
+    /** Keys of pages that have recently been evicted from the FIFO queue. */
+    final LinkedHashSet<Long> ghosts = new LinkedHashSet<Long>();
+    /** Pages that have been requested once (FIFO order). */
+    final Queue fifo = new Queue();
+    /** Frequently requested pages (LRU order). */
+    final Queue lru = new Queue();
+
+    /** Maximum number of buffers. */
+    int max = MIN;
+    /** Number of allocated buffers. */
+    int size;
+    /** Number of cache hits. */
+    long hits;
+    /** Number of cache misses. */
+    long misses;
+
+    /**
+     * Chooses the buffer to be evicted if the maximum number of buffers has been
+     * reached.
+     * @return buffer or {@code null}
+     */
+    Buffer victim() {
+      Buffer bf = null;
+      if(size >= max) {
+        // the FIFO queue may take up a quarter of all buffers
+        if(fifo.size > max >>> 2) bf = fifo.victim();
+        if(bf == null) bf = lru.victim();
+        if(bf == null) bf = fifo.victim();
+      }
+      return bf;
+    }
+
+    /**
+     * Returns a new buffer or detaches a clean victim from the cache.
+     * @param bf victim ({@code null} if a new buffer is to be created)
+     * @return buffer
+     */
+    Buffer alloc(final Buffer bf) {
+      // all buffers are in use: create new buffer
+      if(bf == null) {
+        ++size;
+        return new Buffer();
+      }
+
+      final Queue q = bf.queue;
+      final Long k = bf.key;
+      remove(bf);
+      bf.owner.remove(bf);
+      if(q == fifo) {
+        ghosts.add(k);
+        if(ghosts.size() > max >>> 1) {
+          final Iterator<Long> it = ghosts.iterator();
+          it.next();
+          it.remove();
+        }
+      }
+      ++size;
+      bf.owner = null;
+      return bf;
+    }
+
+    /**
+     * Adds a buffer to the cache. Pages that have been evicted from the FIFO queue
+     * before are promoted to the LRU queue.
+     * @param bf buffer
+     */
+    void add(final Buffer bf) {
+      final Long k = bf.key;
+      cache.put(k, bf);
+      (ghosts.remove(k) ? lru : fifo).add(bf);
+    }
+
+    /**
+     * Removes a buffer from the cache.
+     * @param bf buffer
+     */
+    void remove(final Buffer bf) {
+      bf.queue.remove(bf);
+      cache.remove(bf.key);
+      --size;
+    }
+  }
+
+  /**
+   * Doubly linked buffer queue.
+   */
+  static final class Queue {
+    /** Oldest entry. */
+    Buffer head;
+    /** Newest entry. */
+    Buffer tail;
+    /** Number of entries. */
+    int size;
+
+    /**
+     * Adds a buffer to the end of the queue.
+     * @param bf buffer
+     */
+    void add(final Buffer bf) {
+      bf.queue = this;
+      bf.prev = tail;
+      bf.next = null;
+      if(tail == null) head = bf;
+      else tail.next = bf;
+      tail = bf;
+      ++size;
+    }
+
+    /**
+     * Removes a buffer from the queue.
+     * @param bf buffer
+     */
+    void remove(final Buffer bf) {
+      if(bf.prev == null) head = bf.next;
+      else bf.prev.next = bf.next;
+      if(bf.next == null) tail = bf.prev;
+      else bf.next.prev = bf.prev;
+      bf.prev = null;
+      bf.next = null;
+      bf.queue = null;
+      --size;
+    }
+
+    /**
+     * Moves a buffer to the end of the queue.
+     * @param bf buffer
+     */
+    void touch(final Buffer bf) {
+      if(bf != tail) {
+        remove(bf);
+        add(bf);
+      }
+    }
+
+    /**
+     * Returns the oldest buffer that is currently neither in use, pinned
+     * nor being written.
+     * @return buffer or {@code null}
+     */
+    Buffer victim() {
+      for(Buffer bf = head; bf != null; bf = bf.next) {
+        if(bf.owner.current != bf && bf.pins == 0 && !bf.busy) return bf;
+      }
+      return null;
+    }
+  }
+}
@@ -1,53 +1,260 @@
 package org.basex.io.random;
 
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class manages the buffers of a single file. Buffers are taken from
+ * the global {@link BufferPool}. If an {@link UndoLog} is active for the
+ * directory of the file, the original contents of all blocks will be saved
+ * before they are overwritten.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
-  /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int off;
+  /** Buffered file. */
+  private final RandomAccessFile file;
+  /** Name of the file. */
+  private final String name;
+  /** Directory of the file. */
+  private final String dir;
+  /** Block flag: buffer positions are block indexes instead of file offsets. */
+  private final boolean blocks;
+  /** File id. */
+  private final long id;
+  /** Buffers of this file that are currently cached. */
+  private final HashSet<Buffer> pages = new HashSet<Buffer>();
+  /** Number of buffers that are currently being written. */
+  private int busy;
+  /** Start of the file range that has been written ({@link Long#MAX_VALUE}: none). */
+  private long start = Long.MAX_VALUE;
+  /** End of the file range that has been written. */
+  private long end;
+  /** Current buffer. */
+  volatile Buffer current;
 
   /**
    * Constructor.
+   * @param rf file to be buffered
+   * @param f file reference
+   * @param b block flag: if {@code true}, buffer positions are block indexes,
+   * otherwise file offsets
    */
-  Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+  Buffers(final RandomAccessFile rf, final IOFile f, final boolean b) {
+    file = rf;
+    name = f.name();
+    dir = f.dirPath();
+    blocks = b;
+    id = (long) BufferPool.POOL.register() << 40;
   }
 
   /**
-   * Returns all buffers.
-   * @return buffers
+   * Returns the current buffer.
+   * @return current buffer
    */
-  Buffer[] all() {
-    return buf;
+  Buffer current() {
+    return current;
   }
 
   /**
-   * Returns the current buffer.
-   * @return current buffer
+   * Chooses a buffer and sets the offset. Pages that have not been cached yet
+   * will be read from disk.
+   * @param p buffer pointer
    */
-  Buffer current() {
-    return buf[off];
+  void cursor(final long p) {
+    final Buffer bf = current;
+    if(bf == null || bf.pos != p) BufferPool.POOL.cursor(this, key(p), p);
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Returns the buffer for the specified page and pins it, so that it will not be
+   * evicted before it is released via {@link #unpin(Buffer)}. In contrast to
+   * {@link #cursor(long)}, this method can be called by multiple reading threads.
    * @param p buffer pointer
-   * @return true if cursor has changed
-   */
-  boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
-    return true;
+   * @return buffer
+   */
+  Buffer pin(final long p) {
+    return BufferPool.POOL.pin(this, key(p), p);
+  }
+
+  /**
+   * Releases a pinned buffer.
+   * @param bf buffer
+   */
+  void unpin(final Buffer bf) {
+    BufferPool.POOL.unpin(bf);
+  }
+
+  /**
+   * Writes all dirty buffers to disk.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    final Buffer[] bfs = BufferPool.POOL.lock(this);
+    boolean written = false;
+    try {
+      // save original contents of all blocks before they are overwritten
+      final UndoLog ul = UndoLog.get(dir);
+      if(ul != null) {
+        for(final Buffer bf : bfs) save(ul, bf.pos);
+        ul.sync();
+      }
+      for(final Buffer bf : bfs) write(bf);
+      written = true;
+    } finally {
+      BufferPool.POOL.unlock(bfs, written);
+    }
+    // wait until buffers that are evicted by other threads have been written
+    idle();
+  }
+
+  /**
+   * Sets the length of the file.
+   * @param l file length
+   * @throws IOException I/O exception
+   */
+  void length(final long l) throws IOException {
+    final UndoLog ul = UndoLog.get(dir);
+    if(ul != null) {
+      ul.save(name, file, l, Long.MAX_VALUE);
+      ul.sync();
+    }
+    file.setLength(l);
+  }
+
+  /**
+   * Releases all buffers. Buffers must be flushed before this method is called.
+   */
+  void close() {
+    BufferPool.POOL.close(this);
+  }
+
+  /**
+   * Reads the specified buffer from disk.
+   * @param bf buffer to read
+   * @throws IOException I/O exception
+   */
+  void read(final Buffer bf) throws IOException {
+    final long s = blocks ? bf.pos * IO.BLOCKSIZE : bf.pos;
+    synchronized(file) {
+      final long l = file.length();
+      if(s < l) {
+        file.seek(s);
+        file.readFully(bf.data, 0, (int) Math.min(l - s, IO.BLOCKSIZE));
+      }
+    }
+  }
+
+  /**
+   * Writes a buffer that is evicted from the page cache. The original contents
+   * of the block are saved before it is overwritten.
+   * @param bf buffer to write
+   * @throws IOException I/O exception
+   */
+  void evict(final Buffer bf) throws IOException {
+    final UndoLog ul = UndoLog.get(dir);
+    if(ul != null) {
+      save(ul, bf.pos);
+      ul.sync();
+    }
+    write(bf);
+  }
+
+  /**
+   * Writes the specified buffer to disk.
+   * @param bf buffer to write
+   * @throws IOException I/O exception
+   */
+  private void write(final Buffer bf) throws IOException {
+    final long s = blocks ? bf.pos * IO.BLOCKSIZE : bf.pos;
+    synchronized(file) {
+      file.seek(s);
+      file.write(bf.data);
+    }
+    synchronized(this) {
+      start = Math.min(start, s);
+      end = Math.max(end, s + IO.BLOCKSIZE);
+    }
+  }
+
+  /**
+   * Returns the file range that has been written since this method was last called.
+   * @return start and end offset (exclusive), or {@code null}
+   */
+  synchronized long[] written() {
+    if(start == Long.MAX_VALUE) return null;
+    final long[] range = { start, end };
+    start = Long.MAX_VALUE;
+    end = 0;
+    return range;
+  }
+
+  /**
+   * Returns the page key for the specified buffer pointer.
+   * @param p buffer pointer
+   * @return key
+   */
+  private long key(final long p) {
+    return id | (blocks ? p : p / IO.BLOCKSIZE);
+  }
+
+  /**
+   * Registers a buffer that has been assigned to a page of this file.
+   * @param bf buffer
+   */
+  synchronized void add(final Buffer bf) {
+    pages.add(bf);
+  }
+
+  /**
+   * Unregisters a buffer that has been evicted or released.
+   * @param bf buffer
+   */
+  synchronized void remove(final Buffer bf) {
+    pages.remove(bf);
+  }
+
+  /**
+   * Returns all buffers of this file that are currently cached.
+   * @return buffers
+   */
+  synchronized Buffer[] pages() {
+    return pages.toArray(new Buffer[pages.size()]);
+  }
+
+  /**
+   * Changes the number of buffers that are being written.
+   * @param n difference
+   */
+  synchronized void busy(final int n) {
+    busy += n;
+    if(busy == 0) notifyAll();
+  }
+
+  /**
+   * Waits until no more buffers of this file are being written.
+   */
+  synchronized void idle() {
+    while(busy != 0) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Util.debug(ex);
+      }
+    }
+  }
+
+  /**
+   * Saves the original contents of the block at the specified buffer position.
+   * @param ul undo log
+   * @param p buffer position
+   * @throws IOException I/O exception
+   */
+  private void save(final UndoLog ul, final long p) throws IOException {
+    ul.save(name, file, blocks ? p * IO.BLOCKSIZE : p, IO.BLOCKSIZE);
   }
 }
@@ -7,13 +7,15 @@ import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * Read and write operations are synchronized: a file may be read by database
+ * snapshots while new entries are appended by an update.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Reference to the data input stream. */
   private final RandomAccessFile file;
   /** File length. */
@@ -22,6 +24,14 @@ public final class DataAccess {
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Memory mapping flag. */
+  private final boolean mmap;
+  /** Memory mapping (if {@code null}, all data will be accessed via buffers). */
+  private volatile Mapping map;
+  /** Memory mapping that has been discarded before the file was modified. */
+  private Mapping old;
+  /** Read position of the memory mapping. */
+  private long mpos;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,9 +39,23 @@ public final class DataAccess {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile f) throws IOException {
+    this(f, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param f the file to be read
+   * @param mm memory mapping flag. If enabled, data will be read from a memory-mapped
+   * file as long as it has not been modified
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile f, final boolean mm) throws IOException {
     file = new RandomAccessFile(f.file(), "rw");
+    bm = new Buffers(file, f, false);
     len = file.length();
+    mmap = mm;
     cursor(0);
+    map();
   }
 
   /**
@@ -39,11 +63,12 @@ public final class DataAccess {
    */
   public synchronized void flush() {
     try {
-      for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+      bm.flush();
       if(changed) {
-        file.setLength(len);
+        bm.length(len);
         changed = false;
       }
+      map();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -54,6 +79,9 @@ public final class DataAccess {
    */
   public synchronized void close() {
     flush();
+    map = null;
+    old = null;
+    bm.close();
     try {
       file.close();
     } catch(final IOException ex) {
@@ -66,7 +94,7 @@ public final class DataAccess {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    return map != null ? mpos : buffer(false).pos + off;
   }
 
   /**
@@ -74,6 +102,7 @@ public final class DataAccess {
    * @param l file length
    */
   synchronized void length(final long l) {
+    unmap();
     changed |= l != len;
     len = l;
   }
@@ -169,6 +198,18 @@ public final class DataAccess {
     return readToken();
   }
 
+  /**
+   * Reads a token from disk. In contrast to {@link #readToken(long)}, this method
+   * will not acquire a lock if the file is memory-mapped, and the position of the
+   * cursor will be undefined after the call.
+   * @param p text position
+   * @return text as byte array
+   */
+  public byte[] readTokenAt(final long p) {
+    final Mapping m = map;
+    return m != null ? m.readToken(p) : readToken(p);
+  }
+
   /**
    * Reads the next token from disk.
    * @return text as byte array
@@ -195,6 +236,13 @@ public final class DataAccess {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int n) {
+    if(map != null) {
+      final byte[] b = new byte[n];
+      map.read(mpos, b, 0, n);
+      mpos += n;
+      return b;
+    }
+
     int l = n;
     int ll = IO.BLOCKSIZE - off;
     final byte[] b = new byte[l];
@@ -218,20 +266,13 @@ public final class DataAccess {
    * @param p read position
    */
   public void cursor(final long p) {
+    if(map != null) {
+      mpos = p;
+      return;
+    }
     off = (int) (p & IO.BLOCKSIZE - 1);
     final long b = p - off;
-    if(!bm.cursor(b)) return;
-
-    final Buffer bf = bm.current();
-    try {
-      if(bf.dirty) writeBlock(bf);
-      bf.pos = b;
-      file.seek(bf.pos);
-      if(bf.pos < file.length())
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
-    } catch(final IOException ex) {
-      Util.stack(ex);
-    }
+    bm.cursor(b);
   }
 
   /**
@@ -257,7 +298,7 @@ public final class DataAccess {
    * @param p position in the file
    * @param v value to be written
    */
-  public void write5(final long p, final long v) {
+  public synchronized void write5(final long p, final long v) {
     cursor(p);
     write((byte) (v >>> 32));
     write((byte) (v >>> 24));
@@ -271,7 +312,7 @@ public final class DataAccess {
    * @param p write position
    * @param v byte array to be appended
    */
-  public void write4(final long p, final int v) {
+  public synchronized void write4(final long p, final int v) {
     cursor(p);
     write4(v);
   }
@@ -280,7 +321,7 @@ public final class DataAccess {
    * Writes an integer value to the current position.
    * @param v value to be written
    */
-  public void write4(final int v) {
+  public synchronized void write4(final int v) {
     write(v >>> 24);
     write(v >>> 16);
     write(v >>>  8);
@@ -292,7 +333,7 @@ public final class DataAccess {
    * @param p write position
    * @param v value to be written
    */
-  public void writeNum(final long p, final int v) {
+  public synchronized void writeNum(final long p, final int v) {
     cursor(p);
     writeNum(v);
   }
@@ -302,7 +343,7 @@ public final class DataAccess {
    * @param p write position
    * @param v integer values
    */
-  public void writeNums(final long p, final int[] v) {
+  public synchronized void writeNums(final long p, final int[] v) {
     cursor(p);
     writeNum(v.length);
     for(final int n : v) writeNum(n);
@@ -313,7 +354,7 @@ public final class DataAccess {
    * @param v integer values
    * @return the position in the file where the values have been written
    */
-  public long appendNums(final int[] v) {
+  public synchronized long appendNums(final int[] v) {
     final long end = len;
     writeNums(end, v);
     return end;
@@ -324,7 +365,7 @@ public final class DataAccess {
    * @param p write position
    * @param v byte array to be appended
    */
-  public void writeToken(final long p, final byte[] v) {
+  public synchronized void writeToken(final long p, final byte[] v) {
     cursor(p);
     writeToken(v, 0, v.length);
   }
@@ -335,9 +376,41 @@ public final class DataAccess {
    * @param offset offset in the buffer where the token starts
    * @param length token length
    */
-  public void writeToken(final byte[] buf, final int offset, final int length) {
+  public synchronized void writeToken(final byte[] buf, final int offset, final int length) {
+    unmap();
     writeNum(length);
+    writeBytes(buf, offset, length);
+  }
 
+  /**
+   * Writes bytes to the specified position.
+   * @param p write position
+   * @param v bytes to be written
+   */
+  public synchronized void writeBytes(final long p, final byte[] v) {
+    cursor(p);
+    unmap();
+    writeBytes(v, 0, v.length);
+  }
+
+  /**
+   * Appends bytes to the file.
+   * @param v bytes to be appended
+   * @return the position in the file where the bytes have been written
+   */
+  public synchronized long appendBytes(final byte[] v) {
+    final long end = len;
+    writeBytes(end, v);
+    return end;
+  }
+
+  /**
+   * Writes bytes to the current position.
+   * @param buf buffer containing the bytes
+   * @param offset offset in the buffer where the bytes start
+   * @param length number of bytes
+   */
+  private void writeBytes(final byte[] buf, final int offset, final int length) {
     final int last = offset + length;
     int o = offset;
 
@@ -380,7 +453,7 @@ public final class DataAccess {
    * @param size size of new text entry
    * @return new offset to store text
    */
-  public long free(final long pos, final int size) {
+  public synchronized long free(final long pos, final int size) {
     // old text size (available space)
     int os = readNum(pos) + (int) (cursor() - pos);
 
@@ -413,22 +486,12 @@ public final class DataAccess {
 
   // PRIVATE METHODS ==========================================================
 
-  /**
-   * Writes the specified block to disk.
-   * @param bf buffer to write
-   * @throws IOException I/O exception
-   */
-  private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
-    bf.dirty = false;
-  }
-
   /**
    * Reads the next byte.
    * @return next byte
    */
   private int read() {
+    if(map != null) return map.read1(mpos++);
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     return bf.data[off++] & 0xFF;
   }
@@ -438,6 +501,7 @@ public final class DataAccess {
    * @param b byte to be written
    */
   private void write(final int b) {
+    unmap();
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     bf.dirty = true;
     bf.data[off++] = (byte) b;
@@ -445,6 +509,35 @@ public final class DataAccess {
     if(nl > len) length(nl);
   }
 
+  /**
+   * Maps the file into memory if memory mapping is enabled.
+   */
+  private void map() {
+    if(!mmap || map != null || len == 0) return;
+    try {
+      final long p = cursor();
+      final long[] range = bm.written();
+      map = old != null ? old.remap(file.getChannel(), len, range) :
+        new Mapping(file.getChannel(), len);
+      old = null;
+      mpos = p;
+    } catch(final IOException ex) {
+      // fall back to buffered access
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Discards the memory mapping before data is modified. Subsequent read and write
+   * operations will be performed via buffers until the file is flushed.
+   */
+  private void unmap() {
+    if(map == null) return;
+    old = map;
+    map = null;
+    cursor(mpos);
+  }
+
   /**
    * Returns the current or next buffer.
    * @param next next block
@@ -0,0 +1,127 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+
+/**
+ * This class provides an append-only file with checksummed records.
+ * Each record is preceded by its length and its CRC32 checksum. If a file
+ * is opened, incomplete or corrupt records at the end of the file, which may
+ * result from an interrupted write operation, are discarded.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LogFile {
+  /** Log file. */
+  private final IOFile file;
+  /** Random access file. */
+  private final RandomAccessFile raf;
+  /** Checksum. */
+  private final CRC32 crc = new CRC32();
+  /** Length of all valid records. */
+  private long length;
+  /** Read position. */
+  private long pos;
+
+  /**
+   * Opens or creates the specified log file.
+   * @param f log file
+   * @throws IOException I/O exception
+   */
+  public LogFile(final IOFile f) throws IOException {
+    file = f;
+    raf = new RandomAccessFile(f.file(), "rw");
+    // skip valid records and chop the remaining bytes
+    while(read() != null);
+    length = pos;
+    pos = 0;
+    if(raf.length() != length) raf.setLength(length);
+  }
+
+  /**
+   * Returns the next valid record.
+   * @return record, or {@code null} if all records have been read
+   * @throws IOException I/O exception
+   */
+  public synchronized byte[] read() throws IOException {
+    final long l = raf.length();
+    if(pos + 8 > l) return null;
+    raf.seek(pos);
+    final int s = raf.readInt();
+    final int c = raf.readInt();
+    if(s <= 0 || pos + 8 + s > l) return null;
+    final byte[] rec = new byte[s];
+    raf.readFully(rec);
+    crc.reset();
+    crc.update(rec);
+    if((int) crc.getValue() != c) return null;
+    pos += 8 + s;
+    return rec;
+  }
+
+  /**
+   * Appends a record. The record will not be synchronized with the storage device.
+   * @param rec record
+   * @param s number of bytes to be written
+   * @return length of the log file after the record has been appended
+   * @throws IOException I/O exception
+   */
+  public synchronized long append(final byte[] rec, final int s) throws IOException {
+    crc.reset();
+    crc.update(rec, 0, s);
+    final int c = (int) crc.getValue();
+    final byte[] b = new byte[s + 8];
+    b[0] = (byte) (s >>> 24); b[1] = (byte) (s >>> 16);
+    b[2] = (byte) (s >>> 8);  b[3] = (byte) s;
+    b[4] = (byte) (c >>> 24); b[5] = (byte) (c >>> 16);
+    b[6] = (byte) (c >>> 8);  b[7] = (byte) c;
+    System.arraycopy(rec, 0, b, 8, s);
+    raf.seek(length);
+    raf.write(b);
+    length += b.length;
+    return length;
+  }
+
+  /**
+   * Forces all appended records to be written to the storage device.
+   * @throws IOException I/O exception
+   */
+  public void sync() throws IOException {
+    raf.getFD().sync();
+  }
+
+  /**
+   * Returns the length of the log file.
+   * @return length
+   */
+  public synchronized long length() {
+    return length;
+  }
+
+  /**
+   * Closes and deletes the log file.
+   * @throws IOException I/O exception
+   */
+  public synchronized void delete() throws IOException {
+    raf.close();
+    if(!file.delete()) throw new BaseXException(Text.FILE_NOT_DELETED_X, file);
+  }
+
+  /**
+   * Synchronizes the contents of the specified file with the storage device.
+   * @param f file
+   * @throws IOException I/O exception
+   */
+  public static void sync(final IOFile f) throws IOException {
+    final RandomAccessFile r = new RandomAccessFile(f.file(), "rw");
+    try {
+      r.getFD().sync();
+    } finally {
+      r.close();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class provides read-only access to a memory-mapped file.
+ * Files are mapped in chunks to support files larger than 2 GB.
+ * The chunk size is a multiple of the block size, so table entries
+ * will never span two chunks. As with buffered access, zero bytes will be
+ * returned when reading beyond the end of the file.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class Mapping {
+  /** Chunk power. */
+  private static final int POWER = 30;
+  /** Chunk size. */
+  private static final int CHUNK = 1 << POWER;
+  /** Mapped chunks. */
+  private final MappedByteBuffer[] chunks;
+  /** Number of mapped bytes. */
+  private final long len;
+
+  /**
+   * Constructor, mapping the specified number of bytes.
+   * @param channel file channel
+   * @param l number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  Mapping(final FileChannel channel, final long l) throws IOException {
+    this(channel, l, null, 0, 0);
+  }
+
+  /**
+   * Constructor, mapping the specified number of bytes. Chunks of the old mapping
+   * are reused if their size has not changed and if they do not overlap the
+   * modified file range.
+   * @param channel file channel
+   * @param l number of bytes to be mapped
+   * @param old old mapping (can be {@code null})
+   * @param s start of the modified range
+   * @param e end of the modified range (exclusive)
+   * @throws IOException I/O exception
+   */
+  private Mapping(final FileChannel channel, final long l, final Mapping old,
+      final long s, final long e) throws IOException {
+    len = l;
+    final int cs = (int) (l + CHUNK - 1 >>> POWER);
+    chunks = new MappedByteBuffer[cs];
+    for(int c = 0; c < cs; c++) {
+      final long p = (long) c << POWER;
+      final int n = (int) Math.min(CHUNK, l - p);
+      if(old != null && c < old.chunks.length && old.chunks[c].capacity() == n &&
+          (p >= e || p + n <= s)) {
+        chunks[c] = old.chunks[c];
+      } else {
+        chunks[c] = channel.map(MapMode.READ_ONLY, p, n);
+      }
+    }
+  }
+
+  /**
+   * Returns a new mapping of the specified number of bytes. Only those chunks will
+   * be remapped that overlap the modified range or that have grown or shrunk.
+   * @param channel file channel
+   * @param l number of bytes to be mapped
+   * @param range start and end of the modified range (can be {@code null})
+   * @return new mapping
+   * @throws IOException I/O exception
+   */
+  Mapping remap(final FileChannel channel, final long l, final long[] range)
+      throws IOException {
+    return range == null ? new Mapping(channel, l, this, l, l) :
+      new Mapping(channel, l, this, range[0], range[1]);
+  }
+
+  /**
+   * Reads a byte value.
+   * @param p position
+   * @return byte value
+   */
+  int read1(final long p) {
+    if(p >= len) return 0;
+    return chunks[(int) (p >>> POWER)].get((int) (p & CHUNK - 1)) & 0xFF;
+  }
+
+  /**
+   * Reads a short value. The value must not span two chunks.
+   * @param p position
+   * @return short value
+   */
+  int read2(final long p) {
+    return chunks[(int) (p >>> POWER)].getShort((int) (p & CHUNK - 1)) & 0xFFFF;
+  }
+
+  /**
+   * Reads an integer value. The value must not span two chunks.
+   * @param p position
+   * @return integer value
+   */
+  int read4(final long p) {
+    return chunks[(int) (p >>> POWER)].getInt((int) (p & CHUNK - 1));
+  }
+
+  /**
+   * Reads a 5-byte value. The value must not span two chunks.
+   * @param p position
+   * @return long value
+   */
+  long read5(final long p) {
+    final ByteBuffer bb = chunks[(int) (p >>> POWER)];
+    final int o = (int) (p & CHUNK - 1);
+    return (long) (bb.get(o) & 0xFF) << 32 | bb.getInt(o + 1) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reads a token, which is preceded by its compressed length.
+   * @param p position
+   * @return token
+   */
+  byte[] readToken(final long p) {
+    long pos = p;
+    int l = read1(pos++);
+    switch(l & 0xC0) {
+    case 0:
+      break;
+    case 0x40:
+      l = (l - 0x40 << 8) + read1(pos++);
+      break;
+    case 0x80:
+      l = (l - 0x80 << 24) + (read1(pos++) << 16) + (read1(pos++) << 8) +
+        read1(pos++);
+      break;
+    default:
+      l = (read1(pos++) << 24) + (read1(pos++) << 16) + (read1(pos++) << 8) +
+        read1(pos++);
+      break;
+    }
+    final byte[] b = new byte[l];
+    read(pos, b, 0, l);
+    return b;
+  }
+
+  /**
+   * Reads a number of bytes.
+   * @param p position
+   * @param b target array
+   * @param o offset in the target array
+   * @param l number of bytes to be read
+   */
+  void read(final long p, final byte[] b, final int o, final int l) {
+    long pos = p;
+    int off = o;
+    int left = (int) Math.max(0, Math.min(l, len - p));
+    while(left > 0) {
+      final ByteBuffer bb = chunks[(int) (pos >>> POWER)].duplicate();
+      final int co = (int) (pos & CHUNK - 1);
+      final int n = Math.min(left, CHUNK - co);
+      bb.position(co);
+      bb.get(b, off, n);
+      pos += n;
+      off += n;
+      left -= n;
+    }
+  }
+}
@@ -12,25 +12,80 @@ import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
  *
- * NOTE: this class is not thread-safe.
+ * As long as the table has not been modified, entries are read without
+ * synchronizing on the table: each reading thread has its own cursor, and blocks
+ * are either read from the memory-mapped file or pinned in the global page cache.
+ * After the first modification, all operations are performed via the shared cursor
+ * and the global page cache until the table is flushed again.
+ *
+ * Snapshots of the table can be created, which will not be affected by subsequent
+ * updates. Blocks that are referenced by snapshots are copied before they are
+ * modified for the first time (copy-on-write). Replaced and deleted blocks are
+ * retired, and they are reclaimed by the first update after all snapshots
+ * referencing them have been closed.
+ *
+ * NOTE: write operations are not thread-safe.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
-  /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  /** Number of buffers pinned by each reading thread. */
+  private static final int READBUFFERS = 4;
+  /** Buffer manager (shared with the original table for snapshots). */
+  private final Buffers bm;
   /** File storing all blocks. */
   private final RandomAccessFile file;
-  /** Bitmap storing free (=0) and occupied (=1) pages. */
+  /** Bitmap storing free (=0) and occupied (=1) pages ({@code null} for snapshots). */
   private final BitArray freePages;
+  /** Table from which this snapshot was created ({@code null} for the original table). */
+  private final TableDiskAccess source;
+  /** Snapshots that have not been closed yet. */
+  private final ArrayList<TableDiskAccess> snapshots = new ArrayList<TableDiskAccess>();
+  /** Blocks referenced by snapshots ({@code null} if no snapshots have been created). */
+  private BitArray shared;
+  /** Replaced or deleted blocks that may still be referenced by snapshots. */
+  private final IntList retired = new IntList();
   /** File lock. */
   private FileLock fl;
+  /** Memory mapping flag. */
+  private final boolean mmap;
+  /** Memory mapping (if {@code null}, all data will be accessed via buffers). */
+  private volatile Mapping map;
+  /** Memory mapping that has been discarded before the table was modified. */
+  private Mapping old;
+  /** Indicates if the table has been modified since it was last flushed. */
+  private volatile boolean modified;
+  /** Version of the table, incremented whenever modifications have been flushed. */
+  private volatile int version;
+  /** Cursors that have been created for reading threads. */
+  private final ArrayList<Reader> cursors = new ArrayList<Reader>();
+  /** Cursors of reading threads. */
+  private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      final Reader r = new Reader();
+      synchronized(cursors) {
+        // release the buffers pinned by threads that have terminated
+        final Iterator<Reader> it = cursors.iterator();
+        while(it.hasNext()) {
+          final Reader c = it.next();
+          if(!c.thread.isAlive()) {
+            c.release(bm);
+            it.remove();
+          }
+        }
+        cursors.add(r);
+      }
+      return r;
+    }
+  };
 
   /** FirstPre values (sorted ascending; length: {@link #blocks}). */
   private int[] fpres;
@@ -78,10 +133,81 @@ public final class TableDiskAccess extends TableAccess {
     in.close();
 
     // initialize data file
-    file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
+    final IOFile f = meta.dbfile(DATATBL);
+    file = new RandomAccessFile(f.file(), "rw");
+    bm = new Buffers(file, f, true);
     if(lock) exclusiveLock();
     else sharedLock();
     if(fl == null) throw new BaseXException(Text.DB_PINNED_X, md.name);
+
+    // tables that are opened for writing will not be mapped
+    mmap = !lock && md.prop.is(Prop.MMAP);
+    map();
+    source = null;
+  }
+
+  /**
+   * Constructor for snapshots.
+   * @param md meta data of the snapshot
+   * @param src original table
+   */
+  private TableDiskAccess(final MetaData md, final TableDiskAccess src) {
+    super(md);
+    source = src;
+    file = src.file;
+    bm = src.bm;
+    freePages = null;
+    mmap = false;
+    map = src.map;
+    blocks = src.blocks;
+    used = src.used;
+    fpres = Arrays.copyOf(src.fpres, used);
+    pages = Arrays.copyOf(src.pages, used);
+  }
+
+  /**
+   * Creates a snapshot of the table, which will not be affected by subsequent
+   * updates. Must not be called while the table is being updated.
+   * @param md meta data of the snapshot
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  public synchronized TableDiskAccess snapshot(final MetaData md) throws IOException {
+    // mapped snapshots read blocks directly from disk
+    bm.flush();
+    final TableDiskAccess tda = new TableDiskAccess(md, this);
+    snapshots.add(tda);
+    if(shared == null) shared = new BitArray(blocks);
+    for(int p = 0; p < used; p++) shared.set(pages[p]);
+    return tda;
+  }
+
+  /**
+   * Recomputes the blocks that are referenced by snapshots, and reclaims all
+   * retired blocks that are not referenced anymore. Must be called before the
+   * table is updated.
+   */
+  public synchronized void reclaim() {
+    if(shared == null) return;
+    shared = null;
+    for(final TableDiskAccess tda : snapshots) {
+      if(shared == null) shared = new BitArray(blocks);
+      for(int p = 0; p < tda.used; p++) shared.set(tda.pages[p]);
+    }
+    final int[] rt = retired.toArray();
+    retired.reset();
+    for(final int b : rt) {
+      if(shared != null && shared.get(b)) retired.add(b);
+      else freePages.clear(b);
+    }
+  }
+
+  /**
+   * Unregisters a closed snapshot.
+   * @param tda snapshot
+   */
+  private synchronized void release(final TableDiskAccess tda) {
+    snapshots.remove(tda);
   }
 
   /**
@@ -112,8 +238,12 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void flush() throws IOException {
-    for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-    if(!dirty) return;
+    if(source != null) return;
+    bm.flush();
+    if(!dirty) {
+      clean();
+      return;
+    }
 
     final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'));
     out.writeNum(blocks);
@@ -125,14 +255,34 @@ public final class TableDiskAccess extends TableAccess {
     out.writeNum(blocks);
     for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
 
-    out.writeLongs(freePages.toArray());
+    // retired blocks will not be referenced anymore after a restart
+    BitArray fp = freePages;
+    if(!retired.isEmpty()) {
+      fp = new BitArray(freePages.toArray(), blocks);
+      for(int r = 0; r < retired.size(); r++) fp.clear(retired.get(r));
+    }
+    out.writeLongs(fp.toArray());
     out.close();
     dirty = false;
+    clean();
   }
 
   @Override
   public synchronized void close() throws IOException {
+    if(source != null) {
+      // snapshots share the buffers of the original table: release all pinned pages
+      synchronized(cursors) {
+        for(final Reader r : cursors) r.release(bm);
+        cursors.clear();
+      }
+      readers.remove();
+      source.release(this);
+      return;
+    }
     flush();
+    map = null;
+    old = null;
+    bm.close();
     file.close();
   }
 
@@ -185,38 +335,46 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    if(!modified) return readers.get().read1(this, pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      return bm.current().data[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    if(!modified) return readers.get().read2(this, pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      return get2(bm.current().data, o);
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    if(!modified) return readers.get().read4(this, pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      return get4(bm.current().data, o);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    if(!modified) return readers.get().read5(this, pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      return get5(bm.current().data, o);
+    }
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    modify();
     final int o = off + cursor(pre);
+    cow();
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
     b[o] = (byte) v;
@@ -225,7 +383,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    modify();
     final int o = off + cursor(pre);
+    cow();
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
     b[o] = (byte) (v >>> 8);
@@ -235,7 +395,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    modify();
     final int o = off + cursor(pre);
+    cow();
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 24);
@@ -247,7 +409,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    modify();
     final int o = off + cursor(pre);
+    cow();
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
     b[o]     = (byte) (v >>> 32);
@@ -260,8 +424,10 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void copy(final byte[] entries, final int pre, final int last) {
+    modify();
     for(int o = 0, i = pre; i < last; ++i, o += IO.NODESIZE) {
       final int off = cursor(i);
+      cow();
       final Buffer bf = bm.current();
       System.arraycopy(entries, o, bf.data, off, IO.NODESIZE);
       bf.dirty = true;
@@ -271,6 +437,7 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public void delete(final int pre, final int nr) {
     if(nr == 0) return;
+    modify();
     dirty = true;
 
     // get first block
@@ -282,6 +449,7 @@ public final class TableDiskAccess extends TableAccess {
 
     // check if all entries are in current block: handle and return
     if(last - 1 < npre) {
+      cow();
       final Buffer bf = bm.current();
       copy(bf.data, from + nr, bf.data, from, npre - last);
       updatePre(nr);
@@ -289,7 +457,7 @@ public final class TableDiskAccess extends TableAccess {
       // if whole block was deleted, remove it from the index
       if(npre == fpre) {
         // mark the block as empty
-        freePages.clear(pages[page]);
+        free(pages[page]);
 
         Array.move(fpres, page + 1, -1, used - page - 1);
         Array.move(pages, page + 1, -1, used - page - 1);
@@ -309,7 +477,7 @@ public final class TableDiskAccess extends TableAccess {
         ++unused;
         // mark the blocks as empty; range clear cannot be used because the
         // blocks may not be consecutive
-        freePages.clear(pages[page]);
+        free(pages[page]);
       }
       setPage(page + 1);
       from = 0;
@@ -317,14 +485,15 @@ public final class TableDiskAccess extends TableAccess {
 
     // if the last block is empty, clear the corresponding bit
     readBlock(pages[page]);
-    final Buffer bf = bm.current();
     if(npre == last) {
-      freePages.clear((int) bf.pos);
+      free(pages[page]);
       ++unused;
       if(page < used - 1) readPage(page + 1);
       else ++page;
     } else {
       // delete entries at beginning of current (last) block
+      cow();
+      final Buffer bf = bm.current();
       copy(bf.data, last - fpre, bf.data, 0, npre - last);
     }
 
@@ -346,6 +515,7 @@ public final class TableDiskAccess extends TableAccess {
   public void insert(final int pre, final byte[] entries) {
     final int nnew = entries.length;
     if(nnew == 0) return;
+    modify();
     dirty = true;
 
     // number of records to be inserted
@@ -355,11 +525,13 @@ public final class TableDiskAccess extends TableAccess {
     if(used == 0) {
       // special case: insert new data into first block if database is empty
       readPage(0);
-      freePages.set(0);
+      cow();
+      freePages.set(pages[0]);
       ++used;
     } else if(pre > 0) {
       // find the offset within the block where the new records will be inserted
       split = cursor(pre - 1) + IO.NODESIZE;
+      cow();
     } else {
       // all insert operations will add data after first node.
       // i.e., there is no "insert before first document" statement
@@ -411,6 +583,7 @@ public final class TableDiskAccess extends TableAccess {
         if(remain <= IO.BLOCKSIZE - o) {
           // copy the last records
           readPage(page + 1);
+          cow();
           bf = bm.current();
           System.arraycopy(bf.data, 0, bf.data, remain, o);
           System.arraycopy(all, all.length - remain, bf.data, 0, remain);
@@ -470,32 +643,82 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in the block
    */
   private int cursor(final int pre) {
-    int fp = fpre;
-    int np = npre;
-    if(pre < fp || pre >= np) {
-      final int last = used - 1;
-      int l = 0;
-      int h = last;
-      int m = page;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpres[m];
-        np = m == last ? meta.size : fpres[m + 1];
-      }
-      if(l > h) Util.notexpected(
-          "Data Access out of bounds:" +
-          "\n- pre value: " + pre +
-          "\n- #used blocks: " + used +
-          "\n- #total locks: " + blocks +
-          "\n- access: " + m + " (" + l + " > " + h + ']');
-      readPage(m);
-    }
+    if(pre < fpre || pre >= npre) readPage(page(pre, page, fpre, npre));
     return pre - fpre << IO.NODEPOWER;
   }
 
+  /**
+   * Searches for the page containing the entry for the specified pre value.
+   * @param pre pre of the entry to search for
+   * @param p index of the page to start with
+   * @param f pre value of the first entry in the start page
+   * @param n first pre value of the next page
+   * @return page index
+   */
+  private int page(final int pre, final int p, final int f, final int n) {
+    int fp = f;
+    int np = n;
+    final int last = used - 1;
+    int l = 0;
+    int h = last;
+    int m = p;
+    while(l <= h) {
+      if(pre < fp) h = m - 1;
+      else if(pre >= np) l = m + 1;
+      else break;
+      m = h + l >>> 1;
+      fp = fpres[m];
+      np = m == last ? meta.size : fpres[m + 1];
+    }
+    if(l > h) Util.notexpected(
+        "Data Access out of bounds:" +
+        "\n- pre value: " + pre +
+        "\n- #used blocks: " + used +
+        "\n- #total locks: " + blocks +
+        "\n- access: " + m + " (" + l + " > " + h + ']');
+    return m;
+  }
+
+  /**
+   * Maps the table into memory if memory mapping is enabled.
+   */
+  private void map() {
+    if(!mmap || map != null) return;
+    try {
+      final long l = file.length();
+      if(l == 0) return;
+      final long[] range = bm.written();
+      map = old != null ? old.remap(file.getChannel(), l, range) :
+        new Mapping(file.getChannel(), l);
+      old = null;
+    } catch(final IOException ex) {
+      // fall back to buffered access
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Called before the table is modified. Discards the memory mapping; all subsequent
+   * operations will be performed via the shared cursor until the table is flushed.
+   */
+  private void modify() {
+    if(modified) return;
+    if(map != null) old = map;
+    map = null;
+    modified = true;
+  }
+
+  /**
+   * Called after the table has been flushed. Remaps the table and invalidates
+   * the cursors of all reading threads.
+   */
+  private void clean() {
+    if(!modified) return;
+    map();
+    ++version;
+    modified = false;
+  }
+
   /**
    * Updates the page pointers.
    * @param p page index
@@ -520,21 +743,46 @@ public final class TableDiskAccess extends TableAccess {
    * @param b block to fetch
    */
   private void readBlock(final int b) {
-    if(!bm.cursor(b)) return;
+    if(b >= blocks) blocks = b + 1;
+    bm.cursor(b);
+  }
 
-    final Buffer bf = bm.current();
-    try {
-      if(bf.dirty) writeBlock(bf);
-      bf.pos = b;
-      if(b >= blocks) {
-        blocks = b + 1;
-      } else {
-        file.seek(bf.pos * IO.BLOCKSIZE);
-        file.readFully(bf.data);
+  /**
+   * Called before the current block is modified. If the block is referenced by
+   * a snapshot, its contents are copied to a free block, which replaces the
+   * original block in the page index. The original block is retired.
+   */
+  private void cow() {
+    final int b = pages[page];
+    if(shared == null || !shared.get(b)) return;
+
+    final byte[] data = bm.current().data.clone();
+    final int nb = freePages.nextFree(0);
+    freePages.set(nb);
+    retired.add(b);
+    pages[page] = nb;
+    dirty = true;
+    if(nb >= blocks) {
+      blocks = nb + 1;
+      if(blocks > pages.length) {
+        final int ns = Math.max(pages.length << 1, blocks);
+        fpres = Arrays.copyOf(fpres, ns);
+        pages = Arrays.copyOf(pages, ns);
       }
-    } catch(final IOException ex) {
-      Util.stack(ex);
     }
+    bm.cursor(nb);
+    final Buffer bf = bm.current();
+    System.arraycopy(data, 0, bf.data, 0, IO.BLOCKSIZE);
+    bf.dirty = true;
+  }
+
+  /**
+   * Marks a block as free. Blocks that are referenced by snapshots are retired.
+   * @param b block
+   */
+  private void free(final int b) {
+    if(shared != null && shared.get(b)) retired.add(b);
+    else freePages.clear(b);
   }
 
   /**
@@ -548,17 +796,6 @@ public final class TableDiskAccess extends TableAccess {
     ++page;
   }
 
-  /**
-   * Writes the specified block to disk and resets the dirty flag.
-   * @param bf buffer to write
-   * @throws IOException I/O exception
-   */
-  private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
-    bf.dirty = false;
-  }
-
   /**
    * Updates the firstPre index entries.
    * @param nr number of entries to move
@@ -609,4 +846,174 @@ public final class TableDiskAccess extends TableAccess {
   private int occSpace(final int i) {
     return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
   }
+
+  /**
+   * Returns a short value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return short value
+   */
+  private static int get2(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  /**
+   * Returns an integer value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return integer value
+   */
+  private static int get4(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  /**
+   * Returns a 5-byte value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return long value
+   */
+  private static long get5(final byte[] b, final int o) {
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
+  /**
+   * Cursor of a single reading thread. It is only used as long as the table
+   * has not been modified. The table is passed on as argument, so that cursors
+   * cached by threads will not keep closed tables alive.
+   */
+  private static final class Reader {
+    /** Reading thread. */
+    private final Thread thread = Thread.currentThread();
+    /** Pinned buffers (only assigned if the table is not mapped). */
+    private final Buffer[] buffers = new Buffer[READBUFFERS];
+    /** Index of the next pinned buffer to be replaced. */
+    private int next;
+    /** Block data (only assigned if the table is not mapped). */
+    private byte[] data;
+    /** Memory mapping. */
+    private Mapping mapping;
+    /** File offset of the current block. */
+    private long pos;
+    /** Table version. */
+    private int vers = -1;
+    /** Page index. */
+    private int pg = -1;
+    /** Pre value of the first entry in the current block. */
+    private int fp = -1;
+    /** First pre value of the next block. */
+    private int np = -1;
+
+    /**
+     * Reads a byte value and returns it as an integer value.
+     * @param t table
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read1(final TableDiskAccess t, final int pre, final int off) {
+      final int o = off + cursor(t, pre);
+      return mapping != null ? mapping.read1(pos + o) : data[o] & 0xFF;
+    }
+
+    /**
+     * Reads a short value and returns it as an integer value.
+     * @param t table
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read2(final TableDiskAccess t, final int pre, final int off) {
+      final int o = off + cursor(t, pre);
+      return mapping != null ? mapping.read2(pos + o) : get2(data, o);
+    }
+
+    /**
+     * Reads an integer value.
+     * @param t table
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read4(final TableDiskAccess t, final int pre, final int off) {
+      final int o = off + cursor(t, pre);
+      return mapping != null ? mapping.read4(pos + o) : get4(data, o);
+    }
+
+    /**
+     * Reads a 5-byte value and returns it as a long value.
+     * @param t table
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    long read5(final TableDiskAccess t, final int pre, final int off) {
+      final int o = off + cursor(t, pre);
+      return mapping != null ? mapping.read5(pos + o) : get5(data, o);
+    }
+
+    /**
+     * Searches for the block containing the entry for the specified pre value.
+     * Fetches the block and returns the offset of the entry inside the block.
+     * @param t table
+     * @param pre pre of the entry to search for
+     * @return offset of the entry in the block
+     */
+    private int cursor(final TableDiskAccess t, final int pre) {
+      final int v = t.version;
+      if(v != vers) {
+        // table has been modified: invalidate cursor
+        vers = v;
+        pg = -1;
+        fp = -1;
+        np = -1;
+      }
+      if(pre < fp || pre >= np) {
+        final int p = t.page(pre, pg, fp, np);
+        pg = p;
+        fp = t.fpres[p];
+        np = p + 1 >= t.used ? t.meta.size : t.fpres[p + 1];
+        pos = (long) t.pages[p] * IO.BLOCKSIZE;
+        mapping = t.map;
+        if(mapping == null) data = buffer(t, t.pages[p]).data;
+      }
+      return pre - fp << IO.NODEPOWER;
+    }
+
+    /**
+     * Returns the buffer of the specified block. If the block is not pinned yet,
+     * it replaces the pinned block that has been requested first.
+     * @param t table
+     * @param b block
+     * @return buffer
+     */
+    private Buffer buffer(final TableDiskAccess t, final int b) {
+      for(final Buffer bf : buffers) if(bf != null && bf.pos == b) return bf;
+      final Buffer old = buffers[next];
+      if(old != null) t.bm.unpin(old);
+      final Buffer bf = t.bm.pin(b);
+      buffers[next] = bf;
+      next = (next + 1) % READBUFFERS;
+      return bf;
+    }
+
+    /**
+     * Releases all pinned buffers and invalidates the cursor.
+     * @param bm buffer manager
+     */
+    void release(final Buffers bm) {
+      for(int b = 0; b < READBUFFERS; b++) {
+        if(buffers[b] != null) bm.unpin(buffers[b]);
+        buffers[b] = null;
+      }
+      data = null;
+      mapping = null;
+      vers = -1;
+      pg = -1;
+      fp = -1;
+      np = -1;
+    }
+  }
 }
@@ -0,0 +1,260 @@
+package org.basex.io.random;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+
+/**
+ * This class saves the original contents of database files before they are
+ * modified for the first time after a checkpoint. If a database has not been
+ * closed properly, the saved contents are written back, and the files are
+ * restored to the state of the last checkpoint.
+ *
+ * All file modifications are performed via {@link Buffers}, which save the
+ * original contents of a block before it is overwritten. Files that are
+ * completely rewritten must be saved via {@link #save(IOFile)}. The saved contents
+ * are synchronized with the storage device before the original contents are
+ * overwritten.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class UndoLog {
+  /** Active logs, indexed by the paths of the database directories. */
+  private static final HashMap<String, UndoLog> LOGS = new HashMap<String, UndoLog>();
+
+  /** Log file. */
+  private final LogFile log;
+  /** Database directory. */
+  private final IOFile dir;
+  /** Path of the database directory. */
+  private final String path;
+  /** Modified files. */
+  private final HashMap<String, Saved> files = new HashMap<String, Saved>();
+  /** Indicates if the log file needs to be synchronized. */
+  private boolean sync;
+
+  /**
+   * Constructor.
+   * @param f log file
+   * @throws IOException I/O exception
+   */
+  private UndoLog(final IOFile f) throws IOException {
+    log = new LogFile(f);
+    dir = f.dir();
+    path = f.dirPath();
+  }
+
+  /**
+   * Creates a new log file and registers it for the files in its directory.
+   * @param f log file
+   * @return undo log
+   * @throws IOException I/O exception
+   */
+  public static UndoLog open(final IOFile f) throws IOException {
+    f.delete();
+    final UndoLog ul = new UndoLog(f);
+    ul.log.sync();
+    synchronized(LOGS) {
+      LOGS.put(ul.path, ul);
+    }
+    return ul;
+  }
+
+  /**
+   * Returns the active log for files in the specified directory.
+   * @param dir directory path
+   * @return undo log or {@code null}
+   */
+  static UndoLog get(final String dir) {
+    synchronized(LOGS) {
+      return LOGS.isEmpty() ? null : LOGS.get(dir);
+    }
+  }
+
+  /**
+   * Saves the original contents of a file, which will be completely rewritten.
+   * @param f file
+   * @throws IOException I/O exception
+   */
+  public synchronized void save(final IOFile f) throws IOException {
+    final String name = f.name();
+    if(f.exists()) {
+      final RandomAccessFile raf = new RandomAccessFile(f.file(), "r");
+      try {
+        save(name, raf, 0, Long.MAX_VALUE);
+      } finally {
+        raf.close();
+      }
+    } else if(!files.containsKey(name)) {
+      files.put(name, new Saved(-1));
+      add(name, 0, EMPTY);
+    }
+  }
+
+  /**
+   * Saves the original contents of the blocks in the specified file range.
+   * @param name file name
+   * @param raf random access file
+   * @param pos file offset
+   * @param len number of bytes
+   * @throws IOException I/O exception
+   */
+  synchronized void save(final String name, final RandomAccessFile raf, final long pos,
+      final long len) throws IOException {
+
+    Saved s = files.get(name);
+    if(s == null) {
+      s = new Saved(raf.length());
+      files.put(name, s);
+      add(name, 0, token(s.length));
+    }
+    final long end = Math.min(s.length, len > s.length - pos ? s.length : pos + len);
+    for(long b = pos / IO.BLOCKSIZE; b * IO.BLOCKSIZE < end; b++) {
+      if(s.blocks.contains((int) b)) continue;
+      s.blocks.add((int) b);
+      final long off = b * IO.BLOCKSIZE;
+      final byte[] data = new byte[(int) Math.min(IO.BLOCKSIZE, s.length - off)];
+      synchronized(raf) {
+        raf.seek(off);
+        raf.readFully(data);
+      }
+      add(name, (int) b + 1, data);
+    }
+  }
+
+  /**
+   * Synchronizes the saved contents with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void sync() throws IOException {
+    if(!sync) return;
+    log.sync();
+    sync = false;
+  }
+
+  /**
+   * Synchronizes all modified files with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void syncFiles() throws IOException {
+    for(final String name : files.keySet()) {
+      final IOFile f = new IOFile(dir, name);
+      if(f.exists()) LogFile.sync(f);
+    }
+  }
+
+  /**
+   * Unregisters and deletes the log file. Must only be called after all modified
+   * files have been synchronized.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    synchronized(LOGS) {
+      LOGS.remove(path);
+    }
+    log.delete();
+  }
+
+  /**
+   * Restores the original contents of all files that have been saved in the
+   * specified log file, and deletes the log file.
+   * @param f log file
+   * @throws IOException I/O exception
+   */
+  public static void restore(final IOFile f) throws IOException {
+    if(!f.exists()) return;
+
+    final LogFile log = new LogFile(f);
+    final IOFile dir = f.dir();
+    final HashMap<String, Long> lengths = new HashMap<String, Long>();
+    final HashMap<String, RandomAccessFile> rafs = new HashMap<String, RandomAccessFile>();
+    try {
+      for(byte[] rec; (rec = log.read()) != null;) {
+        final DataInput in = new DataInput(new IOContent(rec));
+        final String name = string(in.readToken());
+        final int b = in.readNum();
+        final byte[] data = in.readToken();
+        if(b == 0) {
+          // first entry for a file: original length
+          if(!lengths.containsKey(name)) {
+            lengths.put(name, data.length == 0 ? -1 : toLong(data));
+          }
+        } else {
+          RandomAccessFile raf = rafs.get(name);
+          if(raf == null) {
+            raf = new RandomAccessFile(new IOFile(dir, name).file(), "rw");
+            rafs.put(name, raf);
+          }
+          raf.seek((long) (b - 1) * IO.BLOCKSIZE);
+          raf.write(data);
+        }
+      }
+      // reset file lengths, remove new files
+      for(final Entry<String, Long> e : lengths.entrySet()) {
+        final String name = e.getKey();
+        final long l = e.getValue();
+        final RandomAccessFile raf = rafs.remove(name);
+        final IOFile file = new IOFile(dir, name);
+        if(l == -1) {
+          if(raf != null) raf.close();
+          file.delete();
+        } else {
+          final RandomAccessFile r = raf != null ? raf :
+            new RandomAccessFile(file.file(), "rw");
+          try {
+            r.setLength(l);
+            r.getFD().sync();
+          } finally {
+            r.close();
+          }
+        }
+      }
+    } finally {
+      for(final RandomAccessFile raf : rafs.values()) raf.close();
+    }
+    log.delete();
+  }
+
+  /**
+   * Appends a record to the log file.
+   * @param name file name
+   * @param b block number + 1, or {@code 0} for the original length of the file
+   * @param data block contents or length
+   * @throws IOException I/O exception
+   */
+  private void add(final String name, final int b, final byte[] data)
+      throws IOException {
+    final ArrayOutput ao = new ArrayOutput();
+    final DataOutput out = new DataOutput(ao);
+    out.writeToken(token(name));
+    out.writeNum(b);
+    out.writeToken(data);
+    log.append(ao.buffer(), (int) ao.size());
+    sync = true;
+  }
+
+  /** Original state of a file. */
+  private static final class Saved {
+    /** Original file length ({@code -1} if the file did not exist). */
+    final long length;
+    /** Saved blocks. */
+    final IntSet blocks = new IntSet();
+
+    /**
+     * Constructor.
+     * @param l original file length
+     */
+    Saved(final long l) {
+      length = l;
+    }
+  }
+}
@@ -55,6 +55,18 @@ public final class QueryProcessor extends Progress {
     updating = ctx.updating;
   }
 
+  /**
+   * Evaluates the query on snapshots of the accessed databases.
+   * Snapshots will only be used if the query is not updating, and if
+   * {@link MainProp#SNAPSHOTS} is enabled. Must be called after the query has been
+   * parsed, and before the process is registered.
+   * @param use use snapshots
+   */
+  public void snapshots(final boolean use) {
+    snapshots = use && !updating && ctx.context.mprop.is(MainProp.SNAPSHOTS);
+    ctx.snapshots = snapshots;
+  }
+
   /**
    * Compiles the query.
    * @throws QueryException query exception
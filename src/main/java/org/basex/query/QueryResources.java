@@ -32,6 +32,8 @@ public final class QueryResources {
   private Data[] data = new Data[1];
   /** Number of databases. */
   private int datas;
+  /** Snapshots of opened databases, and the databases they were created from. */
+  private final IdentityHashMap<Data, Data> snapshots = new IdentityHashMap<Data, Data>();
 
   /** Collections: single nodes and sequences. */
   private Value[] coll = new Value[1];
@@ -39,6 +41,8 @@ public final class QueryResources {
   private String[] collName = new String[1];
   /** Number of collections. */
   private int colls;
+  /** Temporary resources. */
+  private final ArrayList<Closeable> temp = new ArrayList<Closeable>();
 
   /**
    * Constructor.
@@ -54,29 +58,47 @@ public final class QueryResources {
    * @throws QueryException query exception
    */
   void compile(final Nodes nodes) throws QueryException {
-    final Data d = nodes.data;
-    if(!ctx.context.perm(Perm.READ, d.meta)) BASX_PERM.thrw(null, Perm.READ);
+    if(!ctx.context.perm(Perm.READ, nodes.data.meta)) BASX_PERM.thrw(null, Perm.READ);
+    addData(nodes.data);
+    final Data d = snapshot(null);
 
     // assign initial context value
     final boolean root = nodes.root;
-    ctx.value = DBNodeSeq.get(new IntList(nodes.pres), d, root, root);
+    final IntList pres = root && d != nodes.data ?
+        new IntList(d.resources.docs().toArray()) : new IntList(nodes.pres);
+    ctx.value = DBNodeSeq.get(pres, d, root, root);
 
     // create default collection: use initial node set if it contains all
     // documents of the database. otherwise, create new node set
     addCollection(root ? ctx.value :
       DBNodeSeq.get(d.resources.docs(), d, true, true), d.meta.name);
-
-    addData(d);
   }
 
   /**
    * Closes all opened data references that have not been added by the global context.
    */
   void close() {
-    for(int d = ctx.nodes != null ? 1 : 0; d < datas; d++) {
-      Close.close(data[d], ctx.context);
+    for(int d = 0; d < datas; d++) {
+      final Data dt = release(data[d]);
+      if(d != 0 || ctx.nodes == null) Close.close(dt, ctx.context);
     }
     datas = 0;
+    for(final Closeable c : temp) {
+      try {
+        c.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    temp.clear();
+  }
+
+  /**
+   * Adds a temporary resource, which will be closed when the query is closed.
+   * @param c resource
+   */
+  public void addTemp(final Closeable c) {
+    temp.add(c);
   }
 
   /**
@@ -94,12 +116,11 @@ public final class QueryResources {
 
     try {
       // open and add new data reference
-      final Data d = Open.open(name, ctx.context);
-      addData(d);
-      return d;
+      addData(Open.open(name, ctx.context));
     } catch(final IOException ex) {
       throw BXDB_OPEN.thrw(info, ex);
     }
+    return snapshot(info);
   }
 
   /**
@@ -123,7 +144,7 @@ public final class QueryResources {
     }
 
     // open new database, or create new instance
-    Data dt = open(qi);
+    Data dt = open(qi, info);
     if(dt == null) dt = create(qi, true, info);
     return doc(dt, qi, info);
   }
@@ -173,7 +194,7 @@ public final class QueryResources {
     }
 
     // open new database, or create new instance
-    if(dt == null) dt = open(qi);
+    if(dt == null) dt = open(qi, info);
     if(dt == null) dt = create(qi, false, info);
     return DBNodeSeq.get(dt.resources.docs(qi.path), dt, true, qi.path.isEmpty());
   }
@@ -222,15 +243,16 @@ public final class QueryResources {
   /**
    * Tries to open the addressed database, or returns {@code null}.
    * @param input query input
+   * @param info input info
    * @return data reference
+   * @throws QueryException query exception
    */
-  private Data open(final QueryInput input) {
+  private Data open(final QueryInput input, final InputInfo info) throws QueryException {
     if(input.db != null) {
       try {
         // try to open database
-        final Data d = Open.open(input.db, ctx.context);
-        addData(d);
-        return d;
+        addData(Open.open(input.db, ctx.context));
+        return snapshot(info);
       } catch(final IOException ex) {
         /* ignored */
       }
@@ -238,6 +260,40 @@ public final class QueryResources {
     return null;
   }
 
+  /**
+   * Replaces the most recently added database with a snapshot if the query
+   * is evaluated on snapshots.
+   * @param info input info
+   * @return database or snapshot
+   * @throws QueryException query exception
+   */
+  private Data snapshot(final InputInfo info) throws QueryException {
+    final Data d = data[datas - 1];
+    if(!ctx.snapshots) return d;
+    try {
+      final Data s = d.snapshot();
+      if(s != d) {
+        snapshots.put(s, d);
+        data[datas - 1] = s;
+      }
+      return s;
+    } catch(final IOException ex) {
+      throw BXDB_OPEN.thrw(info, ex);
+    }
+  }
+
+  /**
+   * Closes a snapshot and returns the database it was created from.
+   * @param d database or snapshot
+   * @return database
+   */
+  private Data release(final Data d) {
+    final Data src = snapshots.remove(d);
+    if(src == null) return d;
+    d.close();
+    return src;
+  }
+
   /**
    * Creates a new database instance.
    * @param input query input
@@ -314,7 +370,7 @@ public final class QueryResources {
   public void removeData(final String name) {
     for(int d = ctx.nodes != null ? 1 : 0; d < datas; d++) {
       if(data[d].meta.name.equals(name)) {
-        Close.close(data[d], ctx.context);
+        Close.close(release(data[d]), ctx.context);
         Array.move(data, d + 1, -1, --datas - d);
         data[datas] = null;
         break;
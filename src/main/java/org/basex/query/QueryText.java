@@ -711,6 +711,14 @@ public interface QueryText {
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
+  String OPTHASHJOIN = "creating hash join for %";
+  /** Optimization info. */
+  String OPTAGGR = "aggregating % incrementally";
+  /** Optimization info. */
+  String OPTLIMIT = "limiting sorted results to % item(s)";
+  /** Optimization info. */
+  String OPTTOPK = "retrieving % top-scored full-text result(s) in document order";
+  /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
   /** Optimization info. */
   String OPTVAR = "removing variable %";
@@ -729,8 +737,14 @@ public interface QueryText {
   /** Optimization info. */
   String OPTSRNGINDEX = "applying string range index";
   /** Optimization info. */
+  String OPTSUBINDEX = "applying substring index";
+  /** Optimization info. */
   String OPTNOINDEX = "removing path with no index results";
   /** Optimization info. */
+  String OPTINDEXCOSTS = "index costs: %, sequential costs: %";
+  /** Optimization info. */
+  String OPTSEQCOSTS = "skipping index access (index costs: %, sequential costs: %)";
+  /** Optimization info. */
   String OPTBIND = "binding static variable %";
   /** Optimization info. */
   String OPTCHILD = "converting % to child steps";
@@ -325,6 +325,7 @@ public final class CmpG extends Cmp {
         return false;
 
       ic.addCosts(ic.data.meta.size / 10);
+      ic.dynamic = true;
       va = Array.add(va, new ValueAccess(info, arg, ind, ic));
       return true;
     }
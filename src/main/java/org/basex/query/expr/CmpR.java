@@ -137,7 +137,7 @@ public final class CmpR extends Single {
     rt = new NumericRange(text ? IndexType.TEXT : IndexType.ATTRIBUTE,
         Math.max(min, key.min), Math.min(max, key.max));
     ic.costs(rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
-      Math.max(1, ic.data.meta.size / 5));
+      ic.data.count(rt));
 
     // use index if costs are zero, or if min/max is not infinite
     return ic.costs() == 0 || min != Double.NEGATIVE_INFINITY &&
@@ -1,6 +1,7 @@
 package org.basex.query.expr;
 
 import org.basex.query.*;
+import org.basex.query.flwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
@@ -87,6 +88,12 @@ public class Filter extends Preds {
       type = SeqType.get(t.type, t.zeroOrOne() ? Occ.ZERO_ONE : Occ.ZERO_MORE);
     }
 
+    // limit the number of items that will be sorted by an order by clause
+    if(preds.length == 1 && preds[0] instanceof Pos && root instanceof GFLWOR) {
+      final long mx = ((Pos) preds[0]).max;
+      if(mx != Long.MAX_VALUE) ((GFLWOR) root).limit(mx, ctx);
+    }
+
     // no numeric predicates.. use simple iterator
     if(!super.uses(Use.POS)) return new IterFilter(this);
 
@@ -0,0 +1,242 @@
+package org.basex.query.expr;
+
+import org.basex.query.*;
+import org.basex.query.expr.CmpG.OpG;
+import org.basex.query.iter.*;
+import org.basex.query.path.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * Hash join. Filters an input sequence by comparing a key of each item with the
+ * result of a probe expression. Expressions of the form {@code I[K = P]} are
+ * rewritten to this expression if {@code I} is evaluated many times with the same
+ * result, and if {@code P} does not depend on the context. The input and
+ * the string values of its keys are cached in a hash table, which can then be
+ * probed with the results of {@code P}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class HashJoin extends Arr {
+  /**
+   * Constructor.
+   * @param ii input info
+   * @param in input
+   * @param key key expression (evaluated for each input item)
+   * @param probe probe expression
+   * @param t type of the resulting items
+   */
+  private HashJoin(final InputInfo ii, final Expr in, final Expr key, final Expr probe,
+      final Type t) {
+    super(ii, in, key, probe);
+    type = SeqType.get(t, Occ.ZERO_MORE);
+  }
+
+  /**
+   * Tries to rewrite a filter expression or location path to a hash join.
+   * One of the last non-positional predicates must be a general equality comparison,
+   * in which one operand only depends on the context, and the other one references
+   * at least one of the specified variables. As equality of strings and untyped values can be checked
+   * via hash values, only these types are supported.
+   * @param e input expression
+   * @param vars variables that are bound in the surrounding loop
+   * @return hash join, or {@code null}
+   */
+  public static HashJoin get(final Expr e, final Var[] vars) {
+    final InputInfo ii;
+    final Expr[] preds;
+    if(e instanceof Filter) {
+      ii = ((Filter) e).info;
+      preds = ((Filter) e).preds;
+    } else if(e instanceof AxisPath) {
+      final AxisPath path = (AxisPath) e;
+      final AxisStep step = path.step(path.steps.length - 1);
+      ii = path.info;
+      preds = step.preds;
+    } else {
+      return null;
+    }
+
+    // find last comparison that can be rewritten; skip positional predicates
+    int p = preds.length;
+    CmpG cmp = null;
+    while(--p >= 0) {
+      final Expr pr = preds[p];
+      if(pr instanceof CmpG && ((CmpG) pr).op == OpG.EQ) {
+        cmp = (CmpG) pr;
+        break;
+      }
+      if(pr.type().mayBeNumber() || pr.uses(Use.POS)) return null;
+    }
+    if(cmp == null) return null;
+
+    // choose key and probe expression
+    Expr key = cmp.expr[0], probe = cmp.expr[1];
+    if(!key.uses(Use.CTX)) {
+      key = cmp.expr[1];
+      probe = cmp.expr[0];
+    }
+    if(!key.uses(Use.CTX) || key.uses(Use.POS) || key.uses(Use.NDT) ||
+        probe.uses(Use.CTX) || probe.uses(Use.POS) || probe.uses(Use.NDT) ||
+        !key.type().type.isStringOrUntyped() || !probe.type().type.isStringOrUntyped())
+      return null;
+
+    // create input without comparison
+    final Expr in;
+    if(e instanceof Filter) {
+      final Filter f = (Filter) e;
+      in = preds.length == 1 ? f.root : new Filter(ii, f.root, Array.delete(preds, p));
+    } else {
+      final AxisPath path = (AxisPath) e;
+      final Expr[] steps = path.steps.clone();
+      final int sl = steps.length - 1;
+      final AxisStep step = AxisStep.get(path.step(sl));
+      step.preds = Array.delete(preds, p);
+      steps[sl] = step;
+      in = Path.get(ii, path.root, steps);
+    }
+
+    // input and key must be independent of the loop; probe must depend on it
+    int c = 0;
+    for(final Var v : vars) {
+      if(in.count(v) != 0 || key.count(v) != 0) return null;
+      c += probe.count(v);
+    }
+    // skip non-deterministic input, or input that creates new nodes in each iteration
+    return c == 0 || in.uses(Use.NDT) || in.uses(Use.CNS) ? null :
+      new HashJoin(ii, in, key, probe, e.type().type);
+  }
+
+  @Override
+  public Expr compile(final QueryContext ctx) {
+    return this;
+  }
+
+  /**
+   * Evaluates the input and returns a hash table.
+   * @param ctx query context
+   * @return hash table
+   * @throws QueryException query exception
+   */
+  public Table table(final QueryContext ctx) throws QueryException {
+    final Value val = ctx.value(expr[0]);
+    final TokenObjMap<IntList> map = new TokenObjMap<IntList>();
+
+    final Value cv = ctx.value;
+    final long cs = ctx.size;
+    final long cp = ctx.pos;
+    try {
+      final long is = val.size();
+      ctx.size = is;
+      for(int s = 0; s < is; ++s) {
+        final Item it = val.itemAt(s);
+        ctx.value = it;
+        ctx.pos = s + 1;
+        final Iter ir = ctx.iter(expr[1]);
+        for(Item k; (k = ir.next()) != null;) {
+          final byte[] tok = k.string(info);
+          IntList il = map.get(tok);
+          if(il == null) {
+            il = new IntList(1);
+            map.add(tok, il);
+          }
+          // skip duplicate keys of the same item
+          if(il.size() == 0 || il.peek() != s) il.add(s);
+        }
+      }
+    } finally {
+      ctx.value = cv;
+      ctx.size = cs;
+      ctx.pos = cp;
+    }
+    return new Table(val, map);
+  }
+
+  /**
+   * Probes the specified hash table.
+   * @param ctx query context
+   * @param table hash table
+   * @return resulting items
+   * @throws QueryException query exception
+   */
+  public Iter iter(final QueryContext ctx, final Table table) throws QueryException {
+    IntList pos = null;
+    int probes = 0;
+    final Iter ir = ctx.iter(expr[2]);
+    for(Item it; (it = ir.next()) != null;) {
+      final IntList il = table.map.get(it.string(info));
+      if(il == null) continue;
+      if(probes++ == 0) {
+        pos = il;
+      } else {
+        // merge positions of multiple keys
+        if(probes == 2) pos = new IntList(pos.toArray());
+        for(int i = 0; i < il.size(); i++) pos.add(il.get(i));
+      }
+    }
+    if(pos == null) return Empty.ITER;
+
+    if(probes > 1) pos.sort();
+    final ValueBuilder vb = new ValueBuilder();
+    final int ps = pos.size();
+    for(int p = 0; p < ps; p++) {
+      final int i = pos.get(p);
+      if(p == 0 || i != pos.get(p - 1)) vb.add(table.value.itemAt(i));
+    }
+    return vb;
+  }
+
+  @Override
+  public Iter iter(final QueryContext ctx) throws QueryException {
+    return iter(ctx, table(ctx));
+  }
+
+  @Override
+  public boolean uses(final Use u) {
+    return expr[0].uses(u) || expr[2].uses(u) || u != Use.CTX && expr[1].uses(u);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr[0].removable(v) && expr[1].count(v) == 0 && expr[2].removable(v);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(), expr);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + expr[0] + ")[" + expr[1] + ' ' + OpG.EQ + ' ' + expr[2] + ']';
+  }
+
+  /**
+   * Hash table, containing the input items and the positions of their keys.
+   */
+  public static final class Table {
+    /** Input value. */
+    final Value value;
+    /** Positions of the input items, indexed by their keys. */
+    final TokenObjMap<IntList> map;
+
+    /**
+     * Constructor.
+     * @param v input value
+     * @param m hash map
+     */
+    Table(final Value v, final TokenObjMap<IntList> m) {
+      value = v;
+      map = m;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.query.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+
+/**
+ * This index class retrieves texts and attribute values containing a substring.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SubstringAccess extends IndexAccess {
+  /** Index token. */
+  private final SubstringToken st;
+
+  /**
+   * Constructor.
+   * @param ii input info
+   * @param t index token
+   * @param ic index context
+   */
+  public SubstringAccess(final InputInfo ii, final SubstringToken t,
+      final IndexContext ic) {
+    super(ic, ii);
+    st = t;
+  }
+
+  @Override
+  public AxisIter iter(final QueryContext ctx) {
+    final Data data = ictx.data;
+    final byte kind = st.text ? Data.TEXT : Data.ATTR;
+    final IndexIterator ii = data.meta.substrindex ? data.iter(st) : scan();
+
+    return new AxisIter() {
+      @Override
+      public ANode next() {
+        return ii.more() ? new DBNode(data, ii.next(), kind) : null;
+      }
+    };
+  }
+
+  /**
+   * Returns scan-based iterator.
+   * @return node iterator
+   */
+  private IndexIterator scan() {
+    return new IndexIterator() {
+      final byte kind = st.text ? Data.TEXT : Data.ATTR;
+      final Data data = ictx.data;
+      int pre = -1;
+
+      @Override
+      public int next() {
+        return pre;
+      }
+      @Override
+      public boolean more() {
+        while(++pre < data.meta.size) {
+          if(data.kind(pre) == kind && st.matches(data.text(pre, st.text))) return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(DATA, ictx.data.meta.name, TYP,
+        st.text ? IndexType.TEXT : IndexType.ATTRIBUTE), function());
+  }
+
+  @Override
+  public String toString() {
+    return Function._DB_OPEN.get(info, Str.get(ictx.data.meta.name)) +
+        (st.text ? "//text()" : "//@*") + '[' + function() + ']';
+  }
+
+  /**
+   * Returns the function that is evaluated for all nodes.
+   * @return function
+   */
+  private StandardFunc function() {
+    final Function f = st.start ? Function.STARTS_WITH : st.end ? Function.ENDS_WITH :
+      Function.CONTAINS;
+    return f.get(info, new Context(info), Str.get(st.sub));
+  }
+}
@@ -79,6 +79,8 @@ public final class For extends ForLet {
       private Iter ir;
       /** Counter. */
       private int c;
+      /** Hash table (only assigned if the input is a hash join). */
+      private HashJoin.Table table;
 
       @Override
       public Item next() throws QueryException {
@@ -118,7 +120,14 @@ public final class For extends ForLet {
       private void init() throws QueryException {
         if(ir == null) {
           vs = ctx.vars.size();
-          ir = ctx.iter(expr);
+          if(expr instanceof HashJoin) {
+            // the hash table is created once and reused for all iterations
+            final HashJoin hj = (HashJoin) expr;
+            if(table == null) table = hj.table(ctx);
+            ir = hj.iter(ctx, table);
+          } else {
+            ir = ctx.iter(expr);
+          }
           ctx.vars.add(v);
           if(p != null) ctx.vars.add(p);
           if(s != null) ctx.vars.add(s);
@@ -2,15 +2,12 @@ package org.basex.query.flwor;
 
 import static org.basex.query.QueryText.*;
 
-import java.util.*;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
-import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
@@ -114,6 +111,7 @@ public class GFLWOR extends ParseExpr {
     if(group != null) group.compile(ctx);
     if(order != null) order.compile(ctx);
     ret = ret.compile(ctx);
+    if(group != null) group.compAggr(ctx, order, ret);
     ctx.vars.size(vs);
     ctx.grouping = grp;
 
@@ -157,6 +155,9 @@ public class GFLWOR extends ParseExpr {
       }
     }
 
+    // rewrite equi-joins
+    compJoin(ctx);
+
     // compute number of results to speed up count() operations
     if(where == null && group == null) {
       size = ret.size();
@@ -213,6 +214,31 @@ public class GFLWOR extends ParseExpr {
     }
   }
 
+  /**
+   * Rewrites the inputs of inner for clauses to hash joins if they are independent
+   * of the outer clauses, and if they are filtered by an equality comparison with
+   * outer variables. This is particularly helpful if no index can be applied.
+   * Example: {@code for $a in A for $b in B where $a/@id = $b/@ref return ...}
+   * @param ctx query context
+   */
+  private void compJoin(final QueryContext ctx) {
+    // variables bound inside the loop (let clauses before the first for clause
+    // will only be evaluated once)
+    Var[] vars = {};
+    for(final ForLet f : fl) {
+      if(vars.length != 0 && f instanceof For) {
+        final HashJoin hj = HashJoin.get(f.expr, vars);
+        if(hj != null) {
+          ctx.compInfo(OPTHASHJOIN, f.var);
+          f.expr = hj;
+        }
+      }
+      if(vars.length != 0 || f instanceof For) {
+        for(final Var v : f.vars()) vars = Array.add(vars, v);
+      }
+    }
+  }
+
   /**
    * Rewrites a where clause to one or more predicates.
    * @param ctx query context
@@ -286,6 +312,30 @@ public class GFLWOR extends ParseExpr {
     where = null;
   }
 
+  /**
+   * Limits the number of items that will be requested from this expression.
+   * If an order by clause exists, tuples that will not be returned can be
+   * discarded while the results are being sorted. If the tuples are ordered by the
+   * scores of a full-text search, only the results with the highest scores are
+   * retrieved from the index.
+   * @param n maximum number of requested items
+   * @param ctx query context
+   */
+  public final void limit(final long n, final QueryContext ctx) {
+    if(order == null || n >= order.limit) return;
+    ctx.compInfo(OPTLIMIT, n);
+    order.limit = n;
+
+    // full-text search, sorted by scores: only retrieve the results with the highest scores
+    if(fl.length == 1 && fl[0] instanceof For && where == null && group == null &&
+        !ret.type().mayBeZero()) {
+      final For f = (For) fl[0];
+      if(f.pos == null && f.expr.isFunction(Function._FT_SEARCH) && order.score(f)) {
+        ((FNFt) f.expr).limit(n, ctx);
+      }
+    }
+  }
+
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     final Iter[] iter = new Iter[fl.length];
@@ -293,23 +343,21 @@ public class GFLWOR extends ParseExpr {
     for(int f = 0; f < fl.length; ++f) iter[f] = ctx.iter(fl[f]);
 
     // evaluate pre grouping tuples
-    ArrayList<Item[]> keys = null;
-    ValueList vals = null;
-    if(order != null) {
-      keys = new ArrayList<Item[]>();
-      vals = new ValueList();
+    final OrderCache oc = order != null ? new OrderCache(order, ctx) : null;
+    if(group != null) group.init(ctx);
+    try {
+      iter(ctx, iter, 0, oc);
+      ctx.vars.size(vs);
+
+      for(final ForLet f : fl) ctx.vars.add(f.var);
+
+      // order != null, otherwise it would have been handled in group
+      final Iter ir = group != null ? group.gp.ret(ctx, ret, oc) : oc.iter(ctx);
+      ctx.vars.size(vs);
+      return ir;
+    } finally {
+      if(group != null) group.gp.close();
     }
-    if(group != null) group.init(order);
-    iter(ctx, iter, 0, keys, vals);
-    ctx.vars.size(vs);
-
-    for(final ForLet f : fl) ctx.vars.add(f.var);
-
-    // order != null, otherwise it would have been handled in group
-    final Iter ir = group != null ?
-        group.gp.ret(ctx, ret, keys, vals) : ctx.iter(order.set(keys, vals));
-    ctx.vars.size(vs);
-    return ir;
   }
 
   /**
@@ -317,23 +365,22 @@ public class GFLWOR extends ParseExpr {
    * @param ctx query context
    * @param it iterator
    * @param p variable position
-   * @param ks sort keys
-   * @param vs values to sort
+   * @param oc order cache (may be {@code null})
    * @throws QueryException query exception
    */
   private void iter(final QueryContext ctx, final Iter[] it, final int p,
-      final ArrayList<Item[]> ks, final ValueList vs) throws QueryException {
+      final OrderCache oc) throws QueryException {
 
     final boolean more = p + 1 != fl.length;
     while(it[p].next() != null) {
       if(more) {
-        iter(ctx, it, p + 1, ks, vs);
+        iter(ctx, it, p + 1, oc);
       } else if(where == null || where.ebv(ctx, info).bool(info)) {
         if(group != null) {
           group.gp.add(ctx);
         } else if(order != null) {
           // order by will be handled in group by otherwise
-          order.add(ctx, ret, ks, vs);
+          oc.add(ctx, ret);
         }
       }
     }
@@ -2,8 +2,10 @@ package org.basex.query.flwor;
 
 import static org.basex.query.QueryText.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.node.*;
@@ -22,6 +24,13 @@ public final class Group extends ParseExpr {
   private final GroupSpec[] groupby;
   /** Non-grouping variables. */
   private final Var[][] nongroup;
+  /** Aggregating functions, which can be incrementally applied to non-grouping
+   * variables. */
+  private static final Function[] AGGR = {
+    Function.COUNT, Function.SUM, Function.MIN, Function.MAX
+  };
+  /** Aggregating functions of non-grouping variables (entries may be {@code null}). */
+  private final Function[] aggr;
   /** Grouping partition. **/
   GroupPartition gp;
 
@@ -35,14 +44,60 @@ public final class Group extends ParseExpr {
     super(ii);
     groupby = gb;
     nongroup = ng;
+    aggr = new Function[ng[1].length];
   }
 
   /**
    * Initializes the grouping partition.
-   * @param ob order by specifier
+   * @param ctx query context
    */
-  void init(final Order ob) {
-    gp = new GroupPartition(groupby, nongroup, ob, info);
+  void init(final QueryContext ctx) {
+    gp = new GroupPartition(groupby, nongroup, aggr,
+        ctx.context.prop.num(Prop.SPILLSIZE), info);
+  }
+
+  /**
+   * Checks if non-grouping variables are only referenced as arguments of
+   * aggregating functions. If this is the case, the grouped values will not be
+   * materialized; instead, the aggregates will be computed incrementally.
+   * Unreferenced variables will only be counted.
+   * @param ctx query context
+   * @param exprs expressions that are evaluated after grouping
+   */
+  void compAggr(final QueryContext ctx, final Expr... exprs) {
+    final Var[] vars = nongroup[1];
+    for(int v = 0; v < vars.length; v++) {
+      final Var var = vars[v];
+      aggr[v] = null;
+      // typed variables must be materialized
+      if(var.type != null) continue;
+      if(count(var, exprs) == 0) {
+        aggr[v] = Function.COUNT;
+        continue;
+      }
+      for(final Function f : AGGR) {
+        var.aggr = f;
+        final boolean ok = count(var, exprs) == 0;
+        var.aggr = null;
+        if(ok) {
+          ctx.compInfo(OPTAGGR, var);
+          aggr[v] = f;
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the references of a variable in the specified expressions.
+   * @param v variable
+   * @param exprs expressions (may contain {@code null} references)
+   * @return number of references
+   */
+  private static int count(final Var v, final Expr... exprs) {
+    int c = 0;
+    for(final Expr e : exprs) if(e != null) c += e.count(v);
+    return c;
   }
 
   @Override
@@ -1,6 +1,7 @@
 package org.basex.query.flwor;
 
 import org.basex.query.*;
+import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
@@ -16,15 +17,28 @@ final class GroupNode {
   private final int hash;
   /** List of grouping values. */
   final Value[] vals;
+  /** Sequences of non-grouping variables (entries may be {@code null}). */
+  final ValueBuilder[] seqs;
+  /** Partial aggregates of non-grouping variables (entries may be {@code null}). */
+  final Value[] aggr;
+  /** Number of cached items. */
+  long items;
+  /** Indicates if the values of this group cannot be written to disk. */
+  boolean fixed;
+  /** Position of the group in the order of first appearance. */
+  int id;
 
   /**
    * Creates a group node.
    * @param ii input info
    * @param vl grouping values
+   * @param ng number of non-grouping variables
    * @throws QueryException query exception
    */
-  GroupNode(final InputInfo ii, final Value[] vl) throws QueryException {
+  GroupNode(final InputInfo ii, final Value[] vl, final int ng) throws QueryException {
     vals = vl;
+    seqs = new ValueBuilder[ng];
+    aggr = new Value[ng];
     int h = 0;
     for(final Value v : vals) h = (h << 5) - h + v.hash(ii);
     hash = h;
@@ -46,6 +60,19 @@ final class GroupNode {
     return true;
   }
 
+  /**
+   * Returns the values of the non-grouping variables.
+   * @return values
+   */
+  Value[] values() {
+    final int ng = seqs.length;
+    final Value[] vl = new Value[ng];
+    for(int i = 0; i < ng; ++i) {
+      vl[i] = seqs[i] != null ? seqs[i].value() : aggr[i];
+    }
+    return vl;
+  }
+
   /**
    * Returns the hash code of this node.
    * @return hash code
@@ -2,14 +2,17 @@ package org.basex.query.flwor;
 
 import static org.basex.query.util.Err.*;
 
+import java.io.*;
 import java.util.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 import org.basex.util.list.*;
@@ -17,41 +20,61 @@ import org.basex.util.list.*;
 /**
  * Stores the grouping for a group by clause.
  *
+ * If the number of cached items exceeds the specified limit, all groups are
+ * distributed to temporary run files, based on their hash values. The run
+ * files are processed one by one when the results are returned. The position
+ * at which each group first appeared is stored with its values, so that the
+ * results can be returned in the same order as without run files.
+ *
+ * Non-grouping variables that are only referenced by aggregating functions
+ * are not materialized. Instead, their partial aggregates are updated for
+ * each tuple.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Michael Seiferle
  */
 final class GroupPartition {
+  /** Number of run files (must be a power of two). */
+  private static final int RUNS = 32;
   /** Input information. */
   private final InputInfo info;
-  /** Order by specifier. */
-  private final Order order;
 
   /** Grouping variables. */
   private final GroupSpec[] gv;
   /** Non-grouping variables. */
   private final Var[][] ngv;
+  /** Aggregating functions of non-grouping variables (entries may be {@code null}). */
+  private final Function[] aggr;
 
   /** Group partitioning. */
-  private final ArrayList<GroupNode> part = new ArrayList<GroupNode>();
-  /** Resulting sequence for non-grouping variables. */
-  private final ArrayList<ValueBuilder[]> items;
+  private ArrayList<GroupNode> part = new ArrayList<GroupNode>();
   /** HashValue, position (with overflow bucket). */
-  private final IntMap<IntList> hashes = new IntMap<IntList>();
+  private IntMap<IntList> hashes = new IntMap<IntList>();
+  /** Maximum number of cached items (0: no limit). */
+  private long max;
+  /** Number of cached items. */
+  private long items;
+  /** Run files ({@code null} if all groups are cached in main memory). */
+  private SpillFile[] runs;
+  /** Number of groups in the run files. */
+  private int[] sizes;
+  /** Number of groups that have been found so far. */
+  private int groups;
 
   /**
    * Sets up an empty partitioning.
-   * Sets up the ordering scheme.
    * @param groupby grouping variables
    * @param ng non-grouping variables
-   * @param ob order by specifier
+   * @param ag aggregating functions of non-grouping variables
+   * @param mx maximum number of cached items (0: no limit)
    * @param ii input info
    */
-  GroupPartition(final GroupSpec[] groupby, final Var[][] ng, final Order ob,
-      final InputInfo ii) {
+  GroupPartition(final GroupSpec[] groupby, final Var[][] ng, final Function[] ag,
+      final long mx, final InputInfo ii) {
     gv = groupby;
     ngv = ng;
-    order = ob;
-    items = ngv[0].length != 0 ? new ArrayList<ValueBuilder[]>() : null;
+    aggr = ag;
+    max = mx;
     info = ii;
   }
 
@@ -75,9 +98,33 @@ final class GroupPartition {
       vals[i] = val;
     }
 
-    final GroupNode gn = new GroupNode(info, vals);
-    final int h = gn.hash();
-    final IntList ps = hashes.get(h);
+    final int ngl = ngv[0].length;
+    final Value[] ngs = new Value[ngl];
+    for(int i = 0; i < ngl; ++i) {
+      final Value val = ctx.value(ctx.vars.get(ngv[0][i]));
+      ngs[i] = aggr[i] != null ? aggregate(aggr[i], val, ctx) : val;
+    }
+    add(vals, ngs, -1, ctx);
+
+    // swap out groups if too many items are cached
+    if(max != 0 && items > max) spill(ctx);
+  }
+
+  /**
+   * Adds the specified grouping and non-grouping values to the partitioning.
+   * @param vals grouping values
+   * @param ngs values or partial aggregates of the non-grouping variables
+   * @param id position at which the group first appeared
+   * ({@code -1}: assign next position to new groups)
+   * @param ctx query context
+   * @throws QueryException exception
+   */
+  private void add(final Value[] vals, final Value[] ngs, final int id,
+      final QueryContext ctx) throws QueryException {
+
+    final int ngl = ngs.length;
+    GroupNode gn = new GroupNode(info, vals, ngl);
+    final IntList ps = hashes.get(gn.hash());
     int p = -1;
     if(ps != null) {
       for(int i = 0; i < ps.size(); ++i) {
@@ -89,65 +136,210 @@ final class GroupPartition {
       }
     }
     if(p < 0) {
-      p = part.size();
+      index(gn, part.size());
       part.add(gn);
+      gn.id = id == -1 ? groups++ : id;
+      gn.items = 1;
+      for(final Value v : vals) gn.items += v.size();
+      items += gn.items;
+      if(max != 0) for(final Value v : vals) gn.fixed |= !SpillFile.spillable(v);
+    } else {
+      gn = part.get(p);
+      // a group may have been swapped out before it appeared again
+      if(id != -1 && id < gn.id) gn.id = id;
+    }
 
-      IntList pos = hashes.get(h);
-      if(pos == null) {
-        pos = new IntList(1);
-        hashes.add(h, pos);
+    // adds the current non-grouping variable bindings to the p-th partition.
+    for(int i = 0; i < ngl; ++i) {
+      final Value val = ngs[i];
+      final long s;
+      if(aggr[i] == null) {
+        if(gn.seqs[i] == null) gn.seqs[i] = new ValueBuilder();
+        gn.seqs[i].add(val);
+        s = val.size();
+      } else {
+        final Value acc = gn.aggr[i];
+        gn.aggr[i] = merge(aggr[i], acc, val, ctx);
+        s = gn.aggr[i].size() - (acc == null ? 0 : acc.size());
       }
-      pos.add(p);
+      gn.items += s;
+      items += s;
+      if(max != 0 && !gn.fixed) gn.fixed = !SpillFile.spillable(val);
     }
+  }
 
-    final int ngl = ngv[0].length;
+  /**
+   * Indexes the hash value of the specified group.
+   * @param gn group node
+   * @param p position of the group
+   */
+  private void index(final GroupNode gn, final int p) {
+    final int h = gn.hash();
+    IntList pos = hashes.get(h);
+    if(pos == null) {
+      pos = new IntList(1);
+      hashes.add(h, pos);
+    }
+    pos.add(p);
+  }
 
-    // no non-grouping variables exist
-    if(ngl == 0) return;
+  /**
+   * Returns a partial aggregate for the specified value.
+   * @param f aggregating function
+   * @param val value
+   * @param ctx query context
+   * @return partial aggregate (empty sequence or single item)
+   * @throws QueryException query exception
+   */
+  private Value aggregate(final Function f, final Value val, final QueryContext ctx)
+      throws QueryException {
+    if(f == Function.COUNT) return Int.get(val.size());
+    return val.isEmpty() ? val : f.get(info, val).item(ctx, info);
+  }
 
-    // adds the current non-grouping variable bindings to the p-th partition.
-    if(p == items.size()) items.add(new ValueBuilder[ngl]);
-    final ValueBuilder[] sq = items.get(p);
+  /**
+   * Merges two partial aggregates.
+   * @param f aggregating function
+   * @param acc first aggregate (may be {@code null})
+   * @param val second aggregate
+   * @param ctx query context
+   * @return merged aggregate
+   * @throws QueryException query exception
+   */
+  private Value merge(final Function f, final Value acc, final Value val,
+      final QueryContext ctx) throws QueryException {
 
-    for(int i = 0; i < ngl; ++i) {
-      ValueBuilder vb = sq[i];
-      final Value result = ctx.value(ctx.vars.get(ngv[0][i]));
-      if(vb == null) {
-        vb = new ValueBuilder();
-        sq[i] = vb;
+    if(acc == null || acc.isEmpty()) return val;
+    if(val.isEmpty()) return acc;
+    final Item a = (Item) acc, b = (Item) val;
+    if(f == Function.COUNT) return Int.get(a.itr(info) + b.itr(info));
+    return f.get(info, Seq.get(new Item[] { a, b }, 2)).item(ctx, info);
+  }
+
+  /**
+   * Writes all groups to the run files that can be swapped out.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void spill(final QueryContext ctx) throws QueryException {
+    if(runs == null) {
+      runs = new SpillFile[RUNS];
+      for(int r = 0; r < RUNS; r++) runs[r] = new SpillFile(ctx);
+      sizes = new int[RUNS];
+    }
+
+    final ArrayList<GroupNode> cached = new ArrayList<GroupNode>();
+    hashes = new IntMap<IntList>();
+    items = 0;
+    try {
+      for(final GroupNode gn : part) {
+        if(gn.fixed) {
+          index(gn, cached.size());
+          cached.add(gn);
+          items += gn.items;
+        } else {
+          final int r = gn.hash() & RUNS - 1;
+          runs[r].write(Int.get(gn.id));
+          for(final Value v : gn.vals) runs[r].write(v);
+          for(final Value v : gn.values()) runs[r].write(v);
+          sizes[r]++;
+        }
       }
-      vb.add(result);
+    } catch(final IOException ex) {
+      throw IOERR.thrw(info, ex);
     }
+    part = cached;
+    // stop swapping if most of the cached items cannot be written to disk
+    if(items > max >> 1) max = 0;
   }
 
   /**
    * Returns grouped variables.
    * @param ctx query context
    * @param ret return expression
-   * @param ks key list
-   * @param vs value list
+   * @param oc order cache (may be {@code null})
    * @return iterator on the result set
    * @throws QueryException query exception
    */
-  Iter ret(final QueryContext ctx, final Expr ret, final ArrayList<Item[]> ks,
-      final ValueList vs) throws QueryException {
+  Iter ret(final QueryContext ctx, final Expr ret, final OrderCache oc)
+      throws QueryException {
     final ValueBuilder vb = new ValueBuilder();
 
-    for(int i = 0; i < part.size(); ++i) {
-      final GroupNode gn = part.get(i);
-      for(int j = 0; j < gv.length; ++j)
-        ctx.vars.add(gv[j].var.copy().bind(gn.vals[j], ctx));
-
-      if(items != null) {
-        final ValueBuilder[] ii = items.get(i);
-        for(int j = 0; j < ii.length; ++j) {
-          ctx.vars.add(ngv[1][j].copy().bind(ii[j].value(), ctx));
+    if(runs == null) {
+      for(final GroupNode gn : part) {
+        final Value v = ret(gn, ctx, ret, oc);
+        if(v != null) vb.add(v);
+      }
+    } else {
+      // merge the groups of each run file with the remaining cached groups
+      final int gl = gv.length, ngl = ngv[0].length;
+      final IntList ids = new IntList();
+      final ValueList res = new ValueList();
+      try {
+        for(int r = 0; r < RUNS; r++) {
+          final GroupPartition gp = new GroupPartition(gv, ngv, aggr, 0, info);
+          for(int s = sizes[r]; s > 0; s--) {
+            final int id = (int) ((Item) runs[r].read(ctx, info)).itr(info);
+            final Value[] vals = new Value[gl];
+            for(int i = 0; i < gl; ++i) vals[i] = runs[r].read(ctx, info);
+            final Value[] ngs = new Value[ngl];
+            for(int i = 0; i < ngl; ++i) ngs[i] = runs[r].read(ctx, info);
+            gp.add(vals, ngs, id, ctx);
+          }
+          runs[r].close();
+          for(final GroupNode gn : part) {
+            if((gn.hash() & RUNS - 1) == r) gp.add(gn.vals, gn.values(), gn.id, ctx);
+          }
+          for(final GroupNode gn : gp.part) {
+            final Value v = ret(gn, ctx, ret, oc);
+            if(v != null) {
+              ids.add(gn.id);
+              res.add(v);
+            }
+          }
         }
+      } catch(final IOException ex) {
+        throw IOERR.thrw(info, ex);
       }
-      if(order != null) {
-        order.add(ctx, ret, ks, vs);
-      } else vb.add(ctx.value(ret));
+      // return the results in the order in which the groups first appeared
+      for(final int i : Array.createOrder(ids.toArray(), true)) vb.add(res.get(i));
     }
-    return order != null ? ctx.iter(order.set(ks, vs)) : vb;
+    return oc != null ? oc.iter(ctx) : vb;
+  }
+
+  /**
+   * Binds the variables of a group and evaluates the return expression.
+   * If an order is specified, the result will be added to the order cache.
+   * @param gn group node
+   * @param ctx query context
+   * @param ret return expression
+   * @param oc order cache (may be {@code null})
+   * @return result, or {@code null} if an order is specified
+   * @throws QueryException query exception
+   */
+  private Value ret(final GroupNode gn, final QueryContext ctx, final Expr ret,
+      final OrderCache oc) throws QueryException {
+
+    for(int j = 0; j < gv.length; ++j)
+      ctx.vars.add(gv[j].var.copy().bind(gn.vals[j], ctx));
+
+    final Value[] ngs = gn.values();
+    for(int j = 0; j < ngs.length; ++j) {
+      // counted values are represented by a range of the same size
+      final Value val = aggr[j] == Function.COUNT ?
+          RangeSeq.get(1, ((Item) ngs[j]).itr(info), true) : ngs[j];
+      ctx.vars.add(ngv[1][j].copy().bind(val, ctx));
+    }
+    if(oc == null) return ctx.value(ret);
+    // groups are ordered by their first appearance if the order keys are equal
+    oc.add(ctx, ret, gn.id);
+    return null;
+  }
+
+  /**
+   * Deletes all temporary files.
+   */
+  void close() {
+    if(runs != null) for(final SpillFile run : runs) run.close();
   }
 }
@@ -33,7 +33,7 @@ public abstract class OrderBy extends ParseExpr {
    * @return sort key
    * @throws QueryException query exception
    */
-  abstract Item key(final QueryContext ctx, final int i) throws QueryException;
+  abstract Item key(final QueryContext ctx, final long i) throws QueryException;
 
   @Override
   public OrderBy remove(final Var v) {
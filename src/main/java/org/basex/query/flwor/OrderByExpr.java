@@ -4,6 +4,7 @@ import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.item.ANum;
@@ -48,8 +49,20 @@ public final class OrderByExpr extends OrderBy {
     return this;
   }
 
+  /**
+   * Checks if the order expression returns the score of the specified for clause.
+   * @param f for clause
+   * @return result of check
+   */
+  boolean score(final For f) {
+    if(expr instanceof VarRef) return f.score != null && ((VarRef) expr).var.is(f.score);
+    if(!expr.isFunction(Function._FT_SCORE)) return false;
+    final Expr e = ((StandardFunc) expr).expr[0];
+    return e instanceof VarRef && ((VarRef) e).var.is(f.var);
+  }
+
   @Override
-  Item key(final QueryContext ctx, final int i) throws QueryException {
+  Item key(final QueryContext ctx, final long i) throws QueryException {
     Item it = expr.item(ctx, info);
     if(it != null) {
       if(it instanceof ANode) it = Str.get(it.string(info));
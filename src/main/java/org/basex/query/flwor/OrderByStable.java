@@ -34,7 +34,7 @@ public final class OrderByStable extends OrderBy {
   }
 
   @Override
-  Item key(final QueryContext ctx, final int i) {
+  Item key(final QueryContext ctx, final long i) {
     return Int.get(i);
   }
 
@@ -0,0 +1,428 @@
+package org.basex.query.flwor;
+
+import static org.basex.query.util.Err.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Caches the sort keys and values of an order by clause.
+ *
+ * If the number of returned items is limited, tuples that will not be
+ * returned are regularly discarded. If the number of cached items exceeds
+ * the specified maximum, the tuples are sorted and written to a temporary run
+ * file. The runs are merged when the results are returned.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class OrderCache {
+  /** Minimum number of tuples before limited results are pruned. */
+  private static final int PRUNE = 1 << 10;
+  /** Order clause. */
+  private final Order order;
+  /** Maximum number of returned items. */
+  private final long limit;
+  /** Maximum number of cached items (0: no limit). */
+  private long max;
+
+  /** Sort keys. */
+  private ArrayList<Item[]> keys = new ArrayList<Item[]>();
+  /** Values to sort. */
+  private ValueList values = new ValueList();
+  /** Number of added tuples. */
+  private long count;
+  /** Number of cached items. */
+  private long items;
+  /** Number of cached tuples before the next pruning. */
+  private int prune;
+  /** Indicates if the cached tuples cannot be written to disk. */
+  private boolean fixed;
+  /** Run files ({@code null} if all tuples are cached in main memory). */
+  private ArrayList<SpillFile> runs;
+  /** Number of tuples in the run files. */
+  private IntList sizes;
+
+  /**
+   * Constructor.
+   * @param o order clause
+   * @param ctx query context
+   */
+  OrderCache(final Order o, final QueryContext ctx) {
+    order = o;
+    limit = o.limit;
+    max = ctx.context.prop.num(Prop.SPILLSIZE);
+    prune = (int) Math.max(PRUNE, Math.min(limit, Integer.MAX_VALUE >> 2) << 1);
+  }
+
+  /**
+   * Adds the sort keys and the value of the current tuple.
+   * @param ctx query context
+   * @param e value to add
+   * @throws QueryException query exception
+   */
+  void add(final QueryContext ctx, final Expr e) throws QueryException {
+    add(ctx, e, count);
+  }
+
+  /**
+   * Adds the sort keys and the value of the current tuple.
+   * @param ctx query context
+   * @param e value to add
+   * @param pos position of the tuple in the input order
+   * @throws QueryException query exception
+   */
+  void add(final QueryContext ctx, final Expr e, final long pos)
+      throws QueryException {
+    final OrderBy[] ob = order.ob;
+    final Item[] k = new Item[ob.length];
+    for(int o = k.length; o-- > 0;) k[o] = ob[o].key(ctx, pos);
+    final Value v = ctx.value(e);
+    count++;
+    keys.add(k);
+    values.add(v);
+    items += k.length + v.size();
+    if(max != 0 && !fixed) {
+      fixed = !SpillFile.spillable(v);
+      for(final Item it : k) fixed |= it != null && !SpillFile.spillable(it);
+    }
+
+    if(limit != Long.MAX_VALUE && keys.size() >= prune) prune();
+    if(max != 0 && items > max) spill(ctx);
+  }
+
+  /**
+   * Discards all tuples that will not be returned.
+   * @throws QueryException query exception
+   */
+  private void prune() throws QueryException {
+    final int[] o = sort();
+    final int s = o.length;
+    // skip the tuples that yield the requested number of items
+    int t = 0;
+    for(long c = 0; t < s && c < limit;) c += values.get(o[t++]).size();
+    if(t < s) {
+      final ArrayList<Item[]> ks = new ArrayList<Item[]>(t);
+      final ValueList vs = new ValueList();
+      items = 0;
+      for(int i = 0; i < t; i++) {
+        final Item[] k = keys.get(o[i]);
+        final Value v = values.get(o[i]);
+        ks.add(k);
+        vs.add(v);
+        items += k.length + v.size();
+      }
+      keys = ks;
+      values = vs;
+    }
+    prune = Math.max(prune, keys.size() << 1);
+  }
+
+  /**
+   * Sorts the cached tuples and writes them to a new run file.
+   * @param ctx query context
+   * @throws QueryException query exception
+   */
+  private void spill(final QueryContext ctx) throws QueryException {
+    // tuples cannot be written to disk: keep all remaining tuples in main memory
+    if(fixed) {
+      max = 0;
+      return;
+    }
+    if(runs == null) {
+      runs = new ArrayList<SpillFile>();
+      sizes = new IntList();
+    }
+    final SpillFile run = new SpillFile(ctx);
+    try {
+      for(final int o : sort()) {
+        for(final Item it : keys.get(o)) run.write(it == null ? Empty.SEQ : it);
+        run.write(values.get(o));
+      }
+    } catch(final IOException ex) {
+      throw IOERR.thrw(order.info, ex);
+    }
+    runs.add(run);
+    sizes.add(keys.size());
+    keys = new ArrayList<Item[]>();
+    values = new ValueList();
+    items = 0;
+  }
+
+  /**
+   * Returns an iterator on the sorted values.
+   * @param ctx query context
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter(final QueryContext ctx) throws QueryException {
+    return runs == null ? new Iter() {
+      /** Order array. */
+      private final int[] ord = sort();
+      /** Current position. */
+      private int pos;
+      /** Iterator. */
+      private Iter ir;
+
+      @Override
+      public Item next() throws QueryException {
+        while(true) {
+          if(ir != null) {
+            final Item i = ir.next();
+            if(i != null) return i;
+            ir = null;
+          } else {
+            if(pos == ord.length) return null;
+            ir = values.get(ord[pos++]).iter();
+          }
+        }
+      }
+    } : new MergeIter(ctx);
+  }
+
+  /**
+   * Returns the positions of the cached tuples in sort order.
+   * The algorithm is derived from {@link Arrays#sort(int[])}.
+   * @return order array
+   * @throws QueryException query exception
+   */
+  private int[] sort() throws QueryException {
+    final int s = keys.size();
+    final int[] o = new int[s];
+    for(int i = 0; i < s; ++i) o[i] = i;
+    sort(o, 0, s);
+    return o;
+  }
+
+  /**
+   * Recursively sorts the specified items.
+   * The algorithm is derived from {@link Arrays#sort(int[])}.
+   * @param o order array
+   * @param s start position
+   * @param e end position
+   * @throws QueryException query exception
+   */
+  private void sort(final int[] o, final int s, final int e) throws QueryException {
+    if(e < 7) {
+      for(int i = s; i < e + s; ++i)
+        for(int j = i; j > s && d(o, j - 1, j) > 0; j--) Array.swap(o, j, j - 1);
+      return;
+    }
+
+    int m = s + (e >> 1);
+    if(e > 7) {
+      int l = s;
+      int n = s + e - 1;
+      if(e > 40) {
+        final int k = e >>> 3;
+        l = m(o, l, l + k, l + (k << 1));
+        m = m(o, m - k, m, m + k);
+        n = m(o, n - (k << 1), n - k, n);
+      }
+      m = m(o, l, m, n);
+    }
+
+    final Item[] im = keys.get(o[m]);
+
+    int a = s, b = a, c = s + e - 1, d = c;
+    while(true) {
+      while(b <= c) {
+        final int h = order.diff(keys.get(o[b]), im);
+        if(h > 0) break;
+        if(h == 0) Array.swap(o, a++, b);
+        ++b;
+      }
+      while(c >= b) {
+        final int h = order.diff(keys.get(o[c]), im);
+        if(h < 0) break;
+        if(h == 0) Array.swap(o, c, d--);
+        --c;
+      }
+      if(b > c) break;
+      Array.swap(o, b++, c--);
+    }
+
+    int k;
+    final int n = s + e;
+    k = Math.min(a - s, b - a);
+    Array.swap(o, s, b - k, k);
+    k = Math.min(d - c, n - d - 1);
+    Array.swap(o, b, n - k, k);
+
+    if((k = b - a) > 1) sort(o, s, k);
+    if((k = d - c) > 1) sort(o, n - k, k);
+  }
+
+  /**
+   * Returns the difference of two entries (part of QuickSort).
+   * @param o order array
+   * @param a first position
+   * @param b second position
+   * @return result
+   * @throws QueryException query exception
+   */
+  private int d(final int[] o, final int a, final int b) throws QueryException {
+    return order.diff(keys.get(o[a]), keys.get(o[b]));
+  }
+
+  /**
+   * Returns the index of the median of the three indexed integers.
+   * @param o order array
+   * @param a first offset
+   * @param b second offset
+   * @param c thirst offset
+   * @return median
+   * @throws QueryException query exception
+   */
+  private int m(final int[] o, final int a, final int b, final int c)
+      throws QueryException {
+    final Item[] ka = keys.get(o[a]), kb = keys.get(o[b]), kc = keys.get(o[c]);
+    return order.diff(ka, kb) < 0 ? order.diff(kb, kc) < 0 ? b :
+      order.diff(ka, kc) < 0 ? c : a :
+      order.diff(kb, kc) > 0 ? b : order.diff(ka, kc) > 0 ? c : a;
+  }
+
+  /**
+   * Iterator, merging the run files and the cached tuples.
+   */
+  private final class MergeIter extends Iter {
+    /** Query context. */
+    private final QueryContext ctx;
+    /** Number of sources (run files, cached tuples). */
+    private final int sources;
+    /** Current sort keys of all sources ({@code null}: source is exhausted). */
+    private final Item[][] heads;
+    /** Current values of all sources. */
+    private final Value[] vals;
+    /** Number of remaining tuples in all sources. */
+    private final int[] left;
+    /** Heap with source indexes, ordered by their current keys. */
+    private final int[] heap;
+    /** Number of heap entries. */
+    private int hs;
+    /** Order of cached tuples. */
+    private int[] ord;
+    /** Iterator. */
+    private Iter ir;
+
+    /**
+     * Constructor.
+     * @param c query context
+     * @throws QueryException query exception
+     */
+    MergeIter(final QueryContext c) throws QueryException {
+      ctx = c;
+      final int rs = runs.size();
+      sources = rs + 1;
+      heads = new Item[sources][];
+      vals = new Value[sources];
+      left = new int[sources];
+      heap = new int[sources];
+      for(int r = 0; r < rs; r++) left[r] = sizes.get(r);
+      ord = sort();
+      left[rs] = ord.length;
+      for(int s = 0; s < sources; s++) {
+        if(read(s)) {
+          heap[hs] = s;
+          up(hs++);
+        }
+      }
+    }
+
+    @Override
+    public Item next() throws QueryException {
+      while(true) {
+        if(ir != null) {
+          final Item i = ir.next();
+          if(i != null) return i;
+          ir = null;
+        } else {
+          if(hs == 0) return null;
+          // return value of smallest source, and advance source
+          final int s = heap[0];
+          ir = vals[s].iter();
+          if(!read(s)) heap[0] = heap[--hs];
+          down(0);
+        }
+      }
+    }
+
+    /**
+     * Reads the next tuple of the specified source.
+     * @param s source
+     * @return {@code true} if a tuple was read
+     * @throws QueryException query exception
+     */
+    private boolean read(final int s) throws QueryException {
+      if(left[s] == 0) {
+        if(s < runs.size()) runs.get(s).close();
+        return false;
+      }
+      final int l = left[s]--;
+      if(s == runs.size()) {
+        final int o = ord[ord.length - l];
+        heads[s] = keys.get(o);
+        vals[s] = values.get(o);
+      } else {
+        final SpillFile run = runs.get(s);
+        final int kl = order.ob.length;
+        final Item[] k = new Item[kl];
+        try {
+          for(int i = 0; i < kl; i++) {
+            final Value v = run.read(ctx, order.info);
+            k[i] = v.isEmpty() ? null : (Item) v;
+          }
+          vals[s] = run.read(ctx, order.info);
+        } catch(final IOException ex) {
+          throw IOERR.thrw(order.info, ex);
+        }
+        heads[s] = k;
+      }
+      return true;
+    }
+
+    /**
+     * Moves a heap entry upwards.
+     * @param p position
+     * @throws QueryException query exception
+     */
+    private void up(final int p) throws QueryException {
+      int c = p;
+      while(c > 0) {
+        final int par = c - 1 >> 1;
+        if(order.diff(heads[heap[par]], heads[heap[c]]) <= 0) break;
+        Array.swap(heap, par, c);
+        c = par;
+      }
+    }
+
+    /**
+     * Moves a heap entry downwards.
+     * @param p position
+     * @throws QueryException query exception
+     */
+    private void down(final int p) throws QueryException {
+      int c = p;
+      while(true) {
+        int m = c;
+        final int l = (c << 1) + 1, r = l + 1;
+        if(l < hs && order.diff(heads[heap[l]], heads[heap[m]]) < 0) m = l;
+        if(r < hs && order.diff(heads[heap[r]], heads[heap[m]]) < 0) m = r;
+        if(m == c) break;
+        Array.swap(heap, c, m);
+        c = m;
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package org.basex.query.flwor;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Temporary file, which is used to swap out intermediate results of FLWOR
+ * expressions. Values are written and read sequentially. Database nodes are
+ * stored as references, and atomic items are stored by their type and value.
+ * Other items (constructed nodes, QNames, functions, ...) cannot be written.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class SpillFile implements Closeable {
+  /** Item kind: database node. */
+  private static final int NODE = 0;
+  /** Referenced databases. */
+  private final ArrayList<Data> data = new ArrayList<Data>();
+  /** File reference. */
+  private final IOFile file;
+  /** Output stream. */
+  private DataOutput out;
+  /** Input stream. */
+  private DataInput in;
+
+  /**
+   * Constructor, choosing a temporary file in the database directory.
+   * The file will be deleted when the query is closed.
+   * @param ctx query context
+   */
+  SpillFile(final QueryContext ctx) {
+    final MainProp mprop = ctx.context.mprop;
+    final IOFile dir = mprop.dbpath();
+    dir.md();
+    file = new IOFile(dir, mprop.random("flwor") + ".tmp");
+    ctx.resource.addTemp(this);
+  }
+
+  /**
+   * Checks if the specified value can be written to disk.
+   * @param v value
+   * @return result of check
+   */
+  static boolean spillable(final Value v) {
+    final long s = v.size();
+    for(long i = 0; i < s; i++) {
+      final Item it = v.itemAt(i);
+      final Type t = it.type;
+      if(it.getClass() != DBNode.class && (!(t instanceof AtomType) ||
+          t == AtomType.QNM || t == AtomType.NOT || t == AtomType.JAVA)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes a value.
+   * @param v value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  void write(final Value v) throws IOException, QueryException {
+    if(out == null) out = new DataOutput(file);
+    final long s = v.size();
+    out.writeNum((int) s);
+    for(long i = 0; i < s; i++) {
+      final Item it = v.itemAt(i);
+      if(it instanceof DBNode) {
+        final DBNode n = (DBNode) it;
+        int d = data.indexOf(n.data);
+        if(d == -1) {
+          d = data.size();
+          data.add(n.data);
+        }
+        out.write1(NODE);
+        out.writeNum(d);
+        out.writeNum(n.pre);
+      } else {
+        final Type t = it.type;
+        out.write1(((AtomType) t).ordinal() + 1);
+        if(t == AtomType.DBL || t == AtomType.FLT) {
+          out.writeDouble(it.dbl(null));
+        } else {
+          out.writeToken(it.string(null));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the next value. The first call finishes the output.
+   * Must not be called more often than {@link #write}.
+   * @param ctx query context
+   * @param ii input info
+   * @return value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Value read(final QueryContext ctx, final InputInfo ii)
+      throws IOException, QueryException {
+
+    if(in == null) {
+      out.close();
+      out = null;
+      in = new DataInput(file);
+    }
+    final int s = in.readNum();
+    final ValueBuilder vb = new ValueBuilder(s);
+    for(int i = 0; i < s; i++) {
+      final int k = in.read();
+      if(k == NODE) {
+        final Data d = data.get(in.readNum());
+        vb.add(new DBNode(d, in.readNum()));
+        continue;
+      }
+      final AtomType t = AtomType.values()[k - 1];
+      if(t == AtomType.DBL) {
+        vb.add(Dbl.get(in.readDouble()));
+      } else if(t == AtomType.FLT) {
+        vb.add(Flt.get((float) in.readDouble()));
+      } else {
+        final byte[] v = in.readToken();
+        if(t == AtomType.STR) vb.add(Str.get(v));
+        else if(t == AtomType.ATM) vb.add(new Atm(v));
+        else vb.add(t.cast(Str.get(v), ctx, ii));
+      }
+    }
+    return vb.value();
+  }
+
+  /**
+   * Closes and deletes the file.
+   */
+  @Override
+  public void close() {
+    try {
+      if(out != null) out.close();
+      if(in != null) in.close();
+      out = null;
+      in = null;
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    file.delete();
+  }
+}
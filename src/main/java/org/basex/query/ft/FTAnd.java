@@ -76,13 +76,14 @@ public final class FTAnd extends FTExpr {
           if(neg[i]) {
             if(d >= 0) {
               if(d == 0) it[0] = ir[0].next();
-              it[i] = ir[i].next();
+              it[i] = d == 0 ? ir[i].next() : ir[i].skip(it[0].pre);
               i = -1;
             }
           } else {
             if(d != 0) {
-              if(d < 0) i = 0;
-              it[i] = ir[i].next();
+              // skip all results that are smaller than the current pre value
+              if(d < 0) it[0] = ir[0].skip(it[i].pre);
+              else it[i] = ir[i].skip(it[0].pre);
               i = -1;
             }
           }
@@ -38,8 +38,16 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public NodeIter iter(final QueryContext ctx) throws QueryException {
-    final FTIter ir = ftexpr.iter(ctx);
+    return iter(ftexpr.iter(ctx), ctx);
+  }
 
+  /**
+   * Returns an iterator on the results of the specified full-text iterator.
+   * @param ir full-text iterator
+   * @param ctx query context
+   * @return iterator
+   */
+  public NodeIter iter(final FTIter ir, final QueryContext ctx) {
     return new NodeIter() {
       @Override
       public ANode next() throws QueryException {
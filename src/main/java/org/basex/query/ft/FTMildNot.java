@@ -95,7 +95,7 @@ public final class FTMildNot extends FTExpr {
     int is = ic.costs();
     for(final FTExpr e : expr) {
       if(!e.indexAccessible(ic)) return false;
-      is = Math.min(Integer.MIN_VALUE, is + ic.costs());
+      is = (int) Math.min(Integer.MAX_VALUE, (long) is + ic.costs());
     }
     ic.costs(is);
     return true;
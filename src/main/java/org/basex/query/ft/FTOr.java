@@ -106,7 +106,7 @@ public final class FTOr extends FTExpr {
       // no index access if negative operators is found
       if(!e.indexAccessible(ic) || ic.not) return false;
       ic.not = false;
-      is = Math.min(Integer.MIN_VALUE, is + ic.costs());
+      is = (int) Math.min(Integer.MAX_VALUE, (long) is + ic.costs());
     }
     ic.costs(is);
     return true;
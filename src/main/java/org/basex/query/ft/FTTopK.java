@@ -0,0 +1,185 @@
+package org.basex.query.ft;
+
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.node.*;
+import org.basex.util.ft.*;
+
+/**
+ * Returns the full-text index results with the highest scores.
+ * The index iterators of all query terms are traversed in parallel, and results
+ * are skipped if the upper bound of their score, which is computed from the
+ * score bounds of the index entries ({@link FTIndexIterator#maxMatches},
+ * {@link FTIndexIterator#minLength}), does not exceed the lowest score of the
+ * currently best results. The traversal is stopped as soon as no remaining
+ * result can be better (WAND: weak and). Scores are only computed if the
+ * bound for the actual number of matches of a result is high enough.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class FTTopK {
+  /** Data reference. */
+  private final Data data;
+  /** Index iterators of the query terms. */
+  private final FTIndexIterator[] terms;
+  /** Token length. */
+  private final int len;
+  /** Total number of index entries. */
+  private final int is;
+
+  /** Best results, organized as heap (the worst result is stored first). */
+  private FTNode[] heap = new FTNode[1];
+  /** Number of best results. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param t index iterators of the query terms (will be modified)
+   * @param l token length
+   * @param s total number of index entries
+   */
+  FTTopK(final Data d, final FTIndexIterator[] t, final int l, final int s) {
+    data = d;
+    terms = t;
+    len = l;
+    is = s;
+  }
+
+  /**
+   * Returns an iterator on the best results.
+   * @param k maximum number of results
+   * @return iterator, returning the results in document order
+   */
+  FTIter iter(final long k) {
+    // position all iterators on their first results
+    int ts = 0;
+    if(k > 0) for(final FTIndexIterator t : terms) if(t.more()) terms[ts++] = t;
+
+    while(ts != 0) {
+      sort(ts);
+      // find the first iterator that may yield a result with a sufficient score
+      final double min = size < k ? -1 : heap[0].score();
+      long mx = 0;
+      int ml = Integer.MAX_VALUE, p = -1;
+      while(++p < ts) {
+        mx += terms[p].maxMatches();
+        ml = Math.min(ml, terms[p].minLength());
+        if(Scoring.textNodeMax(mx, is, len, ml) > min) break;
+      }
+      // no remaining result can be better than the current results
+      if(p == ts) break;
+
+      final int pre = terms[p].next();
+      if(terms[0].next() == pre) {
+        // all iterators up to the pivot point to the same result: collect matches
+        FTMatches all = null;
+        int ln = 0;
+        for(int t = 0; t < ts && terms[t].next() == pre; t++) {
+          final FTMatches ms = terms[t].matches();
+          if(all == null) all = new FTMatches(ms.sTokenNum);
+          for(final FTMatch m : ms) all.add(m);
+          ln = Math.max(ln, terms[t].minLength());
+        }
+        // only compute the score if the bound for the actual number of matches is high enough
+        if(Scoring.textNodeMax(all.size, is, len, ln) > min) {
+          add(new FTNode(all, data, pre, len, is, -1), k);
+        }
+        ts = skip(ts, pre + 1);
+      } else {
+        // skip all results that will not be better than the current results
+        ts = skip(ts, pre);
+      }
+    }
+
+    // return results in document order
+    final FTNode[] nodes = Arrays.copyOf(heap, size);
+    Arrays.sort(nodes, new Comparator<FTNode>() {
+      @Override
+      public int compare(final FTNode a, final FTNode b) {
+        return a.pre - b.pre;
+      }
+    });
+    return new FTIter() {
+      int n;
+      @Override
+      public FTNode next() {
+        return n < nodes.length ? nodes[n++] : null;
+      }
+    };
+  }
+
+  /**
+   * Advances all iterators with a smaller result than the specified pre value,
+   * and removes iterators that return no more results.
+   * @param ts number of iterators
+   * @param pre pre value
+   * @return new number of iterators
+   */
+  private int skip(final int ts, final int pre) {
+    int s = 0;
+    for(int t = 0; t < ts; t++) {
+      final FTIndexIterator ti = terms[t];
+      if(ti.next() >= pre || ti.skip(pre)) terms[s++] = ti;
+    }
+    return s;
+  }
+
+  /**
+   * Sorts the iterators by their current results.
+   * @param ts number of iterators
+   */
+  private void sort(final int ts) {
+    for(int i = 1; i < ts; i++) {
+      final FTIndexIterator t = terms[i];
+      int j = i;
+      for(; j > 0 && terms[j - 1].next() > t.next(); j--) terms[j] = terms[j - 1];
+      terms[j] = t;
+    }
+  }
+
+  /**
+   * Adds a node to the best results if its score is high enough.
+   * If two nodes have the same score, the first one is preferred.
+   * @param node node
+   * @param k maximum number of results
+   */
+  private void add(final FTNode node, final long k) {
+    if(size < k) {
+      if(size == heap.length) heap = Arrays.copyOf(heap, size << 1);
+      // add node and move up
+      int i = size++;
+      while(i > 0) {
+        final int p = i - 1 >> 1;
+        if(!worse(node, heap[p])) break;
+        heap[i] = heap[p];
+        i = p;
+      }
+      heap[i] = node;
+    } else if(worse(heap[0], node)) {
+      // replace worst node and move down
+      int i = 0;
+      for(int c; (c = (i << 1) + 1) < size; i = c) {
+        if(c + 1 < size && worse(heap[c + 1], heap[c])) c++;
+        if(!worse(heap[c], node)) break;
+        heap[i] = heap[c];
+      }
+      heap[i] = node;
+    }
+  }
+
+  /**
+   * Checks if the first node is worse than the second one.
+   * @param a first node
+   * @param b second node
+   * @return result of check
+   */
+  private static boolean worse(final FTNode a, final FTNode b) {
+    final double d = a.score() - b.score();
+    return d < 0 || d == 0 && a.pre > b.pre;
+  }
+}
@@ -3,6 +3,7 @@ package org.basex.query.ft;
 import static org.basex.util.Token.*;
 
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * Wildcard expression.
@@ -122,6 +123,27 @@ public final class FTWildcard {
     return tb.finish();
   }
 
+  /**
+   * Returns the literal fragments of the expression, which occur in all matches.
+   * A {@code 0} byte is added to fragments at the beginning or end of the expression.
+   * @return fragments
+   */
+  public TokenList fragments() {
+    final TokenList tl = new TokenList();
+    for(int s = 0; s < size;) {
+      if(wc[s] == DOT) {
+        s++;
+        continue;
+      }
+      final TokenBuilder tb = new TokenBuilder();
+      if(s == 0) tb.addByte((byte) 0);
+      while(s < size && wc[s] != DOT) tb.add(wc[s++]);
+      if(s == size) tb.addByte((byte) 0);
+      tl.add(tb.finish());
+    }
+    return tl;
+  }
+
   /**
    * Checks if the wildcard can match a sub-string in a string.
    * @param t token to search for match
@@ -115,65 +115,117 @@ public final class FTWords extends FTExpr {
 
   @Override
   public FTIter iter(final QueryContext ctx) {
-    return new FTIter() {
-      /** Index iterator. */
-      FTIndexIterator iat;
-      /** Text length. */
-      int len;
+    return new IndexIter(ctx);
+  }
 
-      @Override
-      public FTNode next() throws QueryException {
-        if(iat == null) {
-          final FTLexer lex = new FTLexer(ftt.opt);
-
-          // index iterator tree
-          FTIndexIterator ia;
-          // number of distinct tokens
-          int t  = 0;
-          // loop through all tokens
-          final TokenSet ts = tokens(txt != null ? txt : tokens(ctx), ftt.opt);
-          for(final byte[] k : ts) {
-            lex.init(k);
-            ia = null;
-            int d = 0;
-            if(!lex.hasNext()) return null;
-            do {
-              final byte[] tok = lex.nextToken();
-              t += tok.length;
-              if(ftt.opt.sw != null && ftt.opt.sw.id(tok) != 0) {
-                ++d;
+  /**
+   * Returns an index-based iterator on the results with the highest scores.
+   * @param ctx query context
+   * @param k maximum number of results
+   * @return iterator, returning the results in document order
+   * @throws QueryException query exception
+   */
+  public FTIter iter(final QueryContext ctx, final long k) throws QueryException {
+    final IndexIter ir = new IndexIter(ctx);
+    final FTIndexIterator[] terms = ir.init() ? ir.terms : new FTIndexIterator[0];
+    return new FTTopK(data, terms, ir.len, terms.length == 0 ? 0 : ir.iat.size()).iter(k);
+  }
+
+  /** Index-based iterator. */
+  private final class IndexIter extends FTIter {
+    /** Query context. */
+    private final QueryContext ctx;
+    /** Index iterator. */
+    FTIndexIterator iat;
+    /** Index iterators of the single query terms, which are combined by {@link #iat}. */
+    FTIndexIterator[] terms = {};
+    /** Text length. */
+    int len;
+
+    /**
+     * Constructor.
+     * @param c query context
+     */
+    IndexIter(final QueryContext c) {
+      ctx = c;
+    }
+
+    @Override
+    public FTNode next() throws QueryException {
+      return init() && iat.more() ? node() : null;
+    }
+
+    @Override
+    public FTNode skip(final int pre) throws QueryException {
+      return init() && iat.skip(pre) ? node() : null;
+    }
+
+    /**
+     * Returns a node for the current index result.
+     * @return node
+     */
+    private FTNode node() {
+      // [CG] XQuery, Full-Text: check scoring in index-based model
+      return new FTNode(iat.matches(), data, iat.next(), len, iat.size(), -1);
+    }
+
+    /**
+     * Initializes the index iterator.
+     * @return {@code false} if no results will be found
+     * @throws QueryException query exception
+     */
+    boolean init() throws QueryException {
+      if(iat == null) {
+        final FTLexer lex = new FTLexer(ftt.opt);
+
+        // index iterator tree
+        FTIndexIterator ia;
+        // number of distinct tokens
+        int t  = 0;
+        // loop through all tokens
+        final TokenSet ts = tokens(txt != null ? txt : tokens(ctx), ftt.opt);
+        for(final byte[] k : ts) {
+          lex.init(k);
+          ia = null;
+          int d = 0;
+          if(!lex.hasNext()) return false;
+          do {
+            final byte[] tok = lex.nextToken();
+            t += tok.length;
+            if(ftt.opt.sw != null && ftt.opt.sw.id(tok) != 0) {
+              ++d;
+            } else {
+              final FTIndexIterator ir = lex.get().length > data.meta.maxlen ?
+                  scan(lex) : (FTIndexIterator) data.iter(lex);
+              if(ia == null) {
+                ia = ir;
               } else {
-                final FTIndexIterator ir = lex.get().length > data.meta.maxlen ?
-                    scan(lex) : (FTIndexIterator) data.iter(lex);
-                if(ia == null) {
-                  ia = ir;
-                } else {
-                  ia = FTIndexIterator.intersect(ia, ir, ++d);
-                  d = 0;
-                }
+                ia = FTIndexIterator.intersect(ia, ir, ++d);
+                d = 0;
               }
-            } while(lex.hasNext());
-            // create or combine iterator
-            if(iat == null) {
-              len = t;
-              iat = ia;
-            } else if(mode == FTMode.ALL || mode == FTMode.ALL_WORDS) {
-              if(ia.size() == 0) return null;
-              len += t;
-              iat = FTIndexIterator.intersect(ia, iat, 0);
-            } else {
-              if(ia.size() == 0) continue;
-              len = Math.max(t, len);
-              iat = FTIndexIterator.union(ia, iat);
             }
-            iat.tokenNum(++ctx.ftoknum);
+          } while(lex.hasNext());
+          // create or combine iterator
+          if(iat == null) {
+            len = t;
+            iat = ia;
+            terms = new FTIndexIterator[] { ia };
+          } else if(mode == FTMode.ALL || mode == FTMode.ALL_WORDS) {
+            if(ia.size() == 0) return false;
+            len += t;
+            iat = FTIndexIterator.intersect(ia, iat, 0);
+            terms = new FTIndexIterator[] { iat };
+          } else {
+            if(ia.size() == 0) continue;
+            len = Math.max(t, len);
+            iat = FTIndexIterator.union(ia, iat);
+            terms = Array.add(terms, ia);
           }
+          iat.tokenNum(++ctx.ftoknum);
         }
-        // [CG] XQuery, Full-Text: check scoring in index-based model
-        return iat == null || !iat.more() ? null : new FTNode(iat.matches(),
-            data, iat.next(), len, iat.size(), -1);
       }
-    };
+      return iat != null;
+    }
   }
 
   /**
@@ -348,6 +400,7 @@ public final class FTWords extends FTExpr {
     // estimate costs if text is not statically known
     if(txt == null) {
       ic.costs(Math.max(1, ic.data.meta.size >> 10));
+      ic.dynamic = true;
       return true;
     }
 
@@ -373,8 +426,7 @@ public final class FTWords extends FTExpr {
             if(w == '{' || w == '\\' || w == '.' && ++d > 1) return false;
           }
         }
-        // reduce number of expected results to favor full-text index requests
-        ic.addCosts(Math.max(1, ic.data.count(ft) >> 10));
+        ic.addCosts(ic.data.count(ft));
       }
     }
     return true;
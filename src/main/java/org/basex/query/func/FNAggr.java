@@ -7,6 +7,7 @@ import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
@@ -70,6 +71,13 @@ public final class FNAggr extends StandardFunc {
     }
   }
 
+  @Override
+  public int count(final Var v) {
+    // skip references of non-grouping variables that can be aggregated incrementally
+    return v.aggr == sig && expr.length == 1 && expr[0] instanceof VarRef &&
+      ((VarRef) expr[0]).var.is(v) ? 0 : super.count(v);
+  }
+
   /**
    * Sums up the specified item(s).
    * @param iter iterator
@@ -225,7 +225,7 @@ public final class FNDb extends StandardFunc {
    * @throws QueryException query exception
    */
   private Iter fulltext(final QueryContext ctx) throws QueryException {
-    return FNFt.search(data(0, ctx), ctx.value(expr[1]), null, this, ctx);
+    return FNFt.search(data(0, ctx), ctx.value(expr[1]), null, Long.MAX_VALUE, this, ctx);
   }
 
   /**
@@ -41,6 +41,11 @@ public final class FNFt extends StandardFunc {
   private static final byte[] WILDCARDS = token("wildcards");
   /** Search mode. */
   private static final byte[] MODE = token("mode");
+  /** Maximum number of results with the highest scores (returned in document order). */
+  private static final byte[] TOPK = token("topk");
+
+  /** Maximum number of results, assigned by the optimizer. */
+  private long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -176,7 +181,21 @@ public final class FNFt extends StandardFunc {
     final Value terms = ctx.value(expr[1]);
     final Item opt = expr.length > 2 ? expr[2].item(ctx, info) : null;
     final TokenMap tm = new FuncParams(Q_FTOPTIONS, info).parse(opt);
-    return search(data, terms, tm, this, ctx);
+    return search(data, terms, tm, limit, this, ctx);
+  }
+
+  /**
+   * Limits the number of results of the search function to the ones with the
+   * highest scores. Called if the results are ordered by their scores, and if
+   * only the first results will be requested. The function still returns its
+   * results in document order; they need to be sorted by the caller.
+   * @param n maximum number of results
+   * @param ctx query context
+   */
+  public void limit(final long n, final QueryContext ctx) {
+    if(sig != _FT_SEARCH || n >= limit) return;
+    ctx.compInfo(QueryText.OPTTOPK, n);
+    limit = n;
   }
 
   /**
@@ -184,13 +203,16 @@ public final class FNFt extends StandardFunc {
    * @param data data reference
    * @param terms query terms
    * @param map map with full-text options
+   * @param max maximum number of results with the highest scores
+   * (results are always returned in document order)
    * @param fun calling function
    * @param ctx query context
    * @return iterator
    * @throws QueryException query exception
    */
   static Iter search(final Data data, final Value terms, final TokenMap map,
-      final StandardFunc fun, final QueryContext ctx) throws QueryException {
+      final long max, final StandardFunc fun, final QueryContext ctx)
+      throws QueryException {
 
     final InputInfo info = fun.info;
     final IndexContext ic = new IndexContext(ctx, data, null, true);
@@ -200,6 +222,7 @@ public final class FNFt extends StandardFunc {
     final FTOpt tmp = ctx.ftOpt();
     final FTOpt opt = new FTOpt().copy(data.meta);
     FTMode m = FTMode.ANY;
+    long top = max;
     if(map != null) {
       for(final byte[] k : map) {
         final byte[] v = map.get(k);
@@ -212,6 +235,10 @@ public final class FNFt extends StandardFunc {
         } else if(eq(k, MODE)) {
           m = FTMode.get(v);
           if(m == null) ELMOPTION.thrw(info, v);
+        } else if(eq(k, TOPK)) {
+          final long n = toLong(v);
+          if(n < 0) ELMOPTION.thrw(info, v);
+          top = Math.min(top, n);
         } else {
           ELMOPTION.thrw(info, k);
         }
@@ -221,7 +248,8 @@ public final class FNFt extends StandardFunc {
     ctx.ftOpt(opt);
     final FTWords words = new FTWords(info, ic.data, terms, m, ctx).compile(ctx);
     ctx.ftOpt(tmp);
-    return new FTIndexAccess(info, words, ic).iter(ctx);
+    final FTIndexAccess fa = new FTIndexAccess(info, words, ic);
+    return top == Long.MAX_VALUE ? fa.iter(ctx) : fa.iter(words.iter(ctx, top), ctx);
   }
 
   /**
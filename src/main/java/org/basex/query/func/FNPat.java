@@ -10,13 +10,12 @@ import java.util.regex.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
-import org.basex.query.regex.parse.*;
+import org.basex.query.regex.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
 import org.basex.util.*;
-import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
 /**
@@ -26,8 +25,8 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FNPat extends StandardFunc {
-  /** Pattern cache. */
-  private final TokenObjMap<Pattern> patterns = new TokenObjMap<Pattern>();
+  /** Pattern, compiled at compile time ({@code null} if pattern is not static). */
+  private Pattern regex;
 
   /** Slash pattern. */
   private static final Pattern SLASH = Pattern.compile("\\$");
@@ -219,6 +218,22 @@ public final class FNPat extends StandardFunc {
     return StrSeq.get(tl);
   }
 
+  @Override
+  public Expr comp(final QueryContext ctx) throws QueryException {
+    // compile static patterns only once
+    final int m = sig == Function.REPLACE ? 3 : 2;
+    final Expr mod = expr.length > m ? expr[m] : null;
+    if(expr[1] instanceof Str && (mod == null || mod instanceof Str)) {
+      try {
+        regex = pattern(expr[1], mod, ctx);
+      } catch(final QueryException ex) {
+        // invalid patterns will be rejected if the function is evaluated
+        Util.debug(ex);
+      }
+    }
+    return this;
+  }
+
   /**
    * Returns a regular expression pattern.
    * @param pattern input pattern
@@ -230,17 +245,10 @@ public final class FNPat extends StandardFunc {
   private Pattern pattern(final Expr pattern, final Expr modifier,
       final QueryContext ctx) throws QueryException {
 
+    if(regex != null) return regex;
     final byte[] pat = checkStr(pattern, ctx);
     final byte[] mod = modifier != null ? checkStr(modifier, ctx) : null;
-    final TokenBuilder tb = new TokenBuilder(pat);
-    if(mod != null) tb.add(0).add(mod);
-    final byte[] key = tb.finish();
-    Pattern p = patterns.get(key);
-    if(p == null) {
-      p = RegExParser.parse(pat, mod, ctx.sc.xquery3, info);
-      patterns.add(key, p);
-    }
-    return p;
+    return PatternCache.get(pat, mod, ctx.sc.xquery3, info);
   }
 
   @Override
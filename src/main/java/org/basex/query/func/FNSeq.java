@@ -10,6 +10,7 @@ import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.expr.*;
+import org.basex.query.flwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
@@ -144,6 +145,19 @@ public final class FNSeq extends StandardFunc {
       return cmpDist(ctx);
     }
 
+    // limit the number of items that will be sorted by an order by clause
+    if(expr[0] instanceof GFLWOR) {
+      final GFLWOR fl = (GFLWOR) expr[0];
+      if(sig == Function.HEAD) {
+        fl.limit(1, ctx);
+      } else if(sig == Function.SUBSEQUENCE && expr.length == 3 &&
+          expr[1] instanceof ANum && expr[2] instanceof ANum) {
+        final double e = Math.floor(((ANum) expr[1]).dbl(info) + .5) +
+            Math.floor(((ANum) expr[2]).dbl(info) + .5) - 1;
+        if(e >= 1 && e < Long.MAX_VALUE) fl.limit((long) e, ctx);
+      }
+    }
+
     // all other types will return existing types
     Occ o = Occ.ZERO_MORE;
     // at most one returned item
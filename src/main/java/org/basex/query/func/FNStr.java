@@ -7,9 +7,12 @@ import java.text.*;
 import java.text.Normalizer.Form;
 import java.util.*;
 
+import org.basex.index.query.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
+import org.basex.query.path.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
@@ -23,6 +26,9 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public final class FNStr extends StandardFunc {
+  /** Substring index token. */
+  private SubstringToken token;
+
   /**
    * Constructor.
    * @param ii input info
@@ -315,4 +321,39 @@ public final class FNStr extends StandardFunc {
   public boolean uses(final Use u) {
     return u == Use.X30 && xquery3() || super.uses(u);
   }
+
+  @Override
+  public boolean indexAccessible(final IndexContext ic) throws QueryException {
+    // accept only substring functions with default collation and a static substring
+    if(!oneOf(sig, Function.CONTAINS, Function.STARTS_WITH, Function.ENDS_WITH) ||
+        expr.length == 3 || !(expr[1] instanceof AStr) || !ic.data.meta.substrindex)
+      return false;
+    // the first argument must yield a single text node or attribute:
+    // //text()[contains(., 'x')], //@a[contains(., 'x')], //*[contains(@a, 'x')]
+    final AxisStep s;
+    if(expr[0] instanceof Context) {
+      s = ic.step;
+    } else {
+      s = CmpG.indexStep(expr[0]);
+      if(s == null || ((AxisPath) expr[0]).steps.length != 1 ||
+          s.test.type != NodeType.ATT || s.test.mode != Test.Mode.STD &&
+          s.test.mode != Test.Mode.NAME) return false;
+    }
+    final boolean text = s.test.type == NodeType.TXT;
+    if(!text && s.test.type != NodeType.ATT) return false;
+    // all strings contain the empty string
+    final byte[] sub = ((AStr) expr[1]).string(info);
+    if(sub.length == 0) return false;
+
+    token = new SubstringToken(text, sub, sig == Function.STARTS_WITH,
+        sig == Function.ENDS_WITH);
+    ic.costs(ic.data.count(token));
+    return true;
+  }
+
+  @Override
+  public Expr indexEquivalent(final IndexContext ic) {
+    ic.ctx.compInfo(QueryText.OPTSUBINDEX);
+    return ic.invert(expr[0], new SubstringAccess(info, token, ic), token.text);
+  }
 }
@@ -12,4 +12,16 @@ import org.basex.query.value.node.*;
 public abstract class FTIter extends Iter {
   @Override
   public abstract FTNode next() throws QueryException;
+
+  /**
+   * Returns the next item with a pre value that is equal to or greater than
+   * the specified value.
+   * @param pre pre value
+   * @return item or {@code null}
+   * @throws QueryException query exception
+   */
+  public FTNode skip(final int pre) throws QueryException {
+    for(FTNode n; (n = next()) != null;) if(n.pre >= pre) return n;
+    return null;
+  }
 }
@@ -175,8 +175,16 @@ public class AxisPath extends Path {
       }
     }
 
-    // skip if no index access is possible, or if it is too expensive
-    if(ics == null || ics.costs() > data.meta.size) return this;
+    // skip if no index access is possible
+    if(ics == null) return this;
+    // skip if index access is more expensive than sequential evaluation
+    final long nodes = candidates(data, smin);
+    final long sc = nodes != -1 ? nodes : data.meta.size;
+    if(!ics.cheaper(sc)) {
+      ctx.compInfo(OPTSEQCOSTS, ics.costs(), sc);
+      return this;
+    }
+    ctx.compInfo(OPTINDEXCOSTS, ics.costs(), sc);
 
     // replace expressions for index access
     final AxisStep stp = step(smin);
@@ -261,6 +269,27 @@ public class AxisPath extends Path {
     return this;
   }
 
+  /**
+   * Estimates the number of nodes that will be tested by the predicates of the
+   * specified step if the path is evaluated sequentially.
+   * @param data data reference
+   * @param s step offset
+   * @return number of nodes, or {@code -1} if no estimation is possible
+   */
+  private long candidates(final Data data, final int s) {
+    // skip request if path summary might be out-of-date
+    if(!data.meta.uptodate) return -1;
+
+    ArrayList<PathNode> nodes = data.paths.root();
+    for(int i = 0; i <= s; i++) {
+      nodes = step(i).candidates(nodes, data);
+      if(nodes == null) return -1;
+    }
+    long sz = 0;
+    for(final PathNode pn : nodes) sz += pn.stats.count;
+    return sz;
+  }
+
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     final Value cv = ctx.value;
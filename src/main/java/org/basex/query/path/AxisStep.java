@@ -154,8 +154,20 @@ public class AxisStep extends Preds {
    * @return resulting path nodes, or {@code null} if nodes cannot be evaluated
    */
   final ArrayList<PathNode> nodes(final ArrayList<PathNode> nodes, final Data data) {
-    // skip steps with predicates or different namespaces
-    if(preds.length != 0 || data.nspaces.globalNS() == null) return null;
+    // skip steps with predicates
+    return preds.length != 0 ? null : candidates(nodes, data);
+  }
+
+  /**
+   * Returns the path nodes that will be tested by this step, ignoring its predicates.
+   * @param nodes initial path nodes
+   * @param data data reference
+   * @return resulting path nodes, or {@code null} if nodes cannot be evaluated
+   */
+  final ArrayList<PathNode> candidates(final ArrayList<PathNode> nodes,
+      final Data data) {
+    // skip steps with different namespaces
+    if(data.nspaces.globalNS() == null) return null;
 
     // check restrictions on node type
     int kind = -1, name = 0;
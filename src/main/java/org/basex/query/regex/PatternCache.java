@@ -0,0 +1,84 @@
+package org.basex.query.regex;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+import java.util.regex.*;
+
+import org.basex.query.*;
+import org.basex.query.regex.parse.*;
+import org.basex.util.*;
+
+/**
+ * This class caches compiled regular expressions, which are shared by all
+ * queries. Entries are indexed by the expression, its modifiers and the
+ * syntax version, and managed in LRU order.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class PatternCache {
+  /** Maximum number of cached patterns. */
+  private static final int MAX = 1 << 10;
+  /** Global instance. */
+  private static final PatternCache CACHE = new PatternCache();
+
+  /** Cached patterns. */
+  private final LinkedHashMap<String, Pattern> cache =
+      new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Pattern> e) {
+      return size() > MAX;
+    }
+  };
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
+
+  /** Private constructor. */
+  private PatternCache() { }
+
+  /**
+   * Returns a compiled pattern for the specified regular expression.
+   * @param regex regular expression
+   * @param mod modifiers (may be {@code null})
+   * @param ext XQuery 3.0 syntax
+   * @param ii input info
+   * @return pattern
+   * @throws QueryException query exception
+   */
+  public static Pattern get(final byte[] regex, final byte[] mod, final boolean ext,
+      final InputInfo ii) throws QueryException {
+
+    final StringBuilder sb = new StringBuilder(ext ? "3" : "1");
+    if(mod != null) sb.append(string(mod));
+    final String key = sb.append('\0').append(string(regex)).toString();
+    synchronized(CACHE) {
+      final Pattern p = CACHE.cache.get(key);
+      if(p != null) {
+        ++CACHE.hits;
+        return p;
+      }
+      ++CACHE.misses;
+    }
+    final Pattern p = RegExParser.parse(regex, mod, ext, ii);
+    synchronized(CACHE) {
+      CACHE.cache.put(key, p);
+    }
+    return p;
+  }
+
+  /**
+   * Returns information on the pattern cache.
+   * @return info string
+   */
+  public static String info() {
+    synchronized(CACHE) {
+      final long all = CACHE.hits + CACHE.misses;
+      return Util.info("% of % patterns cached, % hits, % misses (%)",
+          CACHE.cache.size(), MAX, CACHE.hits, CACHE.misses,
+          (all == 0 ? 0 : CACHE.hits * 100 / all) + "%");
+    }
+  }
+}
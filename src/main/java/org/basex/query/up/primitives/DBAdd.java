@@ -58,7 +58,9 @@ public final class DBAdd extends BasicOperation {
 
   @Override
   public void apply() {
-    data.insert(data.meta.size, -1, new DataClip(md));
+    final AtomicUpdateList atomics = new AtomicUpdateList(data);
+    atomics.addInsert(data.meta.size, -1, new DataClip(md), false);
+    atomics.execute(false);
   }
 
   @Override
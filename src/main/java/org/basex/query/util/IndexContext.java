@@ -1,6 +1,7 @@
 package org.basex.query.util;
 
 import org.basex.data.*;
+import org.basex.io.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.path.*;
@@ -15,6 +16,9 @@ import org.basex.util.*;
  * @author Sebastian Gath
  */
 public final class IndexContext {
+  /** Minimum number of nodes for sequential evaluation (nodes of a table block). */
+  private static final int MINNODES = IO.BLOCKSIZE >> IO.NODEPOWER;
+
   /** Query context. */
   public final QueryContext ctx;
   /** Data reference. */
@@ -30,6 +34,8 @@ public final class IndexContext {
   public boolean not;
   /** Flag for sequential processing. */
   public boolean seq;
+  /** Flag for search terms that are not statically known (costs are estimated). */
+  public boolean dynamic;
 
   /**
    * Constructor.
@@ -82,7 +88,7 @@ public final class IndexContext {
    * @param c cost to be added
    */
   public void addCosts(final int c) {
-    costs = Math.max(1, costs + c);
+    costs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (long) costs + c));
   }
 
   /**
@@ -100,4 +106,17 @@ public final class IndexContext {
   public int costs() {
     return costs;
   }
+
+  /**
+   * Checks if index access will be cheaper than the sequential evaluation of
+   * the specified number of nodes. Index results need to be sorted and filtered
+   * again, so the index will be skipped if it yields more results than half of
+   * the nodes. The index will always be chosen if the costs are estimated, or
+   * if all nodes fit into a single table block.
+   * @param nodes number of nodes to be tested sequentially
+   * @return result of check
+   */
+  public boolean cheaper(final long nodes) {
+    return dynamic || costs <= nodes && (nodes <= MINNODES || costs <= nodes >> 1);
+  }
 }
@@ -5,6 +5,7 @@ import static org.basex.query.util.Err.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
@@ -33,6 +34,9 @@ public final class Var extends ParseExpr {
   public boolean declared;
   /** Cast flag (default: {@code true}). */
   public boolean cast = true;
+  /** Aggregating function, which is temporarily assigned while group by clauses
+   * are compiled (see {@link FNAggr#count(Var)}). */
+  public Function aggr;
 
   /** Static context. */
   private final StaticContext sc;
@@ -170,7 +170,7 @@ public final class JSONConverter extends XMLConverter {
    * @param name name
    * @return converted name
    */
-  private static byte[] convert(final byte[] name) {
+  public static byte[] convert(final byte[] name) {
     // convert name to valid XML representation
     final TokenBuilder tb = new TokenBuilder();
     for(int n = 0; n < name.length; n += cl(name, n)) {
@@ -5,7 +5,9 @@ import static org.basex.util.Token.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.*;
 import org.basex.core.*;
@@ -19,12 +21,17 @@ import org.basex.util.list.*;
 
 /**
  * Server-side client session in the client-server architecture.
+ * Sessions do not have their own threads: incoming requests are processed
+ * by the worker threads of the {@link ClientSelector}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ClientListener extends Thread {
+public final class ClientListener {
+  /** Session id counter. */
+  private static final AtomicLong IDS = new AtomicLong();
+
   /** Timer for authentication time out. */
   public final Timer auth = new Timer();
   /** Timestamp of last interaction. */
@@ -41,6 +48,8 @@ public final class ClientListener extends Thread {
   private final BaseXServer server;
   /** Socket reference. */
   private final Socket socket;
+  /** Session id. */
+  private final long sid = IDS.incrementAndGet();
 
   /** Socket for events. */
   private Socket esocket;
@@ -56,8 +65,10 @@ public final class ClientListener extends Thread {
   private Command command;
   /** Query id counter. */
   private int id;
-  /** Indicates if the server thread is running. */
-  private boolean running;
+  /** Timestamp sent for authentication ({@code null} if no login data is expected). */
+  private String ts;
+  /** Indicates if the session is running. */
+  private volatile boolean running;
 
   /**
    * Constructor.
@@ -70,97 +81,22 @@ public final class ClientListener extends Thread {
     socket = s;
     server = srv;
     last = System.currentTimeMillis();
-    setDaemon(true);
   }
 
-  @Override
-  public void run() {
-    if(!authenticate()) return;
+  /**
+   * Processes incoming data. This method is called by the worker threads of the
+   * {@link ClientSelector} whenever the client has sent new data. The first call
+   * initiates the authentication; all further calls process all requests
+   * that have been received so far.
+   * @return {@code true} if the session is still active
+   */
+  boolean process() {
+    if(out == null) return init();
+    if(ts != null) return authenticate();
+    if(!running) return false;
 
-    ServerCmd sc;
-    String cmd;
     try {
-      while(running) {
-        command = null;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
-          quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(command, null);
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(cmd, null);
-          log(msg, false);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.writeString(msg);
-          // send 1 to mark error
-          send(false);
-          continue;
-        }
-
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
-        }
-
-        // send 0 to mark end of result
-        out.write(0);
-        // send info
-        info(info, ok);
-
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
-      }
+      while(request() && in.available() > 0);
     } catch(final IOException ex) {
       log(ex, false);
       Util.debug(ex);
@@ -168,29 +104,133 @@ public final class ClientListener extends Thread {
       quit();
     }
     command = null;
+    return running;
   }
 
   /**
-   * Initializes a session via cram-md5.
-   * @return success flag
+   * Processes a single request.
+   * @return {@code false} if the session has been closed
+   * @throws IOException I/O exception
    */
-  private boolean authenticate() {
+  private boolean request() throws IOException {
+    command = null;
+    final ServerCmd sc;
+    String cmd = null;
     try {
-      final String ts = Long.toString(System.nanoTime());
-      final byte[] address = socket.getInetAddress().getAddress();
+      final int b = in.read();
+      if(b == -1) {
+        // end of stream: exit session
+        quit();
+        return false;
+      }
+
+      last = System.currentTimeMillis();
+      perf.time();
+      sc = ServerCmd.get(b);
+      if(sc == ServerCmd.CREATE) {
+        create();
+      } else if(sc == ServerCmd.ADD) {
+        add();
+      } else if(sc == ServerCmd.WATCH) {
+        watch();
+      } else if(sc == ServerCmd.UNWATCH) {
+        unwatch();
+      } else if(sc == ServerCmd.REPLACE) {
+        replace();
+      } else if(sc == ServerCmd.STORE) {
+        store();
+      } else if(sc != ServerCmd.COMMAND) {
+        query(sc);
+      } else {
+        // database command
+        cmd = new ByteList().add(b).add(in.readBytes()).toString();
+      }
+    } catch(final IOException ex) {
+      // this exception may be thrown if a session is stopped
+      quit();
+      return false;
+    }
+    if(sc != ServerCmd.COMMAND) return running;
+
+    // parse input and create command instance
+    try {
+      command = new CommandParser(cmd, context).parseSingle();
+      log(command, null);
+    } catch(final QueryException ex) {
+      // log invalid command
+      final String msg = ex.getMessage();
+      log(cmd, null);
+      log(msg, false);
+      // send 0 to mark end of potential result
+      out.write(0);
+      // send {INFO}0
+      out.writeString(msg);
+      // send 1 to mark error
+      send(false);
+      return running;
+    }
+
+    // execute command and send {RESULT}
+    boolean ok = true;
+    String info;
+    try {
+      // run command
+      command.execute(context, new EncodingOutput(out));
+      info = command.info();
+    } catch(final BaseXException ex) {
+      ok = false;
+      info = ex.getMessage();
+      if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+    }
+
+    // send 0 to mark end of result
+    out.write(0);
+    // send info
+    info(info, ok);
+
+    // stop console
+    if(command instanceof Exit) {
+      command = null;
+      quit();
+    }
+    return running;
+  }
 
+  /**
+   * Initializes a session by sending a timestamp to the client.
+   * @return success flag
+   */
+  private boolean init() {
+    try {
+      ts = Long.toString(System.nanoTime());
       // send {TIMESTAMP}0
       out = PrintOutput.get(socket.getOutputStream());
       out.print(ts);
       send(true);
-
-      // evaluate login data
       in = new BufferInput(socket.getInputStream());
+      return true;
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      server.remove(this);
+      close();
+      return false;
+    }
+  }
+
+  /**
+   * Evaluates the login data of the client via cram-md5.
+   * @return success flag
+   */
+  private boolean authenticate() {
+    final String t = ts;
+    ts = null;
+    try {
+      final byte[] address = socket.getInetAddress().getAddress();
       // receive {USER}0{PASSWORD}0
       final String us = in.readString();
       final String pw = in.readString();
       context.user = context.users.get(us);
-      running = context.user != null && md5(context.user.password + ts).equals(pw);
+      running = context.user != null && md5(context.user.password + t).equals(pw);
 
       // write log information
       if(running) {
@@ -213,6 +253,7 @@ public final class ClientListener extends Thread {
     }
 
     server.remove(this);
+    if(!running) close();
     return running;
   }
 
@@ -228,6 +269,17 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Closes the socket of a session that has not been authenticated.
+   */
+  private void close() {
+    try {
+      socket.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
   /**
    * Exits the session.
    */
@@ -256,6 +308,22 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Returns the id of this session.
+   * @return id
+   */
+  public long id() {
+    return sid;
+  }
+
+  /**
+   * Returns the socket channel of this session.
+   * @return channel
+   */
+  SocketChannel channel() {
+    return socket.getChannel();
+  }
+
   /**
    * Returns the context of this session.
    * @return user reference
@@ -402,7 +470,7 @@ public final class ClientListener extends Thread {
     // initialize server-based event handling
     if(!events) {
       out.writeString(Integer.toString(context.mprop.num(MainProp.EVENTPORT)));
-      out.writeString(Long.toString(getId()));
+      out.writeString(Long.toString(sid));
       out.flush();
       events = true;
     }
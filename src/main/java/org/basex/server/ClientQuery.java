@@ -4,12 +4,19 @@ import java.io.*;
 
 import org.basex.core.*;
 import org.basex.io.in.*;
+import org.basex.util.list.*;
 
 /**
  * This class defines all methods for iteratively evaluating queries with the
  * client/server architecture. All sent data is received by the
  * {@link ClientListener} and interpreted by the {@link QueryListener}.
  *
+ * By default, all results are cached by the first call of {@link #more()}.
+ * If streaming is enabled, results will be read one by one from the socket while
+ * they are requested, and the server will block as soon as the socket buffers
+ * are full. In this mode, the session must not be used for other requests until
+ * all results have been read or the query has been closed.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -18,6 +25,10 @@ public class ClientQuery extends Query {
   protected final ClientSession cs;
   /** Query id. */
   protected final String id;
+  /** Input of the streamed results ({@code null} if no results are streamed). */
+  private BufferInput input;
+  /** Streaming flag. */
+  private boolean stream;
 
   /**
    * Standard constructor.
@@ -66,16 +77,63 @@ public class ClientQuery extends Query {
 
   @Override
   public void close() throws IOException {
+    // skip results that have not been requested yet
+    while(input != null) {
+      pos = cache.size();
+      more();
+    }
     cs.exec(ServerCmd.CLOSE, id, null);
   }
 
+  /**
+   * Enables or disables the streaming of results.
+   * @param s streaming flag
+   */
+  public void stream(final boolean s) {
+    stream = s;
+  }
+
+  @Override
+  public boolean more() throws IOException {
+    if(!stream) return super.more();
+    if(cache != null && pos < cache.size()) return true;
+
+    // only cache the next item
+    if(input == null) {
+      input = iter();
+      cache = new TokenList(1);
+      types = new ByteList(1);
+    }
+    cache.reset();
+    types.reset();
+    pos = 0;
+    if(read(input)) return true;
+
+    // all results have been read
+    final BufferInput bi = input;
+    input = null;
+    cache = null;
+    types = null;
+    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    return false;
+  }
+
   @Override
   protected void cache() throws IOException {
+    final BufferInput bi = iter();
+    cache(bi);
+    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+  }
+
+  /**
+   * Requests the iterative evaluation of the query.
+   * @return input stream
+   * @throws IOException I/O exception
+   */
+  private BufferInput iter() throws IOException {
     cs.sout.write(ServerCmd.ITER.code);
     cs.send(id);
     cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    cache(bi);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    return new BufferInput(cs.sin);
   }
 }
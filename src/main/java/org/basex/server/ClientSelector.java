@@ -0,0 +1,161 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.util.*;
+
+/**
+ * This class multiplexes the connections of all client sessions.
+ * Idle sessions are registered with a selector and do not occupy any threads.
+ * As soon as a client sends a request, its session is passed on to a bounded pool
+ * of worker threads. The request is then processed with blocking I/O, and the
+ * session is registered again. As a result, the client/server protocol
+ * remains unchanged. Reads of worker threads are bounded by a timeout, so that
+ * clients that stop sending data in the middle of a request will be
+ * disconnected instead of blocking a worker thread. Unexpected errors are
+ * logged: a failing session is closed, while the selector keeps on running.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelector extends Thread {
+  /** Sessions to be registered with the selector. */
+  private final ConcurrentLinkedQueue<ClientListener> idle =
+    new ConcurrentLinkedQueue<ClientListener>();
+  /** Selector. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+  /** Timeout for reading requests in milliseconds ({@code 0}: no timeout). */
+  private final int timeout;
+  /** Server log. */
+  private final Log log;
+  /** Running flag. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor.
+   * @param threads number of worker threads
+   * @param to timeout for reading requests in milliseconds ({@code 0}: no timeout)
+   * @param lg server log
+   * @throws IOException I/O exception
+   */
+  public ClientSelector(final int threads, final int to, final Log lg)
+      throws IOException {
+    super("ClientSelector");
+    setDaemon(true);
+    timeout = to;
+    log = lg;
+    selector = Selector.open();
+    workers = Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r, "ClientWorker");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Adds a new session. The authentication will be started by a worker thread.
+   * @param cl client session
+   */
+  public void add(final ClientListener cl) {
+    dispatch(cl);
+  }
+
+  /**
+   * Stops the selector and the worker threads.
+   */
+  public void quit() {
+    running = false;
+    selector.wakeup();
+    workers.shutdown();
+  }
+
+  @Override
+  public void run() {
+    final ArrayList<ClientListener> ready = new ArrayList<ClientListener>();
+    while(running) {
+      try {
+        selector.select();
+        // register idle sessions
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            final SocketChannel ch = cl.channel();
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_READ, cl);
+          } catch(final IOException ex) {
+            // session may have been closed in the meantime
+            cl.quit();
+          }
+        }
+        // cancel the keys of all sessions with incoming data. cancelled keys are
+        // removed by the next selection, which may again return new keys
+        final Set<SelectionKey> keys = selector.selectedKeys();
+        while(!keys.isEmpty()) {
+          for(final SelectionKey key : keys) {
+            key.cancel();
+            ready.add((ClientListener) key.attachment());
+          }
+          keys.clear();
+          selector.selectNow();
+        }
+        for(final ClientListener cl : ready) dispatch(cl);
+      } catch(final ClosedSelectorException ex) {
+        log.writeError(ex);
+        break;
+      } catch(final Throwable ex) {
+        // keep on serving the remaining sessions
+        log.writeError(ex);
+      } finally {
+        ready.clear();
+      }
+    }
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Passes on a session to a worker thread. If the session is still active
+   * after the incoming data has been processed, it will be registered again.
+   * @param cl client session
+   */
+  private void dispatch(final ClientListener cl) {
+    try {
+      workers.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final SocketChannel ch = cl.channel();
+            ch.configureBlocking(true);
+            ch.socket().setSoTimeout(timeout);
+          } catch(final IOException ex) {
+            // session has been closed
+            cl.quit();
+            return;
+          }
+          try {
+            if(cl.process() && running) {
+              idle.add(cl);
+              selector.wakeup();
+            }
+          } catch(final Throwable ex) {
+            log.writeError(ex);
+            cl.quit();
+          }
+        }
+      });
+    } catch(final RejectedExecutionException ex) {
+      // server is being stopped
+      cl.quit();
+    }
+  }
+}
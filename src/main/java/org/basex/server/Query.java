@@ -116,14 +116,24 @@ public abstract class Query {
   protected void cache(final InputStream is) throws IOException {
     cache = new TokenList();
     types = new ByteList();
+    while(read(is));
+  }
+
+  /**
+   * Reads the next incoming item and adds it to the cache.
+   * @param is input stream
+   * @return {@code false} if all items have been read
+   * @throws IOException I/O exception
+   */
+  protected final boolean read(final InputStream is) throws IOException {
+    final int t = is.read();
+    if(t <= 0) return false;
     final ByteList bl = new ByteList();
-    for(int t; (t = is.read()) > 0;) {
-      final DecodingInput di = new DecodingInput(is);
-      for(int b; (b = di.read()) != -1;) bl.add(b);
-      cache.add(bl.toArray());
-      types.add(t);
-      bl.reset();
-    }
+    final DecodingInput di = new DecodingInput(is);
+    for(int b; (b = di.read()) != -1;) bl.add(b);
+    cache.add(bl.toArray());
+    types.add(t);
+    return true;
   }
 
   /**
@@ -120,6 +120,7 @@ final class QueryListener extends Progress {
     try {
       // parses the query
       init();
+      qp.snapshots(true);
       try {
         // registers the process
         ctx.register(qp);
@@ -8,6 +8,11 @@ import static org.basex.util.Token.*;
  * and deletions of ones, and Damerau (1964): A technique for computer
  * detection and correction of spelling errors.
  *
+ * Tokens can also be compared incrementally with a search token, character by
+ * character: if a sorted list of tokens is traversed, the distances computed
+ * for a prefix can be reused for all tokens that share this prefix, and all
+ * these tokens can be skipped as soon as the prefix exceeds the number of errors.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -17,6 +22,80 @@ public final class Levenshtein {
   /** Matrix for calculating Levenshtein distance. */
   private int[][] matrix;
 
+  /** Matrix for incremental comparisons. */
+  private int[][] rows;
+  /** Characters of the search token. */
+  private int[] search;
+  /** Characters of the currently compared prefix. */
+  private int[] prefix;
+  /** Number of errors allowed for incremental comparisons. */
+  private int errors;
+
+  /**
+   * Initializes the incremental comparison of tokens with a search token.
+   * Incremental comparisons are only supported if the search token consists of
+   * ASCII characters, and if no exact search is performed by
+   * {@link #similar(byte[], byte[], int)}.
+   * @param sub search token
+   * @param err number of allowed errors; dynamic calculation if value is 0
+   * @param max maximum length of the tokens to be compared
+   * @return {@code false} if incremental comparisons are not supported
+   */
+  public boolean init(final byte[] sub, final int err, final int max) {
+    final int sl = sub.length;
+    if(sl < 4 || sl > MAX) return false;
+    for(final byte b : sub) if(b < 0) return false;
+
+    search = new int[sl];
+    for(int s = 0; s < sl; ++s) search[s] = lc(sub[s]);
+    errors = err == 0 ? Math.max(1, sl >> 2) : err;
+    prefix = new int[max];
+    rows = new int[max + 1][sl + 1];
+    for(int s = 0; s <= sl; ++s) rows[0][s] = s;
+    for(int t = 0; t <= max; ++t) rows[t][0] = t;
+    return true;
+  }
+
+  /**
+   * Adds a character to the currently compared prefix. Distances are only
+   * computed for ASCII characters; all other prefixes are accepted, and
+   * complete tokens must then be checked via {@link #similar(byte[], byte[], int)}.
+   * @param t length of the prefix to which the character is added
+   * @param ch character (byte) to be added
+   * @return {@code false} if no token with the resulting prefix can be similar
+   */
+  public boolean add(final int t, final byte ch) {
+    final int[] m = rows[t], n = rows[t + 1];
+    final int sl = search.length;
+    if(ch < 0) {
+      for(int s = 1; s <= sl; ++s) n[s] = 0;
+      prefix[t] = -1;
+      return true;
+    }
+    final int e = lc(ch), e2 = t == 0 ? -1 : prefix[t - 1];
+    int f2 = t == 0 ? -1 : search[sl - 1];
+    int d = Integer.MAX_VALUE;
+    for(int s = 0; s < sl; ++s) {
+      final int f = search[s];
+      int c = m(m[s + 1] + 1, n[s] + 1, m[s] + (e == f ? 0 : 1));
+      if(e == f2 && f == e2) c = m[s];
+      n[s + 1] = c;
+      d = Math.min(d, c);
+      f2 = f;
+    }
+    prefix[t] = e;
+    return d <= errors;
+  }
+
+  /**
+   * Checks if the currently compared prefix may be similar to the search token.
+   * @param tl length of the prefix
+   * @return result of check
+   */
+  public boolean similar(final int tl) {
+    return rows[tl][search.length] <= errors;
+  }
+
   /**
    * Compares two character arrays for similarity.
    * @param token token to be compared
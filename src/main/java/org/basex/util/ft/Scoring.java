@@ -81,6 +81,21 @@ public final class Scoring {
     return max((double) npv / is, log(tokl * npv + 1) / log(tl + 1));
   }
 
+  /**
+   * Calculates an upper bound for the score of a text node
+   * (see {@link #textNode}).
+   * @param npv maximum number of pos values
+   * @param is total number of index entries
+   * @param tokl token length
+   * @param tl minimum text length ({@code 0}: unknown)
+   * @return maximum score value
+   */
+  public static double textNodeMax(final long npv, final int is, final int tokl,
+      final int tl) {
+    return tl <= 0 ? Double.POSITIVE_INFINITY :
+      max((double) npv / is, log((double) tokl * npv + 1) / log(tl + 1));
+  }
+
   /**
    * Returns a score for a single step.
    * @param sc current score value
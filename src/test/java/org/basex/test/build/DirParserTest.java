@@ -0,0 +1,135 @@
+package org.basex.test.build;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the parsing of directories, which may be performed by several threads.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class DirParserTest extends SandboxTest {
+  /** Temporary directory. */
+  private static final IOFile DIR = new IOFile(Prop.TMP + NAME + "dir");
+  /** Number of documents. */
+  private static final int DOCS = 200;
+  /** Query for listing all documents and their contents. */
+  private static final String DOCUMENTS =
+      "string-join(for $d in db:open('" + NAME + "') " +
+      "return (base-uri($d) || ':' || serialize($d)), '|')";
+
+  /**
+   * Creates the test documents. One of the documents is large enough to be
+   * parsed sequentially.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void before() throws Exception {
+    final StringBuilder large = new StringBuilder();
+    while(large.length() <= 1 << 20) {
+      large.append("<l>").append(large.length()).append("</l>");
+    }
+    for(int d = 0; d < DOCS; d++) {
+      final IOFile sub = new IOFile(DIR, "d" + d % 7);
+      sub.md();
+      new IOFile(sub, "f" + (DOCS - d) + IO.XMLSUFFIX).write(token(
+        "<?xml version='1.0'?><x:doc xmlns:x='urn:x' n='" + d + "' x:m='" + d % 3 +
+        "'><a>" + d + "</a><!-- " + d + " --><?pi " + d + "?><b xmlns='urn:b'>" +
+        "<c/></b>" + (d % 5 == 0 ? "<p:e xmlns:p='urn:p' p:a='x'/>" : "") +
+        (d == DOCS / 2 ? large : "") + "</x:doc>"));
+    }
+  }
+
+  /**
+   * Removes the test documents.
+   * @throws BaseXException exception
+   */
+  @AfterClass
+  public static void after() throws BaseXException {
+    DIR.delete();
+    new Set(Prop.SKIPCORRUPT, false).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares a database created from a directory with a database to which all
+   * documents are added one by one.
+   * @throws BaseXException exception
+   */
+  @Test
+  public void order() throws BaseXException {
+    new CreateDB(NAME).execute(context);
+    for(final IOFile sub : sort(DIR.children())) {
+      for(final IOFile f : sort(sub.children())) {
+        new Add(sub.name() + "/" + f.name(), f.path()).execute(context);
+      }
+    }
+    final String expected = new XQuery(DOCUMENTS).execute(context);
+
+    for(int i = 0; i < 2; i++) {
+      new CreateDB(NAME, DIR.path()).execute(context);
+      assertEquals(expected, new XQuery(DOCUMENTS).execute(context));
+    }
+    new CreateDB(NAME).execute(context);
+    new Add("", DIR.path()).execute(context);
+    assertEquals(expected, new XQuery(DOCUMENTS).execute(context));
+  }
+
+  /**
+   * Checks if corrupt files are rejected or skipped.
+   * @throws Exception exception
+   */
+  @Test
+  public void corrupt() throws Exception {
+    final IOFile file = new IOFile(DIR, "corrupt" + IO.XMLSUFFIX);
+    file.write(token("<x>"));
+    try {
+      try {
+        new CreateDB(NAME, DIR.path()).execute(context);
+        fail("Corrupt file was accepted.");
+      } catch(final BaseXException ex) {
+        /* expected */
+      }
+      new Set(Prop.SKIPCORRUPT, true).execute(context);
+      new CreateDB(NAME, DIR.path()).execute(context);
+      assertEquals(String.valueOf(DOCS),
+          new XQuery("count(db:open('" + NAME + "'))").execute(context));
+    } finally {
+      new Set(Prop.SKIPCORRUPT, false).execute(context);
+      file.delete();
+    }
+  }
+
+  /**
+   * Sorts the specified files by their names.
+   * @param files files
+   * @return sorted files
+   */
+  private static IOFile[] sort(final IOFile[] files) {
+    Arrays.sort(files, new Comparator<IOFile>() {
+      @Override
+      public int compare(final IOFile f1, final IOFile f2) {
+        return f1.name().compareTo(f2.name());
+      }
+    });
+    return files;
+  }
+}
@@ -0,0 +1,166 @@
+package org.basex.test.build;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * JSON Parser Test.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class JSONTest extends SandboxTest {
+  /** Temporary JSON file. */
+  private static final String TEMP = Prop.TMP + NAME + IO.JSONSUFFIX;
+
+  /**
+   * Sets the parser.
+   * @throws BaseXException exception
+   */
+  @BeforeClass
+  public static void before() throws BaseXException {
+    new Set(Prop.PARSER, "json").execute(context);
+    new Set(Prop.SERIALIZER, "indent=no").execute(context);
+  }
+
+  /**
+   * Removes the temporary JSON file and resets the options.
+   * @throws BaseXException exception
+   */
+  @AfterClass
+  public static void after() throws BaseXException {
+    new IOFile(TEMP).delete();
+    new Set(Prop.PARSER, Prop.PARSER[1]).execute(context);
+    new Set(Prop.PARSEROPT, "").execute(context);
+    new Set(Prop.SERIALIZER, "").execute(context);
+  }
+
+  /**
+   * Sets initial options.
+   * @throws BaseXException exception
+   */
+  @Before
+  public void init() throws BaseXException {
+    new Set(Prop.PARSEROPT, "").execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Parses documents in the default format.
+   * @throws Exception exception
+   */
+  @Test
+  public void json() throws Exception {
+    parse("{}", "<json objects=\"json\"/>");
+    parse("[]", "<json arrays=\"json\"/>");
+    parse("{ \"a\": 1, \"b\": \"x\", \"c\": [true, null] }",
+        "<json numbers=\"a\" arrays=\"c\" objects=\"json\"><a>1</a><b>x</b><c>" +
+        "<value type=\"boolean\">true</value><value type=\"null\"/></c></json>");
+    // names with different types
+    parse("[1, \"a\", { \"_\": [] }]", "<json arrays=\"json __\">" +
+        "<value type=\"number\">1</value><value>a</value>" +
+        "<value type=\"object\"><__/></value></json>");
+    // escaped characters and whitespaces
+    parse("[\"\\u0041\\t\\\"\", \" \", \"\\ud83d\\ude00\"]",
+        "<json arrays=\"json\"><value>A\t\"</value><value> </value>" +
+        "<value>\ud83d\ude00</value></json>");
+    // names with invalid characters
+    parse("{ \"\": 1, \"1 a\": 2 }",
+        "<json numbers=\"_ _0031_0020a\" objects=\"json\"><_>1</_><_0031_0020a>2" +
+        "</_0031_0020a></json>");
+
+    error("{ \"a\": }");
+    error("[1,]");
+    error("[1] 2");
+    error("\"a\"");
+    error("[01]");
+    error("[\"\\x\"]");
+    error("[\"a]");
+  }
+
+  /**
+   * Parses documents in the JsonML format.
+   * @throws Exception exception
+   */
+  @Test
+  public void jsonml() throws Exception {
+    new Set(Prop.PARSEROPT, "jsonml=true").execute(context);
+    parse("[\"a\"]", "<a/>");
+    parse("[\"a\", { \"b\": \"c\", \"d\": \"\" }, [\"e\", \"f\"], \"g\", [\"h\"]]",
+        "<a b=\"c\" d=\"\"><e>f</e>g<h/></a>");
+    error("{}");
+    error("[]");
+    error("[1]");
+    error("[\"1\"]");
+    error("[\"a\", 1]");
+    error("[\"a\", \"b\", \"c\"]");
+    error("[\"a\", { \"b\": 1 }]");
+    error("[\"a\", { \"b\": \"c\", \"b\": \"d\" }]");
+  }
+
+  /**
+   * Parses a document from an input stream.
+   * @throws Exception exception
+   */
+  @Test
+  public void stream() throws Exception {
+    final CreateDB cmd = new CreateDB(NAME);
+    cmd.setInput(new ByteArrayInputStream(token("{ \"a\": [1, 2] }")));
+    cmd.execute(context);
+    assertEquals("<json numbers=\"value\" arrays=\"a\" objects=\"json\"><a>" +
+        "<value>1</value><value>2</value></a></json>",
+        new XQuery(".").execute(context));
+  }
+
+  /**
+   * Creates a database from the specified input and compares the result.
+   * @param input input
+   * @param expected expected result
+   * @throws Exception exception
+   */
+  private static void parse(final String input, final String expected) throws Exception {
+    write(input);
+    new CreateDB(NAME, TEMP).execute(context);
+    assertEquals(expected, new XQuery(".").execute(context));
+  }
+
+  /**
+   * Checks if the specified input is rejected.
+   * @param input input
+   * @throws IOException I/O exception
+   */
+  private static void error(final String input) throws IOException {
+    write(input);
+    try {
+      new CreateDB(NAME, TEMP).execute(context);
+      fail("Input was accepted: " + input);
+    } catch(final BaseXException ex) {
+      /* expected */
+    }
+  }
+
+  /**
+   * Writes the specified test file.
+   * @param data data to write
+   * @throws IOException I/O exception
+   */
+  private static void write(final String data) throws IOException {
+    new IOFile(TEMP).write(token(data));
+  }
+}
@@ -74,4 +74,50 @@ public final class XMLParserTest extends SandboxTest {
       assertEquals("<f/>", result);
     }
   }
+
+  /**
+   * Compares the results of the sequential and the pipelined parser
+   * (Option {@link Prop#PIPESIZE}).
+   */
+  @Test
+  public void pipe() {
+    final StringBuilder sb = new StringBuilder("<?xml version='1.0'?><x:a xmlns:x='X'>");
+    for(int i = 0; i < 20000; i++) {
+      sb.append("<b c='").append(i).append("' x:d='&lt;'>").append(i).append(
+        "<!-- c --><?p i?><![CDATA[&]]>&amp;</b>\n");
+    }
+    final String[] docs = {
+        sb + "</x:a>", sb + "</x:b>", sb.toString(), sb + "</x:a><x/>",
+        "<x/>", " <x/> ", "<x></x></x>", "x<x>", "<x>x", "", "<?xml version='1.0'?>",
+    };
+    try {
+      for(final boolean mm : new boolean[] { false, true }) {
+        context.prop.set(Prop.MAINMEM, mm);
+        for(final String doc : docs) {
+          context.prop.set(Prop.PIPESIZE, 0);
+          final String expected = parse(doc);
+          context.prop.set(Prop.PIPESIZE, 1);
+          assertEquals(expected, parse(doc));
+        }
+      }
+    } finally {
+      context.prop.set(Prop.MAINMEM, false);
+      context.prop.set(Prop.PIPESIZE, (Integer) Prop.PIPESIZE[1]);
+    }
+  }
+
+  /**
+   * Creates a database from the specified document and returns its contents
+   * or the error message.
+   * @param doc document
+   * @return result
+   */
+  private static String parse(final String doc) {
+    try {
+      new CreateDB(NAME, doc).execute(context);
+      return new XQuery(".").execute(context);
+    } catch(final BaseXException ex) {
+      return ex.getMessage();
+    }
+  }
 }
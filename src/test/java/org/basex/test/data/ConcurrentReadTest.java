@@ -0,0 +1,108 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests concurrent read access to the disk storage.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends SandboxTest {
+  /** Test file. */
+  private static final String TESTFILE = "src/test/resources/xmark.xml";
+  /** Number of threads. */
+  private static final int THREADS = 8;
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.MMAP, false);
+  }
+
+  /**
+   * Reads the table and texts with multiple threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    read();
+  }
+
+  /**
+   * Reads the memory-mapped table and texts with multiple threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    context.prop.set(Prop.MMAP, true);
+    read();
+  }
+
+  /**
+   * Reads the database in parallel, updates it, and reads it again.
+   * @throws Exception exception
+   */
+  private void read() throws Exception {
+    new CreateDB(NAME, TESTFILE).execute(context);
+    check();
+    new XQuery("insert node <x>abc</x> into /*").execute(context);
+    check();
+  }
+
+  /**
+   * Compares the results of parallel reads with the results of a sequential read.
+   * @throws Exception exception
+   */
+  private void check() throws Exception {
+    final Data data = context.data();
+    final String exp = dump(data);
+    final ExecutorService es = Executors.newFixedThreadPool(THREADS);
+    final ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+    for(int t = 0; t < THREADS; t++) {
+      results.add(es.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return dump(data);
+        }
+      }));
+    }
+    for(final Future<String> f : results) assertEquals(exp, f.get());
+    es.shutdown();
+  }
+
+  /**
+   * Returns a string representation of all table entries and texts.
+   * @param data data reference
+   * @return string
+   */
+  static String dump(final Data data) {
+    final TokenBuilder tb = new TokenBuilder();
+    final int s = data.meta.size;
+    for(int p = 0; p < s; p++) {
+      final int k = data.kind(p);
+      tb.addLong(k).add(',').addLong(data.parent(p, k)).add(',');
+      tb.addLong(data.size(p, k)).add(',').addLong(data.name(p)).add(',');
+      if(k == Data.TEXT || k == Data.ATTR || k == Data.COMM || k == Data.PI) {
+        tb.add(data.text(p, k != Data.ATTR));
+        tb.add(',').addLong(data.textLen(p, k != Data.ATTR));
+      }
+      tb.add('\n');
+    }
+    return tb.toString();
+  }
+}
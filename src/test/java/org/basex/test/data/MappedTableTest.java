@@ -0,0 +1,114 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the memory-mapped read access of the table and the text heaps.
+ * The contents of a mapped database are compared with the contents that are
+ * read via buffers before and after updates.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedTableTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    context.prop.set(Prop.MMAP, true);
+    new CreateDB(NAME, FILE).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    context.prop.set(Prop.MMAP, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Reads the database before and after updates that modify single entries.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void replace() throws BaseXException {
+    check();
+    update("replace value of node (//text())[1] with 'X'");
+    update("for $t in (//text())[position() < 100] " +
+        "return replace value of node $t with concat($t, '!')");
+    update("for $a in //@id return replace value of node $a with 'Y'");
+  }
+
+  /**
+   * Reads the database before and after updates that insert and delete nodes.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void insertDelete() throws BaseXException {
+    check();
+    update("insert node <a>{ //text() }</a> into /*");
+    update("delete node (//item)[1]");
+    update("for $i in 1 to 100 return insert node <b id='{ $i }'>{ $i }</b> into /*");
+    update("delete node //b");
+  }
+
+  /**
+   * Performs an update and compares the mapped and the buffered contents.
+   * @param query updating query
+   * @throws BaseXException database exception
+   */
+  private static void update(final String query) throws BaseXException {
+    new XQuery(query).execute(context);
+    check();
+  }
+
+  /**
+   * Compares the contents of the mapped database with the buffered contents.
+   * @throws BaseXException database exception
+   */
+  private static void check() throws BaseXException {
+    final String mapped = contents(context.data());
+    new Close().execute(context);
+    context.prop.set(Prop.MMAP, false);
+    new Open(NAME).execute(context);
+    assertEquals(contents(context.data()), mapped);
+    new Close().execute(context);
+    context.prop.set(Prop.MMAP, true);
+    new Open(NAME).execute(context);
+    assertEquals(contents(context.data()), mapped);
+  }
+
+  /**
+   * Returns a string representation of all table entries and texts.
+   * @param data data reference
+   * @return string
+   */
+  private static String contents(final Data data) {
+    final StringBuilder sb = new StringBuilder();
+    for(int pre = 0; pre < data.meta.size; pre++) {
+      final int k = data.kind(pre);
+      sb.append(k).append(' ').append(data.parent(pre, k)).append(' ');
+      sb.append(data.size(pre, k)).append(' ').append(data.name(pre));
+      if(k != Data.ELEM) {
+        sb.append(' ').append(Token.string(data.text(pre, k != Data.ATTR)));
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,187 @@
+package org.basex.test.data;
+
+import static org.basex.test.data.ConcurrentReadTest.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.basex.util.list.*;
+import org.junit.*;
+
+/**
+ * Tests the evaluation of read-only queries on database snapshots.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends SandboxTest {
+  /** Test file. */
+  private static final String TESTFILE = "src/test/resources/xmark.xml";
+  /** Timeout for concurrent operations (seconds). */
+  private static final int TIMEOUT = 10;
+
+  /**
+   * Enables snapshots.
+   */
+  @Before
+  public void init() {
+    context.mprop.set(MainProp.SNAPSHOTS, true);
+  }
+
+  /**
+   * Drops the test database and disables snapshots.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.mprop.set(MainProp.SNAPSHOTS, false);
+  }
+
+  /**
+   * Checks if snapshots are not affected by updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void isolation() throws Exception {
+    new CreateDB(NAME, TESTFILE).execute(context);
+    final Data data = context.data();
+    for(int r = 0; r < 3; r++) {
+      final String exp = dump(data);
+      final Data snapshot = data.snapshot();
+      try {
+        new XQuery("for $i in 1 to 2000 return " +
+            "insert node <x>{ $i }</x> into /*/*[" + (r + 1) + ']').execute(context);
+        new XQuery("delete node //text()[contains(., 'a')]").execute(context);
+        new XQuery("replace value of node (//@id)[1] with 'new'").execute(context);
+        assertEquals(exp, dump(snapshot));
+        assertFalse(exp.equals(dump(data)));
+      } finally {
+        snapshot.close();
+      }
+      // new snapshots reflect the updated state
+      final Data snap = data.snapshot();
+      try {
+        assertEquals(dump(data), dump(snap));
+      } finally {
+        snap.close();
+      }
+    }
+  }
+
+  /**
+   * Checks if read-only queries do not wait for updating processes.
+   * @throws Exception exception
+   */
+  @Test
+  public void noWait() throws Exception {
+    new CreateDB(NAME, "<a><b/></a>").execute(context);
+    // simulate a running update
+    final Progress writer = new Progress() { };
+    writer.updating = true;
+    context.register(writer);
+    final ExecutorService es = Executors.newSingleThreadExecutor();
+    try {
+      final Future<String> f = es.submit(new Callable<String>() {
+        @Override
+        public String call() throws BaseXException {
+          return new XQuery("count(db:open('" + NAME + "')//b)").execute(context);
+        }
+      });
+      assertEquals("1", f.get(TIMEOUT, TimeUnit.SECONDS));
+    } finally {
+      context.unregister(writer);
+      es.shutdown();
+    }
+  }
+
+  /**
+   * Checks if databases that are accessed by readers of snapshots cannot be
+   * dropped, and if the check does not wait for the readers.
+   * @throws Exception exception
+   */
+  @Test
+  public void drop() throws Exception {
+    new CreateDB(NAME, "<a/>").execute(context);
+    new Close().execute(context);
+    // simulate a running reader of snapshots
+    final Progress reader = new Progress() {
+      @Override
+      protected boolean databases(final StringList db) {
+        db.add(NAME);
+        return true;
+      }
+    };
+    reader.snapshots = true;
+    final CountDownLatch registered = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    final ExecutorService es = Executors.newSingleThreadExecutor();
+    try {
+      final Future<?> f = es.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws InterruptedException {
+          context.register(reader);
+          registered.countDown();
+          done.await();
+          context.unregister(reader);
+          return null;
+        }
+      });
+      assertTrue(registered.await(TIMEOUT, TimeUnit.SECONDS));
+      try {
+        new DropDB(NAME).execute(context);
+        fail("Database was dropped while being read.");
+      } catch(final BaseXException ex) {
+        assertTrue(context.mprop.dbpath(NAME).exists());
+      }
+      done.countDown();
+      f.get(TIMEOUT, TimeUnit.SECONDS);
+    } finally {
+      done.countDown();
+      es.shutdown();
+    }
+    // the database can be dropped after the reader has finished
+    new DropDB(NAME).execute(context);
+    assertFalse(context.mprop.dbpath(NAME).exists());
+  }
+
+  /**
+   * Checks if indexes are only replaced after all snapshots using them have
+   * been closed.
+   * @throws Exception exception
+   */
+  @Test
+  public void rebuildIndex() throws Exception {
+    new CreateDB(NAME, "<a><b>X</b></a>").execute(context);
+    final Data data = context.data();
+    final Data snapshot = data.snapshot();
+    assertTrue(snapshot.meta.textindex);
+
+    final ExecutorService es = Executors.newSingleThreadExecutor();
+    try {
+      final Future<String> f = es.submit(new Callable<String>() {
+        @Override
+        public String call() throws BaseXException {
+          return new CreateIndex(CmdIndex.TEXT).execute(context);
+        }
+      });
+      // new index is opened as soon as the snapshot has been closed
+      Thread.sleep(200);
+      assertFalse(f.isDone());
+      // new snapshots will be evaluated without index
+      final Data snap = data.snapshot();
+      assertFalse(snap.meta.textindex);
+      snap.close();
+      snapshot.close();
+      f.get(TIMEOUT, TimeUnit.SECONDS);
+    } finally {
+      es.shutdown();
+    }
+    assertEquals("1", new XQuery("count(//b[text() = 'X'])").execute(context));
+  }
+}
@@ -0,0 +1,194 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the write-ahead logging of database updates. Crashes are simulated by
+ * copying the files of an opened database.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class WALTest extends SandboxTest {
+  /** Name of the copied database. */
+  private static final String COPY = NAME + "Copy";
+  /** Query for listing all documents and their contents. */
+  private static final String DOCUMENTS =
+      "string-join(for $d in db:open('%') " +
+      "return (substring-after(base-uri($d), '/') || ':' || serialize($d)), '|')";
+  /** Root element of the main document. */
+  private static final String ROOT = "db:open('" + NAME + "', '" + NAME + ".xml')/*";
+  /** Test document. */
+  private static final String DOC = "<x:a xmlns:x='urn:x' n='1'><b>B</b><c x:c='C'/>" +
+      "<!--D--><?e E?><f>F</f></x:a>";
+
+  /**
+   * Enables logging.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void init() throws BaseXException {
+    new Set(Prop.WALSIZE, 1 << 20).execute(context);
+  }
+
+  /**
+   * Drops the databases and disables logging.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(COPY).execute(context);
+    new Set(Prop.WALSIZE, 0).execute(context);
+    new Set(Prop.UPDINDEX, false).execute(context);
+  }
+
+  /**
+   * Recovers logged updates.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void recover() throws IOException {
+    new CreateDB(NAME, DOC).execute(context);
+    update();
+    crash();
+  }
+
+  /**
+   * Recovers logged updates of a database with updatable indexes.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void recoverIndexes() throws IOException {
+    new Set(Prop.UPDINDEX, true).execute(context);
+    new CreateDB(NAME, DOC).execute(context);
+    update();
+    final String query = "count(db:text('%', 'B')) || count(db:attribute('%', 'X'))";
+    final String expected = query(query, NAME);
+    crash();
+    assertEquals(expected, query(query, COPY));
+  }
+
+  /**
+   * Recovers logged updates if modified pages have been written to disk.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void recoverEvicted() throws IOException {
+    // minimize buffer pool
+    BufferPool.size(0);
+    try {
+      new CreateDB(NAME, DOC).execute(context);
+      update();
+      query("for $i in 1 to 5000 return insert node <j>{ $i }</j> into %", ROOT);
+      query("delete node %/j[. mod 7 = 0]", ROOT);
+      crash();
+    } finally {
+      BufferPool.size(context.mprop.num(MainProp.CACHESIZE));
+    }
+  }
+
+  /**
+   * Recovers logged updates if the database has been written in between.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void recoverCheckpoint() throws IOException {
+    new CreateDB(NAME, DOC).execute(context);
+    update();
+    // unlogged update: the log will be discarded
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    assertEquals(0, wal(NAME).length());
+    update();
+    crash();
+  }
+
+  /**
+   * Checks if the log is discarded if it exceeds its maximum size,
+   * or if the database is closed.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void checkpoint() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+    new XQuery("insert node <g/> into /*").execute(context);
+    assertTrue(wal(NAME).length() > 0);
+
+    new Set(Prop.WALSIZE, 1).execute(context);
+    new XQuery("insert node <h/> into /*").execute(context);
+    assertEquals(0, wal(NAME).length());
+
+    new Close().execute(context);
+    assertFalse(wal(NAME).exists());
+    new Open(NAME).execute(context);
+    assertEquals("2", new XQuery("count(/*/(g, h))").execute(context));
+  }
+
+  /**
+   * Performs various updates.
+   * @throws BaseXException database exception
+   */
+  private static void update() throws BaseXException {
+    query("insert node <g xmlns:x='urn:x' x:g='G'>G</g> into %", ROOT);
+    query("delete node %/comment()", ROOT);
+    query("replace value of node %/b with 'X'", ROOT);
+    query("rename node %/*:f as QName('urn:y', 'y:f')", ROOT);
+    query("replace node %/c with (<c>C</c>, 'T')", ROOT);
+    query("insert node attribute { 'y' || count(%/b/@*) } { 'X' } into %/b", ROOT);
+    query("for $i in 1 to 50 return insert node <i>{ $i }</i> as first into %", ROOT);
+    query("delete node %/i[. mod 3 = 0]", ROOT);
+    new Add("doc2.xml", DOC).execute(context);
+    new Add("doc3.xml", "<y>B</y>").execute(context);
+    new Rename("doc2.xml", "doc4.xml").execute(context);
+    new Delete("doc3.xml").execute(context);
+    new Replace("doc4.xml", "<z>B</z>").execute(context);
+  }
+
+  /**
+   * Simulates a crash by copying the files of the opened database, and
+   * compares the contents of the copied and the original database.
+   * @throws IOException I/O exception
+   */
+  private static void crash() throws IOException {
+    final IOFile src = context.mprop.dbpath(NAME);
+    final IOFile trg = context.mprop.dbpath(COPY);
+    assertTrue(wal(NAME).length() > 0);
+    trg.md();
+    for(final IOFile f : src.children()) f.copyTo(new IOFile(trg, f.name()));
+    final String expected = query(DOCUMENTS, NAME);
+    assertEquals(expected, query(DOCUMENTS, COPY));
+    assertFalse(wal(COPY).exists());
+  }
+
+  /**
+   * Returns the log file of the specified database.
+   * @param db name of database
+   * @return log file
+   */
+  private static IOFile wal(final String db) {
+    return MetaData.file(context.mprop.dbpath(db), DataText.DATAWAL);
+  }
+
+  /**
+   * Runs a query.
+   * @param query query, in which all percent signs will be replaced
+   * @param db replacement string
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query, final String db)
+      throws BaseXException {
+    return new XQuery(query.replace("%", db)).execute(context);
+  }
+}
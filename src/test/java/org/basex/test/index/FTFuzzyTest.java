@@ -0,0 +1,94 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the fuzzy search in the full-text index.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTFuzzyTest extends SandboxTest {
+  /** Name of the database without index. */
+  private static final String PLAIN = NAME + "Plain";
+  /** Number of generated texts. */
+  private static final int SIZE = 3000;
+  /** Search terms. */
+  private static final String[] TERMS = {
+    "alpha", "alhpa", "aplha", "beta", "gamma", "gama", "abcdef", "bcdefg",
+    "kabab", "übung", "ubung", "uebung", "strasse", "straße", "xyzxyz", "ab"
+  };
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void create() throws BaseXException {
+    final Random rnd = new Random(0);
+    final String chars = "abcdefgklmnostuüxyz";
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < SIZE; i++) {
+      sb.append("<a>");
+      for(int w = 0; w < 3; w++) {
+        final int l = 2 + rnd.nextInt(6);
+        for(int c = 0; c < l; c++) sb.append(chars.charAt(rnd.nextInt(chars.length())));
+        sb.append(' ');
+      }
+      sb.append(TERMS[i % TERMS.length]).append("</a>");
+    }
+    final String doc = sb.append("</x>").toString();
+    new CreateDB(PLAIN, doc).execute(context);
+    context.prop.set(Prop.FTINDEX, true);
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(PLAIN).execute(context);
+    context.prop.set(Prop.FTINDEX, false);
+    context.prop.set(Prop.LSERROR, 0);
+  }
+
+  /**
+   * Compares the results of index-based and sequential fuzzy searches.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void fuzzy() throws BaseXException {
+    for(final int err : new int[] { 0, 1, 2 }) {
+      context.prop.set(Prop.LSERROR, err);
+      for(final String term : TERMS) {
+        final String exp = query(PLAIN, term);
+        assertEquals(term, exp, query(NAME, term));
+        assertEquals(term, exp, new XQuery("string-join(ft:search('" + NAME + "', '" +
+            term + "', map { 'fuzzy':='' })/string(), '|')").execute(context));
+      }
+    }
+  }
+
+  /**
+   * Runs a fuzzy query.
+   * @param db database
+   * @param term search term
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String db, final String term)
+      throws BaseXException {
+    return new XQuery("string-join(db:open('" + db + "')//text()[. contains text '" +
+        term + "' using fuzzy]/string(), '|')").execute(context);
+  }
+}
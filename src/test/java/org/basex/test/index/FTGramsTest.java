@@ -0,0 +1,116 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the n-gram lists of the full-text index, which are used for resolving
+ * wildcard queries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTGramsTest extends SandboxTest {
+  /** Name of the database without n-gram lists. */
+  private static final String PLAIN = NAME + "Plain";
+  /** Number of generated texts. */
+  private static final int SIZE = 3000;
+  /** Words. */
+  private static final String[] WORDS = {
+    "database", "databases", "data", "realization", "organization", "ion",
+    "übersetzung", "straße", "a", "ab", "abc", "running", "ring"
+  };
+  /** Wildcard expressions. */
+  private static final String[] QUERIES = {
+    ".*ization", "da.*base", "data.*", ".*ion", "o.*n", "a", "ab.?", "..c",
+    ".*ing", ".*ß.*", "über.*", ".+a.+", ".{1,3}ta.*", ".*", "x.*", "ring",
+    ".*tion.*", "d.*a.*a.*"
+  };
+
+  /**
+   * Creates the test databases.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void create() throws BaseXException {
+    final Random rnd = new Random(0);
+    final String chars = "abdeginorstz";
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < SIZE; i++) {
+      sb.append("<a>");
+      for(int w = 0; w < 3; w++) {
+        final int l = 1 + rnd.nextInt(8);
+        for(int c = 0; c < l; c++) sb.append(chars.charAt(rnd.nextInt(chars.length())));
+        sb.append(' ');
+      }
+      sb.append(WORDS[i % WORDS.length]).append("</a>");
+    }
+    final String doc = sb.append("</x>").toString();
+    context.prop.set(Prop.FTINDEX, true);
+    new CreateDB(PLAIN, doc).execute(context);
+    context.prop.set(Prop.FTGRAMS, true);
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new DropDB(PLAIN).execute(context);
+    context.prop.set(Prop.FTINDEX, false);
+    context.prop.set(Prop.FTGRAMS, false);
+  }
+
+  /**
+   * Compares the results of wildcard queries with and without n-gram lists.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void wildcards() throws BaseXException {
+    assertTrue(MetaData.file(context.mprop.dbpath(NAME), DataText.DATAFTX + 'g').exists());
+    assertFalse(MetaData.file(context.mprop.dbpath(PLAIN), DataText.DATAFTX + 'g').exists());
+    for(final String query : QUERIES) {
+      final String exp = query(PLAIN, query);
+      assertEquals(query, exp, query(NAME, query));
+    }
+  }
+
+  /**
+   * Checks if the n-gram lists are preserved when the database is optimized.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void optimize() throws BaseXException {
+    context.prop.set(Prop.FTGRAMS, false);
+    new Open(NAME).execute(context);
+    new OptimizeAll().execute(context);
+    assertTrue(context.data().meta.ftgrams);
+    for(final String query : QUERIES) {
+      assertEquals(query, query(PLAIN, query), query(NAME, query));
+    }
+    context.prop.set(Prop.FTGRAMS, true);
+  }
+
+  /**
+   * Runs a wildcard query.
+   * @param db database
+   * @param query wildcard expression
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String db, final String query)
+      throws BaseXException {
+    return new XQuery("string-join(db:open('" + db + "')//text()[. contains text '" +
+        query + "' using wildcards]/string(), '|')").execute(context);
+  }
+}
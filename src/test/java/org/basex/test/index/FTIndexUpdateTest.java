@@ -0,0 +1,133 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.ft.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the incremental maintenance of the full-text index.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexUpdateTest extends SandboxTest {
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    context.prop.set(Prop.UPDINDEX, true);
+    context.prop.set(Prop.FTINDEX, true);
+    new CreateDB(NAME, "<x><a>alpha beta</a><a>gamma</a></x>").execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.UPDINDEX, false);
+    context.prop.set(Prop.FTINDEX, false);
+  }
+
+  /**
+   * Inserts new texts.
+   * @throws Exception exception
+   */
+  @Test
+  public void insert() throws Exception {
+    query("insert node <a>delta alpha</a> into /x");
+    assertTrue(context.data().meta.ftxtindex);
+    check("alpha", "alpha beta", "delta alpha");
+    check("delta", "delta alpha");
+    check("beta", "alpha beta");
+    check("'alpha delta' ordered", "");
+    check("'delta alpha' ordered", "delta alpha");
+    check("'del.*' using wildcards", "delta alpha");
+    check("'dalta' using fuzzy", "delta alpha");
+  }
+
+  /**
+   * Deletes and replaces texts.
+   * @throws Exception exception
+   */
+  @Test
+  public void delete() throws Exception {
+    query("insert node <a>delta alpha</a> as first into /x");
+    query("delete node //a[text() = 'alpha beta']");
+    check("alpha", "delta alpha");
+    check("beta", "");
+    query("replace value of node //a[1] with 'beta gamma'");
+    check("alpha", "");
+    check("delta", "");
+    check("gamma", "beta gamma", "gamma");
+    query("replace value of node //a[2]/text() with 'delta'");
+    check("gamma", "beta gamma");
+    check("delta", "delta");
+  }
+
+  /**
+   * Checks if updates are persistent and merged by the optimize command.
+   * @throws Exception exception
+   */
+  @Test
+  public void optimize() throws Exception {
+    query("insert node <a>delta alpha</a> as first into /x");
+    query("delete node //a[text() = 'gamma']");
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check("alpha", "delta alpha", "alpha beta");
+    check("gamma", "");
+
+    new Optimize().execute(context);
+    assertFalse(context.data().meta.dbfile(DataText.DATAFTX + 'd').exists());
+    check("alpha", "delta alpha", "alpha beta");
+    check("gamma", "");
+  }
+
+  /**
+   * Runs an updating query.
+   * @param query query
+   * @throws BaseXException database exception
+   */
+  private static void query(final String query) throws BaseXException {
+    new XQuery(query).execute(context);
+  }
+
+  /**
+   * Checks if a full-text query is evaluated via the index and returns the
+   * expected texts.
+   * @param ft full-text selection
+   * @param texts expected texts
+   * @throws Exception exception
+   */
+  private static void check(final String ft, final String... texts) throws Exception {
+    final String sel = ft.startsWith("'") ? ft : '\'' + ft + '\'';
+    final QueryProcessor qp = new QueryProcessor(
+        "string-join(//a/text()[. contains text " + sel + "], '|')", context);
+    try {
+      final String res = qp.execute().toString();
+      final StringBuilder exp = new StringBuilder();
+      for(final String t : texts) {
+        if(t.isEmpty()) continue;
+        if(exp.length() != 0) exp.append('|');
+        exp.append(t);
+      }
+      assertEquals(exp.toString(), res);
+      final String plan = qp.plan().serialize().toString();
+      assertTrue(plan, plan.contains(Util.name(FTIndexAccess.class)));
+    } finally {
+      qp.close();
+    }
+  }
+}
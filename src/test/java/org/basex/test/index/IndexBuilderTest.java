@@ -0,0 +1,120 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.ft.*;
+import org.basex.index.value.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the parallel construction of index structures.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilderTest extends SandboxTest {
+  /** Number of elements. */
+  private static final int SIZE = 100000;
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "count(//a[text() = '5'])",
+    "//a[text() = '123 t123']/@b/string()",
+    "count(//a[@b = '77'])",
+    "//a[@b = '999']/text()/string()",
+    "count(//a[text() contains text 't5'])",
+    "//a[text() contains text '5 t5' ordered]/@b/string()",
+    "count(//a[text() contains text '1' all words])",
+  };
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < SIZE; i++) {
+      sb.append("<a b='").append(i % 1000).append("'>").append(i % 777);
+      sb.append(" t").append(i).append("</a>");
+    }
+    context.prop.set(Prop.FTINDEX, true);
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.FTINDEX, false);
+  }
+
+  /**
+   * Compares the results of sequentially and concurrently built indexes.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    final String[] exp = results();
+    final Data data = context.data();
+    final IndexBuilder[] ibs = {
+      new ValueBuilder(data, true).parallel(4, null),
+      new ValueBuilder(data, false).parallel(4, null),
+      new FTBuilder(data).parallel(4, null)
+    };
+    final IndexType[] types = { IndexType.TEXT, IndexType.ATTRIBUTE, IndexType.FULLTEXT };
+    IndexBuilder.build(ibs);
+    for(int i = 0; i < types.length; i++) {
+      data.closeIndex(types[i]);
+      data.setIndex(types[i], ibs[i].open());
+    }
+    assertArrayEquals(exp, results());
+  }
+
+  /**
+   * Checks if existing indexes remain accessible while new indexes are built,
+   * and if they are preserved if building is aborted.
+   * @throws Exception exception
+   */
+  @Test
+  public void online() throws Exception {
+    final String[] exp = results();
+    final Data data = context.data();
+    final IndexBuilder ib1 = new ValueBuilder(data, true);
+    final IndexBuilder ib2 = new FTBuilder(data);
+    IndexBuilder.build(ib1, ib2);
+    assertTrue(data.meta.textindex && data.meta.ftxtindex);
+    assertArrayEquals(exp, results());
+
+    // discard temporary files
+    ib2.abort();
+    assertEquals(3, data.meta.path.children(DataText.DATATMP + ".+").length);
+    assertArrayEquals(exp, results());
+
+    // replace existing index
+    data.closeIndex(IndexType.TEXT);
+    data.setIndex(IndexType.TEXT, ib1.open());
+    assertEquals(0, data.meta.path.children(DataText.DATATMP + ".+").length);
+    assertArrayEquals(exp, results());
+  }
+
+  /**
+   * Returns the results of all queries.
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private static String[] results() throws BaseXException {
+    final String[] results = new String[QUERIES.length];
+    for(int q = 0; q < QUERIES.length; q++) {
+      results[q] = new XQuery(QUERIES[q]).execute(context);
+    }
+    return results;
+  }
+}
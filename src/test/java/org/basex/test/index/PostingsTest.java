@@ -0,0 +1,240 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the compressed id lists of the value and full-text indexes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class PostingsTest extends SandboxTest {
+  /** Sizes of the tested lists. */
+  private static final int[] SIZES = { 0, 1, 2, 15, 16, 127, 128, 129, 1000, 5000 };
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() contains text 'alpha']",
+    "//a[text() contains text 'alpha' ftand 'theta']",
+    "//a[text() contains text 'eta' ftand 'theta' ftand 'zeta']",
+    "//a[text() contains text 'eta theta' all words]",
+    "//a[text() contains text 'eta zeta']",
+    "//a[text() contains text ('theta' ftor 'zeta') ftand 'eta']",
+    "//a[text() contains text 'alpha' ftand ftnot 'beta']",
+    "//a[text() contains text 'thet' using fuzzy]",
+    "//b[text() = 'v17']",
+    "//b[text() >= 'v1' and text() <= 'v2']"
+  };
+
+  /** Random number generator. */
+  private final Random rnd = new Random(0);
+
+  /**
+   * Compresses and decompresses id lists.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void ids() throws IOException {
+    final DataAccess da = open();
+    try {
+      for(final int s : SIZES) {
+        for(final int r : new int[] { s * 2 + 1, Integer.MAX_VALUE - 1 }) {
+          final int[] ids = ids(s, r);
+          final byte[] list = Postings.ids(ids, s);
+          da.writeBytes(0, list);
+          assertArrayEquals(ids, Postings.ids(da, 0));
+          assertEquals(list.length, Postings.end(da, 0));
+        }
+      }
+    } finally {
+      da.close();
+    }
+  }
+
+  /**
+   * Compresses and decompresses id lists with positions, and skips ids.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void positions() throws IOException {
+    final DataAccess da = open();
+    try {
+      for(final int s : SIZES) {
+        final int[] ids = ids(s, s * 3 + 1);
+        // create shuffled id/pos pairs
+        final ArrayList<long[]> pairs = new ArrayList<long[]>();
+        for(final int id : ids) {
+          final int c = 1 + rnd.nextInt(5);
+          for(int p = 0; p < c; p++) pairs.add(new long[] { id, p * 1000 + rnd.nextInt(1000) });
+        }
+        Collections.shuffle(pairs, rnd);
+        final int ps = pairs.size();
+        final int[] pr = new int[ps], po = new int[ps];
+        for(int p = 0; p < ps; p++) {
+          pr[p] = (int) pairs.get(p)[0];
+          po[p] = (int) pairs.get(p)[1];
+        }
+        da.writeBytes(0, Postings.ids(pr, po, ps));
+
+        // all pairs must be returned in ascending order
+        final Postings.Cursor c = new Postings.Cursor(da, 0, true);
+        assertEquals(s, c.size);
+        int n = 0;
+        long last = -1;
+        while(c.next()) {
+          assertEquals(ids[n++], c.id());
+          for(int p = 0; p < c.count(); p++) {
+            final long v = (long) c.id() << 32 | c.pos(p);
+            assertTrue(v > last);
+            last = v;
+          }
+        }
+        assertEquals(s, n);
+
+        // skip ids
+        for(int i = 0; i < 20 && s != 0; i++) {
+          final int id = rnd.nextInt(ids[s - 1] + 2);
+          int e = Arrays.binarySearch(ids, id);
+          if(e < 0) e = -e - 1;
+          final Postings.Cursor sc = new Postings.Cursor(da, 0, true);
+          assertEquals(e < s, sc.skip(id));
+          if(e < s) assertEquals(ids[e], sc.id());
+        }
+      }
+    } finally {
+      da.close();
+    }
+  }
+
+  /**
+   * Compares the results of queries with and without index structures.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void queries() throws BaseXException {
+    final String[] words = { "alpha", "beta", "gamma", "delta", "eps", "zeta", "eta", "theta" };
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 5000; i++) {
+      sb.append("<a>");
+      for(int w = 1 + rnd.nextInt(12); w > 0; w--) {
+        sb.append(words[Math.min(words.length - 1, (int) Math.abs(rnd.nextGaussian() * 3))]);
+        sb.append(' ');
+      }
+      sb.append("</a><b>v").append(rnd.nextInt(300)).append("</b>");
+    }
+    final String doc = sb.append("</x>").toString();
+
+    new CreateDB(NAME, doc).execute(context);
+    final String[] expected = new String[QUERIES.length];
+    for(int q = 0; q < QUERIES.length; q++) expected[q] = query(QUERIES[q]);
+
+    context.prop.set(Prop.FTINDEX, true);
+    try {
+      for(final boolean upd : new boolean[] { false, true }) {
+        context.prop.set(Prop.UPDINDEX, upd);
+        new CreateDB(NAME, doc).execute(context);
+        for(int q = 0; q < QUERIES.length; q++) {
+          assertEquals(QUERIES[q], expected[q], query(QUERIES[q]));
+        }
+      }
+    } finally {
+      context.prop.set(Prop.FTINDEX, false);
+      context.prop.set(Prop.UPDINDEX, false);
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /**
+   * Compares the full-text results with the highest scores with the results
+   * of full evaluation.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void scores() throws BaseXException {
+    final String[] words = { "alpha", "beta", "gamma", "delta", "eps", "zeta", "eta", "theta" };
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 3000; i++) {
+      sb.append("<a>");
+      for(int w = 1 + rnd.nextInt(20); w > 0; w--) {
+        sb.append(words[Math.min(words.length - 1, (int) Math.abs(rnd.nextGaussian() * 3))]);
+        sb.append(' ');
+      }
+      sb.append("</a>");
+    }
+    final String doc = sb.append("</x>").toString();
+    final String[] terms = { "'alpha'", "('theta', 'zeta', 'eta')", "('eta theta', 'alpha')" };
+    final String[] options = { "", "<mode>any word</mode>", "<fuzzy/>", "<mode>all</mode>" };
+
+    context.prop.set(Prop.FTINDEX, true);
+    try {
+      for(final boolean upd : new boolean[] { false, true }) {
+        context.prop.set(Prop.UPDINDEX, upd);
+        new CreateDB(NAME, doc).execute(context);
+        for(final String t : terms) {
+          for(final String o : options) {
+            final String search = "ft:search('" + NAME + "', " + t + ", <options>" + o;
+            final String all = query("subsequence(for $x in " + search +
+                "</options>) order by ft:score($x) descending return $x, 1, 10)");
+            final String top = query("for $x in " + search +
+                "<topk>10</topk></options>) order by ft:score($x) descending return $x");
+            final String opt = query("(for $x score $s in " + search +
+                "</options>) order by $s descending return $x)[position() <= 10]");
+            assertEquals(t + o, all, top);
+            assertEquals(t + o, all, opt);
+          }
+        }
+      }
+    } finally {
+      context.prop.set(Prop.FTINDEX, false);
+      context.prop.set(Prop.UPDINDEX, false);
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /**
+   * Returns the pre values of the query results.
+   * @param query query
+   * @return pre values
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery("string-join((" + query + ")/string(db:node-pre(.)), ' ')").
+        execute(context);
+  }
+
+  /**
+   * Returns sorted and distinct random ids.
+   * @param s number of ids
+   * @param r range of the ids
+   * @return ids
+   */
+  private int[] ids(final int s, final int r) {
+    final TreeSet<Integer> set = new TreeSet<Integer>();
+    while(set.size() < s) set.add(rnd.nextInt(r));
+    final int[] ids = new int[s];
+    int i = 0;
+    for(final int id : set) ids[i++] = id;
+    return ids;
+  }
+
+  /**
+   * Opens a temporary file.
+   * @return data access
+   * @throws IOException I/O exception
+   */
+  private static DataAccess open() throws IOException {
+    final IOFile file = new IOFile(sandbox(), NAME);
+    file.write(new byte[0]);
+    return new DataAccess(file);
+  }
+}
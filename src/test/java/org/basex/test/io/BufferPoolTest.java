@@ -0,0 +1,99 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for the global page cache ({@link BufferPool}).
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPoolTest {
+  /** Number of written tokens (exceeds the minimum number of buffers). */
+  private static final int TOKENS = 4096;
+  /** First temporary file. */
+  private IOFile file1;
+  /** Second temporary file. */
+  private IOFile file2;
+
+  /**
+   * Set up method: shrinks the page cache to its minimum size.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    BufferPool.size(0);
+    file1 = new IOFile(File.createTempFile("pool", IO.BASEXSUFFIX));
+    file2 = new IOFile(File.createTempFile("pool", IO.BASEXSUFFIX));
+  }
+
+  /**
+   * Tear down method.
+   */
+  @After
+  public void tearDown() {
+    file1.delete();
+    file2.delete();
+    BufferPool.size(16);
+  }
+
+  /**
+   * Writes and reads tokens from two files that compete for the same buffers.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void evict() throws IOException {
+    DataAccess da1 = new DataAccess(file1);
+    DataAccess da2 = new DataAccess(file2);
+    final long[] pos1 = new long[TOKENS];
+    final long[] pos2 = new long[TOKENS];
+    for(int i = 0; i < TOKENS; i++) {
+      pos1[i] = da1.length();
+      da1.writeToken(pos1[i], token(i));
+      pos2[i] = da2.length();
+      da2.writeToken(pos2[i], token(-i));
+    }
+    // read entries before and after the files have been flushed
+    check(da1, pos1, 1);
+    check(da2, pos2, -1);
+    da1.close();
+    da2.close();
+    da1 = new DataAccess(file1);
+    da2 = new DataAccess(file2);
+    check(da1, pos1, 1);
+    check(da2, pos2, -1);
+    da1.close();
+    da2.close();
+    assertTrue(BufferPool.info().contains("hits"));
+  }
+
+  /**
+   * Checks the written tokens in reverse order.
+   * @param da data access
+   * @param pos token positions
+   * @param f factor
+   */
+  private static void check(final DataAccess da, final long[] pos, final int f) {
+    for(int i = TOKENS - 1; i >= 0; i--) {
+      assertEquals(Token.string(token(i * f)), Token.string(da.readToken(pos[i])));
+    }
+  }
+
+  /**
+   * Creates a test token.
+   * @param i integer
+   * @return token
+   */
+  private static byte[] token(final int i) {
+    final TokenBuilder tb = new TokenBuilder();
+    for(int t = 0; t < 50; t++) tb.add(i);
+    return tb.finish();
+  }
+}
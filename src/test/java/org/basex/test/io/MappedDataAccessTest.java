@@ -0,0 +1,22 @@
+package org.basex.test.io;
+
+import java.io.*;
+
+import org.basex.io.random.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link DataAccess}, using memory-mapped read access.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedDataAccessTest extends DataAccessTest {
+  @Before
+  @Override
+  public void setUp() throws IOException {
+    super.setUp();
+    da.close();
+    da = new DataAccess(file, true);
+  }
+}
@@ -167,6 +167,29 @@ public final class IndexOptimizeTest extends SandboxTest {
         "//text()[. contains text { $x }] }; local:x('1')", "1");
   }
 
+  /**
+   * Checks if the index is skipped if it yields too many results.
+   * @throws Exception unexpected exception
+   */
+  @Test
+  public void costsTest() throws Exception {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 1000; i++) {
+      final String v = i % 10 == 0 ? "rare" : "common";
+      sb.append("<a x='" + v + "'>" + v + "</a>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+    check("count(//a[text() = 'rare'])", "100");
+    check("count(//a[@x = 'rare'])", "100");
+    check("count(//a[text() contains text 'rare'])", "100");
+    check("count(//a[text() = 'common'])", "900", false);
+    check("count(//a[@x = 'common'])", "900", false);
+    check("count(//a[text() contains text 'common'])", "900", false);
+    check("count(//a[text() contains text 'common rare' any word])", "1000", false);
+    // choose cheapest predicate
+    check("count(//a[@x = 'common'][text() = 'rare'])", "0");
+  }
+
   /**
    * Creates a test database.
    * @throws Exception exception
@@ -203,6 +226,18 @@ public final class IndexOptimizeTest extends SandboxTest {
    * @param result expected query result
    */
   private static void check(final String query, final String result) {
+    check(query, result, true);
+  }
+
+  /**
+   * Checks if specified query was rewritten for index access or not, and checks
+   * the query result.
+   * @param query query to be tested
+   * @param result expected query result
+   * @param index index flag
+   */
+  private static void check(final String query, final String result,
+      final boolean index) {
     // compile query
     String plan = null;
     final QueryProcessor qp = new QueryProcessor(query, context);
@@ -221,8 +256,8 @@ public final class IndexOptimizeTest extends SandboxTest {
           "[self::" + Util.name(ValueAccess.class) +
           "|self::" + Util.name(FTIndexAccess.class) + "]",
           context).execute().serialize();
-      assertFalse("No index used:\nQuery: " + query + "\nInfo: " + info +
-          "\nPlan: " + plan, ao.toString().isEmpty());
+      assertEquals((index ? "No index used" : "Index used") + ":\nQuery: " + query +
+          "\nInfo: " + info + "\nPlan: " + plan, index, !ao.toString().isEmpty());
     } catch(final QueryException ex) {
       fail(Util.message(ex) + "\nQuery: " + query + "\nPlan: " + plan);
     } catch(final IOException ex) {
@@ -1,6 +1,7 @@
 package org.basex.test.query.ast;
 
 import org.basex.core.*;
+import org.basex.query.expr.*;
 import org.basex.query.flwor.*;
 import org.basex.util.*;
 import org.junit.*;
@@ -73,4 +74,42 @@ public final class FlworOptimizeTest extends QueryPlanTest {
         "every $for in //For satisfies exactly-one(//Let) << $for"
     );
   }
+
+  /** Tests the rewriting of an equi-join to a hash join. */
+  @Test public void hashJoin() {
+    check("let $x := (<a id='1'/>, <a id='2'/>, <a id='3'/>) " +
+        "let $y := (<b r='2'/>, <b r='1 '/>, <b r='1'/>, <b r='2' n='x'/>) " +
+        "for $a in $x for $b in $y " +
+        "where $a/@id = $b/@r " +
+        "return concat($a/@id, $b/@r, $b/@n)",
+
+        "11 22 22x",
+        Util.info("exists(//%)", HashJoin.class)
+    );
+  }
+
+  /** Tests a hash join with multiple keys and additional predicates. */
+  @Test public void hashJoinMultiple() {
+    check("let $x := (<a><i>1</i><i>2</i></a>, <a><i>3</i></a>) " +
+        "let $y := (<b r='3'/>, <b r='1'/>, <b r='2'/>, <b r='1'/>) " +
+        "for $a in $x for $b in $y " +
+        "where $b/@r = $a/i and $b/@r != '3' " +
+        "return concat($a/i[1], $b/@r)",
+
+        "11 12 11",
+        Util.info("exists(//%)", HashJoin.class)
+    );
+  }
+
+  /** Tests that comparisons of numbers are not rewritten to hash joins. */
+  @Test public void noHashJoin() {
+    check("let $y := (<b r='3'/>, <b r='1.0'/>) " +
+        "for $a in 1 to 3 for $b in $y " +
+        "where $b/@r = $a " +
+        "return string($b/@r)",
+
+        "1.0 3",
+        Util.info("empty(//%)", HashJoin.class)
+    );
+  }
 }
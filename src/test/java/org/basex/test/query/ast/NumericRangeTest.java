@@ -0,0 +1,141 @@
+package org.basex.test.query.ast;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.query.expr.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests if numeric range queries are correctly evaluated with(out) the index.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class NumericRangeTest extends QueryPlanTest {
+  /** Range access. */
+  private static final Class<? extends Expr> RANGE = RangeAccess.class;
+
+  /**
+   * Initializes the tests.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    // create initial document
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add("<xml>");
+    for(int i = 0; i < 1000; i++) {
+      // add integers and decimals
+      tb.add("<n>").addInt(i - 500).add("</n>");
+      tb.add("<d>").addInt(i / 4).add('.').addInt(i % 4 * 25 + 100).add("</d>");
+    }
+    tb.add("</xml>");
+    new CreateDB(NAME, tb.toString()).execute(context);
+  }
+
+  /**
+   * Finishes the tests.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.UPDINDEX, false);
+  }
+
+  /**
+   * Tests integer ranges.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void integers() throws BaseXException {
+    test("count(//n[text() >= -10 and text() <= 10])", "21", RANGE);
+    test("count(//n[text() >= -500 and text() <= -491])", "10", RANGE);
+    test("count(//n[text() >= 490 and text() <= 10000])", "10", RANGE);
+    test("count(//n[text() >= 500 and text() <= 10000])", "0");
+  }
+
+  /**
+   * Tests decimal ranges.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void decimals() throws BaseXException {
+    test("count(//d[text() >= 10.1 and text() <= 10.2])", "4", RANGE);
+    test("count(//d[text() >= 10 and text() <= 11])", "4", RANGE);
+    test("count(//d[text() >= 0.125 and text() <= 0.15])", "2", RANGE);
+    test("count(//d[text() >= -1.5 and text() <= 1.5])", "8", RANGE);
+    test("count(//d[text() >= 249.2 and text() <= 300])", "0");
+  }
+
+  /**
+   * Checks that updates drop the numeric keys, that the index results are still
+   * counted correctly, and that the keys are recreated by the optimize command.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    context.prop.set(Prop.UPDINDEX, true);
+    new CreateDB(NAME + "upd", "<xml><n>1</n><n>2</n><n>3</n></xml>").execute(context);
+    final String query = "count(//n[text() >= 2 and text() <= 4])";
+    check(query, "2", "exists(//" + Util.name(RANGE) + ")");
+    assertTrue(numeric().exists());
+
+    new XQuery("insert node <n>4</n> into /xml").execute(context);
+    assertFalse(numeric().exists());
+    check(query, "3");
+    assertEquals(3, context.data().count(new NumericRange(IndexType.TEXT, 2, 4)));
+
+    new Optimize().execute(context);
+    assertTrue(numeric().exists());
+    check(query, "3", "exists(//" + Util.name(RANGE) + ")");
+    new DropDB(NAME + "upd").execute(context);
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Returns the file with the numeric keys of the text index.
+   * @return file
+   */
+  private static IOFile numeric() {
+    return context.data().meta.dbfile(DataText.DATATXT + 'n');
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @param expr class expected in query plan
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final String result,
+      final Class<? extends Expr> expr) throws BaseXException {
+
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    check(query, result, "exists(//" + Util.name(expr) + ")");
+    new DropIndex(CmdIndex.TEXT).execute(context);
+    check(query, result, "not(//" + Util.name(expr) + ")");
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final String result)
+      throws BaseXException {
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    check(query, result);
+    new DropIndex(CmdIndex.TEXT).execute(context);
+    check(query, result);
+  }
+}
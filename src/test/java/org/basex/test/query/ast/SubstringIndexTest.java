@@ -0,0 +1,149 @@
+package org.basex.test.query.ast;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests if substring queries are correctly evaluated with(out) the index.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class SubstringIndexTest extends QueryPlanTest {
+  /** Class of the index expression. */
+  private static final String ACCESS = "//SubstringAccess";
+
+  /**
+   * Initializes the tests.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    final Random rnd = new Random(0);
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add("<xml>");
+    for(int i = 0; i < 2000; i++) {
+      final TokenBuilder r = new TokenBuilder();
+      final int s = rnd.nextInt(12);
+      for(int j = 0; j <= s; j++) r.add('a' + rnd.nextInt(6));
+      tb.add("<x id='").add(r.finish()).add("'>").addInt(i).add("-").add(r.finish());
+      tb.add("</x>");
+    }
+    tb.add("<y>abc</y><y>abc<z/>abc</y><y>\u00e4bc\u00e4</y></xml>");
+    new CreateDB(NAME, tb.toString()).execute(context);
+  }
+
+  /**
+   * Finishes the tests.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Tests the rewriting of string functions on texts.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void texts() throws BaseXException {
+    test("count(//text()[contains(., 'abcd')])", true);
+    test("count(//x/text()[contains(., 'eeb')])", true);
+    test("count(//text()[starts-with(., '12')])", true);
+    test("//x/text()[starts-with(., '1999-')]/..", true);
+    test("count(//text()[ends-with(., 'fa')])", true);
+    test("count(//x/text()[ends-with(., 'ffff')])", true);
+    test("string-join(//y/text()[contains(., '\u00e4bc')], ' ')", true);
+    test("string-join(//y/text()[ends-with(., 'c\u00e4')], ' ')", true);
+  }
+
+  /**
+   * Tests the rewriting of string functions on attributes.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void attributes() throws BaseXException {
+    test("count(//@id[contains(., 'abcd')])", true);
+    test("count(//x[contains(@id, 'dde')])", true);
+    test("count(//x[starts-with(@id, 'fa')])", true);
+    test("count(//x[ends-with(@id, 'aab')])", true);
+    test("count(//@*[starts-with(., 'ffff')])", true);
+  }
+
+  /**
+   * Tests string functions that are not rewritten.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void noIndex() throws BaseXException {
+    test("count(//text()[contains(., '')])", false);
+    test("count(//x[contains(., 'abc')])", false);
+    test("count(//x[contains(text(), 'abc')])", false);
+    test("count(//x[contains(@*, 'abc')])", false);
+    test("count(//text()[contains(., 'abc', " +
+        "'http://www.w3.org/2005/xpath-functions/collation/codepoint')])", false);
+  }
+
+  /**
+   * Checks if the index is invalidated by updates, and rebuilt by optimizations.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    final String query = "count(//text()[contains(., 'abcd')])";
+    new CreateIndex(CmdIndex.SUBSTRING).execute(context);
+    assertTrue(context.data().meta.substrindex);
+    final String result = new XQuery(query).execute(context);
+    try {
+      new XQuery("insert node <x>abcd</x> into /xml").execute(context);
+      assertFalse(context.data().meta.substrindex);
+      final String exp = Integer.toString(Integer.parseInt(result) + 1);
+      check(query, exp, "empty(" + ACCESS + ')');
+      new Optimize().execute(context);
+      assertTrue(context.data().meta.substrindex);
+      check(query, exp, "exists(" + ACCESS + ')');
+    } finally {
+      new XQuery("delete node /xml/x[. = 'abcd']").execute(context);
+      new DropIndex(CmdIndex.SUBSTRING).execute(context);
+    }
+  }
+
+  /**
+   * Tests the index information.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void info() throws BaseXException {
+    new CreateIndex(CmdIndex.SUBSTRING).execute(context);
+    assertTrue(new InfoIndex(CmdIndexInfo.SUBSTRING).execute(context).contains(
+        Text.NGRAMS));
+    new DropIndex(CmdIndex.SUBSTRING).execute(context);
+    assertFalse(context.data().meta.substrindex);
+    assertFalse(new InfoIndex(CmdIndexInfo.SUBSTRING).execute(context).contains(
+        Text.NGRAMS));
+  }
+
+  /**
+   * Compares the results of a query with and without index.
+   * @param query query
+   * @param index index flag
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final boolean index)
+      throws BaseXException {
+
+    final String result = new XQuery(query).execute(context);
+    new CreateIndex(CmdIndex.SUBSTRING).execute(context);
+    check(query, result, (index ? "exists(" : "empty(") + ACCESS + ')');
+    new DropIndex(CmdIndex.SUBSTRING).execute(context);
+    check(query, result, "empty(" + ACCESS + ')');
+  }
+}
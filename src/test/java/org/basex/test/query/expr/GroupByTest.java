@@ -0,0 +1,116 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the incremental aggregation and the swapping of groups in group by clauses.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupByTest extends SandboxTest {
+  /** Grouping query on database nodes. */
+  private static final String NODES = "for $a in //a group by $k := $a/@k " +
+      "order by $k return $k || ':' || count($a) || ':' || string-join($a, ',')";
+  /** Grouping query on atomic values and constructed nodes. */
+  private static final String MIXED = "for $i in 1 to 1000 " +
+      "let $e := if($i mod 100 = 0) then <e>{ $i }</e> else $i " +
+      "group by $k := $i mod 7 order by $k " +
+      "return $k || ':' || sum($e) || ':' || string-join($e ! string(), '')";
+  /** Grouping query without order by clause. */
+  private static final String UNORDERED = "for $i in 1 to 1000 " +
+      "let $n := $i * 7919 mod 1000 group by $k := $n mod 37 " +
+      "return $k || ':' || count($n) || ':' || string-join($n ! string(), ',')";
+  /** Aggregating query. */
+  private static final String AGGR = "for $i in 1 to 1000 " +
+      "let $d := $i div 2, $s := string($i), $t := ($i, $i) " +
+      "group by $k := $i mod 3 order by $k " +
+      "return $k || ':' || count($t) || ':' || sum($d) || ':' || min($s) || ':' || max($s)";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void create() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 1000; i++) {
+      sb.append("<a k='").append(i % 13).append("'>").append(i).append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database and resets the limit.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.SPILLSIZE, (Integer) Prop.SPILLSIZE[1]);
+  }
+
+  /**
+   * Checks if aggregates are computed incrementally.
+   * @throws Exception exception
+   */
+  @Test
+  public void aggregate() throws Exception {
+    context.prop.set(Prop.QUERYINFO, true);
+    try {
+      final QueryProcessor qp = new QueryProcessor(AGGR, context);
+      final String result = qp.execute().toString();
+      final String info = qp.info();
+      qp.close();
+      assertEquals("0:666:83416.5:102:999 1:668:83583.5:1:997 2:666:83250:101:998",
+          result);
+      assertTrue(info, info.contains(Util.info(QueryText.OPTAGGR, "$t")));
+      assertTrue(info, info.contains(Util.info(QueryText.OPTAGGR, "$d")));
+      // variables referenced by different functions are materialized
+      assertFalse(info, info.contains(Util.info(QueryText.OPTAGGR, "$s")));
+    } finally {
+      context.prop.set(Prop.QUERYINFO, false);
+    }
+    assertEquals("1:3:3:2", query("for $i in (1, 3, 3) group by $k := 1 " +
+        "return $k || ':' || count($i) || ':' || max($i) || ':' || count(($i, $i)[. = 1])"));
+  }
+
+  /**
+   * Compares the results of cached and swapped groups. Without order by clause,
+   * the groups must be returned in the order of their first appearance.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void spill() throws BaseXException {
+    for(final String query : new String[] { NODES, MIXED, AGGR, UNORDERED }) {
+      context.prop.set(Prop.SPILLSIZE, 0);
+      final String expected = query(query);
+      for(final int size : new int[] { 1, 10, 100, 10000 }) {
+        context.prop.set(Prop.SPILLSIZE, size);
+        assertEquals(expected, query(query));
+      }
+    }
+    // no temporary files must be left
+    for(final IOFile file : context.mprop.dbpath().children()) {
+      assertFalse(file.name(), file.name().endsWith(".tmp"));
+    }
+  }
+
+  /**
+   * Runs a query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+}
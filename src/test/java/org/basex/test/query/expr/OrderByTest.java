@@ -0,0 +1,129 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the pruning of limited results and the external sorting of
+ * order by clauses.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class OrderByTest extends SandboxTest {
+  /** Ordering query on database nodes. */
+  private static final String NODES = "for $a in //a order by $a/@k descending, " +
+      "string($a) return $a/@k || ':' || $a";
+  /** Ordering query on atomic values and constructed nodes. */
+  private static final String MIXED = "for $i in 1 to 2000 " +
+      "let $e := if($i mod 100 = 0) then <e>{ $i }</e> else $i " +
+      "order by $i mod 7, $i mod 11 descending empty least, $i return $e";
+  /** Stable ordering query with empty keys. */
+  private static final String STABLE = "for $i in 1 to 2000 " +
+      "stable order by (if($i mod 5 = 0) then () else $i mod 3) empty greatest " +
+      "return ($i, string($i))";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void create() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 1000; i++) {
+      sb.append("<a k='").append(i % 13).append("'>").append(i).append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database and resets the limit.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void drop() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.prop.set(Prop.SPILLSIZE, (Integer) Prop.SPILLSIZE[1]);
+  }
+
+  /**
+   * Compares the results of limited and complete sorts.
+   * @throws Exception exception
+   */
+  @Test
+  public void limit() throws Exception {
+    for(final String query : new String[] { NODES, MIXED, STABLE }) {
+      // the second predicate prevents the limitation of the reference query
+      final String all = "(" + query + ")[position() >= 1]";
+      for(final String[] lim : new String[][] {
+          { "head(" + query + ")", all + "[1]", "1" },
+          { "subsequence(" + query + ", 3, 2000)", all + "[position() = 3 to 2002]",
+            "2002" },
+          { "subsequence(" + query + ", 1500.4, 0.6)", all + "[1500]", "1500" },
+          { "(" + query + ")[position() <= 1234]", all + "[position() <= 1234]", "1234" },
+        }) {
+        assertEquals(query(lim[1]), limited(lim[0], lim[2]));
+      }
+    }
+  }
+
+  /**
+   * Compares the results of cached and swapped tuples.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void spill() throws BaseXException {
+    for(final String query : new String[] { NODES, MIXED, STABLE }) {
+      for(final String q : new String[] { query, "(" + query + ")[position() <= 1500]" }) {
+        context.prop.set(Prop.SPILLSIZE, 0);
+        final String expected = query(q);
+        for(final int size : new int[] { 1, 10, 100, 10000 }) {
+          context.prop.set(Prop.SPILLSIZE, size);
+          assertEquals(expected, query(q));
+        }
+      }
+    }
+    // no temporary files must be left
+    for(final IOFile file : context.mprop.dbpath().children()) {
+      assertFalse(file.name(), file.name().endsWith(".tmp"));
+    }
+  }
+
+  /**
+   * Runs a query and checks if the number of sorted results has been limited.
+   * @param query query
+   * @param limit expected limit
+   * @return result
+   * @throws Exception exception
+   */
+  private static String limited(final String query, final String limit) throws Exception {
+    context.prop.set(Prop.QUERYINFO, true);
+    try {
+      final QueryProcessor qp = new QueryProcessor(query, context);
+      final String result = qp.execute().toString();
+      final String info = qp.info();
+      qp.close();
+      assertTrue(info, info.contains(Util.info(QueryText.OPTLIMIT, limit)));
+      return result;
+    } finally {
+      context.prop.set(Prop.QUERYINFO, false);
+    }
+  }
+
+  /**
+   * Runs a query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context);
+  }
+}
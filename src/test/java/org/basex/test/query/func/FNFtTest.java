@@ -64,10 +64,16 @@ public final class FNFtTest extends AdvancedQueryTest {
         "Exercise 1Exercise 2");
     query(_FT_SEARCH.args(" .", "1 Exercise", " map { 'mode':='all words' }"),
         "Exercise 1");
+    // check results with the highest scores
+    query(_FT_SEARCH.args(" .", "1 Exercise", " map { 'mode':='any word', 'topk':='1' }"),
+        "Exercise 1");
+    query(_FT_SEARCH.args(" .", "1 Exercise", " map { 'mode':='any word', 'topk':='0' }"),
+        "");
 
     // check buggy options
     error(_FT_SEARCH.args(" .", "x", " map { 'x':='y' }"), Err.ELMOPTION);
     error(_FT_SEARCH.args(" .", "x", " map { 'mode':='' }"), Err.ELMOPTION);
+    error(_FT_SEARCH.args(" .", "x", " map { 'topk':='-1' }"), Err.ELMOPTION);
     error(_FT_SEARCH.args(" .", "x", " 1"), Err.ELMMAPTYPE);
   }
 
@@ -126,6 +132,9 @@ public final class FNFtTest extends AdvancedQueryTest {
   public void score() {
     query(_FT_SCORE.args(_FT_SEARCH.args(" . ", "2")), "1");
     query(_FT_SCORE.args(_FT_SEARCH.args(" . ", "XML")), "1 0.5");
+    query(_FT_SCORE.args(_FT_SEARCH.args(" . ", "XML", " map { 'topk':='1' }")), "1");
+    query("(for $x in " + _FT_SEARCH.args(" . ", "XML") + " order by " +
+        _FT_SCORE.args("$x") + " descending return " + _FT_SCORE.args("$x") + ")[1]", "1");
   }
 
   /**
@@ -19,4 +19,21 @@ public final class FNPatTest extends AdvancedQueryTest {
     query("replace(' aaa AAA 123','(\\s+\\P{Ll}{3,280}?)','$1@')", " aaa AAA@ 123@");
     error("replace('asdf','a{12,3}','')", Err.REGPAT);
   }
+
+  /** Tests the compilation of static and dynamic patterns. */
+  @Test
+  public void patterns() {
+    // static patterns
+    query("for $s in ('a', 'B', 'c') return replace($s, '[a-b]', 'x', 'i')", "x x c");
+    query("for $s in ('a b', 'c') return count(tokenize($s, ' '))", "2 1");
+    // dynamic patterns and modifiers
+    query("for $p in ('a', 'b', 'a') return matches('A', $p, 'i')", "true false true");
+    query("for $m in ('', 'i') return matches('A', 'a', $m)", "false true");
+    query("for $p in ('a', '.') return matches('a', $p, 'q')", "true false");
+    // invalid static patterns are only rejected if they are evaluated
+    query("for $s in ('a', 'b') return if($s = 'c') then matches($s, '[') else $s",
+        "a b");
+    error("for $s in ('a', 'b') return matches($s, '[')", Err.REGPAT);
+    error("for $s in ('a', 'b') return matches($s, 'a', 'z')", Err.REGMOD);
+  }
 }
@@ -0,0 +1,150 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.in.*;
+import org.basex.server.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the multiplexing of idle client sessions.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelectorTest extends SandboxTest {
+  /** Number of sessions (exceeds the number of worker threads). */
+  private static final int SESSIONS = 100;
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    server = createServer();
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Opens many sessions and sends interleaved requests.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void interleaved() throws IOException {
+    final ClientSession[] cs = new ClientSession[SESSIONS];
+    for(int c = 0; c < SESSIONS; c++) cs[c] = createClient();
+    try {
+      final ClientQuery[] qu = new ClientQuery[SESSIONS];
+      for(int c = 0; c < SESSIONS; c++) qu[c] = cs[c].query(c + " to " + (c + 2));
+      for(int c = SESSIONS - 1; c >= 0; c--) {
+        assertEquals(Integer.toString(c * 3 + 3), cs[c].query(
+            "sum(" + c + " to " + (c + 2) + ")").execute());
+        int i = c;
+        while(qu[c].more()) assertEquals(Integer.toString(i++), qu[c].next());
+        assertEquals(c + 3, i);
+        qu[c].close();
+      }
+    } finally {
+      for(final ClientSession s : cs) s.close();
+    }
+  }
+
+  /**
+   * Sends concurrent requests from many sessions.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    final ExecutorService es = Executors.newFixedThreadPool(SESSIONS);
+    final ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+    for(int c = 0; c < SESSIONS; c++) {
+      final int n = c;
+      results.add(es.submit(new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+          final ClientSession cs = createClient();
+          try {
+            final StringBuilder sb = new StringBuilder();
+            for(int i = 0; i < 10; i++) sb.append(cs.execute("xquery " + n + " + " + i));
+            return sb.toString();
+          } finally {
+            cs.close();
+          }
+        }
+      }));
+    }
+    for(int c = 0; c < SESSIONS; c++) {
+      final StringBuilder sb = new StringBuilder();
+      for(int i = 0; i < 10; i++) sb.append(c + i);
+      assertEquals(sb.toString(), results.get(c).get());
+    }
+    es.shutdown();
+  }
+
+  /**
+   * Checks that clients, which stop sending data in the middle of a request,
+   * do not block the worker threads.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void stalled() throws IOException {
+    final Context ctx = new Context();
+    ctx.mprop.set(MainProp.DBPATH, sandbox().path());
+    ctx.mprop.set(MainProp.KEEPALIVE, 1);
+    final int parallel = ctx.mprop.num(MainProp.PARALLEL);
+    final BaseXServer srv;
+    try {
+      System.setOut(NULL);
+      srv = new BaseXServer(ctx, "-z", "-p9997", "-e9996");
+    } finally {
+      System.setOut(OUT);
+    }
+    final Socket[] stalled = new Socket[parallel];
+    try {
+      for(int s = 0; s < parallel; s++) {
+        final Socket socket = new Socket(LOCALHOST, 9997);
+        final BufferInput bi = new BufferInput(socket.getInputStream());
+        final OutputStream os = socket.getOutputStream();
+        // log in and send the first byte of a command
+        final String ts = bi.readString();
+        os.write(Token.token(ADMIN + '\0' + Token.md5(Token.md5(ADMIN) + ts) + '\0'));
+        os.flush();
+        assertEquals(0, bi.read());
+        os.write('x');
+        os.flush();
+        stalled[s] = socket;
+      }
+      final ClientSession cs = new ClientSession(LOCALHOST, 9997, ADMIN, ADMIN);
+      try {
+        assertEquals("1", cs.execute("xquery 1"));
+      } finally {
+        cs.close();
+      }
+    } finally {
+      for(final Socket s : stalled) if(s != null) s.close();
+      stopServer(srv);
+      ctx.close();
+    }
+  }
+}
@@ -5,6 +5,8 @@ import static org.junit.Assert.*;
 import java.io.*;
 
 import org.basex.*;
+import org.basex.core.*;
+import org.basex.server.*;
 import org.basex.util.*;
 import org.junit.*;
 
@@ -46,4 +48,69 @@ public class ClientSessionTest extends SessionTest {
       fail(Util.message(ex));
     }
   }
+
+  /**
+   * Streams the results of a query.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryStream() throws IOException {
+    final ClientSession cs = createClient();
+    try {
+      final ClientQuery query = cs.query("for $i in 1 to 100000 return <a>{ $i }</a>");
+      query.stream(true);
+      int c = 0;
+      while(query.more()) assertEquals("<a>" + ++c + "</a>", query.next());
+      assertEquals(100000, c);
+      query.close();
+      // session can be used again
+      assertEquals("1", cs.execute("xquery 1"));
+    } finally {
+      cs.close();
+    }
+  }
+
+  /**
+   * Closes a query before all streamed results have been read.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryStreamClose() throws IOException {
+    final ClientSession cs = createClient();
+    try {
+      final ClientQuery query = cs.query("1 to 100000");
+      query.stream(true);
+      assertTrue(query.more());
+      assertEquals("1", query.next());
+      query.close();
+      assertEquals("1", cs.execute("xquery 1"));
+    } finally {
+      cs.close();
+    }
+  }
+
+  /**
+   * Raises an error while results are streamed.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void queryStreamError() throws IOException {
+    final ClientSession cs = createClient();
+    try {
+      final ClientQuery query = cs.query("for $i in 1 to 3 return 1 div (2 - $i)");
+      query.stream(true);
+      assertTrue(query.more());
+      assertEquals("1", query.next());
+      try {
+        query.more();
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        // expected
+      }
+      query.close();
+      assertEquals("1", cs.execute("xquery 1"));
+    } finally {
+      cs.close();
+    }
+  }
 }